@@ -9,6 +9,15 @@ import com.github.unidbg.arm.backend.dynarmic.DynarmicException;
 import com.github.unidbg.arm.backend.dynarmic.EventMemHookNotifier;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import unicorn.UnicornConst;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 public abstract class DynarmicBackend extends FastBackend implements Backend, DynarmicCallback {
 
@@ -66,16 +75,79 @@ public abstract class DynarmicBackend extends FastBackend implements Backend, Dy
 
     protected long until;
 
+    private static final long WATCHDOG_RETRY_MICROS = 1000;
+
+    private static ScheduledExecutorService watchdogScheduler;
+
+    private static synchronized ScheduledExecutorService getWatchdogScheduler() {
+        if (watchdogScheduler == null) {
+            watchdogScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "unidbg-dynarmic-watchdog");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return watchdogScheduler;
+    }
+
+    /**
+     * Halts the jit once the timeout of one {@link #emu_start(long, long, long, long)} elapsed,
+     * repeated until the emulation returns: a halt requested before the jit entered the guest code is not kept.
+     */
+    private class Watchdog implements Runnable {
+        private boolean active = true;
+        private boolean fired;
+        @Override
+        public synchronized void run() {
+            if (active) {
+                fired = true;
+                try {
+                    dynarmic.emu_stop();
+                } catch (DynarmicException e) {
+                    log.warn("watchdog emu_stop failed", e);
+                }
+            }
+        }
+        synchronized boolean deactivate() {
+            active = false;
+            return fired;
+        }
+    }
+
+    /**
+     * @param timeout when the emulation runs longer than this duration (in microseconds), it is halted and {@link EmulationTimeoutException} is thrown.
+     * @param count the emulation returns once <code>count</code> instructions have been emulated, like the unicorn backend.
+     */
     @Override
     public final synchronized void emu_start(long begin, long until, long timeout, long count) throws BackendException {
         if (log.isDebugEnabled()) {
             log.debug("emu_start begin=0x" + Long.toHexString(begin) + ", until=0x" + Long.toHexString(until) + ", timeout=" + timeout + ", count=" + count);
         }
         this.until = until + 4;
+        Watchdog watchdog = null;
+        ScheduledFuture<?> future = null;
+        if (timeout > 0) {
+            watchdog = new Watchdog();
+            future = getWatchdogScheduler().scheduleWithFixedDelay(watchdog, timeout, WATCHDOG_RETRY_MICROS, TimeUnit.MICROSECONDS);
+        }
+        boolean timedOut = false;
         try {
-            dynarmic.emu_start(begin);
+            dynarmic.emu_start(begin, count);
         } catch (DynarmicException e) {
             throw new BackendException(e);
+        } catch (UnsatisfiedLinkError e) {
+            throw missingNative("emu_start with an instruction count", e);
+        } finally {
+            if (watchdog != null) {
+                future.cancel(false);
+                timedOut = watchdog.deactivate();
+            }
+        }
+        if (timedOut) {
+            throw new EmulationTimeoutException(timeout);
         }
     }
 
@@ -93,6 +165,62 @@ public abstract class DynarmicBackend extends FastBackend implements Backend, Dy
         IOUtils.close(dynarmic);
     }
 
+    /**
+     * @return the {@link Dynarmic#reg_read_batch(int[], long[])} index of the register, or <code>-1</code> if it is not supported in a batch.
+     */
+    protected abstract int getBatchIndex(int regId);
+
+    private int[] toBatchIndices(int[] regIds) {
+        int[] indices = new int[regIds.length];
+        for (int i = 0; i < regIds.length; i++) {
+            indices[i] = getBatchIndex(regIds[i]);
+            if (indices[i] == -1) {
+                return null;
+            }
+        }
+        return indices;
+    }
+
+    /**
+     * The native library is built from <code>src/main/native/dynarmic</code> of this version,
+     * an entry point missing from it is a stale build and the feature is not available.
+     */
+    static UnsupportedOperationException missingNative(String feature, UnsatisfiedLinkError e) {
+        return new UnsupportedOperationException(feature + " is not supported by the loaded dynarmic library, rebuild it from src/main/native/dynarmic", e);
+    }
+
+    @Override
+    public void reg_read_batch(int[] regIds, long[] out) throws BackendException {
+        int[] indices = toBatchIndices(regIds);
+        if (indices == null) {
+            super.reg_read_batch(regIds, out);
+            return;
+        }
+        try {
+            dynarmic.reg_read_batch(indices, out);
+        } catch (DynarmicException e) {
+            throw new BackendException(e);
+        } catch (UnsatisfiedLinkError e) {
+            throw missingNative("reg_read_batch", e);
+        }
+    }
+
+    @Override
+    public void reg_write_batch(int[] regIds, long[] values) throws BackendException {
+        int[] indices = toBatchIndices(regIds);
+        if (indices == null) {
+            super.reg_write_batch(regIds, values);
+            return;
+        }
+        try {
+            dynarmic.reg_write_batch(indices, values);
+        } catch (DynarmicException e) {
+            throw new BackendException(e);
+        } catch (UnsatisfiedLinkError e) {
+            throw missingNative("reg_write_batch", e);
+        }
+    }
+
     @Override
     public byte[] mem_read(long address, long size) throws BackendException {
         try {
@@ -169,14 +297,81 @@ public abstract class DynarmicBackend extends FastBackend implements Backend, Dy
     public void debugger_add(DebugHook callback, long begin, long end, Object user_data) {
     }
 
+    private class MemoryWatch implements UnHook {
+        private final long begin;
+        private final long end;
+        private final int type;
+        private final ReadHook readHook;
+        private final WriteHook writeHook;
+        private final Object user_data;
+        MemoryWatch(long begin, long end, int type, ReadHook readHook, WriteHook writeHook, Object user_data) {
+            this.begin = begin;
+            this.end = end;
+            this.type = type;
+            this.readHook = readHook;
+            this.writeHook = writeHook;
+            this.user_data = user_data;
+        }
+        boolean matches(long vaddr) {
+            return begin > end || (vaddr >= begin && vaddr <= end);
+        }
+        @Override
+        public void unhook() {
+            if (memoryWatches.remove(this)) {
+                try {
+                    dynarmic.watch_remove(begin, end, type);
+                } catch (DynarmicException e) {
+                    throw new BackendException(e);
+                } catch (UnsatisfiedLinkError e) {
+                    throw missingNative("watch_remove", e);
+                }
+            }
+        }
+    }
+
+    private final List<MemoryWatch> memoryWatches = new CopyOnWriteArrayList<>();
+
+    private void addMemoryWatch(MemoryWatch watch, Detachable callback) {
+        try {
+            dynarmic.watch_add(watch.begin, watch.end, watch.type);
+        } catch (DynarmicException e) {
+            throw new BackendException(e);
+        } catch (UnsatisfiedLinkError e) {
+            throw missingNative("watch_add", e);
+        }
+        memoryWatches.add(watch);
+        callback.onAttach(watch);
+    }
+
+    @Override
+    public void handleMemoryRead(long vaddr, int size) {
+        for (MemoryWatch watch : memoryWatches) {
+            if (watch.readHook != null && watch.matches(vaddr)) {
+                watch.readHook.hook(this, vaddr, size, watch.user_data);
+            }
+        }
+    }
+
+    @Override
+    public void handleMemoryWrite(long vaddr, int size, long value) {
+        for (MemoryWatch watch : memoryWatches) {
+            if (watch.writeHook != null && watch.matches(vaddr)) {
+                watch.writeHook.hook(this, vaddr, size, value, watch.user_data);
+            }
+        }
+    }
+
+    /**
+     * Only the accesses to the pages overlapping the range leave the jit code, see {@link Dynarmic#watch_add(long, long, int)}.
+     */
     @Override
     public void hook_add_new(ReadHook callback, long begin, long end, Object user_data) {
-        throw new UnsupportedOperationException();
+        addMemoryWatch(new MemoryWatch(begin, end, UnicornConst.UC_HOOK_MEM_READ, callback, null, user_data), callback);
     }
 
     @Override
     public void hook_add_new(WriteHook callback, long begin, long end, Object user_data) {
-        throw new UnsupportedOperationException();
+        addMemoryWatch(new MemoryWatch(begin, end, UnicornConst.UC_HOOK_MEM_WRITE, null, callback, user_data), callback);
     }
 
     @Override
@@ -186,17 +381,44 @@ public abstract class DynarmicBackend extends FastBackend implements Backend, Dy
 
     @Override
     public void context_restore(long context) {
-        throw new UnsupportedOperationException();
+        try {
+            dynarmic.context_restore(context);
+        } catch (DynarmicException e) {
+            throw new BackendException(e);
+        } catch (UnsatisfiedLinkError e) {
+            throw missingNative("context_restore", e);
+        }
     }
 
     @Override
     public void context_save(long context) {
-        throw new UnsupportedOperationException();
+        try {
+            dynarmic.context_save(context);
+        } catch (DynarmicException e) {
+            throw new BackendException(e);
+        } catch (UnsatisfiedLinkError e) {
+            throw missingNative("context_save", e);
+        }
     }
 
     @Override
     public long context_alloc() {
-        throw new UnsupportedOperationException();
+        try {
+            return dynarmic.context_alloc();
+        } catch (DynarmicException e) {
+            throw new BackendException(e);
+        } catch (UnsatisfiedLinkError e) {
+            throw missingNative("context_alloc", e);
+        }
+    }
+
+    @Override
+    public void context_free(long context) {
+        try {
+            dynarmic.context_free(context);
+        } catch (UnsatisfiedLinkError e) {
+            throw missingNative("context_free", e);
+        }
     }
 
 }
@@ -4,11 +4,25 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
 
 public class Dynarmic implements Closeable {
 
     private static final Log log = LogFactory.getLog(Dynarmic.class);
 
+    /**
+     * Batch index of CPSR, R0-R15 use their register number.
+     */
+    public static final int BATCH_CPSR32 = 16;
+
+    /**
+     * Batch indices of SP, PC and NZCV, X0-X30 use their register number.
+     */
+    public static final int BATCH_SP64 = 31;
+    public static final int BATCH_PC64 = 32;
+    public static final int BATCH_NZCV64 = 33;
+
     private static native int setDynarmicCallback(long handle, DynarmicCallback callback);
 
     private static native long nativeInitialize(boolean is64Bit);
@@ -36,12 +50,24 @@ public class Dynarmic implements Closeable {
     private static native int reg_read_cpsr(long handle);
     private static native int reg_write_cpsr(long handle, int value);
     private static native int reg_write_c13_c0_3(long handle, int value);
+    private static native int reg_read_batch(long handle, int[] indices, long[] values);
+    private static native int reg_write_batch(long handle, int[] indices, long[] values);
 
-    private static native int emu_start(long handle, long pc);
+    private static native int emu_start(long handle, long pc, long count);
     private static native int emu_stop(long handle);
 
+    private static native long context_alloc(long handle);
+    private static native void context_free(long handle, long context);
+    private static native int context_save(long handle, long context);
+    private static native int context_restore(long handle, long context);
+
+    private static native int watch_add(long handle, long begin, long end, int type);
+    private static native int watch_remove(long handle, long begin, long end, int type);
+
     private final long nativeHandle;
 
+    private final List<Long> contexts = new ArrayList<>();
+
     public Dynarmic(boolean is64Bit) {
         this.nativeHandle = nativeInitialize(is64Bit);
     }
@@ -58,7 +84,14 @@ public class Dynarmic implements Closeable {
     }
 
     public void emu_start(long begin) {
-        int ret = emu_start(nativeHandle, begin);
+        emu_start(begin, 0);
+    }
+
+    /**
+     * @param count the number of instructions to be emulated, the emulation returns once they are spent. When this value is 0, there is no limit.
+     */
+    public void emu_start(long begin, long count) {
+        int ret = emu_start(nativeHandle, begin, count);
         if (ret != 0) {
             throw new DynarmicException("ret=" + ret);
         }
@@ -261,6 +294,29 @@ public class Dynarmic implements Closeable {
         return reg_read(nativeHandle, index);
     }
 
+    public void reg_read_batch(int[] indices, long[] values) {
+        if (values.length < indices.length) {
+            throw new IllegalArgumentException("values.length=" + values.length + ", indices.length=" + indices.length);
+        }
+        int ret = reg_read_batch(nativeHandle, indices, values);
+        if (ret != 0) {
+            throw new DynarmicException("ret=" + ret);
+        }
+    }
+
+    public void reg_write_batch(int[] indices, long[] values) {
+        if (values.length < indices.length) {
+            throw new IllegalArgumentException("values.length=" + values.length + ", indices.length=" + indices.length);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("reg_write_batch count=" + indices.length);
+        }
+        int ret = reg_write_batch(nativeHandle, indices, values);
+        if (ret != 0) {
+            throw new DynarmicException("ret=" + ret);
+        }
+    }
+
     public void mem_write(long address, byte[] bytes) {
         long start = log.isDebugEnabled() ? System.currentTimeMillis() : 0;
         int ret = mem_write(nativeHandle, address, bytes);
@@ -284,8 +340,82 @@ public class Dynarmic implements Closeable {
         return ret;
     }
 
+    /**
+     * Allocates a register context, freed with this jit. Contexts share the memory and the translated code of the jit.
+     */
+    public long context_alloc() {
+        long context = context_alloc(nativeHandle);
+        if (log.isDebugEnabled()) {
+            log.debug("context_alloc=0x" + Long.toHexString(context));
+        }
+        if (context == 0) {
+            throw new DynarmicException("context_alloc failed");
+        }
+        contexts.add(context);
+        return context;
+    }
+
+    public void context_free(long context) {
+        if (log.isDebugEnabled()) {
+            log.debug("context_free context=0x" + Long.toHexString(context));
+        }
+        if (contexts.remove(Long.valueOf(context))) {
+            context_free(nativeHandle, context);
+        }
+    }
+
+    public void context_save(long context) {
+        if (log.isDebugEnabled()) {
+            log.debug("context_save context=0x" + Long.toHexString(context));
+        }
+        int ret = context_save(nativeHandle, context);
+        if (ret != 0) {
+            throw new DynarmicException("ret=" + ret);
+        }
+    }
+
+    public void context_restore(long context) {
+        if (log.isDebugEnabled()) {
+            log.debug("context_restore context=0x" + Long.toHexString(context));
+        }
+        int ret = context_restore(nativeHandle, context);
+        if (ret != 0) {
+            throw new DynarmicException("ret=" + ret);
+        }
+    }
+
+    /**
+     * Reports the accesses starting inside <code>[begin, end]</code> to {@link DynarmicCallback}, the whole address space when <code>begin &gt; end</code>.
+     * The pages overlapping the range leave the page table of the jit, the other pages keep the direct access.
+     * Misaligned accesses are reported as their aligned parts.
+     * @param type <code>UC_HOOK_MEM_READ</code> and/or <code>UC_HOOK_MEM_WRITE</code>
+     */
+    public void watch_add(long begin, long end, int type) {
+        if (log.isDebugEnabled()) {
+            log.debug("watch_add begin=0x" + Long.toHexString(begin) + ", end=0x" + Long.toHexString(end) + ", type=" + type);
+        }
+        int ret = watch_add(nativeHandle, begin, end, type);
+        if (ret != 0) {
+            throw new DynarmicException("ret=" + ret);
+        }
+    }
+
+    public void watch_remove(long begin, long end, int type) {
+        if (log.isDebugEnabled()) {
+            log.debug("watch_remove begin=0x" + Long.toHexString(begin) + ", end=0x" + Long.toHexString(end) + ", type=" + type);
+        }
+        int ret = watch_remove(nativeHandle, begin, end, type);
+        if (ret != 0) {
+            throw new DynarmicException("ret=" + ret);
+        }
+    }
+
     @Override
     public void close() {
+        for (long context : contexts) {
+            context_free(nativeHandle, context);
+        }
+        contexts.clear();
         nativeDestroy(nativeHandle);
     }
 
@@ -110,6 +110,25 @@ public class DynarmicBackend32 extends DynarmicBackend {
         }
     }
 
+    @Override
+    protected int getBatchIndex(int regId) {
+        if (regId >= ArmConst.UC_ARM_REG_R0 && regId <= ArmConst.UC_ARM_REG_R12) {
+            return regId - ArmConst.UC_ARM_REG_R0;
+        }
+        switch (regId) {
+            case ArmConst.UC_ARM_REG_SP:
+                return 13;
+            case ArmConst.UC_ARM_REG_LR:
+                return 14;
+            case ArmConst.UC_ARM_REG_PC:
+                return 15;
+            case ArmConst.UC_ARM_REG_CPSR:
+                return Dynarmic.BATCH_CPSR32;
+            default:
+                return -1;
+        }
+    }
+
     @Override
     public byte[] reg_read_vector(int regId) throws BackendException {
         return null;
@@ -152,6 +152,27 @@ public class DynarmicBackend64 extends DynarmicBackend {
         }
     }
 
+    @Override
+    protected int getBatchIndex(int regId) {
+        if (regId >= Arm64Const.UC_ARM64_REG_X0 && regId <= Arm64Const.UC_ARM64_REG_X28) {
+            return regId - Arm64Const.UC_ARM64_REG_X0;
+        }
+        switch (regId) {
+            case Arm64Const.UC_ARM64_REG_FP:
+                return 29;
+            case Arm64Const.UC_ARM64_REG_LR:
+                return 30;
+            case Arm64Const.UC_ARM64_REG_SP:
+                return Dynarmic.BATCH_SP64;
+            case Arm64Const.UC_ARM64_REG_PC:
+                return Dynarmic.BATCH_PC64;
+            case Arm64Const.UC_ARM64_REG_NZCV:
+                return Dynarmic.BATCH_NZCV64;
+            default:
+                return -1;
+        }
+    }
+
     @Override
     public byte[] reg_read_vector(int regId) throws BackendException {
         try {
@@ -14,4 +14,14 @@ public interface DynarmicCallback {
     void handleMemoryReadFailed(long vaddr, int size);
     void handleMemoryWriteFailed(long vaddr, int size);
 
+    /**
+     * An access inside a range added by {@link Dynarmic#watch_add(long, long, int)}, before the memory is read.
+     */
+    void handleMemoryRead(long vaddr, int size);
+
+    /**
+     * An access inside a range added by {@link Dynarmic#watch_add(long, long, int)}, before the memory is written.
+     */
+    void handleMemoryWrite(long vaddr, int size, long value);
+
 }
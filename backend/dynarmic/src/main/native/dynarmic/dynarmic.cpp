@@ -24,10 +24,12 @@ static jmethodID handleInterpreterFallback = NULL;
 static jmethodID handleExceptionRaised = NULL;
 static jmethodID handleMemoryReadFailed = NULL;
 static jmethodID handleMemoryWriteFailed = NULL;
+static jmethodID handleMemoryRead = NULL;
+static jmethodID handleMemoryWrite = NULL;
 
 static char *get_memory_page(khash_t(memory) *memory, u64 vaddr, size_t num_page_table_entries, void **page_table) {
     u64 idx = vaddr >> DYN_PAGE_BITS;
-    if(page_table && idx < num_page_table_entries) {
+    if(page_table && idx < num_page_table_entries && page_table[idx]) {
       return (char *)page_table[idx];
     }
     u64 base = vaddr & ~DYN_PAGE_MASK;
@@ -44,6 +46,38 @@ static inline void *get_memory(khash_t(memory) *memory, u64 vaddr, size_t num_pa
     return page ? &page[vaddr & DYN_PAGE_MASK] : NULL;
 }
 
+static inline bool watch_matches(const watch_range &range, u64 vaddr) {
+    return range.begin > range.end || (vaddr >= range.begin && vaddr <= range.end);
+}
+
+// watch types of the ranges overlapping the page
+static int get_page_watch(std::vector<watch_range> *watches, u64 base) {
+    int watch = 0;
+    for(auto &range : *watches) {
+      if(range.begin > range.end || (range.begin < base + DYN_PAGE_SIZE && range.end >= base)) {
+        watch |= range.type;
+      }
+    }
+    return watch;
+}
+
+// Accesses to the watched pages miss the page table of the jit and come to the callbacks, only these are checked against the ranges.
+static bool is_watched(khash_t(memory) *memory, std::vector<watch_range> *watches, u64 vaddr, int type) {
+    if(watches->empty()) {
+      return false;
+    }
+    khiter_t k = kh_get(memory, memory, vaddr & ~DYN_PAGE_MASK);
+    if(k == kh_end(memory) || (kh_value(memory, k)->watch & type) == 0) {
+      return false;
+    }
+    for(auto &range : *watches) {
+      if((range.type & type) && watch_matches(range, vaddr)) {
+        return true;
+      }
+    }
+    return false;
+}
+
 class DynarmicCallbacks32 final : public Dynarmic::A32::UserCallbacks {
 private:
     ~DynarmicCallbacks32() = default;
@@ -64,14 +98,21 @@ public:
     }
 
     u16 MemoryReadThumbCode(u32 vaddr) override {
-        u16 code = MemoryRead16(vaddr);
+        u16 *dest = (u16 *) get_memory(memory, vaddr, num_page_table_entries, page_table);
+        u16 code = dest ? dest[0] : MemoryRead16(vaddr);
 //        printf("MemoryReadThumbCode[%s->%s:%d]: vaddr=0x%x, code=0x%04x\n", __FILE__, __func__, __LINE__, vaddr, code);
         return code;
     }
 
+    u32 MemoryReadCode(u32 vaddr) override {
+        u32 *dest = (u32 *) get_memory(memory, vaddr, num_page_table_entries, page_table);
+        return dest ? dest[0] : MemoryRead32(vaddr);
+    }
+
     u8 MemoryRead8(u32 vaddr) override {
         u8 *dest = (u8 *) get_memory(memory, vaddr, num_page_table_entries, page_table);
         if(dest) {
+            notifyRead(vaddr, 1);
             return dest[0];
         } else {
             fprintf(stderr, "MemoryRead8[%s->%s:%d]: vaddr=0x%x\n", __FILE__, __func__, __LINE__, vaddr);
@@ -91,6 +132,7 @@ public:
         }
         u16 *dest = (u16 *) get_memory(memory, vaddr, num_page_table_entries, page_table);
         if(dest) {
+            notifyRead(vaddr, 2);
             return dest[0];
         } else {
             fprintf(stderr, "MemoryRead16[%s->%s:%d]: vaddr=0x%x\n", __FILE__, __func__, __LINE__, vaddr);
@@ -110,6 +152,7 @@ public:
         }
         u32 *dest = (u32 *) get_memory(memory, vaddr, num_page_table_entries, page_table);
         if(dest) {
+            notifyRead(vaddr, 4);
 //            printf("MemoryRead32[%s->%s:%d]: vaddr=0x%x, value=0x%x\n", __FILE__, __func__, __LINE__, vaddr, dest[0]);
             return dest[0];
         } else {
@@ -130,6 +173,7 @@ public:
         }
         u64 *dest = (u64 *) get_memory(memory, vaddr, num_page_table_entries, page_table);
         if(dest) {
+            notifyRead(vaddr, 8);
             return dest[0];
         } else {
             fprintf(stderr, "MemoryRead64[%s->%s:%d]: vaddr=0x%x\n", __FILE__, __func__, __LINE__, vaddr);
@@ -141,6 +185,7 @@ public:
     void MemoryWrite8(u32 vaddr, u8 value) override {
         u8 *dest = (u8 *) get_memory(memory, vaddr, num_page_table_entries, page_table);
         if(dest) {
+            notifyWrite(vaddr, 1, value);
             dest[0] = value;
         } else {
             fprintf(stderr, "MemoryWrite8[%s->%s:%d]: vaddr=0x%x\n", __FILE__, __func__, __LINE__, vaddr);
@@ -159,6 +204,7 @@ public:
         }
         u16 *dest = (u16 *) get_memory(memory, vaddr, num_page_table_entries, page_table);
         if(dest) {
+            notifyWrite(vaddr, 2, value);
             dest[0] = value;
         } else {
             fprintf(stderr, "MemoryWrite16[%s->%s:%d]: vaddr=0x%x\n", __FILE__, __func__, __LINE__, vaddr);
@@ -173,6 +219,7 @@ public:
         }
         u32 *dest = (u32 *) get_memory(memory, vaddr, num_page_table_entries, page_table);
         if(dest) {
+            notifyWrite(vaddr, 4, value);
             dest[0] = value;
         } else {
             fprintf(stderr, "MemoryWrite32[%s->%s:%d]: vaddr=0x%x\n", __FILE__, __func__, __LINE__, vaddr);
@@ -191,6 +238,7 @@ public:
         }
         u64 *dest = (u64 *) get_memory(memory, vaddr, num_page_table_entries, page_table);
         if(dest) {
+            notifyWrite(vaddr, 8, value);
             dest[0] = value;
         } else {
             fprintf(stderr, "MemoryWrite64[%s->%s:%d]: vaddr=0x%x\n", __FILE__, __func__, __LINE__, vaddr);
@@ -245,16 +293,46 @@ public:
     }
 
     void AddTicks(u64 ticks) override {
+        if(limit_ticks) {
+            ticks_remaining = ticks < ticks_remaining ? ticks_remaining - ticks : 0;
+        }
     }
 
     u64 GetTicksRemaining() override {
-        return 0x10000000000ULL;
+        return limit_ticks ? ticks_remaining : 0x10000000000ULL;
+    }
+
+    void notifyRead(u64 vaddr, int size) {
+        if(is_watched(memory, watches, vaddr, UC_HOOK_MEM_READ)) {
+            JNIEnv *env;
+            cachedJVM->AttachCurrentThread((void **)&env, NULL);
+            env->CallVoidMethod(callback, handleMemoryRead, (jlong) vaddr, size);
+            if (env->ExceptionCheck()) {
+                cpu->HaltExecution();
+            }
+            cachedJVM->DetachCurrentThread();
+        }
+    }
+
+    void notifyWrite(u64 vaddr, int size, u64 value) {
+        if(is_watched(memory, watches, vaddr, UC_HOOK_MEM_WRITE)) {
+            JNIEnv *env;
+            cachedJVM->AttachCurrentThread((void **)&env, NULL);
+            env->CallVoidMethod(callback, handleMemoryWrite, (jlong) vaddr, size, (jlong) value);
+            if (env->ExceptionCheck()) {
+                cpu->HaltExecution();
+            }
+            cachedJVM->DetachCurrentThread();
+        }
     }
 
     khash_t(memory) *memory = NULL;
     size_t num_page_table_entries;
     void **page_table = NULL;
+    std::vector<watch_range> *watches = NULL;
     jobject callback = NULL;
+    bool limit_ticks = false;
+    u64 ticks_remaining = 0;
     Dynarmic::A32::Jit *cpu;
     std::shared_ptr<DynarmicCP15> cp15;
 };
@@ -278,7 +356,8 @@ public:
     }
 
     u32 MemoryReadCode(u64 vaddr) override {
-        u32 code = MemoryRead32(vaddr);
+        u32 *dest = (u32 *) get_memory(memory, vaddr, num_page_table_entries, page_table);
+        u32 code = dest ? dest[0] : MemoryRead32(vaddr);
 //        printf("MemoryReadCode[%s->%s:%d]: vaddr=0x%llx, code=0x%08x\n", __FILE__, __func__, __LINE__, vaddr, code);
         return code;
     }
@@ -286,6 +365,7 @@ public:
     u8 MemoryRead8(u64 vaddr) override {
         u8 *dest = (u8 *) get_memory(memory, vaddr, num_page_table_entries, page_table);
         if(dest) {
+            notifyRead(vaddr, 1);
             return dest[0];
         } else {
             fprintf(stderr, "MemoryRead8[%s->%s:%d]: vaddr=%p\n", __FILE__, __func__, __LINE__, (void*)vaddr);
@@ -305,6 +385,7 @@ public:
         }
         u16 *dest = (u16 *) get_memory(memory, vaddr, num_page_table_entries, page_table);
         if(dest) {
+            notifyRead(vaddr, 2);
             return dest[0];
         } else {
             fprintf(stderr, "MemoryRead16[%s->%s:%d]: vaddr=%p\n", __FILE__, __func__, __LINE__, (void*)vaddr);
@@ -320,6 +401,7 @@ public:
         }
         u32 *dest = (u32 *) get_memory(memory, vaddr, num_page_table_entries, page_table);
         if(dest) {
+            notifyRead(vaddr, 4);
             return dest[0];
         } else {
             fprintf(stderr, "MemoryRead32[%s->%s:%d]: vaddr=%p\n", __FILE__, __func__, __LINE__, (void*)vaddr);
@@ -335,6 +417,7 @@ public:
         }
         u64 *dest = (u64 *) get_memory(memory, vaddr, num_page_table_entries, page_table);
         if(dest) {
+            notifyRead(vaddr, 8);
             return dest[0];
         } else {
             fprintf(stderr, "MemoryRead64[%s->%s:%d]: vaddr=%p\n", __FILE__, __func__, __LINE__, (void*)vaddr);
@@ -349,6 +432,7 @@ public:
     void MemoryWrite8(u64 vaddr, u8 value) override {
         u8 *dest = (u8 *) get_memory(memory, vaddr, num_page_table_entries, page_table);
         if(dest) {
+            notifyWrite(vaddr, 1, value);
             dest[0] = value;
         } else {
             fprintf(stderr, "MemoryWrite8[%s->%s:%d]: vaddr=%p\n", __FILE__, __func__, __LINE__, (void*)vaddr);
@@ -363,6 +447,7 @@ public:
         }
         u16 *dest = (u16 *) get_memory(memory, vaddr, num_page_table_entries, page_table);
         if(dest) {
+            notifyWrite(vaddr, 2, value);
             dest[0] = value;
         } else {
             fprintf(stderr, "MemoryWrite16[%s->%s:%d]: vaddr=%p\n", __FILE__, __func__, __LINE__, (void*)vaddr);
@@ -378,6 +463,7 @@ public:
         }
         u32 *dest = (u32 *) get_memory(memory, vaddr, num_page_table_entries, page_table);
         if(dest) {
+            notifyWrite(vaddr, 4, value);
             dest[0] = value;
         } else {
             fprintf(stderr, "MemoryWrite32[%s->%s:%d]: vaddr=%p\n", __FILE__, __func__, __LINE__, (void*)vaddr);
@@ -392,6 +478,7 @@ public:
         }
         u64 *dest = (u64 *) get_memory(memory, vaddr, num_page_table_entries, page_table);
         if(dest) {
+            notifyWrite(vaddr, 8, value);
             dest[0] = value;
         } else {
             fprintf(stderr, "MemoryWrite64[%s->%s:%d]: vaddr=%p\n", __FILE__, __func__, __LINE__, (void*)vaddr);
@@ -478,22 +565,52 @@ public:
     }
 
     void AddTicks(u64 ticks) override {
+        if(limit_ticks) {
+            ticks_remaining = ticks < ticks_remaining ? ticks_remaining - ticks : 0;
+        }
     }
 
     u64 GetTicksRemaining() override {
-        return 0x10000000000ULL;
+        return limit_ticks ? ticks_remaining : 0x10000000000ULL;
     }
 
     u64 GetCNTPCT() override {
         return 0x10000000000ULL;
     }
 
+    void notifyRead(u64 vaddr, int size) {
+        if(is_watched(memory, watches, vaddr, UC_HOOK_MEM_READ)) {
+            JNIEnv *env;
+            cachedJVM->AttachCurrentThread((void **)&env, NULL);
+            env->CallVoidMethod(callback, handleMemoryRead, (jlong) vaddr, size);
+            if (env->ExceptionCheck()) {
+                cpu->HaltExecution();
+            }
+            cachedJVM->DetachCurrentThread();
+        }
+    }
+
+    void notifyWrite(u64 vaddr, int size, u64 value) {
+        if(is_watched(memory, watches, vaddr, UC_HOOK_MEM_WRITE)) {
+            JNIEnv *env;
+            cachedJVM->AttachCurrentThread((void **)&env, NULL);
+            env->CallVoidMethod(callback, handleMemoryWrite, (jlong) vaddr, size, (jlong) value);
+            if (env->ExceptionCheck()) {
+                cpu->HaltExecution();
+            }
+            cachedJVM->DetachCurrentThread();
+        }
+    }
+
     u64 tpidrro_el0 = 0;
     u64 tpidr_el0 = 0;
     khash_t(memory) *memory = NULL;
     size_t num_page_table_entries;
     void **page_table = NULL;
+    std::vector<watch_range> *watches = NULL;
     jobject callback = NULL;
+    bool limit_ticks = false;
+    u64 ticks_remaining = 0;
     Dynarmic::A64::Jit *cpu;
 };
 
@@ -507,8 +624,28 @@ typedef struct dynarmic {
   DynarmicCallbacks32 *cb32;
   Dynarmic::A32::Jit *jit32;
   Dynarmic::ExclusiveMonitor *monitor;
+  std::vector<watch_range> *watches;
 } *t_dynarmic;
 
+// Registers of a guest thread, restoring one does not touch the memory nor the code cache of the jit.
+typedef struct context64 {
+  std::array<u64, 31> registers;
+  std::array<Dynarmic::Vector, 32> vectors;
+  u64 sp;
+  u64 pc;
+  u32 pstate;
+  u32 fpcr;
+  u32 fpsr;
+  u64 tpidr_el0;
+  u64 tpidrro_el0;
+} *t_context64;
+
+typedef struct context32 {
+  Dynarmic::A32::Context context;
+  u32 uprw;
+  u32 uro;
+} *t_context32;
+
 #ifdef __cplusplus
 extern "C" {
 #endif
@@ -566,8 +703,10 @@ JNIEXPORT jlong JNICALL Java_com_github_unidbg_arm_backend_dynarmic_Dynarmic_nat
     return 0;
   }
   dynarmic->monitor = new Dynarmic::ExclusiveMonitor(1);
+  dynarmic->watches = new std::vector<watch_range>();
   if(dynarmic->is64Bit) {
     DynarmicCallbacks64 *callbacks = new DynarmicCallbacks64(dynarmic->memory);
+    callbacks->watches = dynarmic->watches;
 
     Dynarmic::A64::UserConfig config;
     config.callbacks = callbacks;
@@ -609,6 +748,7 @@ JNIEXPORT jlong JNICALL Java_com_github_unidbg_arm_backend_dynarmic_Dynarmic_nat
     callbacks->cpu = dynarmic->jit64;
   } else {
     DynarmicCallbacks32 *callbacks = new DynarmicCallbacks32(dynarmic->memory);
+    callbacks->watches = dynarmic->watches;
 
     Dynarmic::A32::UserConfig config;
     config.callbacks = callbacks;
@@ -699,6 +839,7 @@ JNIEXPORT void JNICALL Java_com_github_unidbg_arm_backend_dynarmic_Dynarmic_nati
     }
   }
   delete dynarmic->monitor;
+  delete dynarmic->watches;
   free(dynarmic);
 }
 
@@ -767,8 +908,9 @@ JNIEXPORT jint JNICALL Java_com_github_unidbg_arm_backend_dynarmic_Dynarmic_mem_
       fprintf(stderr, "mmap failed[%s->%s:%d]: addr=%p\n", __FILE__, __func__, __LINE__, (void*)addr);
       return 4;
     }
+    int watch = get_page_watch(dynarmic->watches, vaddr);
     if(dynarmic->page_table && idx < dynarmic->num_page_table_entries) {
-      dynarmic->page_table[idx] = addr;
+      dynarmic->page_table[idx] = watch ? NULL : addr;
     } else {
       // 0xffffff80001f0000ULL: 0x10000
     }
@@ -781,6 +923,7 @@ JNIEXPORT jint JNICALL Java_com_github_unidbg_arm_backend_dynarmic_Dynarmic_mem_
     }
     page->addr = addr;
     page->perms = perms;
+    page->watch = watch;
     kh_value(memory, k) = page;
   }
   return 0;
@@ -1192,18 +1335,129 @@ JNIEXPORT jint JNICALL Java_com_github_unidbg_arm_backend_dynarmic_Dynarmic_reg_
   }
 }
 
+static bool batch_read(t_dynarmic dynarmic, jint index, u64 *value) {
+  if(dynarmic->is64Bit) {
+    Dynarmic::A64::Jit *jit = dynarmic->jit64;
+    if(index >= 0 && index <= 30) {
+      *value = jit->GetRegister(index);
+    } else if(index == BATCH_SP64) {
+      *value = jit->GetSP();
+    } else if(index == BATCH_PC64) {
+      *value = jit->GetPC();
+    } else if(index == BATCH_NZCV64) {
+      *value = jit->GetPstate();
+    } else {
+      return false;
+    }
+  } else {
+    Dynarmic::A32::Jit *jit = dynarmic->jit32;
+    if(index >= 0 && index <= 15) {
+      *value = jit->Regs()[index];
+    } else if(index == BATCH_CPSR32) {
+      *value = jit->Cpsr();
+    } else {
+      return false;
+    }
+  }
+  return true;
+}
+
+static bool batch_write(t_dynarmic dynarmic, jint index, u64 value) {
+  if(dynarmic->is64Bit) {
+    Dynarmic::A64::Jit *jit = dynarmic->jit64;
+    if(index >= 0 && index <= 30) {
+      jit->SetRegister(index, value);
+    } else if(index == BATCH_SP64) {
+      jit->SetSP(value);
+    } else if(index == BATCH_PC64) {
+      jit->SetPC(value);
+    } else if(index == BATCH_NZCV64) {
+      jit->SetPstate((u32) value);
+    } else {
+      return false;
+    }
+  } else {
+    Dynarmic::A32::Jit *jit = dynarmic->jit32;
+    if(index >= 0 && index <= 15) {
+      jit->Regs()[index] = (u32) value;
+    } else if(index == BATCH_CPSR32) {
+      jit->SetCpsr((u32) value);
+    } else {
+      return false;
+    }
+  }
+  return true;
+}
+
+/*
+ * Class:     com_github_unidbg_arm_backend_dynarmic_Dynarmic
+ * Method:    reg_read_batch
+ * Signature: (J[I[J)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_unidbg_arm_backend_dynarmic_Dynarmic_reg_1read_1batch
+  (JNIEnv *env, jclass clazz, jlong handle, jintArray indices, jlongArray values) {
+  t_dynarmic dynarmic = (t_dynarmic) handle;
+  if(dynarmic->is64Bit ? !dynarmic->jit64 : !dynarmic->jit32) {
+    return 1;
+  }
+  jsize count = env->GetArrayLength(indices);
+  jint *index = (jint *) env->GetPrimitiveArrayCritical(indices, NULL);
+  jlong *value = (jlong *) env->GetPrimitiveArrayCritical(values, NULL);
+  jint ret = 0;
+  for(jsize i = 0; i < count; i++) {
+    u64 v = 0;
+    if(!batch_read(dynarmic, index[i], &v)) {
+      ret = 2;
+      break;
+    }
+    value[i] = v;
+  }
+  env->ReleasePrimitiveArrayCritical(values, value, 0);
+  env->ReleasePrimitiveArrayCritical(indices, index, JNI_ABORT);
+  return ret;
+}
+
+/*
+ * Class:     com_github_unidbg_arm_backend_dynarmic_Dynarmic
+ * Method:    reg_write_batch
+ * Signature: (J[I[J)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_unidbg_arm_backend_dynarmic_Dynarmic_reg_1write_1batch
+  (JNIEnv *env, jclass clazz, jlong handle, jintArray indices, jlongArray values) {
+  t_dynarmic dynarmic = (t_dynarmic) handle;
+  if(dynarmic->is64Bit ? !dynarmic->jit64 : !dynarmic->jit32) {
+    return 1;
+  }
+  jsize count = env->GetArrayLength(indices);
+  jint *index = (jint *) env->GetPrimitiveArrayCritical(indices, NULL);
+  jlong *value = (jlong *) env->GetPrimitiveArrayCritical(values, NULL);
+  jint ret = 0;
+  for(jsize i = 0; i < count; i++) {
+    if(!batch_write(dynarmic, index[i], (u64) value[i])) {
+      ret = 2;
+      break;
+    }
+  }
+  env->ReleasePrimitiveArrayCritical(values, value, JNI_ABORT);
+  env->ReleasePrimitiveArrayCritical(indices, index, JNI_ABORT);
+  return ret;
+}
+
 /*
  * Class:     com_github_unidbg_arm_backend_dynarmic_Dynarmic
  * Method:    emu_start
- * Signature: (JJ)I
+ * Signature: (JJJ)I
  */
 JNIEXPORT jint JNICALL Java_com_github_unidbg_arm_backend_dynarmic_Dynarmic_emu_1start
-  (JNIEnv *env, jclass clazz, jlong handle, jlong pc) {
+  (JNIEnv *env, jclass clazz, jlong handle, jlong pc, jlong count) {
   t_dynarmic dynarmic = (t_dynarmic) handle;
   if(dynarmic->is64Bit) {
     Dynarmic::A64::Jit *jit = dynarmic->jit64;
     if(jit) {
       Dynarmic::A64::Jit *cpu = jit;
+      DynarmicCallbacks64 *cb = dynarmic->cb64;
+      cb->limit_ticks = count > 0;
+      cb->ticks_remaining = count > 0 ? (u64) count : 0;
       cpu->SetPC(pc);
       cpu->Run();
     } else {
@@ -1214,12 +1468,16 @@ JNIEXPORT jint JNICALL Java_com_github_unidbg_arm_backend_dynarmic_Dynarmic_emu_
     if(jit) {
       Dynarmic::A32::Jit *cpu = jit;
       bool thumb = pc & 1;
+      u32 flags = cpu->Cpsr() & 0xf80f0000; // NZCVQ and GE, kept for a thread resumed from its context
       if(pc & 1) {
-        cpu->SetCpsr(0x00000030); // Thumb user mode
+        cpu->SetCpsr(flags | 0x00000030); // Thumb user mode
       } else {
-        cpu->SetCpsr(0x000001d0); // Arm user mode
+        cpu->SetCpsr(flags | 0x000001d0); // Arm user mode
       }
       cpu->Regs()[15] = (u32) (pc & ~1);
+      DynarmicCallbacks32 *cb = dynarmic->cb32;
+      cb->limit_ticks = count > 0;
+      cb->ticks_remaining = count > 0 ? (u64) count : 0;
       cpu->Run();
     } else {
       return 1;
@@ -1256,6 +1514,168 @@ JNIEXPORT jint JNICALL Java_com_github_unidbg_arm_backend_dynarmic_Dynarmic_emu_
   return 0;
 }
 
+/*
+ * Class:     com_github_unidbg_arm_backend_dynarmic_Dynarmic
+ * Method:    context_alloc
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL Java_com_github_unidbg_arm_backend_dynarmic_Dynarmic_context_1alloc
+  (JNIEnv *env, jclass clazz, jlong handle) {
+  t_dynarmic dynarmic = (t_dynarmic) handle;
+  if(dynarmic->is64Bit) {
+    return (jlong) new context64();
+  } else {
+    return (jlong) new context32();
+  }
+}
+
+/*
+ * Class:     com_github_unidbg_arm_backend_dynarmic_Dynarmic
+ * Method:    context_free
+ * Signature: (JJ)V
+ */
+JNIEXPORT void JNICALL Java_com_github_unidbg_arm_backend_dynarmic_Dynarmic_context_1free
+  (JNIEnv *env, jclass clazz, jlong handle, jlong context) {
+  t_dynarmic dynarmic = (t_dynarmic) handle;
+  if(dynarmic->is64Bit) {
+    delete (t_context64) context;
+  } else {
+    delete (t_context32) context;
+  }
+}
+
+/*
+ * Class:     com_github_unidbg_arm_backend_dynarmic_Dynarmic
+ * Method:    context_save
+ * Signature: (JJ)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_unidbg_arm_backend_dynarmic_Dynarmic_context_1save
+  (JNIEnv *env, jclass clazz, jlong handle, jlong context) {
+  t_dynarmic dynarmic = (t_dynarmic) handle;
+  if(dynarmic->is64Bit) {
+    Dynarmic::A64::Jit *jit = dynarmic->jit64;
+    if(jit) {
+      t_context64 ctx = (t_context64) context;
+      ctx->registers = jit->GetRegisters();
+      ctx->vectors = jit->GetVectors();
+      ctx->sp = jit->GetSP();
+      ctx->pc = jit->GetPC();
+      ctx->pstate = jit->GetPstate();
+      ctx->fpcr = jit->GetFpcr();
+      ctx->fpsr = jit->GetFpsr();
+      ctx->tpidr_el0 = dynarmic->cb64->tpidr_el0;
+      ctx->tpidrro_el0 = dynarmic->cb64->tpidrro_el0;
+    } else {
+      return 1;
+    }
+  } else {
+    Dynarmic::A32::Jit *jit = dynarmic->jit32;
+    if(jit) {
+      t_context32 ctx = (t_context32) context;
+      jit->SaveContext(ctx->context);
+      DynarmicCP15 *cp15 = dynarmic->cb32->cp15.get();
+      ctx->uprw = cp15->uprw;
+      ctx->uro = cp15->uro;
+    } else {
+      return 1;
+    }
+  }
+  return 0;
+}
+
+/*
+ * Class:     com_github_unidbg_arm_backend_dynarmic_Dynarmic
+ * Method:    context_restore
+ * Signature: (JJ)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_unidbg_arm_backend_dynarmic_Dynarmic_context_1restore
+  (JNIEnv *env, jclass clazz, jlong handle, jlong context) {
+  t_dynarmic dynarmic = (t_dynarmic) handle;
+  if(dynarmic->is64Bit) {
+    Dynarmic::A64::Jit *jit = dynarmic->jit64;
+    if(jit) {
+      t_context64 ctx = (t_context64) context;
+      jit->SetRegisters(ctx->registers);
+      jit->SetVectors(ctx->vectors);
+      jit->SetSP(ctx->sp);
+      jit->SetPC(ctx->pc);
+      jit->SetPstate(ctx->pstate);
+      jit->SetFpcr(ctx->fpcr);
+      jit->SetFpsr(ctx->fpsr);
+      jit->ClearExclusiveState();
+      dynarmic->cb64->tpidr_el0 = ctx->tpidr_el0;
+      dynarmic->cb64->tpidrro_el0 = ctx->tpidrro_el0;
+    } else {
+      return 1;
+    }
+  } else {
+    Dynarmic::A32::Jit *jit = dynarmic->jit32;
+    if(jit) {
+      t_context32 ctx = (t_context32) context;
+      jit->LoadContext(ctx->context);
+      jit->ClearExclusiveState();
+      DynarmicCP15 *cp15 = dynarmic->cb32->cp15.get();
+      cp15->uprw = ctx->uprw;
+      cp15->uro = ctx->uro;
+    } else {
+      return 1;
+    }
+  }
+  return 0;
+}
+
+// Takes the watched pages out of the page table of the jit, the compiled code reads it on every access.
+static void update_page_watch(t_dynarmic dynarmic) {
+  khash_t(memory) *memory = dynarmic->memory;
+  for (khiter_t k = kh_begin(memory); k < kh_end(memory); k++) {
+    if(kh_exist(memory, k)) {
+      u64 vaddr = kh_key(memory, k);
+      t_memory_page page = kh_value(memory, k);
+      page->watch = get_page_watch(dynarmic->watches, vaddr);
+      u64 idx = vaddr >> DYN_PAGE_BITS;
+      if(dynarmic->page_table && idx < dynarmic->num_page_table_entries) {
+        dynarmic->page_table[idx] = page->watch ? NULL : page->addr;
+      }
+    }
+  }
+}
+
+/*
+ * Class:     com_github_unidbg_arm_backend_dynarmic_Dynarmic
+ * Method:    watch_add
+ * Signature: (JJJI)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_unidbg_arm_backend_dynarmic_Dynarmic_watch_1add
+  (JNIEnv *env, jclass clazz, jlong handle, jlong begin, jlong end, jint type) {
+  t_dynarmic dynarmic = (t_dynarmic) handle;
+  if((type & (UC_HOOK_MEM_READ | UC_HOOK_MEM_WRITE)) == 0) {
+    return 1;
+  }
+  watch_range range = { (u64) begin, (u64) end, type };
+  dynarmic->watches->push_back(range);
+  update_page_watch(dynarmic);
+  return 0;
+}
+
+/*
+ * Class:     com_github_unidbg_arm_backend_dynarmic_Dynarmic
+ * Method:    watch_remove
+ * Signature: (JJJI)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_unidbg_arm_backend_dynarmic_Dynarmic_watch_1remove
+  (JNIEnv *env, jclass clazz, jlong handle, jlong begin, jlong end, jint type) {
+  t_dynarmic dynarmic = (t_dynarmic) handle;
+  std::vector<watch_range> *watches = dynarmic->watches;
+  for(auto it = watches->begin(); it != watches->end(); it++) {
+    if(it->begin == (u64) begin && it->end == (u64) end && it->type == type) {
+      watches->erase(it);
+      update_page_watch(dynarmic);
+      return 0;
+    }
+  }
+  return 1;
+}
+
 JNIEXPORT jint JNICALL JNI_OnLoad(JavaVM *vm, void *reserved) {
   setvbuf(stdout, NULL, _IONBF, 0);
   setvbuf(stderr, NULL, _IONBF, 0);
@@ -1273,6 +1693,8 @@ JNIEXPORT jint JNICALL JNI_OnLoad(JavaVM *vm, void *reserved) {
   handleExceptionRaised = env->GetMethodID(cDynarmicCallback, "handleExceptionRaised", "(JI)V");
   handleMemoryReadFailed = env->GetMethodID(cDynarmicCallback, "handleMemoryReadFailed", "(JI)V");
   handleMemoryWriteFailed = env->GetMethodID(cDynarmicCallback, "handleMemoryWriteFailed", "(JI)V");
+  handleMemoryRead = env->GetMethodID(cDynarmicCallback, "handleMemoryRead", "(JI)V");
+  handleMemoryWrite = env->GetMethodID(cDynarmicCallback, "handleMemoryWrite", "(JIJ)V");
   cachedJVM = vm;
 
   return JNI_VERSION_1_6;
@@ -1,5 +1,8 @@
+#include <vector>
+
 #include <dynarmic/A32/a32.h>
 #include <dynarmic/A32/config.h>
+#include <dynarmic/A32/context.h>
 
 #include <dynarmic/A64/a64.h>
 #include <dynarmic/A64/config.h>
@@ -14,10 +17,25 @@
 #define DYN_PAGE_SIZE (1ULL << DYN_PAGE_BITS)
 #define DYN_PAGE_MASK (DYN_PAGE_SIZE-1)
 #define UC_PROT_WRITE 2
+#define UC_HOOK_MEM_READ (1 << 10)
+#define UC_HOOK_MEM_WRITE (1 << 11)
+
+#define BATCH_CPSR32 16
+#define BATCH_SP64 31
+#define BATCH_PC64 32
+#define BATCH_NZCV64 33
 
 typedef struct memory_page {
   void *addr;
   int perms;
+  int watch;
 } *t_memory_page;
 
+// begin > end watches the whole address space, like the unicorn hooks
+typedef struct watch_range {
+  uint64_t begin;
+  uint64_t end;
+  int type;
+} watch_range;
+
 KHASH_MAP_INIT_INT64(memory, t_memory_page)
@@ -0,0 +1,184 @@
+package com.github.unidbg.arm.backend;
+
+import com.github.unidbg.arm.backend.dynarmic.Dynarmic;
+import com.github.unidbg.arm.backend.dynarmic.DynarmicBackend64;
+import junit.framework.TestCase;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import unicorn.Arm64Const;
+import unicorn.UnicornConst;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs against the dynarmic library built from <code>src/main/native/dynarmic</code>,
+ * the tests pass without checking anything when it is not on the library path.
+ */
+public class DynarmicBackendTest extends TestCase {
+
+    private static final Log log = LogFactory.getLog(DynarmicBackendTest.class);
+
+    private static final long CODE = 0x10000;
+    private static final long DATA = 0x20000;
+    private static final int PAGE_SIZE = 0x1000;
+
+    private static final int ADD_X0_1 = 0x91000400; // add x0, x0, #1
+    private static final int STR_X1_X2 = 0xf9000041; // str x1, [x2]
+    private static final int B_SELF = 0x14000000; // b .
+
+    private static Boolean available;
+
+    private static synchronized boolean isAvailable() {
+        if (available == null) {
+            try {
+                org.scijava.nativelib.NativeLoader.loadLibrary("dynarmic");
+                available = true;
+            } catch (Exception | UnsatisfiedLinkError e) {
+                log.warn("dynarmic library not available, skip " + DynarmicBackendTest.class.getSimpleName() + ": " + e);
+                available = false;
+            }
+        }
+        return available;
+    }
+
+    private Backend backend;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        if (isAvailable()) {
+            backend = new DynarmicBackend64(null, new Dynarmic(true));
+            backend.mem_map(CODE, PAGE_SIZE, UnicornConst.UC_PROT_READ | UnicornConst.UC_PROT_EXEC);
+            backend.mem_map(DATA, PAGE_SIZE, UnicornConst.UC_PROT_READ | UnicornConst.UC_PROT_WRITE);
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (backend != null) {
+            backend.destroy();
+        }
+
+        super.tearDown();
+    }
+
+    private void writeCode(int... instructions) {
+        ByteBuffer buffer = ByteBuffer.allocate(instructions.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (int instruction : instructions) {
+            buffer.putInt(instruction);
+        }
+        backend.mem_write(CODE, buffer.array());
+    }
+
+    public void testInstructionBudget() {
+        if (backend == null) {
+            return;
+        }
+        writeCode(ADD_X0_1, ADD_X0_1, ADD_X0_1, ADD_X0_1, ADD_X0_1, ADD_X0_1, ADD_X0_1, ADD_X0_1, B_SELF);
+        backend.reg_write(Arm64Const.UC_ARM64_REG_X0, 0);
+        backend.emu_start(CODE, 0, 0, 5);
+        assertEquals(5, backend.reg_read(Arm64Const.UC_ARM64_REG_X0).longValue());
+        assertEquals(CODE + 5 * 4, backend.reg_read(Arm64Const.UC_ARM64_REG_PC).longValue());
+    }
+
+    public void testTimeout() {
+        if (backend == null) {
+            return;
+        }
+        writeCode(B_SELF);
+        long start = System.currentTimeMillis();
+        try {
+            backend.emu_start(CODE, 0, 100000, 0);
+            fail();
+        } catch (EmulationTimeoutException e) {
+            assertEquals(100000, e.getTimeout());
+        }
+        assertTrue(System.currentTimeMillis() - start < 10000);
+    }
+
+    public void testContextRoundTrip() {
+        if (backend == null) {
+            return;
+        }
+        backend.reg_write(Arm64Const.UC_ARM64_REG_X0, 1);
+        long context = backend.context_alloc();
+        try {
+            backend.context_save(context);
+            backend.reg_write(Arm64Const.UC_ARM64_REG_X0, 2);
+            writeCode(ADD_X0_1, B_SELF);
+            backend.emu_start(CODE, 0, 0, 1);
+            assertEquals(3, backend.reg_read(Arm64Const.UC_ARM64_REG_X0).longValue());
+
+            backend.context_restore(context);
+            assertEquals(1, backend.reg_read(Arm64Const.UC_ARM64_REG_X0).longValue());
+        } finally {
+            backend.context_free(context);
+        }
+    }
+
+    public void testWriteWatch() {
+        if (backend == null) {
+            return;
+        }
+        final List<long[]> writes = new ArrayList<>();
+        final List<UnHook> unHooks = new ArrayList<>();
+        backend.hook_add_new(new WriteHook() {
+            @Override
+            public void hook(Backend backend, long address, int size, long value, Object user) {
+                writes.add(new long[]{address, size, value});
+            }
+            @Override
+            public void onAttach(UnHook unHook) {
+                unHooks.add(unHook);
+            }
+            @Override
+            public void detach() {
+                throw new UnsupportedOperationException();
+            }
+        }, DATA + 8, DATA + 15, null);
+        assertEquals(1, unHooks.size());
+
+        writeCode(STR_X1_X2, STR_X1_X2, B_SELF);
+        backend.reg_write(Arm64Const.UC_ARM64_REG_X1, 0x1122334455667788L);
+        backend.reg_write(Arm64Const.UC_ARM64_REG_X2, DATA);
+        backend.emu_start(CODE, 0, 0, 1);
+        assertTrue(writes.isEmpty());
+
+        backend.reg_write(Arm64Const.UC_ARM64_REG_X2, DATA + 8);
+        backend.emu_start(CODE + 4, 0, 0, 1);
+        assertEquals(1, writes.size());
+        assertEquals(DATA + 8, writes.get(0)[0]);
+        assertEquals(8, writes.get(0)[1]);
+        assertEquals(0x1122334455667788L, writes.get(0)[2]);
+
+        unHooks.get(0).unhook();
+        backend.emu_start(CODE + 4, 0, 0, 1);
+        assertEquals(1, writes.size());
+    }
+
+    public void testRegisterBatch() {
+        if (backend == null) {
+            return;
+        }
+        int[] regIds = new int[]{Arm64Const.UC_ARM64_REG_X0, Arm64Const.UC_ARM64_REG_X7, Arm64Const.UC_ARM64_REG_X30, Arm64Const.UC_ARM64_REG_SP, Arm64Const.UC_ARM64_REG_PC};
+        long[] values = new long[]{1, 0x7777L, 0x30303030L, DATA + 0x800, CODE + 8};
+        backend.reg_write_batch(regIds, values);
+        for (int i = 0; i < regIds.length; i++) {
+            assertEquals(values[i], backend.reg_read(regIds[i]).longValue());
+        }
+
+        for (int i = 0; i < regIds.length; i++) {
+            backend.reg_write(regIds[i], values[i] + 4);
+        }
+        long[] out = new long[regIds.length];
+        backend.reg_read_batch(regIds, out);
+        for (int i = 0; i < regIds.length; i++) {
+            assertEquals(values[i] + 4, out[i]);
+        }
+    }
+
+}
@@ -27,6 +27,7 @@ import com.github.unidbg.linux.struct.Stat32;
 import com.github.unidbg.linux.struct.SysInfo32;
 import com.github.unidbg.memory.Memory;
 import com.github.unidbg.memory.SvcMemory;
+import com.github.unidbg.metrics.EmulatorMetrics;
 import com.github.unidbg.pointer.UnidbgPointer;
 import com.github.unidbg.unix.IO;
 import com.github.unidbg.unix.UnixEmulator;
@@ -57,16 +58,26 @@ public class ARM32SyscallHandler extends AndroidSyscallHandler {
         this.svcMemory = svcMemory;
     }
 
+    private static final int[] HOOK_REGS = new int[]{ArmConst.UC_ARM_REG_PC, ArmConst.UC_ARM_REG_CPSR, ArmConst.UC_ARM_REG_R7};
+    private static final int[] CALLBACK_REGS = new int[]{ArmConst.UC_ARM_REG_R5, ArmConst.UC_ARM_REG_R4};
+
+    /**
+     * Scratch for the register batches, the values are consumed before any nested emulation can reenter the hook.
+     */
+    private final long[] regs = new long[Math.max(HOOK_REGS.length, CALLBACK_REGS.length)];
+
     @SuppressWarnings("unchecked")
     @Override
     public void hook(Backend backend, int intno, int swi, Object user) {
         Emulator<AndroidFileIO> emulator = (Emulator<AndroidFileIO>) user;
-        UnidbgPointer pc = UnidbgPointer.register(emulator, ArmConst.UC_ARM_REG_PC);
+        long[] regs = this.regs;
+        backend.reg_read_batch(HOOK_REGS, regs);
+        UnidbgPointer pc = UnidbgPointer.pointer(emulator, regs[0]);
         final int bkpt;
         if (pc == null) {
             bkpt = swi;
         } else {
-            if (ARM.isThumb(backend)) {
+            if (ARM.isThumb((int) regs[1])) {
                 bkpt = pc.getShort(0) & 0xff;
             } else {
                 int instruction = pc.getInt(0);
@@ -83,19 +94,22 @@ public class ARM32SyscallHandler extends AndroidSyscallHandler {
             throw new BackendException("intno=" + intno);
         }
 
-        int NR = backend.reg_read(ArmConst.UC_ARM_REG_R7).intValue();
+        int NR = (int) regs[2];
         String syscall = null;
         Throwable exception = null;
         try {
-            if (swi == 0 && NR == 0 && (backend.reg_read(ArmConst.UC_ARM_REG_R5).intValue()) == Svc.CALLBACK_SYSCALL_NUMBER) { // callback
-                int number = backend.reg_read(ArmConst.UC_ARM_REG_R4).intValue();
-                Svc svc = svcMemory.getSvc(number);
-                if (svc != null) {
-                    svc.handleCallback(emulator);
-                    return;
+            if (swi == 0 && NR == 0) {
+                backend.reg_read_batch(CALLBACK_REGS, regs);
+                if ((int) regs[0] == Svc.CALLBACK_SYSCALL_NUMBER) { // callback
+                    int number = (int) regs[1];
+                    Svc svc = svcMemory.getSvc(number);
+                    if (svc != null) {
+                        svc.handleCallback(emulator);
+                        return;
+                    }
+                    backend.emu_stop();
+                    throw new IllegalStateException("svc number: " + swi);
                 }
-                backend.emu_stop();
-                throw new IllegalStateException("svc number: " + swi);
             }
             if (swi != 0) {
                 Svc svc = svcMemory.getSvc(swi);
@@ -111,18 +125,24 @@ public class ARM32SyscallHandler extends AndroidSyscallHandler {
                 ARM.showThumbRegs(emulator);
             }
 
+            EmulatorMetrics metrics = emulator.getMetrics();
+            if (metrics.isEnabled()) {
+                metrics.countSyscall(NR);
+            }
             if (handleSyscall(emulator, NR)) {
                 return;
             }
 
             switch (NR) {
                 case 1:
+                    if (exitThread(emulator)) {
+                        return;
+                    }
                     int status = backend.reg_read(ArmConst.UC_ARM_REG_R0).intValue();
-                    System.out.println("exit status=" + status);
+                    log.debug("exit status=" + status);
                     if (LogFactory.getLog(AbstractEmulator.class).isDebugEnabled()) {
                         emulator.attach().debug();
                     }
-                    backend.emu_stop();
                     return;
                 case 2:
                     backend.reg_write(ArmConst.UC_ARM_REG_R0, fork(emulator));
@@ -152,9 +172,11 @@ public class ARM32SyscallHandler extends AndroidSyscallHandler {
                     backend.reg_write(ArmConst.UC_ARM_REG_R0, ptrace(emulator));
                     return;
                 case  20: // getpid
-                case 224: // gettid
                     backend.reg_write(ArmConst.UC_ARM_REG_R0, emulator.getPid());
                     return;
+                case 224: // gettid
+                    backend.reg_write(ArmConst.UC_ARM_REG_R0, threadScheduler.getTid(emulator));
+                    return;
                 case 33:
                     backend.reg_write(ArmConst.UC_ARM_REG_R0, access(emulator));
                     return;
@@ -453,7 +475,7 @@ public class ARM32SyscallHandler extends AndroidSyscallHandler {
                     return;
             }
         } catch (StopEmulatorException e) {
-            backend.emu_stop();
+            threadScheduler.stop(emulator);
             return;
         } catch (Throwable e) {
             backend.emu_stop();
@@ -821,13 +843,15 @@ public class ARM32SyscallHandler extends AndroidSyscallHandler {
         int threadId = ++this.threadId;
 
         UnidbgPointer fn = child_stack.getPointer(0);
-        child_stack = child_stack.share(4, 0);
-        UnidbgPointer arg = child_stack.getPointer(0);
-        child_stack = child_stack.share(4, 0);
+        UnidbgPointer arg = child_stack.getPointer(4);
 
         log.info("pthread_clone child_stack=" + child_stack + ", thread_id=" + threadId + ", fn=" + fn + ", arg=" + arg + ", flags=" + list);
-        threadMap.put(threadId, new LinuxThread(child_stack, fn, arg));
-        lastThread = threadId;
+        if (threadScheduler.isScheduling(emulator)) {
+            createThread(backend, emulator, threadId, flags, child_stack, fn, arg);
+        } else { // started from fn by runThread
+            threadMap.put(threadId, new LinuxThread(threadId, child_stack.share(8, 0), fn, arg, 0, null));
+            lastThread = threadId;
+        }
         Log log = LogFactory.getLog(AbstractEmulator.class);
         if (log.isDebugEnabled()) {
             emulator.attach().debug();
@@ -837,12 +861,12 @@ public class ARM32SyscallHandler extends AndroidSyscallHandler {
 
     private int bionic_clone(Backend backend, Emulator<?> emulator) {
         int flags = backend.reg_read(ArmConst.UC_ARM_REG_R0).intValue();
-        Pointer child_stack = UnidbgPointer.register(emulator, ArmConst.UC_ARM_REG_R1);
+        UnidbgPointer child_stack = UnidbgPointer.register(emulator, ArmConst.UC_ARM_REG_R1);
         Pointer pid = UnidbgPointer.register(emulator, ArmConst.UC_ARM_REG_R2);
         Pointer tls = UnidbgPointer.register(emulator, ArmConst.UC_ARM_REG_R3);
         Pointer ctid = UnidbgPointer.register(emulator, ArmConst.UC_ARM_REG_R4);
-        Pointer fn = UnidbgPointer.register(emulator, ArmConst.UC_ARM_REG_R5);
-        Pointer arg = UnidbgPointer.register(emulator, ArmConst.UC_ARM_REG_R6);
+        UnidbgPointer fn = UnidbgPointer.register(emulator, ArmConst.UC_ARM_REG_R5);
+        UnidbgPointer arg = UnidbgPointer.register(emulator, ArmConst.UC_ARM_REG_R6);
         List<String> list = new ArrayList<>();
         if ((flags & CLONE_VM) != 0) {
             list.add("CLONE_VM");
@@ -895,11 +919,47 @@ public class ARM32SyscallHandler extends AndroidSyscallHandler {
         if ((flags & CLONE_STOPPED) != 0) {
             list.add("CLONE_STOPPED");
         }
+        if (!threadScheduler.isContextSupported(emulator)) {
+            emulator.getMemory().setErrno(UnixEmulator.EAGAIN);
+            throw new AbstractMethodError();
+        }
+        int threadId = ++this.threadId;
         if (log.isDebugEnabled()) {
             log.debug("bionic_clone child_stack=" + child_stack + ", thread_id=" + threadId + ", pid=" + pid + ", tls=" + tls + ", ctid=" + ctid + ", fn=" + fn + ", arg=" + arg + ", flags=" + list);
         }
-        emulator.getMemory().setErrno(UnixEmulator.EAGAIN);
-        throw new AbstractMethodError();
+        createThread(backend, emulator, threadId, flags, child_stack, fn, arg);
+        return threadId;
+    }
+
+    /**
+     * Child of the clone syscall: returns 0 from the syscall on <code>child_stack</code>, like the kernel.
+     */
+    private void createThread(Backend backend, Emulator<?> emulator, int threadId, int flags, UnidbgPointer child_stack, UnidbgPointer fn, UnidbgPointer arg) {
+        Pointer ptid = UnidbgPointer.register(emulator, ArmConst.UC_ARM_REG_R2);
+        UnidbgPointer tls = UnidbgPointer.register(emulator, ArmConst.UC_ARM_REG_R3);
+        UnidbgPointer ctid = UnidbgPointer.register(emulator, ArmConst.UC_ARM_REG_R4);
+        if ((flags & CLONE_PARENT_SETTID) != 0 && ptid != null) {
+            ptid.setInt(0, threadId);
+        }
+        if ((flags & CLONE_CHILD_SETTID) != 0 && ctid != null) {
+            ctid.setInt(0, threadId);
+        }
+
+        int sp = backend.reg_read(ArmConst.UC_ARM_REG_SP).intValue();
+        int tpidr = backend.reg_read(ArmConst.UC_ARM_REG_C13_C0_3).intValue();
+        backend.reg_write(ArmConst.UC_ARM_REG_R0, 0);
+        backend.reg_write(ArmConst.UC_ARM_REG_SP, child_stack.peer);
+        if ((flags & CLONE_SETTLS) != 0) {
+            backend.reg_write(ArmConst.UC_ARM_REG_C13_C0_3, tls == null ? 0 : tls.peer);
+        }
+        long context = threadScheduler.saveContext(emulator);
+        backend.reg_write(ArmConst.UC_ARM_REG_SP, sp);
+        backend.reg_write(ArmConst.UC_ARM_REG_C13_C0_3, tpidr);
+
+        LinuxThread thread = new LinuxThread(threadId, child_stack, fn, arg, context, (flags & CLONE_CHILD_CLEARTID) != 0 ? ctid : null);
+        threadMap.put(threadId, thread);
+        lastThread = threadId;
+        threadScheduler.add(emulator, thread);
     }
 
     private int flock(Backend backend) {
@@ -1093,11 +1153,7 @@ public class ARM32SyscallHandler extends AndroidSyscallHandler {
         if (readfds != null) {
             int count = select(nfds, readfds, writefds, true);
             if (count == 0) {
-                try {
-                    TimeUnit.SECONDS.sleep(1);
-                } catch (InterruptedException e) {
-                    throw new IllegalStateException(e);
-                }
+                sleep(emulator, TimeUnit.SECONDS.toNanos(1));
             }
             return count;
         }
@@ -1136,11 +1192,7 @@ public class ARM32SyscallHandler extends AndroidSyscallHandler {
         if (readfds != null) {
             int count = select(nfds, readfds, writefds, true);
             if (count == 0) {
-                try {
-                    TimeUnit.SECONDS.sleep(1);
-                } catch (InterruptedException e) {
-                    throw new IllegalStateException(e);
-                }
+                sleep(emulator, TimeUnit.SECONDS.toNanos(1));
             }
             return count;
         }
@@ -1297,10 +1349,7 @@ public class ARM32SyscallHandler extends AndroidSyscallHandler {
         if (log.isDebugEnabled()) {
             log.debug("nanosleep req=" + req + ", rem=" + rem + ", tv_sec=" + tv_sec + ", tv_nsec=" + tv_nsec);
         }
-        try {
-            java.lang.Thread.sleep(tv_sec * 1000L + tv_nsec / 1000000L);
-        } catch (InterruptedException ignored) {
-        }
+        sleep(emulator, tv_sec * 1000000000L + tv_nsec);
         return 0;
     }
 
@@ -1604,7 +1653,7 @@ public class ARM32SyscallHandler extends AndroidSyscallHandler {
         if (LogFactory.getLog(AbstractEmulator.class).isDebugEnabled()) {
             createBreaker(emulator).debug();
         }
-        emulator.getBackend().emu_stop();
+        threadScheduler.exitGroup(emulator);
     }
 
     private int munmap(Backend backend, Emulator<?> emulator) {
@@ -1684,12 +1733,10 @@ public class ARM32SyscallHandler extends AndroidSyscallHandler {
     private static final int CLOCK_MONOTONIC_COARSE = 6;
     private static final int CLOCK_BOOTTIME = 7;
 
-    private final long nanoTime = System.nanoTime();
-
     protected int clock_gettime(Backend backend, Emulator<?> emulator) {
         int clk_id = backend.reg_read(ArmConst.UC_ARM_REG_R0).intValue();
         Pointer tp = UnidbgPointer.register(emulator, ArmConst.UC_ARM_REG_R1);
-        long offset = clk_id == CLOCK_REALTIME ? System.currentTimeMillis() * 1000000L : System.nanoTime() - nanoTime;
+        long offset = clk_id == CLOCK_REALTIME ? timeSource.currentTimeMillis() * 1000000L : timeSource.nanoTime();
         long tv_sec = offset / 1000000000L;
         long tv_nsec = offset % 1000000000L;
         if (log.isDebugEnabled()) {
@@ -1753,7 +1800,7 @@ public class ARM32SyscallHandler extends AndroidSyscallHandler {
 
     private int futex(Emulator<?> emulator) {
         RegisterContext context = emulator.getContext();
-        Pointer uaddr = context.getPointerArg(0);
+        UnidbgPointer uaddr = context.getPointerArg(0);
         int futex_op = context.getIntArg(1);
         int val = context.getIntArg(2);
         int old = uaddr.getInt(0);
@@ -1764,10 +1811,14 @@ public class ARM32SyscallHandler extends AndroidSyscallHandler {
         switch (futex_op & 0x7f) {
             case FUTEX_WAIT:
                 if (old != val) {
-                    throw new IllegalStateException("old=" + old + ", val=" + val);
+                    return -UnixEmulator.EAGAIN;
                 }
-                Thread.yield();
                 Pointer timeout = context.getPointerArg(3);
+                long nanos = timeout == null ? -1 : timeout.getInt(0) * 1000000000L + timeout.getInt(4);
+                if (threadScheduler.wait(emulator, uaddr.peer, nanos)) {
+                    return 0;
+                }
+                Thread.yield();
                 int mytype = val & 0xc000;
                 int shared = val & 0x2000;
                 if (log.isDebugEnabled()) {
@@ -1776,7 +1827,7 @@ public class ARM32SyscallHandler extends AndroidSyscallHandler {
                 uaddr.setInt(0, mytype | shared);
                 return 0;
             case FUTEX_WAKE:
-                return 0;
+                return threadScheduler.wake(emulator, uaddr.peer, val);
             default:
                 throw new AbstractMethodError();
         }
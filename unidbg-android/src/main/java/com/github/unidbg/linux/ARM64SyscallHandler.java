@@ -26,6 +26,7 @@ import com.github.unidbg.linux.file.UdpSocket;
 import com.github.unidbg.linux.struct.Stat64;
 import com.github.unidbg.memory.Memory;
 import com.github.unidbg.memory.SvcMemory;
+import com.github.unidbg.metrics.EmulatorMetrics;
 import com.github.unidbg.pointer.UnidbgPointer;
 import com.github.unidbg.unix.IO;
 import com.github.unidbg.unix.UnixEmulator;
@@ -55,11 +56,21 @@ public class ARM64SyscallHandler extends AndroidSyscallHandler {
         this.svcMemory = svcMemory;
     }
 
+    private static final int[] HOOK_REGS = new int[]{Arm64Const.UC_ARM64_REG_PC, Arm64Const.UC_ARM64_REG_X8};
+    private static final int[] CALLBACK_REGS = new int[]{Arm64Const.UC_ARM64_REG_X16, Arm64Const.UC_ARM64_REG_X4};
+
+    /**
+     * Scratch for the register batches, the values are consumed before any nested emulation can reenter the hook.
+     */
+    private final long[] regs = new long[Math.max(HOOK_REGS.length, CALLBACK_REGS.length)];
+
     @SuppressWarnings("unchecked")
     @Override
     public void hook(Backend backend, int intno, int swi, Object user) {
         Emulator<AndroidFileIO> emulator = (Emulator<AndroidFileIO>) user;
-        UnidbgPointer pc = UnidbgPointer.register(emulator, Arm64Const.UC_ARM64_REG_PC);
+        long[] regs = this.regs;
+        backend.reg_read_batch(HOOK_REGS, regs);
+        UnidbgPointer pc = UnidbgPointer.pointer(emulator, regs[0]);
 
         if (intno == ARMEmulator.EXCP_BKPT) { // brk
             createBreaker(emulator).brk(pc, pc == null ? swi : (pc.getInt(0) >> 5) & 0xffff);
@@ -70,19 +81,22 @@ public class ARM64SyscallHandler extends AndroidSyscallHandler {
             throw new BackendException("intno=" + intno);
         }
 
-        int NR = backend.reg_read(Arm64Const.UC_ARM64_REG_X8).intValue();
+        int NR = (int) regs[1];
         String syscall = null;
         Throwable exception = null;
         try {
-            if (swi == 0 && NR == 0 && backend.reg_read(Arm64Const.UC_ARM64_REG_X16).intValue() == Svc.CALLBACK_SYSCALL_NUMBER) { // callback
-                int number = backend.reg_read(Arm64Const.UC_ARM64_REG_X4).intValue();
-                Svc svc = svcMemory.getSvc(number);
-                if (svc != null) {
-                    svc.handleCallback(emulator);
-                    return;
+            if (swi == 0 && NR == 0) {
+                backend.reg_read_batch(CALLBACK_REGS, regs);
+                if ((int) regs[0] == Svc.CALLBACK_SYSCALL_NUMBER) { // callback
+                    int number = (int) regs[1];
+                    Svc svc = svcMemory.getSvc(number);
+                    if (svc != null) {
+                        svc.handleCallback(emulator);
+                        return;
+                    }
+                    backend.emu_stop();
+                    throw new IllegalStateException("svc number: " + swi);
                 }
-                backend.emu_stop();
-                throw new IllegalStateException("svc number: " + swi);
             }
             if (swi != 0) {
                 Svc svc = svcMemory.getSvc(swi);
@@ -98,6 +112,10 @@ public class ARM64SyscallHandler extends AndroidSyscallHandler {
                 ARM.showRegs64(emulator, null);
             }
 
+            EmulatorMetrics metrics = emulator.getMetrics();
+            if (metrics.isEnabled()) {
+                metrics.countSyscall(NR);
+            }
             if (handleSyscall(emulator, NR)) {
                 return;
             }
@@ -116,9 +134,11 @@ public class ARM64SyscallHandler extends AndroidSyscallHandler {
                     backend.reg_write(Arm64Const.UC_ARM64_REG_X0, lseek(emulator));
                     return;
                 case  172: // getpid
-                case  178: // gettid
                     backend.reg_write(Arm64Const.UC_ARM64_REG_X0, emulator.getPid());
                     return;
+                case  178: // gettid
+                    backend.reg_write(Arm64Const.UC_ARM64_REG_X0, threadScheduler.getTid(emulator));
+                    return;
                 case 129:
                     backend.reg_write(Arm64Const.UC_ARM64_REG_X0, kill(emulator));
                     return;
@@ -241,6 +261,9 @@ public class ARM64SyscallHandler extends AndroidSyscallHandler {
                 case 226:
                     backend.reg_write(Arm64Const.UC_ARM64_REG_X0, mprotect(backend, emulator));
                     return;
+                case 93:
+                    exit(emulator);
+                    return;
                 case 94:
                     exit_group(emulator);
                     return;
@@ -291,7 +314,7 @@ public class ARM64SyscallHandler extends AndroidSyscallHandler {
                     return;
             }
         } catch (StopEmulatorException e) {
-            backend.emu_stop();
+            threadScheduler.stop(emulator);
             return;
         } catch (Throwable e) {
             backend.emu_stop();
@@ -395,13 +418,15 @@ public class ARM64SyscallHandler extends AndroidSyscallHandler {
         int threadId = ++this.threadId;
 
         UnidbgPointer fn = child_stack.getPointer(0);
-        child_stack = child_stack.share(8, 0);
-        UnidbgPointer arg = child_stack.getPointer(0);
-        child_stack = child_stack.share(8, 0);
+        UnidbgPointer arg = child_stack.getPointer(8);
 
         log.info("pthread_clone child_stack=" + child_stack + ", thread_id=" + threadId + ", fn=" + fn + ", arg=" + arg + ", flags=" + list);
-        threadMap.put(threadId, new LinuxThread(child_stack, fn, arg));
-        lastThread = threadId;
+        if (threadScheduler.isScheduling(emulator)) {
+            createThread(emulator, threadId, flags, child_stack, fn, arg);
+        } else { // started from fn by runThread
+            threadMap.put(threadId, new LinuxThread(threadId, child_stack.share(16, 0), fn, arg, 0, null));
+            lastThread = threadId;
+        }
         Log log = LogFactory.getLog(AbstractEmulator.class);
         if (log.isDebugEnabled()) {
             emulator.attach().debug();
@@ -449,12 +474,12 @@ public class ARM64SyscallHandler extends AndroidSyscallHandler {
     private int bionic_clone(Emulator<?> emulator) {
         RegisterContext context = emulator.getContext();
         int flags = context.getIntArg(0);
-        Pointer child_stack = context.getPointerArg(1);
+        UnidbgPointer child_stack = context.getPointerArg(1);
         Pointer pid = context.getPointerArg(2);
         Pointer tls = context.getPointerArg(3);
         Pointer ctid = context.getPointerArg(4);
-        Pointer fn = context.getPointerArg(5);
-        Pointer arg = context.getPointerArg(6);
+        UnidbgPointer fn = context.getPointerArg(5);
+        UnidbgPointer arg = context.getPointerArg(6);
         List<String> list = new ArrayList<>();
         if ((flags & CLONE_VM) != 0) {
             list.add("CLONE_VM");
@@ -507,11 +532,49 @@ public class ARM64SyscallHandler extends AndroidSyscallHandler {
         if ((flags & CLONE_STOPPED) != 0) {
             list.add("CLONE_STOPPED");
         }
+        if (!threadScheduler.isContextSupported(emulator)) {
+            emulator.getMemory().setErrno(UnixEmulator.EAGAIN);
+            throw new AbstractMethodError();
+        }
+        int threadId = ++this.threadId;
         if (log.isDebugEnabled()) {
-            log.debug("bionic_clone child_stack=" + child_stack + ", pid=" + pid + ", tls=" + tls + ", ctid=" + ctid + ", fn=" + fn + ", arg=" + arg + ", flags=" + list);
+            log.debug("bionic_clone child_stack=" + child_stack + ", thread_id=" + threadId + ", pid=" + pid + ", tls=" + tls + ", ctid=" + ctid + ", fn=" + fn + ", arg=" + arg + ", flags=" + list);
+        }
+        createThread(emulator, threadId, flags, child_stack, fn, arg);
+        return threadId;
+    }
+
+    /**
+     * Child of the clone syscall: returns 0 from the syscall on <code>child_stack</code>, like the kernel.
+     */
+    private void createThread(Emulator<?> emulator, int threadId, int flags, UnidbgPointer child_stack, UnidbgPointer fn, UnidbgPointer arg) {
+        RegisterContext context = emulator.getContext();
+        Pointer ptid = context.getPointerArg(2);
+        UnidbgPointer tls = context.getPointerArg(3);
+        UnidbgPointer ctid = context.getPointerArg(4);
+        if ((flags & CLONE_PARENT_SETTID) != 0 && ptid != null) {
+            ptid.setInt(0, threadId);
+        }
+        if ((flags & CLONE_CHILD_SETTID) != 0 && ctid != null) {
+            ctid.setInt(0, threadId);
         }
-        emulator.getMemory().setErrno(UnixEmulator.EAGAIN);
-        throw new AbstractMethodError();
+
+        Backend backend = emulator.getBackend();
+        long sp = backend.reg_read(Arm64Const.UC_ARM64_REG_SP).longValue();
+        long tpidr = backend.reg_read(Arm64Const.UC_ARM64_REG_TPIDR_EL0).longValue();
+        backend.reg_write(Arm64Const.UC_ARM64_REG_X0, 0);
+        backend.reg_write(Arm64Const.UC_ARM64_REG_SP, child_stack.peer);
+        if ((flags & CLONE_SETTLS) != 0) {
+            backend.reg_write(Arm64Const.UC_ARM64_REG_TPIDR_EL0, tls == null ? 0 : tls.peer);
+        }
+        long childContext = threadScheduler.saveContext(emulator);
+        backend.reg_write(Arm64Const.UC_ARM64_REG_SP, sp);
+        backend.reg_write(Arm64Const.UC_ARM64_REG_TPIDR_EL0, tpidr);
+
+        LinuxThread thread = new LinuxThread(threadId, child_stack, fn, arg, childContext, (flags & CLONE_CHILD_CLEARTID) != 0 ? ctid : null);
+        threadMap.put(threadId, thread);
+        lastThread = threadId;
+        threadScheduler.add(emulator, thread);
     }
 
     private int flock(Emulator<?> emulator) {
@@ -640,10 +703,7 @@ public class ARM64SyscallHandler extends AndroidSyscallHandler {
         if (log.isDebugEnabled()) {
             log.debug("nanosleep req=" + req + ", rem=" + rem + ", tv_sec=" + tv_sec + ", tv_nsec=" + tv_nsec);
         }
-        try {
-            Thread.sleep(tv_sec * 1000L + tv_nsec / 1000000L);
-        } catch (InterruptedException ignored) {
-        }
+        sleep(emulator, tv_sec * 1000000000L + tv_nsec);
         return 0;
     }
 
@@ -698,11 +758,7 @@ public class ARM64SyscallHandler extends AndroidSyscallHandler {
         if (readfds != null) {
             int count = select(nfds, readfds, writefds, true);
             if (count == 0) {
-                try {
-                    TimeUnit.SECONDS.sleep(1);
-                } catch (InterruptedException e) {
-                    throw new IllegalStateException(e);
-                }
+                sleep(emulator, TimeUnit.SECONDS.toNanos(1));
             }
             return count;
         }
@@ -938,6 +994,18 @@ public class ARM64SyscallHandler extends AndroidSyscallHandler {
         return emulator.getPid();
     }
 
+    private void exit(Emulator<?> emulator) {
+        if (exitThread(emulator)) {
+            return;
+        }
+        RegisterContext context = emulator.getContext();
+        int status = context.getIntArg(0);
+        log.debug("exit status=" + status);
+        if (LogFactory.getLog(AbstractEmulator.class).isDebugEnabled()) {
+            createBreaker(emulator).debug();
+        }
+    }
+
     private void exit_group(Emulator<?> emulator) {
         RegisterContext context = emulator.getContext();
         int status = context.getIntArg(0);
@@ -949,7 +1017,7 @@ public class ARM64SyscallHandler extends AndroidSyscallHandler {
         if (LogFactory.getLog(AbstractEmulator.class).isDebugEnabled()) {
             createBreaker(emulator).debug();
         }
-        emulator.getBackend().emu_stop();
+        threadScheduler.exitGroup(emulator);
     }
 
     private int munmap(Backend backend, Emulator<?> emulator) {
@@ -1037,13 +1105,11 @@ public class ARM64SyscallHandler extends AndroidSyscallHandler {
     private static final int CLOCK_MONOTONIC_COARSE = 6;
     private static final int CLOCK_BOOTTIME = 7;
 
-    private final long nanoTime = System.nanoTime();
-
     protected int clock_gettime(Emulator<?> emulator) {
         RegisterContext context = emulator.getContext();
         int clk_id = context.getIntArg(0);
         Pointer tp = context.getPointerArg(1);
-        long offset = clk_id == CLOCK_REALTIME ? System.currentTimeMillis() * 1000000L : System.nanoTime() - nanoTime;
+        long offset = clk_id == CLOCK_REALTIME ? timeSource.currentTimeMillis() * 1000000L : timeSource.nanoTime();
         long tv_sec = offset / 1000000000L;
         long tv_nsec = offset % 1000000000L;
         if (log.isDebugEnabled()) {
@@ -1115,7 +1181,7 @@ public class ARM64SyscallHandler extends AndroidSyscallHandler {
 
     private int futex(Emulator<?> emulator) {
         RegisterContext context = emulator.getContext();
-        Pointer uaddr = context.getPointerArg(0);
+        UnidbgPointer uaddr = context.getPointerArg(0);
         int futex_op = context.getIntArg(1);
         int val = context.getIntArg(2);
         int old = uaddr.getInt(0);
@@ -1126,10 +1192,14 @@ public class ARM64SyscallHandler extends AndroidSyscallHandler {
         switch (futex_op & 0x7f) {
             case FUTEX_WAIT:
                 if (old != val) {
-                    throw new IllegalStateException("old=" + old + ", val=" + val);
+                    return -UnixEmulator.EAGAIN;
                 }
-                Thread.yield();
                 Pointer timeout = context.getPointerArg(3);
+                long nanos = timeout == null ? -1 : timeout.getLong(0) * 1000000000L + timeout.getLong(8);
+                if (threadScheduler.wait(emulator, uaddr.peer, nanos)) {
+                    return 0;
+                }
+                Thread.yield();
                 int mytype = val & 0xc000;
                 int shared = val & 0x2000;
                 if (log.isDebugEnabled()) {
@@ -1138,7 +1208,7 @@ public class ARM64SyscallHandler extends AndroidSyscallHandler {
                 uaddr.setInt(0, mytype | shared);
                 return 0;
             case FUTEX_WAKE:
-                return 0;
+                return threadScheduler.wake(emulator, uaddr.peer, val);
             default:
                 throw new AbstractMethodError("futex_op=0x" + Integer.toHexString(futex_op));
         }
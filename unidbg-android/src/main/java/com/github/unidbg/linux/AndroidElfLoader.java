@@ -20,6 +20,7 @@ import com.github.unidbg.memory.MemoryAllocBlock;
 import com.github.unidbg.memory.MemoryBlock;
 import com.github.unidbg.memory.MemoryBlockImpl;
 import com.github.unidbg.memory.MemoryMap;
+import com.github.unidbg.memory.MemorySnapshot;
 import com.github.unidbg.pointer.UnidbgPointer;
 import com.github.unidbg.spi.AbstractLoader;
 import com.github.unidbg.spi.InitFunction;
@@ -30,16 +31,12 @@ import com.github.unidbg.unix.Thread;
 import com.github.unidbg.unix.UnixSyscallHandler;
 import com.github.unidbg.virtualmodule.VirtualSymbol;
 import com.sun.jna.Pointer;
-import net.fornwall.jelf.ArmExIdx;
 import net.fornwall.jelf.ElfDynamicStructure;
 import net.fornwall.jelf.ElfException;
 import net.fornwall.jelf.ElfFile;
 import net.fornwall.jelf.ElfRelocation;
-import net.fornwall.jelf.ElfSection;
 import net.fornwall.jelf.ElfSegment;
 import net.fornwall.jelf.ElfSymbol;
-import net.fornwall.jelf.GnuEhFrameHeader;
-import net.fornwall.jelf.MemoizedObject;
 import net.fornwall.jelf.SymbolLocator;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.logging.Log;
@@ -51,6 +48,7 @@ import unicorn.UnicornConst;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -115,6 +113,7 @@ public class AndroidElfLoader extends AbstractLoader<AndroidFileIO> implements M
             emulator.setTimeout(timeout);
             Thread thread = syscallHandler.threadMap.get(threadId);
             if (thread != null) {
+                syscallHandler.getThreadScheduler().remove(thread);
                 thread.runThread(emulator, __thread_entry, timeout);
             } else {
                 throw new IllegalStateException("thread: " + threadId + " not exits");
@@ -312,7 +311,8 @@ public class AndroidElfLoader extends AbstractLoader<AndroidFileIO> implements M
     }
 
     private LinuxModule loadInternal(LibraryFile libraryFile) throws IOException {
-        final ElfFile elfFile = ElfFile.fromBytes(libraryFile.mapBuffer());
+        final ElfLibrary library = ElfLibrary.parse(libraryFile);
+        final ElfFile elfFile = library.elfFile;
 
         if (emulator.is32Bit() && elfFile.objectSize != ElfFile.CLASS_32) {
             throw new ElfException("Must be 32-bit");
@@ -350,7 +350,7 @@ public class AndroidElfLoader extends AbstractLoader<AndroidFileIO> implements M
             }
         }
 
-        ElfDynamicStructure dynamicStructure = null;
+        final ElfDynamicStructure dynamicStructure = library.dynamicStructure;
 
         final long baseAlign = Math.max(emulator.getPageAlign(), align);
         final long load_base = ((mmapBaseAddress - 1) / baseAlign + 1) * baseAlign;
@@ -358,8 +358,6 @@ public class AndroidElfLoader extends AbstractLoader<AndroidFileIO> implements M
         setMMapBaseAddress(load_base + size);
 
         final List<MemRegion> regions = new ArrayList<>(5);
-        MemoizedObject<ArmExIdx> armExIdx = null;
-        MemoizedObject<GnuEhFrameHeader> ehFrameHeader = null;
         Alignment lastAlignment = null;
         for (int i = 0; i < elfFile.num_ph; i++) {
             ElfSegment ph = elfFile.getProgramHeader(i);
@@ -409,19 +407,14 @@ public class AndroidElfLoader extends AbstractLoader<AndroidFileIO> implements M
                     ph.getPtLoadData().writeTo(pointer(begin));
                     break;
                 case ElfSegment.PT_DYNAMIC:
-                    dynamicStructure = ph.getDynamicStructure();
+                case ElfSegment.PT_GNU_EH_FRAME:
+                case ElfSegment.PT_ARM_EXIDX:
                     break;
                 case ElfSegment.PT_INTERP:
                     if (log.isDebugEnabled()) {
                         log.debug("[" + libraryFile.getName() + "]interp=" + ph.getInterpreter());
                     }
                     break;
-                case ElfSegment.PT_GNU_EH_FRAME:
-                    ehFrameHeader = ph.getEhFrameHeader();
-                    break;
-                case ElfSegment.PT_ARM_EXIDX:
-                    armExIdx = ph.getARMExIdxData();
-                    break;
                 default:
                     if (log.isDebugEnabled()) {
                         log.debug("[" + libraryFile.getName() + "]segment type=0x" + Integer.toHexString(ph.type) + ", offset=0x" + Long.toHexString(ph.offset));
@@ -436,7 +429,7 @@ public class AndroidElfLoader extends AbstractLoader<AndroidFileIO> implements M
         final String soName = dynamicStructure.getSOName(libraryFile.getName());
 
         Map<String, Module> neededLibraries = new HashMap<>();
-        for (String neededLibrary : dynamicStructure.getNeededLibraries()) {
+        for (String neededLibrary : library.neededLibraries) {
             if (log.isDebugEnabled()) {
                 log.debug(soName + " need dependency " + neededLibrary);
             }
@@ -475,8 +468,7 @@ public class AndroidElfLoader extends AbstractLoader<AndroidFileIO> implements M
         }
 
         List<ModuleSymbol> list = new ArrayList<>();
-        for (MemoizedObject<ElfRelocation> object : dynamicStructure.getRelocations()) {
-            ElfRelocation relocation = object.getValue();
+        for (ElfRelocation relocation : library.relocations) {
             final int type = relocation.type();
             if (type == 0) {
                 log.warn("Unhandled relocation type " + type);
@@ -607,16 +599,13 @@ public class AndroidElfLoader extends AbstractLoader<AndroidFileIO> implements M
             }
         }
 
-        SymbolLocator dynsym = dynamicStructure.getSymbolStructure();
+        SymbolLocator dynsym = library.dynsym;
         if (dynsym == null) {
             throw new IllegalStateException("dynsym is null");
         }
-        ElfSection symbolTableSection = null;
-        try {
-            symbolTableSection = elfFile.getSymbolTableSection();
-        } catch(Throwable ignored) {}
         LinuxModule module = new LinuxModule(load_base, size, soName, dynsym, list, initFunctionList, neededLibraries, regions,
-                armExIdx, ehFrameHeader, symbolTableSection, elfFile, dynamicStructure);
+                library.armExIdx, library.ehFrameHeader, library.symbolTableSection, elfFile, dynamicStructure);
+        module.library = library;
         if ("libc.so".equals(soName)) { // libc
             ElfSymbol __thread_entry = module.getELFSymbolByName("__thread_entry");
             if (__thread_entry != null) {
@@ -715,6 +704,241 @@ public class AndroidElfLoader extends AbstractLoader<AndroidFileIO> implements M
         return (int) this.brk;
     }
 
+    @Override
+    protected List<MemoryMap> getSnapshotRegions() {
+        List<MemoryMap> regions = super.getSnapshotRegions();
+        if (brk > HEAP_BASE) {
+            regions.add(new MemoryMap(HEAP_BASE, brk - HEAP_BASE, UnicornConst.UC_PROT_READ | UnicornConst.UC_PROT_WRITE));
+        }
+        return regions;
+    }
+
+    @Override
+    protected void onSnapshot(MemorySnapshot snapshot) {
+        super.onSnapshot(snapshot);
+
+        snapshot.set("modules", new LinkedHashMap<>(modules));
+        snapshot.set("brk", brk);
+        snapshot.set("maxSoName", maxSoName);
+        snapshot.set("maxSizeOfSo", maxSizeOfSo);
+        snapshot.set("__thread_entry", __thread_entry);
+        snapshot.set("malloc", malloc);
+        snapshot.set("free", free);
+
+        StringBuilder names = new StringBuilder();
+        for (LinuxModule module : modules.values()) {
+            names.append(module.name).append('\n');
+            writeModuleImage(snapshot, "loader.image.module." + module.name + ".", module);
+        }
+        snapshot.set("loader.image.modules", names.toString());
+    }
+
+    /**
+     * Writes the module state not in memory: the library itself, its regions, dependencies, pending init functions,
+     * unresolved and hooked symbols.
+     */
+    private static void writeModuleImage(MemorySnapshot snapshot, String prefix, LinuxModule module) {
+        String mapRegionName = "";
+        String path = "";
+        List<MemRegion> regions = module.getRegions();
+        if (!regions.isEmpty()) {
+            LibraryFile libraryFile = regions.get(0).getLibraryFile();
+            mapRegionName = libraryFile.getMapRegionName();
+            path = libraryFile.getPath() == null ? "" : libraryFile.getPath();
+        }
+        snapshot.set(prefix + "info", module.base + "\t" + module.size + "\t" + module.getReferenceCount() + "\t" + module.isForceCallInit() +
+                "\t" + mapRegionName + "\t" + path);
+        if (module.library != null) {
+            snapshot.set("loader.image.library." + module.name, module.library.getBuffer());
+        }
+
+        StringBuilder needed = new StringBuilder();
+        for (Map.Entry<String, Module> entry : module.neededLibraryMap().entrySet()) {
+            needed.append(entry.getKey()).append('\t').append(entry.getValue().name).append('\n');
+        }
+        snapshot.set(prefix + "needed", needed.toString());
+        StringBuilder builder = new StringBuilder();
+        for (MemRegion region : regions) {
+            builder.append(region.begin).append('\t').append(region.end).append('\t').append(region.perms).append('\t').append(region.offset).append('\n');
+        }
+        snapshot.set(prefix + "regions", builder.toString());
+        builder = new StringBuilder();
+        for (InitFunction initFunction : module.initFunctionList) {
+            builder.append(initFunction.getAddress()).append('\n');
+        }
+        snapshot.set(prefix + "init", builder.toString());
+        builder = new StringBuilder();
+        for (ModuleSymbol moduleSymbol : module.getUnresolvedSymbol()) {
+            builder.append(((UnidbgPointer) moduleSymbol.relocationAddr).peer).append('\t').append(moduleSymbol.offset).append('\n');
+        }
+        snapshot.set(prefix + "unresolved", builder.toString());
+        builder = new StringBuilder();
+        for (Map.Entry<String, Long> entry : module.hookMap.entrySet()) {
+            builder.append(entry.getValue()).append('\t').append(entry.getKey()).append('\n');
+        }
+        snapshot.set(prefix + "hooks", builder.toString());
+    }
+
+    @Override
+    protected void onRestore(MemorySnapshot snapshot) {
+        super.onRestore(snapshot);
+
+        long brk = snapshot.<Long>get("brk");
+        if (brk != this.brk) {
+            if (this.brk == 0) {
+                brk(0);
+            }
+            brk(Math.max(brk, HEAP_BASE));
+        }
+        this.brk = brk;
+
+        this.maxSoName = snapshot.get("maxSoName");
+        this.maxSizeOfSo = snapshot.<Long>get("maxSizeOfSo");
+        this.__thread_entry = snapshot.<Long>get("__thread_entry");
+
+        if (!isImage(snapshot)) {
+            Map<String, LinuxModule> modules = snapshot.get("modules");
+            this.modules.clear();
+            this.modules.putAll(modules);
+            this.malloc = snapshot.get("malloc");
+            this.free = snapshot.get("free");
+            return;
+        }
+
+        Map<String, LinuxModule> modules = new LinkedHashMap<>();
+        for (String name : imageLines(snapshot, "loader.image.modules")) {
+            modules.put(name, readModuleImage(snapshot, "loader.image.module." + name + ".", name));
+        }
+        for (LinuxModule module : modules.values()) {
+            for (String line : imageLines(snapshot, "loader.image.module." + module.name + ".needed")) {
+                String[] fields = line.split("\t", 2);
+                module.neededLibraryMap().put(fields[0], modules.get(fields[1]));
+            }
+        }
+        this.modules.clear();
+        this.modules.putAll(modules);
+        LinuxModule libc = modules.get("libc.so");
+        this.malloc = libc == null ? null : libc.findSymbolByName("malloc");
+        this.free = libc == null ? null : libc.findSymbolByName("free");
+    }
+
+    /**
+     * Builds the module again from the library saved in the image, without mapping or relocating it: the memory comes from the image.
+     */
+    private LinuxModule readModuleImage(MemorySnapshot snapshot, String prefix, String name) {
+        String[] info = snapshot.<String>get(prefix + "info").split("\t", -1);
+        long base = Long.parseLong(info[0]);
+        long size = Long.parseLong(info[1]);
+        int referenceCount = Integer.parseInt(info[2]);
+        boolean forceCallInit = Boolean.parseBoolean(info[3]);
+
+        Map<String, UnidbgPointer> hooks = new LinkedHashMap<>();
+        for (String line : imageLines(snapshot, prefix + "hooks")) {
+            String[] fields = line.split("\t", 2);
+            hooks.put(fields[1], UnidbgPointer.pointer(emulator, Long.parseLong(fields[0])));
+        }
+
+        ByteBuffer buffer = snapshot.get("loader.image.library." + name);
+        LinuxModule module;
+        if (buffer == null) {
+            module = LinuxModule.createVirtualModule(name, hooks, emulator);
+        } else {
+            ElfLibrary library;
+            LibraryFile libraryFile = new ImageLibraryFile(name, info[4], info[5].isEmpty() ? null : info[5], buffer);
+            try {
+                library = ElfLibrary.parse(libraryFile);
+            } catch (IOException e) {
+                throw new IllegalStateException("Parse image library failed: " + name, e);
+            }
+
+            List<MemRegion> regions = new ArrayList<>(5);
+            for (String line : imageLines(snapshot, prefix + "regions")) {
+                String[] fields = line.split("\t");
+                regions.add(new MemRegion(Long.parseLong(fields[0]), Long.parseLong(fields[1]), Integer.parseInt(fields[2]), libraryFile, Long.parseLong(fields[3])));
+            }
+            List<InitFunction> initFunctionList = new ArrayList<>();
+            for (String line : imageLines(snapshot, prefix + "init")) {
+                initFunctionList.add(new AbsoluteInitFunction(base, name, Long.parseLong(line)));
+            }
+            List<ModuleSymbol> unresolvedSymbol = new ArrayList<>();
+            String[] unresolved = imageLines(snapshot, prefix + "unresolved");
+            if (unresolved.length > 0) {
+                Map<Long, ElfRelocation> relocations = new HashMap<>();
+                for (ElfRelocation relocation : library.relocations) {
+                    relocations.put(base + relocation.offset(), relocation);
+                }
+                for (String line : unresolved) {
+                    String[] fields = line.split("\t");
+                    long relocationAddr = Long.parseLong(fields[0]);
+                    ElfRelocation relocation = relocations.get(relocationAddr);
+                    if (relocation == null) {
+                        throw new IllegalStateException("Image unresolved symbol relocation not found: " + name + "@0x" + Long.toHexString(relocationAddr));
+                    }
+                    try {
+                        unresolvedSymbol.add(new ModuleSymbol(name, base, relocation.symbol(), UnidbgPointer.pointer(emulator, relocationAddr), null, Long.parseLong(fields[1])));
+                    } catch (IOException e) {
+                        throw new IllegalStateException("Read image unresolved symbol failed: " + name, e);
+                    }
+                }
+            }
+            module = new LinuxModule(base, size, name, library.dynsym, unresolvedSymbol, initFunctionList, new HashMap<String, Module>(), regions,
+                    library.armExIdx, library.ehFrameHeader, library.symbolTableSection, library.elfFile, library.dynamicStructure);
+            module.library = library;
+            module.setEntryPoint(library.elfFile.entry_point);
+            for (Map.Entry<String, UnidbgPointer> entry : hooks.entrySet()) {
+                module.registerSymbol(entry.getKey(), entry.getValue().peer);
+            }
+        }
+        for (int i = 0; i < referenceCount; i++) {
+            module.addReferenceCount();
+        }
+        if (forceCallInit) {
+            module.setForceCallInit();
+        }
+        return module;
+    }
+
+    private static String[] imageLines(MemorySnapshot snapshot, String key) {
+        String value = snapshot.get(key);
+        return value == null || value.isEmpty() ? new String[0] : value.split("\n");
+    }
+
+    /**
+     * Library restored from an image, dependencies are resolved by the library resolver.
+     */
+    private static class ImageLibraryFile implements LibraryFile {
+        private final String name;
+        private final String mapRegionName;
+        private final String path;
+        private final ByteBuffer buffer;
+        ImageLibraryFile(String name, String mapRegionName, String path, ByteBuffer buffer) {
+            this.name = name;
+            this.mapRegionName = mapRegionName;
+            this.path = path;
+            this.buffer = buffer;
+        }
+        @Override
+        public String getName() {
+            return name;
+        }
+        @Override
+        public String getMapRegionName() {
+            return mapRegionName;
+        }
+        @Override
+        public LibraryFile resolveLibrary(Emulator<?> emulator, String soName) {
+            return null;
+        }
+        @Override
+        public ByteBuffer mapBuffer() {
+            return buffer.duplicate();
+        }
+        @Override
+        public String getPath() {
+            return path;
+        }
+    }
+
     public static final int MAP_FIXED = 0x10;
     public static final int MAP_ANONYMOUS = 0x20;
 
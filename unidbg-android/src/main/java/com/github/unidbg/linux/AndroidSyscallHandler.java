@@ -12,7 +12,9 @@ import com.github.unidbg.linux.file.PipedWriteFileIO;
 import com.github.unidbg.linux.struct.StatFS;
 import com.github.unidbg.linux.struct.StatFS32;
 import com.github.unidbg.linux.struct.StatFS64;
+import com.github.unidbg.pointer.UnidbgPointer;
 import com.github.unidbg.spi.SyscallHandler;
+import com.github.unidbg.unix.Thread;
 import com.github.unidbg.unix.UnixEmulator;
 import com.github.unidbg.unix.UnixSyscallHandler;
 import com.github.unidbg.utils.Inspector;
@@ -35,6 +37,22 @@ abstract class AndroidSyscallHandler extends UnixSyscallHandler<AndroidFileIO> i
     static final int MREMAP_MAYMOVE = 1;
     static final int MREMAP_FIXED = 2;
 
+    /**
+     * Exits the running thread, clearing and waking its <code>clear_child_tid</code> like the kernel.
+     * @return <code>false</code> when the calling thread exits.
+     */
+    final boolean exitThread(Emulator<?> emulator) {
+        Thread thread = threadScheduler.getCurrentThread();
+        if (thread instanceof LinuxThread) {
+            UnidbgPointer clear_child_tid = ((LinuxThread) thread).clear_child_tid;
+            if (clear_child_tid != null) {
+                clear_child_tid.setInt(0, 0);
+                threadScheduler.wake(emulator, clear_child_tid.peer, 1);
+            }
+        }
+        return threadScheduler.exit(emulator);
+    }
+
     private byte[] sched_cpu_mask;
 
     final long sched_setaffinity(Emulator<AndroidFileIO> emulator) {
@@ -92,6 +110,11 @@ abstract class AndroidSyscallHandler extends UnixSyscallHandler<AndroidFileIO> i
         return minFd;
     }
 
+    @Override
+    protected int getReopenFlags(int oflags) {
+        return oflags & ~(IOConstants.O_CREAT | IOConstants.O_EXCL | IOConstants.O_TRUNC);
+    }
+
     @Override
     protected FileResult<AndroidFileIO> createFdDir(int oflags, String pathname) {
         List<DirectoryFileIO.DirectoryEntry> list = new ArrayList<>();
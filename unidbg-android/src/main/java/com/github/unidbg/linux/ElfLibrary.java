@@ -0,0 +1,218 @@
+package com.github.unidbg.linux;
+
+import com.github.unidbg.linux.android.ElfLibraryFile;
+import com.github.unidbg.spi.LibraryFile;
+import net.fornwall.jelf.ArmExIdx;
+import net.fornwall.jelf.ElfDynamicStructure;
+import net.fornwall.jelf.ElfFile;
+import net.fornwall.jelf.ElfRelocation;
+import net.fornwall.jelf.ElfSection;
+import net.fornwall.jelf.ElfSegment;
+import net.fornwall.jelf.GnuEhFrameHeader;
+import net.fornwall.jelf.MemoizedObject;
+import net.fornwall.jelf.SymbolLocator;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parsed elf file shared by all emulators in the jvm, keyed by library name and size.
+ * Relocations are parsed once with their symbols, each load only replays them against its own load base.
+ * Cached libraries are softly referenced and the least recently used are evicted beyond {@link #setCacheSize(int)}.
+ */
+public class ElfLibrary {
+
+    private static final Log log = LogFactory.getLog(ElfLibrary.class);
+
+    private static int cacheSize = 64;
+
+    private static final Map<String, CacheEntry> cache = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+            return size() > cacheSize;
+        }
+    };
+
+    private static class CacheEntry {
+        final SoftReference<ElfLibrary> reference;
+        final String stamp;
+        private String contentHash;
+        CacheEntry(ElfLibrary library, String stamp) {
+            this.reference = new SoftReference<>(library);
+            this.stamp = stamp;
+        }
+        String contentHash(ElfLibrary library) {
+            if (contentHash == null) {
+                contentHash = ElfLibrary.contentHash(library.buffer);
+            }
+            return contentHash;
+        }
+    }
+
+    static ElfLibrary parse(LibraryFile libraryFile) throws IOException {
+        ByteBuffer buffer = libraryFile.mapBuffer();
+        String key = libraryFile.getName() + "_" + buffer.remaining();
+        String stamp = stamp(libraryFile);
+        ElfLibrary library = lookup(key, stamp, buffer);
+        if (library == null) {
+            long start = System.currentTimeMillis();
+            library = new ElfLibrary(ElfFile.fromBytes(buffer), buffer);
+            synchronized (cache) {
+                cache.put(key, new CacheEntry(library, stamp));
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Parse library " + libraryFile.getName() + " offset=" + (System.currentTimeMillis() - start) + "ms, relocations=" + library.relocations.size());
+            }
+        }
+        return library;
+    }
+
+    /**
+     * Same file and modification time is a hit, otherwise the contents are only hashed when the name and size collide.
+     */
+    private static ElfLibrary lookup(String key, String stamp, ByteBuffer buffer) {
+        synchronized (cache) {
+            CacheEntry entry = cache.get(key);
+            ElfLibrary library = entry == null ? null : entry.reference.get();
+            if (library == null) {
+                return null;
+            }
+            if (stamp != null && stamp.equals(entry.stamp)) {
+                return library;
+            }
+            return entry.contentHash(library).equals(contentHash(buffer)) ? library : null;
+        }
+    }
+
+    private static String stamp(LibraryFile libraryFile) {
+        if (libraryFile instanceof ElfLibraryFile) {
+            File file = ((ElfLibraryFile) libraryFile).getFile();
+            return file.getAbsolutePath() + "_" + file.lastModified();
+        }
+        return null;
+    }
+
+    /**
+     * Maximum number of cached libraries, the least recently used are evicted first.
+     */
+    public static void setCacheSize(int cacheSize) {
+        synchronized (cache) {
+            ElfLibrary.cacheSize = cacheSize;
+            Iterator<String> iterator = cache.keySet().iterator();
+            while (cache.size() > cacheSize && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Release all cached libraries, loaded modules keep their own reference.
+     */
+    public static void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    private static String contentHash(ByteBuffer buffer) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            digest.update(buffer.duplicate());
+            return Hex.encodeHexString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private final ByteBuffer buffer;
+    final ElfFile elfFile;
+    final ElfDynamicStructure dynamicStructure;
+    final MemoizedObject<ArmExIdx> armExIdx;
+    final MemoizedObject<GnuEhFrameHeader> ehFrameHeader;
+    final SymbolLocator dynsym;
+    final ElfSection symbolTableSection;
+    final List<String> neededLibraries;
+
+    /**
+     * relocation plan: relocations in apply order with symbols resolved.
+     */
+    final List<ElfRelocation> relocations;
+
+    /**
+     * @return contents of the library, written to emulator images.
+     */
+    ByteBuffer getBuffer() {
+        return buffer.duplicate();
+    }
+
+    private ElfLibrary(ElfFile elfFile, ByteBuffer buffer) throws IOException {
+        this.elfFile = elfFile;
+        this.buffer = buffer;
+
+        ElfDynamicStructure dynamicStructure = null;
+        MemoizedObject<ArmExIdx> armExIdx = null;
+        MemoizedObject<GnuEhFrameHeader> ehFrameHeader = null;
+        for (int i = 0; i < elfFile.num_ph; i++) {
+            ElfSegment ph = elfFile.getProgramHeader(i);
+            switch (ph.type) {
+                case ElfSegment.PT_LOAD:
+                    ph.getPtLoadData();
+                    break;
+                case ElfSegment.PT_DYNAMIC:
+                    dynamicStructure = ph.getDynamicStructure();
+                    break;
+                case ElfSegment.PT_GNU_EH_FRAME:
+                    ehFrameHeader = ph.getEhFrameHeader();
+                    break;
+                case ElfSegment.PT_ARM_EXIDX:
+                    armExIdx = ph.getARMExIdxData();
+                    break;
+                default:
+                    break;
+            }
+        }
+        this.dynamicStructure = dynamicStructure;
+        this.armExIdx = armExIdx;
+        this.ehFrameHeader = ehFrameHeader;
+
+        if (dynamicStructure == null) {
+            this.dynsym = null;
+            this.neededLibraries = Collections.emptyList();
+            this.relocations = Collections.emptyList();
+        } else {
+            this.dynsym = dynamicStructure.getSymbolStructure();
+            this.neededLibraries = Collections.unmodifiableList(dynamicStructure.getNeededLibraries());
+
+            List<ElfRelocation> relocations = new ArrayList<>();
+            for (MemoizedObject<ElfRelocation> object : dynamicStructure.getRelocations()) {
+                ElfRelocation relocation = object.getValue();
+                if (relocation.sym() != 0) {
+                    relocation.symbol();
+                }
+                relocations.add(relocation);
+            }
+            this.relocations = Collections.unmodifiableList(relocations);
+        }
+
+        ElfSection symbolTableSection = null;
+        try {
+            symbolTableSection = elfFile.getSymbolTableSection();
+        } catch(Throwable ignored) {}
+        this.symbolTableSection = symbolTableSection;
+    }
+
+}
@@ -94,6 +94,11 @@ public class LinuxModule extends Module {
     public final ElfFile elfFile;
     public final ElfDynamicStructure dynamicStructure;
 
+    /**
+     * the parsed library, <code>null</code> for virtual module.
+     */
+    ElfLibrary library;
+
     LinuxModule(long base, long size, String name, SymbolLocator dynsym,
                 List<ModuleSymbol> unresolvedSymbol, List<InitFunction> initFunctionList, Map<String, Module> neededLibraries, List<MemRegion> regions,
                 MemoizedObject<ArmExIdx> armExIdx, MemoizedObject<GnuEhFrameHeader> ehFrameHeader,
@@ -128,6 +133,10 @@ public class LinuxModule extends Module {
         return unresolvedSymbol;
     }
 
+    Map<String, Module> neededLibraryMap() {
+        return neededLibraries;
+    }
+
     @Override
     public Symbol findSymbolByName(String name, boolean withDependencies) {
         try {
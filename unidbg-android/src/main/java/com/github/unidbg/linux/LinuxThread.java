@@ -2,6 +2,7 @@ package com.github.unidbg.linux;
 
 import com.github.unidbg.Emulator;
 import com.github.unidbg.Module;
+import com.github.unidbg.arm.ARM;
 import com.github.unidbg.arm.backend.Backend;
 import com.github.unidbg.pointer.UnidbgPointer;
 import com.github.unidbg.unix.Thread;
@@ -20,14 +21,23 @@ public class LinuxThread extends Thread {
     private final UnidbgPointer fn;
     private final UnidbgPointer arg;
 
-    LinuxThread(UnidbgPointer child_stack, UnidbgPointer fn, UnidbgPointer arg) {
+    /**
+     * CLONE_CHILD_CLEARTID: cleared and futex woken when the thread exits.
+     */
+    final UnidbgPointer clear_child_tid;
+
+    /**
+     * @param context registers returning 0 from the clone syscall in the child, 0 to start from <code>fn</code>.
+     */
+    LinuxThread(int tid, UnidbgPointer child_stack, UnidbgPointer fn, UnidbgPointer arg, long context, UnidbgPointer clear_child_tid) {
+        super(tid);
         this.child_stack = child_stack;
         this.fn = fn;
         this.arg = arg;
+        this.context = context;
+        this.clear_child_tid = clear_child_tid;
     }
 
-    private long context;
-
     @Override
     public void runThread(Emulator<?> emulator, long __thread_entry, long timeout) {
         Backend backend = emulator.getBackend();
@@ -38,19 +48,20 @@ public class LinuxThread extends Thread {
             } else {
                 Module.emulateFunction(emulator, __thread_entry, this.fn, this.arg, this.child_stack);
             }
+            this.context = emulator.getSyscallHandler().getThreadScheduler().saveContext(emulator);
         } else {
             backend.context_restore(this.context);
             long pc = backend.reg_read(emulator.is32Bit() ? ArmConst.UC_ARM_REG_PC : Arm64Const.UC_ARM64_REG_PC).longValue();
             if (emulator.is32Bit()) {
                 pc &= 0xffffffffL;
+                if (ARM.isThumb(backend)) {
+                    pc |= 1;
+                }
             }
             log.info("resume thread: fn=" + this.fn + ", arg=" + this.arg + ", child_stack=" + this.child_stack + ", pc=0x" + Long.toHexString(pc) + ", __thread_entry=0x" + Long.toHexString(__thread_entry));
             backend.emu_start(pc, 0, timeout, 0);
+            backend.context_save(this.context);
         }
-        if (this.context == 0) {
-            this.context = backend.context_alloc();
-        }
-        backend.context_save(this.context);
     }
 
 }
@@ -1,6 +1,8 @@
 package com.github.unidbg.linux.android;
 
+import com.github.unidbg.AbstractEmulator;
 import com.github.unidbg.AndroidEmulator;
+import com.github.unidbg.EmulatorSnapshot;
 import com.github.unidbg.Family;
 import com.github.unidbg.arm.AbstractARM64Emulator;
 import com.github.unidbg.arm.backend.BackendFactory;
@@ -68,6 +70,7 @@ public class AndroidARM64Emulator extends AbstractARM64Emulator<AndroidFileIO> i
     }
 
     private VM vm;
+    private File apkFile;
 
     @Override
     public VM createDalvikVM() {
@@ -80,6 +83,7 @@ public class AndroidARM64Emulator extends AbstractARM64Emulator<AndroidFileIO> i
             throw new IllegalStateException("vm is already created");
         }
         vm = createDalvikVMInternal(apkFile);
+        this.apkFile = apkFile;
         return vm;
     }
 
@@ -93,6 +97,48 @@ public class AndroidARM64Emulator extends AbstractARM64Emulator<AndroidFileIO> i
         return vm;
     }
 
+    @Override
+    protected void onSnapshot(EmulatorSnapshot snapshot) {
+        super.onSnapshot(snapshot);
+
+        if (vm != null) {
+            vm.onSnapshot(snapshot);
+        }
+    }
+
+    @Override
+    protected void onRestore(EmulatorSnapshot snapshot) {
+        super.onRestore(snapshot);
+
+        if (vm != null) {
+            vm.onRestore(snapshot);
+        }
+    }
+
+    @Override
+    protected AbstractEmulator<AndroidFileIO> newInstance(Collection<BackendFactory> backendFactories) {
+        return new AndroidARM64Emulator(getProcessName(), getFileSystem().getRootDir(), backendFactories);
+    }
+
+    @Override
+    protected void onFork(AbstractEmulator<AndroidFileIO> forked) {
+        super.onFork(forked);
+
+        if (vm != null) {
+            vm.onFork(((AndroidEmulator) forked).createDalvikVM(apkFile));
+        }
+    }
+
+    @Override
+    protected void checkImage(EmulatorSnapshot snapshot) {
+        super.checkImage(snapshot);
+
+        String classes = snapshot.get("vm.image.classes");
+        if (vm == null && classes != null && !classes.isEmpty()) {
+            throw new IllegalStateException("Image taken with a dalvik vm, create the vm before restore");
+        }
+    }
+
     @Override
     public Unwinder getUnwinder() {
         return new AndroidARM64Unwinder(this);
@@ -1,6 +1,8 @@
 package com.github.unidbg.linux.android;
 
+import com.github.unidbg.AbstractEmulator;
 import com.github.unidbg.AndroidEmulator;
+import com.github.unidbg.EmulatorSnapshot;
 import com.github.unidbg.Family;
 import com.github.unidbg.arm.AbstractARMEmulator;
 import com.github.unidbg.arm.backend.BackendFactory;
@@ -107,6 +109,7 @@ public class AndroidARMEmulator extends AbstractARMEmulator<AndroidFileIO> imple
     }
 
     private VM vm;
+    private File apkFile;
 
     @Override
     public VM createDalvikVM() {
@@ -119,6 +122,7 @@ public class AndroidARMEmulator extends AbstractARMEmulator<AndroidFileIO> imple
             throw new IllegalStateException("vm is already created");
         }
         vm = createDalvikVMInternal(apkFile);
+        this.apkFile = apkFile;
         return vm;
     }
 
@@ -132,6 +136,48 @@ public class AndroidARMEmulator extends AbstractARMEmulator<AndroidFileIO> imple
         return vm;
     }
 
+    @Override
+    protected void onSnapshot(EmulatorSnapshot snapshot) {
+        super.onSnapshot(snapshot);
+
+        if (vm != null) {
+            vm.onSnapshot(snapshot);
+        }
+    }
+
+    @Override
+    protected void onRestore(EmulatorSnapshot snapshot) {
+        super.onRestore(snapshot);
+
+        if (vm != null) {
+            vm.onRestore(snapshot);
+        }
+    }
+
+    @Override
+    protected AbstractEmulator<AndroidFileIO> newInstance(Collection<BackendFactory> backendFactories) {
+        return new AndroidARMEmulator(getProcessName(), getFileSystem().getRootDir(), backendFactories);
+    }
+
+    @Override
+    protected void onFork(AbstractEmulator<AndroidFileIO> forked) {
+        super.onFork(forked);
+
+        if (vm != null) {
+            vm.onFork(((AndroidEmulator) forked).createDalvikVM(apkFile));
+        }
+    }
+
+    @Override
+    protected void checkImage(EmulatorSnapshot snapshot) {
+        super.checkImage(snapshot);
+
+        String classes = snapshot.get("vm.image.classes");
+        if (vm == null && classes != null && !classes.isEmpty()) {
+            throw new IllegalStateException("Image taken with a dalvik vm, create the vm before restore");
+        }
+    }
+
     @Override
     public Unwinder getUnwinder() {
         return new AndroidARMUnwinder(this);
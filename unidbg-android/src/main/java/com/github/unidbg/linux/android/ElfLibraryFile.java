@@ -16,6 +16,10 @@ public class ElfLibraryFile implements LibraryFile {
         this.elfFile = elfFile;
     }
 
+    public File getFile() {
+        return elfFile;
+    }
+
     @Override
     public String getName() {
         return elfFile.getName();
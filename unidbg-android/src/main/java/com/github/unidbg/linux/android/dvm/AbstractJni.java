@@ -40,6 +40,43 @@ public abstract class AbstractJni implements Jni {
 
     private static final Log log = LogFactory.getLog(AbstractJni.class);
 
+    private final Map<String, JniMethodHandler> methodHandlers = new HashMap<>();
+
+    /**
+     * changed on each registration, so methods bound before look up their handler again.
+     */
+    private Object handlerGeneration = new Object();
+
+    /**
+     * Handle the java method instead of the <code>switch (signature)</code> of the <code>callXxxMethod</code> overloads.
+     * The handler is bound to the method when native code gets the jmethodID, so a call does not build the signature.
+     * @param signature <code>java/lang/String->length()I</code>
+     */
+    public final AbstractJni register(String signature, JniMethodHandler handler) {
+        if (handler == null) {
+            methodHandlers.remove(signature);
+        } else {
+            methodHandlers.put(signature, handler);
+        }
+        handlerGeneration = new Object();
+        return this;
+    }
+
+    final JniMethodHandler findMethodHandler(DvmMethod dvmMethod) {
+        if (dvmMethod.handlerGeneration != handlerGeneration) {
+            dvmMethod.handler = methodHandlers.isEmpty() ? null : methodHandlers.get(dvmMethod.getSignature());
+            dvmMethod.handlerGeneration = handlerGeneration;
+        }
+        return dvmMethod.handler;
+    }
+
+    private static boolean toBoolean(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        return ((Number) value).intValue() != 0;
+    }
+
     @Override
     public DvmObject<?> getStaticObjectField(BaseVM vm, DvmClass dvmClass, DvmField dvmField) {
         return getStaticObjectField(vm, dvmClass, dvmField.getSignature());
@@ -146,6 +183,10 @@ public abstract class AbstractJni implements Jni {
 
     @Override
     public boolean callStaticBooleanMethod(BaseVM vm, DvmClass dvmClass, DvmMethod dvmMethod, VarArg varArg) {
+        JniMethodHandler handler = findMethodHandler(dvmMethod);
+        if (handler != null) {
+            return toBoolean(handler.invoke(vm, dvmClass, varArg));
+        }
         return callStaticBooleanMethod(vm, dvmClass, dvmMethod.getSignature(), varArg);
     }
 
@@ -156,6 +197,10 @@ public abstract class AbstractJni implements Jni {
 
     @Override
     public boolean callStaticBooleanMethodV(BaseVM vm, DvmClass dvmClass, DvmMethod dvmMethod, VaList vaList) {
+        JniMethodHandler handler = findMethodHandler(dvmMethod);
+        if (handler != null) {
+            return toBoolean(handler.invoke(vm, dvmClass, vaList));
+        }
         return callStaticBooleanMethodV(vm, dvmClass, dvmMethod.getSignature(), vaList);
     }
 
@@ -166,6 +211,10 @@ public abstract class AbstractJni implements Jni {
 
     @Override
     public int callStaticIntMethod(BaseVM vm, DvmClass dvmClass, DvmMethod dvmMethod, VarArg varArg) {
+        JniMethodHandler handler = findMethodHandler(dvmMethod);
+        if (handler != null) {
+            return ((Number) handler.invoke(vm, dvmClass, varArg)).intValue();
+        }
         return callStaticIntMethod(vm, dvmClass, dvmMethod.getSignature(), varArg);
     }
 
@@ -176,6 +225,10 @@ public abstract class AbstractJni implements Jni {
 
     @Override
     public int callStaticIntMethodV(BaseVM vm, DvmClass dvmClass, DvmMethod dvmMethod, VaList vaList) {
+        JniMethodHandler handler = findMethodHandler(dvmMethod);
+        if (handler != null) {
+            return ((Number) handler.invoke(vm, dvmClass, vaList)).intValue();
+        }
         return callStaticIntMethodV(vm, dvmClass, dvmMethod.getSignature(), vaList);
     }
 
@@ -186,6 +239,10 @@ public abstract class AbstractJni implements Jni {
 
     @Override
     public long callLongMethod(BaseVM vm, DvmObject<?> dvmObject, DvmMethod dvmMethod, VarArg varArg) {
+        JniMethodHandler handler = findMethodHandler(dvmMethod);
+        if (handler != null) {
+            return ((Number) handler.invoke(vm, dvmObject, varArg)).longValue();
+        }
         return callLongMethod(vm, dvmObject, dvmMethod.getSignature(), varArg);
     }
 
@@ -201,6 +258,10 @@ public abstract class AbstractJni implements Jni {
 
     @Override
     public long callLongMethodV(BaseVM vm, DvmObject<?> dvmObject, DvmMethod dvmMethod, VaList vaList) {
+        JniMethodHandler handler = findMethodHandler(dvmMethod);
+        if (handler != null) {
+            return ((Number) handler.invoke(vm, dvmObject, vaList)).longValue();
+        }
         return callLongMethodV(vm, dvmObject, dvmMethod.getSignature(), vaList);
     }
 
@@ -211,6 +272,10 @@ public abstract class AbstractJni implements Jni {
 
     @Override
     public float callFloatMethodV(BaseVM vm, DvmObject<?> dvmObject, DvmMethod dvmMethod, VaList vaList) {
+        JniMethodHandler handler = findMethodHandler(dvmMethod);
+        if (handler != null) {
+            return ((Number) handler.invoke(vm, dvmObject, vaList)).floatValue();
+        }
         return callFloatMethodV(vm, dvmObject, dvmMethod.getSignature(), vaList);
     }
 
@@ -221,6 +286,10 @@ public abstract class AbstractJni implements Jni {
 
     @Override
     public DvmObject<?> callObjectMethodV(BaseVM vm, DvmObject<?> dvmObject, DvmMethod dvmMethod, VaList vaList) {
+        JniMethodHandler handler = findMethodHandler(dvmMethod);
+        if (handler != null) {
+            return (DvmObject<?>) handler.invoke(vm, dvmObject, vaList);
+        }
         return callObjectMethodV(vm, dvmObject, dvmMethod.getSignature(), vaList);
     }
 
@@ -359,6 +428,10 @@ public abstract class AbstractJni implements Jni {
 
     @Override
     public DvmObject<?> callStaticObjectMethod(BaseVM vm, DvmClass dvmClass, DvmMethod dvmMethod, VarArg varArg) {
+        JniMethodHandler handler = findMethodHandler(dvmMethod);
+        if (handler != null) {
+            return (DvmObject<?>) handler.invoke(vm, dvmClass, varArg);
+        }
         return callStaticObjectMethod(vm, dvmClass, dvmMethod.getSignature(), varArg);
     }
 
@@ -369,6 +442,10 @@ public abstract class AbstractJni implements Jni {
 
     @Override
     public DvmObject<?> callStaticObjectMethodV(BaseVM vm, DvmClass dvmClass, DvmMethod dvmMethod, VaList vaList) {
+        JniMethodHandler handler = findMethodHandler(dvmMethod);
+        if (handler != null) {
+            return (DvmObject<?>) handler.invoke(vm, dvmClass, vaList);
+        }
         return callStaticObjectMethodV(vm, dvmClass, dvmMethod.getSignature(), vaList);
     }
 
@@ -412,6 +489,10 @@ public abstract class AbstractJni implements Jni {
 
     @Override
     public byte callByteMethodV(BaseVM vm, DvmObject<?> dvmObject, DvmMethod dvmMethod, VaList vaList) {
+        JniMethodHandler handler = findMethodHandler(dvmMethod);
+        if (handler != null) {
+            return ((Number) handler.invoke(vm, dvmObject, vaList)).byteValue();
+        }
         return callByteMethodV(vm, dvmObject, dvmMethod.getSignature(), vaList);
     }
 
@@ -422,6 +503,10 @@ public abstract class AbstractJni implements Jni {
 
     @Override
     public short callShortMethodV(BaseVM vm, DvmObject<?> dvmObject, DvmMethod dvmMethod, VaList vaList) {
+        JniMethodHandler handler = findMethodHandler(dvmMethod);
+        if (handler != null) {
+            return ((Number) handler.invoke(vm, dvmObject, vaList)).shortValue();
+        }
         return callShortMethodV(vm, dvmObject, dvmMethod.getSignature(), vaList);
     }
 
@@ -432,6 +517,10 @@ public abstract class AbstractJni implements Jni {
 
     @Override
     public int callIntMethodV(BaseVM vm, DvmObject<?> dvmObject, DvmMethod dvmMethod, VaList vaList) {
+        JniMethodHandler handler = findMethodHandler(dvmMethod);
+        if (handler != null) {
+            return ((Number) handler.invoke(vm, dvmObject, vaList)).intValue();
+        }
         return callIntMethodV(vm, dvmObject, dvmMethod.getSignature(), vaList);
     }
 
@@ -471,6 +560,10 @@ public abstract class AbstractJni implements Jni {
 
     @Override
     public long callStaticLongMethod(BaseVM vm, DvmClass dvmClass, DvmMethod dvmMethod, VarArg varArg) {
+        JniMethodHandler handler = findMethodHandler(dvmMethod);
+        if (handler != null) {
+            return ((Number) handler.invoke(vm, dvmClass, varArg)).longValue();
+        }
         return callStaticLongMethod(vm, dvmClass, dvmMethod.getSignature(), varArg);
     }
 
@@ -481,6 +574,10 @@ public abstract class AbstractJni implements Jni {
 
     @Override
     public long callStaticLongMethodV(BaseVM vm, DvmClass dvmClass, DvmMethod dvmMethod, VaList vaList) {
+        JniMethodHandler handler = findMethodHandler(dvmMethod);
+        if (handler != null) {
+            return ((Number) handler.invoke(vm, dvmClass, vaList)).longValue();
+        }
         return callStaticLongMethodV(vm, dvmClass, dvmMethod.getSignature(), vaList);
     }
 
@@ -491,6 +588,10 @@ public abstract class AbstractJni implements Jni {
 
     @Override
     public boolean callBooleanMethod(BaseVM vm, DvmObject<?> dvmObject, DvmMethod dvmMethod, VarArg varArg) {
+        JniMethodHandler handler = findMethodHandler(dvmMethod);
+        if (handler != null) {
+            return toBoolean(handler.invoke(vm, dvmObject, varArg));
+        }
         return callBooleanMethod(vm, dvmObject, dvmMethod.getSignature(), varArg);
     }
 
@@ -506,6 +607,10 @@ public abstract class AbstractJni implements Jni {
 
     @Override
     public boolean callBooleanMethodV(BaseVM vm, DvmObject<?> dvmObject, DvmMethod dvmMethod, VaList vaList) {
+        JniMethodHandler handler = findMethodHandler(dvmMethod);
+        if (handler != null) {
+            return toBoolean(handler.invoke(vm, dvmObject, vaList));
+        }
         return callBooleanMethodV(vm, dvmObject, dvmMethod.getSignature(), vaList);
     }
 
@@ -556,6 +661,10 @@ public abstract class AbstractJni implements Jni {
 
     @Override
     public float callStaticFloatMethod(BaseVM vm, DvmClass dvmClass, DvmMethod dvmMethod, VarArg varArg) {
+        JniMethodHandler handler = findMethodHandler(dvmMethod);
+        if (handler != null) {
+            return ((Number) handler.invoke(vm, dvmClass, varArg)).floatValue();
+        }
         return callStaticFloatMethod(vm, dvmClass, dvmMethod.getSignature(), varArg);
     }
 
@@ -566,6 +675,11 @@ public abstract class AbstractJni implements Jni {
 
     @Override
     public void callStaticVoidMethod(BaseVM vm, DvmClass dvmClass, DvmMethod dvmMethod, VarArg varArg) {
+        JniMethodHandler handler = findMethodHandler(dvmMethod);
+        if (handler != null) {
+            handler.invoke(vm, dvmClass, varArg);
+            return;
+        }
         callStaticVoidMethod(vm, dvmClass, dvmMethod.getSignature(), varArg);
     }
 
@@ -576,6 +690,11 @@ public abstract class AbstractJni implements Jni {
 
     @Override
     public void callStaticVoidMethodV(BaseVM vm, DvmClass dvmClass, DvmMethod dvmMethod, VaList vaList) {
+        JniMethodHandler handler = findMethodHandler(dvmMethod);
+        if (handler != null) {
+            handler.invoke(vm, dvmClass, vaList);
+            return;
+        }
         callStaticVoidMethodV(vm, dvmClass, dvmMethod.getSignature(), vaList);
     }
 
@@ -606,6 +725,10 @@ public abstract class AbstractJni implements Jni {
 
     @Override
     public DvmObject<?> newObject(BaseVM vm, DvmClass dvmClass, DvmMethod dvmMethod, VarArg varArg) {
+        JniMethodHandler handler = findMethodHandler(dvmMethod);
+        if (handler != null) {
+            return (DvmObject<?>) handler.invoke(vm, dvmClass, varArg);
+        }
         return newObject(vm, dvmClass, dvmMethod.getSignature(), varArg);
     }
 
@@ -630,6 +753,10 @@ public abstract class AbstractJni implements Jni {
 
     @Override
     public DvmObject<?> newObjectV(BaseVM vm, DvmClass dvmClass, DvmMethod dvmMethod, VaList vaList) {
+        JniMethodHandler handler = findMethodHandler(dvmMethod);
+        if (handler != null) {
+            return (DvmObject<?>) handler.invoke(vm, dvmClass, vaList);
+        }
         return newObjectV(vm, dvmClass, dvmMethod.getSignature(), vaList);
     }
 
@@ -713,6 +840,10 @@ public abstract class AbstractJni implements Jni {
 
     @Override
     public DvmObject<?> callObjectMethod(BaseVM vm, DvmObject<?> dvmObject, DvmMethod dvmMethod, VarArg varArg) {
+        JniMethodHandler handler = findMethodHandler(dvmMethod);
+        if (handler != null) {
+            return (DvmObject<?>) handler.invoke(vm, dvmObject, varArg);
+        }
         return callObjectMethod(vm, dvmObject, dvmMethod.getSignature(), varArg);
     }
 
@@ -782,6 +913,10 @@ public abstract class AbstractJni implements Jni {
 
     @Override
     public int callIntMethod(BaseVM vm, DvmObject<?> dvmObject, DvmMethod dvmMethod, VarArg varArg) {
+        JniMethodHandler handler = findMethodHandler(dvmMethod);
+        if (handler != null) {
+            return ((Number) handler.invoke(vm, dvmObject, varArg)).intValue();
+        }
         return callIntMethod(vm, dvmObject, dvmMethod.getSignature(), varArg);
     }
 
@@ -807,6 +942,10 @@ public abstract class AbstractJni implements Jni {
 
     @Override
     public double callDoubleMethod(BaseVM vm, DvmObject<?> dvmObject, DvmMethod dvmMethod, VarArg varArg) {
+        JniMethodHandler handler = findMethodHandler(dvmMethod);
+        if (handler != null) {
+            return ((Number) handler.invoke(vm, dvmObject, varArg)).doubleValue();
+        }
         return callDoubleMethod(vm, dvmObject, dvmMethod.getSignature(), varArg);
     }
 
@@ -817,6 +956,11 @@ public abstract class AbstractJni implements Jni {
 
     @Override
     public void callVoidMethod(BaseVM vm, DvmObject<?> dvmObject, DvmMethod dvmMethod, VarArg varArg) {
+        JniMethodHandler handler = findMethodHandler(dvmMethod);
+        if (handler != null) {
+            handler.invoke(vm, dvmObject, varArg);
+            return;
+        }
         callVoidMethod(vm, dvmObject, dvmMethod.getSignature(), varArg);
     }
 
@@ -827,6 +971,11 @@ public abstract class AbstractJni implements Jni {
 
     @Override
     public void callVoidMethodV(BaseVM vm, DvmObject<?> dvmObject, DvmMethod dvmMethod, VaList vaList) {
+        JniMethodHandler handler = findMethodHandler(dvmMethod);
+        if (handler != null) {
+            handler.invoke(vm, dvmObject, vaList);
+            return;
+        }
         callVoidMethodV(vm, dvmObject, dvmMethod.getSignature(), vaList);
     }
 
@@ -865,6 +1014,9 @@ public abstract class AbstractJni implements Jni {
         throw new UnsupportedOperationException(signature);
     }
 
+    /**
+     * Not a call of the method, so a handler of {@link #register(String, JniMethodHandler)} does not apply.
+     */
     @Override
     public DvmObject<?> toReflectedMethod(BaseVM vm, DvmClass dvmClass, DvmMethod dvmMethod) {
         return toReflectedMethod(vm, dvmClass, dvmMethod.getSignature());
@@ -1,6 +1,7 @@
 package com.github.unidbg.linux.android.dvm;
 
 import com.github.unidbg.Emulator;
+import com.github.unidbg.EmulatorSnapshot;
 import com.github.unidbg.Module;
 import com.github.unidbg.linux.android.ElfLibraryFile;
 import com.github.unidbg.linux.android.ElfLibraryRawFile;
@@ -8,6 +9,9 @@ import com.github.unidbg.linux.android.dvm.api.Signature;
 import com.github.unidbg.linux.android.dvm.apk.Apk;
 import com.github.unidbg.linux.android.dvm.apk.ApkFactory;
 import com.github.unidbg.linux.android.dvm.apk.AssetResolver;
+import com.github.unidbg.metrics.EmulatorMetrics;
+import com.github.unidbg.metrics.Gauge;
+import com.github.unidbg.pointer.UnidbgPointer;
 import com.github.unidbg.spi.LibraryFile;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -19,6 +23,7 @@ import java.lang.management.MemoryUsage;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -73,23 +78,194 @@ public abstract class BaseVM implements VM, DvmClassFactory {
     BaseVM(Emulator<?> emulator, File apkFile) {
         this.emulator = emulator;
         this.apk = apkFile == null ? null : ApkFactory.createApk(apkFile);
+
+        EmulatorMetrics metrics = emulator.getMetrics();
+        metrics.registerGauge("jni.globalRefs", new ReferenceTableGauge(globalRefs));
+        metrics.registerGauge("jni.weakGlobalRefs", new ReferenceTableGauge(weakGlobalRefs));
+        metrics.registerGauge("jni.localRefs", new ReferenceTableGauge(localRefs));
     }
 
-    final static class ObjRef {
-        final DvmObject<?> obj;
-        final boolean weak;
-        ObjRef(DvmObject<?> obj, boolean weak) {
-            this.obj = obj;
-            this.weak = weak;
+    private static class ReferenceTableGauge implements Gauge {
+        private final IndirectReferenceTable table;
+        ReferenceTableGauge(IndirectReferenceTable table) {
+            this.table = table;
         }
         @Override
-        public String toString() {
-            return String.valueOf(obj);
+        public long getValue() {
+            return table.size();
+        }
+    }
+
+    final IndirectReferenceTable globalRefs = new IndirectReferenceTable(IndirectReferenceTable.KIND_GLOBAL, 256);
+    final IndirectReferenceTable weakGlobalRefs = new IndirectReferenceTable(IndirectReferenceTable.KIND_WEAK_GLOBAL, 16);
+    final IndirectReferenceTable localRefs = new IndirectReferenceTable(IndirectReferenceTable.KIND_LOCAL, 64);
+
+    /**
+     * local frame depth of {@link #localRefs} when each active call from java entered native code.
+     */
+    private int[] callFrames = new int[8];
+    private int callFrameCount;
+
+    @Override
+    public void onSnapshot(EmulatorSnapshot snapshot) {
+        snapshot.set("vm.classMap", new HashMap<>(classMap));
+        snapshot.set("vm.globalRefs", globalRefs.copy());
+        snapshot.set("vm.weakGlobalRefs", weakGlobalRefs.copy());
+        snapshot.set("vm.notFoundClassSet", new HashSet<>(notFoundClassSet));
+
+        StringBuilder classes = new StringBuilder();
+        StringBuilder natives = new StringBuilder();
+        for (DvmClass dvmClass : classMap.values()) {
+            DvmClass superClass = dvmClass.getSuperclass();
+            classes.append(dvmClass.getClassName()).append('\t').append(superClass == null ? "" : superClass.getClassName()).append('\t');
+            DvmClass[] interfaceClasses = dvmClass.getInterfaces();
+            for (int i = 0; interfaceClasses != null && i < interfaceClasses.length; i++) {
+                classes.append(i == 0 ? "" : ",").append(interfaceClasses[i].getClassName());
+            }
+            classes.append('\t').append(dvmClass.ref).append('\n');
+            for (Map.Entry<String, UnidbgPointer> entry : dvmClass.nativesMap.entrySet()) {
+                natives.append(dvmClass.getClassName()).append('\t').append(entry.getKey()).append('\t').append(entry.getValue().peer).append('\n');
+            }
+        }
+        snapshot.set("vm.image.classes", classes.toString());
+        snapshot.set("vm.image.natives", natives.toString());
+        snapshot.set("vm.image.globalRefs", imageRefs(snapshot, globalRefs, "global"));
+        snapshot.set("vm.image.weakGlobalRefs", imageRefs(snapshot, weakGlobalRefs, "weak global"));
+    }
+
+    /**
+     * Class references by slot for an image, other objects can't be serialized.
+     */
+    private static String imageRefs(EmulatorSnapshot snapshot, IndirectReferenceTable table, String kind) {
+        StringBuilder refs = new StringBuilder();
+        int objects = 0;
+        for (int i = 0; i < table.capacity(); i++) {
+            DvmObject<?> object = table.objectAt(i);
+            if (object instanceof DvmClass) {
+                refs.append(table.refAt(i)).append('\t').append(((DvmClass) object).getClassName()).append('\n');
+            } else if (object != null) {
+                objects++;
+            }
+        }
+        if (objects > 0) {
+            snapshot.notPersisted(objects + " jni " + kind + " references to objects");
+        }
+        return refs.toString();
+    }
+
+    @Override
+    public void onFork(VM forked) {
+        forked.setJni(jni);
+        forked.setVerbose(verbose);
+        forked.setDvmClassFactory(dvmClassFactory);
+        forked.setAssetResolver(assetResolver);
+        for (String className : notFoundClassSet) {
+            forked.addNotFoundClass(className);
+        }
+    }
+
+    @Override
+    public void onRestore(EmulatorSnapshot snapshot) {
+        resetRefCounts(localRefs);
+        resetRefCounts(globalRefs);
+        localRefs.clear();
+        callFrameCount = 0;
+        throwable = null;
+
+        Map<Integer, DvmClass> classMap = snapshot.get("vm.classMap");
+        if (classMap == null) { // restored from image
+            restoreImage(snapshot);
+            return;
+        }
+        this.classMap.clear();
+        this.classMap.putAll(classMap);
+
+        this.globalRefs.restore(snapshot.<IndirectReferenceTable>get("vm.globalRefs"));
+        this.weakGlobalRefs.restore(snapshot.<IndirectReferenceTable>get("vm.weakGlobalRefs"));
+        for (int i = 0; i < globalRefs.capacity(); i++) {
+            DvmObject<?> object = globalRefs.objectAt(i);
+            if (object != null) {
+                object.onAddRef();
+            }
+        }
+
+        Set<String> notFoundClassSet = snapshot.get("vm.notFoundClassSet");
+        this.notFoundClassSet.clear();
+        this.notFoundClassSet.addAll(notFoundClassSet);
+    }
+
+    /**
+     * Resolves the classes of the image and puts them back at their jni references with their registered natives.
+     */
+    private void restoreImage(EmulatorSnapshot snapshot) {
+        Map<String, String[]> classes = new LinkedHashMap<>();
+        for (String line : imageLines(snapshot, "vm.image.classes")) {
+            String[] fields = line.split("\t", -1);
+            classes.put(fields[0], fields);
+        }
+        for (String className : classes.keySet()) {
+            resolveImageClass(className, classes);
+        }
+
+        globalRefs.clear();
+        weakGlobalRefs.clear();
+        for (String line : imageLines(snapshot, "vm.image.globalRefs")) {
+            String[] fields = line.split("\t");
+            DvmClass dvmClass = resolveClass(fields[1]);
+            globalRefs.put(Integer.parseInt(fields[0]), dvmClass);
+            dvmClass.onAddRef();
+        }
+        for (String line : imageLines(snapshot, "vm.image.weakGlobalRefs")) {
+            String[] fields = line.split("\t");
+            weakGlobalRefs.put(Integer.parseInt(fields[0]), resolveClass(fields[1]));
+        }
+        for (String[] fields : classes.values()) {
+            resolveClass(fields[0]).ref = Integer.parseInt(fields[3]);
+        }
+        for (DvmClass dvmClass : this.classMap.values()) {
+            if (dvmClass.ref == JNI_NULL || globalRefs.get(dvmClass.ref) != dvmClass) { // resolved before restore, not in the image
+                dvmClass.ref = addGlobalObject(dvmClass);
+            }
+        }
+
+        for (String line : imageLines(snapshot, "vm.image.natives")) {
+            String[] fields = line.split("\t");
+            resolveClass(fields[0]).nativesMap.put(fields[1], UnidbgPointer.pointer(emulator, Long.parseLong(fields[2])));
+        }
+    }
+
+    private static String[] imageLines(EmulatorSnapshot snapshot, String key) {
+        String value = snapshot.get(key);
+        return value == null || value.isEmpty() ? new String[0] : value.split("\n");
+    }
+
+    private DvmClass resolveImageClass(String className, Map<String, String[]> classes) {
+        DvmClass dvmClass = classMap.get(Objects.hash(className));
+        String[] fields = classes.get(className);
+        if (dvmClass != null || fields == null) {
+            return dvmClass == null ? resolveClass(className) : dvmClass;
+        }
+        DvmClass superClass = fields[1].isEmpty() ? null : resolveImageClass(fields[1], classes);
+        String[] interfaceNames = fields[2].isEmpty() ? new String[0] : fields[2].split(",");
+        if (superClass == null && interfaceNames.length == 0) {
+            return resolveClass(className);
+        }
+        DvmClass[] interfaceClasses = new DvmClass[interfaceNames.length + 1];
+        interfaceClasses[0] = superClass;
+        for (int i = 0; i < interfaceNames.length; i++) {
+            interfaceClasses[i + 1] = resolveImageClass(interfaceNames[i], classes);
         }
+        return resolveClass(className, interfaceClasses);
     }
 
-    final Map<Integer, ObjRef> globalObjectMap = new HashMap<>();
-    final Map<Integer, ObjRef> localObjectMap = new HashMap<>();
+    private static void resetRefCounts(IndirectReferenceTable table) {
+        for (int i = 0; i < table.capacity(); i++) {
+            DvmObject<?> object = table.objectAt(i);
+            if (object != null) {
+                object.resetRefCount();
+            }
+        }
+    }
 
     private DvmClassFactory dvmClassFactory;
 
@@ -115,7 +291,7 @@ public abstract class BaseVM implements VM, DvmClassFactory {
                 dvmClass = this.createClass(this, className, superClass, interfaceClasses);
             }
             classMap.put(hash, dvmClass);
-            addGlobalObject(dvmClass);
+            dvmClass.ref = addGlobalObject(dvmClass);
         }
         return dvmClass;
     }
@@ -126,16 +302,17 @@ public abstract class BaseVM implements VM, DvmClassFactory {
     }
 
     final int addObject(DvmObject<?> object, boolean global, boolean weak) {
-        int hash = object.hashCode();
-        if (log.isDebugEnabled()) {
-            log.debug("addObject hash=0x" + Long.toHexString(hash) + ", global=" + global);
-        }
-        if (global) {
-            globalObjectMap.put(hash, new ObjRef(object, weak));
+        int ref;
+        if (global && weak) {
+            ref = weakGlobalRefs.add(object);
         } else {
-            localObjectMap.put(hash, new ObjRef(object, weak));
+            ref = global ? globalRefs.add(object) : localRefs.add(object);
+            object.onAddRef();
         }
-        return hash;
+        if (log.isDebugEnabled()) {
+            log.debug("addObject ref=0x" + Integer.toHexString(ref) + ", global=" + global + ", weak=" + weak);
+        }
+        return ref;
     }
 
     @Override
@@ -159,13 +336,132 @@ public abstract class BaseVM implements VM, DvmClassFactory {
     @SuppressWarnings("unchecked")
     @Override
     public final <T extends DvmObject<?>> T getObject(int hash) {
-        ObjRef ref;
-        if (localObjectMap.containsKey(hash)) {
-            ref = localObjectMap.get(hash);
-        } else {
-            ref = globalObjectMap.get(hash);
+        switch (IndirectReferenceTable.getKind(hash)) {
+            case IndirectReferenceTable.KIND_LOCAL:
+                return (T) localRefs.get(hash);
+            case IndirectReferenceTable.KIND_GLOBAL:
+                return (T) globalRefs.get(hash);
+            case IndirectReferenceTable.KIND_WEAK_GLOBAL:
+                return (T) weakGlobalRefs.get(hash);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return the class referenced by jclass <code>ref</code>, or <code>null</code>.
+     */
+    final DvmClass getDvmClass(int ref) {
+        DvmObject<?> object = getObject(ref);
+        return object instanceof DvmClass ? (DvmClass) object : null;
+    }
+
+    /**
+     * Classes are pinned by a global reference when resolved, natives may keep the jclass without <code>NewGlobalRef</code>.
+     */
+    final int getClassRef(DvmClass dvmClass) {
+        return dvmClass.ref != JNI_NULL && globalRefs.get(dvmClass.ref) == dvmClass ? dvmClass.ref : addLocalObject(dvmClass);
+    }
+
+    final DvmObject<?> deleteLocalRef(int ref) {
+        DvmObject<?> object = localRefs.remove(ref);
+        if (object != null) {
+            object.onDeleteRef();
+        }
+        return object;
+    }
+
+    /**
+     * JNI <code>PushLocalFrame</code>
+     */
+    final int pushLocalFrame(int capacity) {
+        if (!localRefs.ensureCapacity(capacity)) {
+            return JNI_ERR;
+        }
+        localRefs.pushSegment();
+        return JNI_OK;
+    }
+
+    /**
+     * JNI <code>PopLocalFrame</code>
+     * @return local reference of <code>result</code> in the previous frame.
+     */
+    final int popLocalFrame(int result) {
+        DvmObject<?> object = getObject(result);
+        int depth = callFrameCount == 0 ? 0 : callFrames[callFrameCount - 1];
+        if (localRefs.segmentDepth() <= depth) {
+            log.warn("PopLocalFrame without PushLocalFrame: depth=" + depth);
+            return result;
+        }
+        if (object == null) {
+            releaseLocalSegment();
+            return JNI_NULL;
+        }
+        object.onAddRef(); // keep the result alive while its frame is popped
+        releaseLocalSegment();
+        int ref = addLocalObject(object);
+        object.onDeleteRef();
+        return ref;
+    }
+
+    /**
+     * JNI <code>EnsureLocalCapacity</code>
+     */
+    final int ensureLocalCapacity(int capacity) {
+        return localRefs.ensureCapacity(capacity) ? JNI_OK : JNI_ERR;
+    }
+
+    /**
+     * Start a local frame for a call from java into native code, paired with {@link #deleteLocalRefs()}.
+     */
+    final void enterCall() {
+        if (callFrameCount == callFrames.length) {
+            callFrames = Arrays.copyOf(callFrames, callFrames.length * 2);
+        }
+        callFrames[callFrameCount++] = localRefs.segmentDepth();
+        localRefs.pushSegment();
+    }
+
+    private void releaseLocalSegment() {
+        for (int i = localRefs.segmentStart(); i < localRefs.capacity(); i++) {
+            DvmObject<?> object = localRefs.objectAt(i);
+            if (object != null) {
+                object.onDeleteRef();
+            }
+        }
+        localRefs.popSegment();
+    }
+
+    final DvmObject<?> deleteGlobalRef(int ref) {
+        DvmObject<?> object = globalRefs.get(ref);
+        if (object instanceof DvmClass && ((DvmClass) object).ref == ref) {
+            return object; // keep the class pinned
+        }
+        object = globalRefs.remove(ref);
+        if (object != null) {
+            object.onDeleteRef();
+        }
+        return object;
+    }
+
+    final DvmObject<?> deleteWeakGlobalRef(int ref) {
+        return weakGlobalRefs.remove(ref);
+    }
+
+    final int getObjectRefType(int ref) {
+        if (getObject(ref) == null) {
+            return JNIInvalidRefType;
+        }
+        switch (IndirectReferenceTable.getKind(ref)) {
+            case IndirectReferenceTable.KIND_LOCAL:
+                return JNILocalRefType;
+            case IndirectReferenceTable.KIND_GLOBAL:
+                return JNIGlobalRefType;
+            case IndirectReferenceTable.KIND_WEAK_GLOBAL:
+                return JNIWeakGlobalRefType;
+            default:
+                return JNIInvalidRefType;
         }
-        return ref == null ? null : (T) ref.obj;
     }
 
     @Override
@@ -173,16 +469,28 @@ public abstract class BaseVM implements VM, DvmClassFactory {
         return classMap.get(Objects.hash(className));
     }
 
+    /**
+     * Delete the local references of the current call from java, including frames the native code did not pop.
+     * The caller's local references stay valid when java code called by native code calls native code again.
+     */
     final void deleteLocalRefs() {
-        for (ObjRef ref : localObjectMap.values()) {
-            ref.obj.onDeleteRef();
+        if (callFrameCount > 0) {
+            int depth = callFrames[--callFrameCount];
+            while (localRefs.segmentDepth() > depth) {
+                releaseLocalSegment();
+            }
         }
-        localObjectMap.clear();
-
-        if (throwable != null) {
-            throwable.onDeleteRef();
-            throwable = null;
+        if (callFrameCount == 0) {
+            for (int i = 0; i < localRefs.capacity(); i++) {
+                DvmObject<?> object = localRefs.objectAt(i);
+                if (object != null) {
+                    object.onDeleteRef();
+                }
+            }
+            localRefs.clear();
         }
+
+        throwable = null;
     }
 
     final void checkVersion(int version) {
@@ -299,11 +607,7 @@ public abstract class BaseVM implements VM, DvmClassFactory {
         MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
         MemoryUsage heap = memoryMXBean.getHeapMemoryUsage();
         MemoryUsage nonheap = memoryMXBean.getNonHeapMemoryUsage();
-        Map<Integer, ObjRef> map = new HashMap<>(globalObjectMap);
-        for (Integer key : classMap.keySet()) {
-            map.remove(key);
-        }
-        System.err.println("globalObjectSize=" + globalObjectMap.size() + ", localObjectSize=" + localObjectMap.size() + ", classSize=" + classMap.size() + ", globalObjectSize=" + map.size());
+        System.err.println("globalObjectSize=" + globalRefs.size() + ", localObjectSize=" + localRefs.size() + ", classSize=" + classMap.size() + ", globalObjectSize=" + (globalRefs.size() - classMap.size()) + ", weakGlobalObjectSize=" + weakGlobalRefs.size());
         System.err.println("heap: " + memoryUsage(heap) + ", nonheap: " + memoryUsage(nonheap));
     }
 
@@ -25,6 +25,7 @@ public class DalvikModule {
     public void callJNI_OnLoad(Emulator<?> emulator) {
         Symbol onLoad = module.findSymbolByName("JNI_OnLoad", false);
         if (onLoad != null) {
+            vm.enterCall();
             try {
                 long start = System.currentTimeMillis();
                 if (log.isDebugEnabled()) {
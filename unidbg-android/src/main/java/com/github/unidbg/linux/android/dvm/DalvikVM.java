@@ -39,14 +39,14 @@ public class DalvikVM extends BaseVM implements VM {
         final SvcMemory svcMemory = emulator.getSvcMemory();
         _JavaVM = svcMemory.allocate(emulator.getPointerSize(), "_JavaVM");
 
-        Pointer _GetVersion = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _GetVersion = svcMemory.registerSvc(new ArmSvc("JNIEnv->GetVersion") {
             @Override
             public long handle(Emulator<?> emulator) {
                 return JNI_VERSION_1_6;
             }
         });
 
-        Pointer _FindClass = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _FindClass = svcMemory.registerSvc(new ArmSvc("JNIEnv->FindClass") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -69,21 +69,21 @@ public class DalvikVM extends BaseVM implements VM {
                 }
 
                 DvmClass dvmClass = resolveClass(name);
-                long hash = dvmClass.hashCode() & 0xffffffffL;
+                long ref = getClassRef(dvmClass) & 0xffffffffL;
                 if (log.isDebugEnabled()) {
-                    log.debug("FindClass env=" + env + ", className=" + name + ", hash=0x" + Long.toHexString(hash));
+                    log.debug("FindClass env=" + env + ", className=" + name + ", ref=0x" + Long.toHexString(ref));
                 }
-                return hash;
+                return ref;
             }
         });
 
-        Pointer _ToReflectedMethod = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _ToReflectedMethod = svcMemory.registerSvc(new ArmSvc("JNIEnv->ToReflectedMethod") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
                 UnidbgPointer clazz = context.getPointerArg(1);
                 UnidbgPointer jmethodID = context.getPointerArg(2);
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmMethod dvmMethod = null;
                 if (dvmClass != null) {
                     dvmMethod = dvmClass.getStaticMethod(jmethodID.toIntPeer());
@@ -106,7 +106,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         }) ;
 
-        Pointer _Throw = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _Throw = svcMemory.registerSvc(new ArmSvc("JNIEnv->Throw") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -118,17 +118,17 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _ExceptionOccurred = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _ExceptionOccurred = svcMemory.registerSvc(new ArmSvc("JNIEnv->ExceptionOccurred") {
             @Override
             public long handle(Emulator<?> emulator) {
                 if (log.isDebugEnabled()) {
                     log.debug("ExceptionOccurred");
                 }
-                return throwable == null ? JNI_NULL : (throwable.hashCode() & 0xffffffffL);
+                return throwable == null ? JNI_NULL : addLocalObject(throwable);
             }
         });
 
-        Pointer _ExceptionClear = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _ExceptionClear = svcMemory.registerSvc(new ArmSvc("JNIEnv->ExceptionClear") {
             @Override
             public long handle(Emulator<?> emulator) {
                 if (log.isDebugEnabled()) {
@@ -139,7 +139,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _PushLocalFrame = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _PushLocalFrame = svcMemory.registerSvc(new ArmSvc("JNIEnv->PushLocalFrame") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -147,11 +147,11 @@ public class DalvikVM extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("PushLocalFrame capacity=" + capacity);
                 }
-                return JNI_OK;
+                return pushLocalFrame(capacity);
             }
         });
 
-        Pointer _PopLocalFrame = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _PopLocalFrame = svcMemory.registerSvc(new ArmSvc("JNIEnv->PopLocalFrame") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -159,11 +159,11 @@ public class DalvikVM extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("PopLocalFrame jresult=" + jresult);
                 }
-                return jresult == null ? 0 : jresult.toIntPeer();
+                return popLocalFrame(jresult == null ? JNI_NULL : jresult.toIntPeer());
             }
         });
 
-        Pointer _NewGlobalRef = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _NewGlobalRef = svcMemory.registerSvc(new ArmSvc("JNIEnv->NewGlobalRef") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -182,7 +182,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _DeleteGlobalRef = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _DeleteGlobalRef = svcMemory.registerSvc(new ArmSvc("JNIEnv->DeleteGlobalRef") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -190,10 +190,7 @@ public class DalvikVM extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("DeleteGlobalRef object=" + object);
                 }
-                ObjRef ref = object == null ? null : globalObjectMap.remove(object.toIntPeer());
-                if (ref != null) {
-                    ref.obj.onDeleteRef();
-                }
+                DvmObject<?> ref = object == null ? null : deleteGlobalRef(object.toIntPeer());
                 if (verbose) {
                     System.out.printf("JNIEnv->DeleteGlobalRef(%s) was called from %s%n", ref, context.getLRPointer());
                 }
@@ -201,7 +198,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _DeleteLocalRef = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _DeleteLocalRef = svcMemory.registerSvc(new ArmSvc("JNIEnv->DeleteLocalRef") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -209,11 +206,14 @@ public class DalvikVM extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("DeleteLocalRef object=" + object);
                 }
+                if (object != null) {
+                    deleteLocalRef(object.toIntPeer());
+                }
                 return 0;
             }
         });
 
-        Pointer _IsSameObject = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _IsSameObject = svcMemory.registerSvc(new ArmSvc("JNIEnv->IsSameObject") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -222,11 +222,16 @@ public class DalvikVM extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("IsSameObject ref1=" + ref1 + ", ref2=" + ref2 + ", LR=" + context.getLRPointer());
                 }
-                return ref1 == ref2 || ref1.equals(ref2) ? JNI_TRUE : JNI_FALSE;
+                if (ref1 == ref2 || (ref1 != null && ref1.equals(ref2))) {
+                    return JNI_TRUE;
+                }
+                DvmObject<?> obj1 = ref1 == null ? null : getObject(ref1.toIntPeer());
+                DvmObject<?> obj2 = ref2 == null ? null : getObject(ref2.toIntPeer());
+                return obj1 == obj2 ? JNI_TRUE : JNI_FALSE;
             }
         });
 
-        Pointer _NewLocalRef = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _NewLocalRef = svcMemory.registerSvc(new ArmSvc("JNIEnv->NewLocalRef") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -241,11 +246,11 @@ public class DalvikVM extends BaseVM implements VM {
                 if (verbose) {
                     System.out.printf("JNIEnv->NewLocalRef(%s) was called from %s%n", dvmObject, context.getLRPointer());
                 }
-                return object.toIntPeer();
+                return addLocalObject(dvmObject);
             }
         });
 
-        Pointer _EnsureLocalCapacity = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _EnsureLocalCapacity = svcMemory.registerSvc(new ArmSvc("JNIEnv->EnsureLocalCapacity") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -253,16 +258,16 @@ public class DalvikVM extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("EnsureLocalCapacity capacity=" + capacity);
                 }
-                return 0;
+                return ensureLocalCapacity(capacity);
             }
         });
 
-        Pointer _AllocObject = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _AllocObject = svcMemory.registerSvc(new ArmSvc("JNIEnv->AllocObject") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
                 UnidbgPointer clazz = context.getPointerArg(1);
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 if (log.isDebugEnabled()) {
                     log.debug("AllocObject clazz=" + dvmClass + ", lr=" + context.getLRPointer());
                 }
@@ -278,13 +283,13 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _NewObject = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _NewObject = svcMemory.registerSvc(new ArmSvc("JNIEnv->NewObject") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
                 UnidbgPointer clazz = context.getPointerArg(1);
                 UnidbgPointer jmethodID = context.getPointerArg(2);
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmMethod dvmMethod = dvmClass == null ? null : dvmClass.getMethod(jmethodID.toIntPeer());
                 if (log.isDebugEnabled()) {
                     log.debug("NewObject clazz=" + dvmClass + ", jmethodID=" + jmethodID + ", lr=" + context.getLRPointer());
@@ -302,14 +307,14 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _NewObjectV = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _NewObjectV = svcMemory.registerSvc(new ArmSvc("JNIEnv->NewObjectV") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
                 UnidbgPointer clazz = context.getPointerArg(1);
                 UnidbgPointer jmethodID = context.getPointerArg(2);
                 UnidbgPointer va_list = context.getPointerArg(3);
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmMethod dvmMethod = dvmClass == null ? null : dvmClass.getMethod(jmethodID.toIntPeer());
                 if (log.isDebugEnabled()) {
                     log.debug("NewObjectV clazz=" + dvmClass + ", jmethodID=" + jmethodID + ", va_list=" + va_list + ", lr=" + context.getLRPointer());
@@ -327,7 +332,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetObjectClass = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _GetObjectClass = svcMemory.registerSvc(new ArmSvc("JNIEnv->GetObjectClass") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -340,19 +345,19 @@ public class DalvikVM extends BaseVM implements VM {
                     throw new BackendException();
                 } else {
                     DvmClass dvmClass = dvmObject.getObjectType();
-                    return dvmClass.hashCode();
+                    return getClassRef(dvmClass);
                 }
             }
         });
 
-        Pointer _IsInstanceOf = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _IsInstanceOf = svcMemory.registerSvc(new ArmSvc("JNIEnv->IsInstanceOf") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
                 UnidbgPointer object = context.getPointerArg(1);
                 UnidbgPointer clazz = context.getPointerArg(2);
                 DvmObject<?> dvmObject = getObject(object.toIntPeer());
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 if (log.isDebugEnabled()) {
                     log.debug("IsInstanceOf object=" + object + ", clazz=" + clazz + ", dvmObject=" + dvmObject + ", dvmClass=" + dvmClass);
                 }
@@ -364,7 +369,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetMethodID = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _GetMethodID = svcMemory.registerSvc(new ArmSvc("JNIEnv->GetMethodID") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -376,7 +381,7 @@ public class DalvikVM extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("GetMethodID class=" + clazz + ", methodName=" + name + ", args=" + args + ", LR=" + context.getLRPointer());
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 if (dvmClass == null) {
                     throw new BackendException();
                 } else {
@@ -389,7 +394,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallObjectMethod = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _CallObjectMethod = svcMemory.registerSvc(new ArmSvc("JNIEnv->CallObjectMethod") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -414,7 +419,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallObjectMethodV = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _CallObjectMethodV = svcMemory.registerSvc(new ArmSvc("JNIEnv->CallObjectMethodV") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -440,7 +445,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallObjectMethodA = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _CallObjectMethodA = svcMemory.registerSvc(new ArmSvc("JNIEnv->CallObjectMethodA") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -466,7 +471,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallBooleanMethod = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _CallBooleanMethod = svcMemory.registerSvc(new ArmSvc("JNIEnv->CallBooleanMethod") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -491,7 +496,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallBooleanMethodV = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _CallBooleanMethodV = svcMemory.registerSvc(new ArmSvc("JNIEnv->CallBooleanMethodV") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -517,7 +522,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallBooleanMethodA = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _CallBooleanMethodA = svcMemory.registerSvc(new ArmSvc("JNIEnv->CallBooleanMethodA") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -543,7 +548,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallByteMethodV = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _CallByteMethodV = svcMemory.registerSvc(new ArmSvc("JNIEnv->CallByteMethodV") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -569,7 +574,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallShortMethodV = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _CallShortMethodV = svcMemory.registerSvc(new ArmSvc("JNIEnv->CallShortMethodV") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -595,7 +600,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallIntMethod = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _CallIntMethod = svcMemory.registerSvc(new ArmSvc("JNIEnv->CallIntMethod") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -620,7 +625,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallIntMethodV = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _CallIntMethodV = svcMemory.registerSvc(new ArmSvc("JNIEnv->CallIntMethodV") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -646,7 +651,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallIntMethodA = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _CallIntMethodA = svcMemory.registerSvc(new ArmSvc("JNIEnv->CallIntMethodA") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -672,7 +677,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallLongMethod = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _CallLongMethod = svcMemory.registerSvc(new ArmSvc("JNIEnv->CallLongMethod") {
             @Override
             public long handle(Emulator<?> emulator) {
                 EditableArm32RegisterContext context = emulator.getContext();
@@ -698,7 +703,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallLongMethodV = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _CallLongMethodV = svcMemory.registerSvc(new ArmSvc("JNIEnv->CallLongMethodV") {
             @Override
             public long handle(Emulator<?> emulator) {
                 EditableArm32RegisterContext context = emulator.getContext();
@@ -725,7 +730,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallFloatMethodV = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _CallFloatMethodV = svcMemory.registerSvc(new ArmSvc("JNIEnv->CallFloatMethodV") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -755,7 +760,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallDoubleMethod = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _CallDoubleMethod = svcMemory.registerSvc(new ArmSvc("JNIEnv->CallDoubleMethod") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -784,7 +789,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallVoidMethod = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _CallVoidMethod = svcMemory.registerSvc(new ArmSvc("JNIEnv->CallVoidMethod") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -809,7 +814,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallVoidMethodV = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _CallVoidMethodV = svcMemory.registerSvc(new ArmSvc("JNIEnv->CallVoidMethodV") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -835,7 +840,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallVoidMethodA = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _CallVoidMethodA = svcMemory.registerSvc(new ArmSvc("JNIEnv->CallVoidMethodA") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -861,7 +866,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallNonvirtualVoidMethodV = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _CallNonvirtualVoidMethodV = svcMemory.registerSvc(new ArmSvc("JNIEnv->CallNonvirtualVoidMethodV") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -873,7 +878,7 @@ public class DalvikVM extends BaseVM implements VM {
                     log.debug("CallNonvirtualVoidMethodV object=" + object + ", clazz=" + clazz + ", jmethodID=" + jmethodID + ", va_list=" + va_list);
                 }
                 DvmObject<?> dvmObject = getObject(object.toIntPeer());
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmMethod dvmMethod = dvmClass == null ? null : dvmClass.getMethod(jmethodID.toIntPeer());
                 if (dvmMethod == null) {
                     throw new BackendException();
@@ -889,7 +894,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallNonVirtualVoidMethodA = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _CallNonVirtualVoidMethodA = svcMemory.registerSvc(new ArmSvc("JNIEnv->CallNonVirtualVoidMethodA") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -901,7 +906,7 @@ public class DalvikVM extends BaseVM implements VM {
                     log.debug("CallNonVirtualVoidMethodA object=" + object + ", clazz=" + clazz + ", jmethodID=" + jmethodID + ", jvalue=" + jvalue);
                 }
                 DvmObject<?> dvmObject = getObject(object.toIntPeer());
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmMethod dvmMethod = dvmClass == null ? null : dvmClass.getMethod(jmethodID.toIntPeer());
                 if (dvmMethod == null) {
                     throw new BackendException();
@@ -917,7 +922,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetFieldID = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _GetFieldID = svcMemory.registerSvc(new ArmSvc("JNIEnv->GetFieldID") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -929,7 +934,7 @@ public class DalvikVM extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("GetFieldID class=" + clazz + ", fieldName=" + name + ", args=" + args);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 if (dvmClass == null) {
                     throw new BackendException();
                 } else {
@@ -938,7 +943,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetObjectField = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _GetObjectField = svcMemory.registerSvc(new ArmSvc("JNIEnv->GetObjectField") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -962,7 +967,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetBooleanField = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _GetBooleanField = svcMemory.registerSvc(new ArmSvc("JNIEnv->GetBooleanField") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -986,7 +991,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetIntField = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _GetIntField = svcMemory.registerSvc(new ArmSvc("JNIEnv->GetIntField") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1010,7 +1015,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetLongField = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _GetLongField = svcMemory.registerSvc(new ArmSvc("JNIEnv->GetLongField") {
             @Override
             public long handle(Emulator<?> emulator) {
                 EditableArm32RegisterContext context = emulator.getContext();
@@ -1035,7 +1040,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetFloatField = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _GetFloatField = svcMemory.registerSvc(new ArmSvc("JNIEnv->GetFloatField") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1063,7 +1068,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _SetObjectField = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _SetObjectField = svcMemory.registerSvc(new ArmSvc("JNIEnv->SetObjectField") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1089,7 +1094,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _SetBooleanField = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _SetBooleanField = svcMemory.registerSvc(new ArmSvc("JNIEnv->SetBooleanField") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1115,7 +1120,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _SetIntField = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _SetIntField = svcMemory.registerSvc(new ArmSvc("JNIEnv->SetIntField") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1140,7 +1145,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
         
-        Pointer _SetLongField = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _SetLongField = svcMemory.registerSvc(new ArmSvc("JNIEnv->SetLongField") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1166,7 +1171,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
         
-        Pointer _SetDoubleField = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _SetDoubleField = svcMemory.registerSvc(new ArmSvc("JNIEnv->SetDoubleField") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1192,7 +1197,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetStaticMethodID = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _GetStaticMethodID = svcMemory.registerSvc(new ArmSvc("JNIEnv->GetStaticMethodID") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1204,7 +1209,7 @@ public class DalvikVM extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("GetStaticMethodID class=" + clazz + ", methodName=" + name + ", args=" + args + ", LR=" + context.getLRPointer());
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 if (dvmClass == null) {
                     throw new BackendException();
                 } else {
@@ -1217,7 +1222,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallStaticObjectMethod = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _CallStaticObjectMethod = svcMemory.registerSvc(new ArmSvc("JNIEnv->CallStaticObjectMethod") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1226,7 +1231,7 @@ public class DalvikVM extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("CallStaticObjectMethod clazz=" + clazz + ", jmethodID=" + jmethodID);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmMethod dvmMethod = dvmClass == null ? null : dvmClass.getStaticMethod(jmethodID.toIntPeer());
                 if (dvmMethod == null) {
                     throw new BackendException();
@@ -1241,7 +1246,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallStaticBooleanMethodA = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _CallStaticBooleanMethodA = svcMemory.registerSvc(new ArmSvc("JNIEnv->CallStaticBooleanMethodA") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1251,7 +1256,7 @@ public class DalvikVM extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("CallStaticBooleanMethodA clazz=" + clazz + ", jmethodID=" + jmethodID + ", jvalue=" + jvalue);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmMethod dvmMethod = dvmClass == null ? null : dvmClass.getStaticMethod(jmethodID.toIntPeer());
                 if (dvmMethod == null) {
                     throw new BackendException();
@@ -1266,7 +1271,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallStaticObjectMethodV = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _CallStaticObjectMethodV = svcMemory.registerSvc(new ArmSvc("JNIEnv->CallStaticObjectMethodV") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1276,7 +1281,7 @@ public class DalvikVM extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("CallStaticObjectMethodV clazz=" + clazz + ", jmethodID=" + jmethodID + ", va_list=" + va_list);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmMethod dvmMethod = dvmClass == null ? null : dvmClass.getStaticMethod(jmethodID.toIntPeer());
                 if (dvmMethod == null) {
                     throw new BackendException();
@@ -1291,7 +1296,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallStaticObjectMethodA = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _CallStaticObjectMethodA = svcMemory.registerSvc(new ArmSvc("JNIEnv->CallStaticObjectMethodA") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1301,7 +1306,7 @@ public class DalvikVM extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("CallStaticObjectMethodA clazz=" + clazz + ", jmethodID=" + jmethodID + ", jvalue=" + jvalue);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmMethod dvmMethod = dvmClass == null ? null : dvmClass.getStaticMethod(jmethodID.toIntPeer());
                 if (dvmMethod == null) {
                     throw new BackendException();
@@ -1316,7 +1321,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallStaticBooleanMethod = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _CallStaticBooleanMethod = svcMemory.registerSvc(new ArmSvc("JNIEnv->CallStaticBooleanMethod") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1325,7 +1330,7 @@ public class DalvikVM extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("CallStaticBooleanMethod clazz=" + clazz + ", jmethodID=" + jmethodID);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmMethod dvmMethod = dvmClass == null ? null : dvmClass.getStaticMethod(jmethodID.toIntPeer());
                 if (dvmMethod == null) {
                     throw new BackendException();
@@ -1340,7 +1345,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallStaticBooleanMethodV = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _CallStaticBooleanMethodV = svcMemory.registerSvc(new ArmSvc("JNIEnv->CallStaticBooleanMethodV") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1350,7 +1355,7 @@ public class DalvikVM extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("CallStaticBooleanMethodV clazz=" + clazz + ", jmethodID=" + jmethodID + ", va_list=" + va_list);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmMethod dvmMethod = dvmClass == null ? null : dvmClass.getStaticMethod(jmethodID.toIntPeer());
                 if (dvmMethod == null) {
                     throw new BackendException();
@@ -1365,7 +1370,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallStaticIntMethod = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _CallStaticIntMethod = svcMemory.registerSvc(new ArmSvc("JNIEnv->CallStaticIntMethod") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1374,7 +1379,7 @@ public class DalvikVM extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("CallStaticIntMethodV clazz=" + clazz + ", jmethodID=" + jmethodID);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmMethod dvmMethod = dvmClass == null ? null : dvmClass.getStaticMethod(jmethodID.toIntPeer());
                 if (dvmMethod == null) {
                     throw new BackendException();
@@ -1389,7 +1394,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallStaticIntMethodV = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _CallStaticIntMethodV = svcMemory.registerSvc(new ArmSvc("JNIEnv->CallStaticIntMethodV") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1399,7 +1404,7 @@ public class DalvikVM extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("CallStaticIntMethodV clazz=" + clazz + ", jmethodID=" + jmethodID + ", va_list=" + va_list);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmMethod dvmMethod = dvmClass == null ? null : dvmClass.getStaticMethod(jmethodID.toIntPeer());
                 if (dvmMethod == null) {
                     throw new BackendException();
@@ -1414,7 +1419,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallStaticLongMethod = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _CallStaticLongMethod = svcMemory.registerSvc(new ArmSvc("JNIEnv->CallStaticLongMethod") {
             @Override
             public long handle(Emulator<?> emulator) {
                 EditableArm32RegisterContext context = emulator.getContext();
@@ -1423,7 +1428,7 @@ public class DalvikVM extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("CallStaticLongMethod clazz=" + clazz + ", jmethodID=" + jmethodID);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmMethod dvmMethod = dvmClass == null ? null : dvmClass.getStaticMethod(jmethodID.toIntPeer());
                 if (dvmMethod == null) {
                     throw new BackendException();
@@ -1439,7 +1444,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallStaticLongMethodV = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _CallStaticLongMethodV = svcMemory.registerSvc(new ArmSvc("JNIEnv->CallStaticLongMethodV") {
             @Override
             public long handle(Emulator<?> emulator) {
                 EditableArm32RegisterContext context = emulator.getContext();
@@ -1449,7 +1454,7 @@ public class DalvikVM extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("CallStaticLongMethodV clazz=" + clazz + ", jmethodID=" + jmethodID + ", va_list=" + va_list + ", lr=" + context.getLRPointer());
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmMethod dvmMethod = dvmClass == null ? null : dvmClass.getStaticMethod(jmethodID.toIntPeer());
                 if (dvmMethod == null) {
                     throw new BackendException();
@@ -1465,7 +1470,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallStaticFloatMethod = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _CallStaticFloatMethod = svcMemory.registerSvc(new ArmSvc("JNIEnv->CallStaticFloatMethod") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1474,7 +1479,7 @@ public class DalvikVM extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("CallStaticFloatMethod clazz=" + clazz + ", jmethodID=" + jmethodID);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmMethod dvmMethod = dvmClass == null ? null : dvmClass.getStaticMethod(jmethodID.toIntPeer());
                 if (dvmMethod == null) {
                     throw new BackendException();
@@ -1493,7 +1498,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallStaticVoidMethod = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _CallStaticVoidMethod = svcMemory.registerSvc(new ArmSvc("JNIEnv->CallStaticVoidMethod") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1502,7 +1507,7 @@ public class DalvikVM extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("CallStaticVoidMethod clazz=" + clazz + ", jmethodID=" + jmethodID);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmMethod dvmMethod = dvmClass == null ? null : dvmClass.getStaticMethod(jmethodID.toIntPeer());
                 if (dvmMethod == null) {
                     throw new BackendException();
@@ -1517,7 +1522,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallStaticVoidMethodV = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _CallStaticVoidMethodV = svcMemory.registerSvc(new ArmSvc("JNIEnv->CallStaticVoidMethodV") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1527,7 +1532,7 @@ public class DalvikVM extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("CallStaticVoidMethodV clazz=" + clazz + ", jmethodID=" + jmethodID + ", va_list=" + va_list);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmMethod dvmMethod = dvmClass == null ? null : dvmClass.getStaticMethod(jmethodID.toIntPeer());
                 if (dvmMethod == null) {
                     throw new BackendException();
@@ -1542,7 +1547,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallStaticVoidMethodA = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _CallStaticVoidMethodA = svcMemory.registerSvc(new ArmSvc("JNIEnv->CallStaticVoidMethodA") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1552,7 +1557,7 @@ public class DalvikVM extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("CallStaticVoidMethodA clazz=" + clazz + ", jmethodID=" + jmethodID + ", jvalue=" + jvalue);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmMethod dvmMethod = dvmClass == null ? null : dvmClass.getStaticMethod(jmethodID.toIntPeer());
                 if (dvmMethod == null) {
                     throw new BackendException();
@@ -1567,7 +1572,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetStaticFieldID = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _GetStaticFieldID = svcMemory.registerSvc(new ArmSvc("JNIEnv->GetStaticFieldID") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1579,7 +1584,7 @@ public class DalvikVM extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("GetStaticFieldID class=" + clazz + ", fieldName=" + name + ", args=" + args);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 if (dvmClass == null) {
                     throw new BackendException();
                 } else {
@@ -1588,7 +1593,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetStaticObjectField = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _GetStaticObjectField = svcMemory.registerSvc(new ArmSvc("JNIEnv->GetStaticObjectField") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1597,7 +1602,7 @@ public class DalvikVM extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("GetStaticObjectField clazz=" + clazz + ", jfieldID=" + jfieldID);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmField dvmField = dvmClass == null ? null : dvmClass.getStaticField(jfieldID.toIntPeer());
                 if (dvmField == null) {
                     throw new BackendException();
@@ -1611,7 +1616,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetStaticBooleanField = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _GetStaticBooleanField = svcMemory.registerSvc(new ArmSvc("JNIEnv->GetStaticBooleanField") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1620,7 +1625,7 @@ public class DalvikVM extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("GetStaticBooleanField clazz=" + clazz + ", jfieldID=" + jfieldID);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmField dvmField = dvmClass == null ? null : dvmClass.getStaticField(jfieldID.toIntPeer());
                 if (dvmField == null) {
                     throw new BackendException();
@@ -1634,7 +1639,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetStaticByteField = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _GetStaticByteField = svcMemory.registerSvc(new ArmSvc("JNIEnv->GetStaticByteField") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1643,7 +1648,7 @@ public class DalvikVM extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("GetStaticByteField clazz=" + clazz + ", jfieldID=" + jfieldID);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmField dvmField = dvmClass == null ? null : dvmClass.getStaticField(jfieldID.toIntPeer());
                 if (dvmField == null) {
                     throw new BackendException();
@@ -1657,7 +1662,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetStaticIntField = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _GetStaticIntField = svcMemory.registerSvc(new ArmSvc("JNIEnv->GetStaticIntField") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1666,7 +1671,7 @@ public class DalvikVM extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("GetStaticIntField clazz=" + clazz + ", jfieldID=" + jfieldID);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmField dvmField = dvmClass == null ? null : dvmClass.getStaticField(jfieldID.toIntPeer());
                 if (dvmField == null) {
                     throw new BackendException();
@@ -1680,7 +1685,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetStaticLongField = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _GetStaticLongField = svcMemory.registerSvc(new ArmSvc("JNIEnv->GetStaticLongField") {
             @Override
             public long handle(Emulator<?> emulator) {
                 EditableArm32RegisterContext context = emulator.getContext();
@@ -1689,7 +1694,7 @@ public class DalvikVM extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("GetStaticLongField clazz=" + clazz + ", jfieldID=" + jfieldID);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmField dvmField = dvmClass == null ? null : dvmClass.getStaticField(jfieldID.toIntPeer());
                 if (dvmField == null) {
                     throw new BackendException();
@@ -1704,7 +1709,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _SetStaticIntField = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _SetStaticIntField = svcMemory.registerSvc(new ArmSvc("JNIEnv->SetStaticIntField") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1714,7 +1719,7 @@ public class DalvikVM extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("SetStaticIntField clazz=" + clazz + ", jfieldID=" + jfieldID + ", value=" + value);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmField dvmField = dvmClass == null ? null : dvmClass.getStaticField(jfieldID.toIntPeer());
                 if (dvmField == null) {
                     throw new BackendException("dvmClass=" + dvmClass);
@@ -1728,7 +1733,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _SetStaticLongField = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _SetStaticLongField = svcMemory.registerSvc(new ArmSvc("JNIEnv->SetStaticLongField") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1739,7 +1744,7 @@ public class DalvikVM extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("SetStaticLongField clazz=" + clazz + ", jfieldID=" + jfieldID + ", value=" + value);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmField dvmField = dvmClass == null ? null : dvmClass.getStaticField(jfieldID.toIntPeer());
                 if (dvmField == null) {
                     throw new BackendException("dvmClass=" + dvmClass);
@@ -1753,7 +1758,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetStringUTFLength = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _GetStringUTFLength = svcMemory.registerSvc(new ArmSvc("JNIEnv->GetStringUTFLength") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1771,7 +1776,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetStringUTFChars = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _GetStringUTFChars = svcMemory.registerSvc(new ArmSvc("JNIEnv->GetStringUTFChars") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1796,7 +1801,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _ReleaseStringUTFChars = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _ReleaseStringUTFChars = svcMemory.registerSvc(new ArmSvc("JNIEnv->ReleaseStringUTFChars") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1814,7 +1819,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetArrayLength = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _GetArrayLength = svcMemory.registerSvc(new ArmSvc("JNIEnv->GetArrayLength") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1830,7 +1835,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _NewObjectArray = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _NewObjectArray = svcMemory.registerSvc(new ArmSvc("JNIEnv->NewObjectArray") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1840,7 +1845,7 @@ public class DalvikVM extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("NewObjectArray size=" + size + ", elementClass=" + elementClass + ", initialElement=" + initialElement);
                 }
-                DvmClass dvmClass = classMap.get(elementClass.toIntPeer());
+                DvmClass dvmClass = getDvmClass(elementClass.toIntPeer());
                 if (dvmClass == null) {
                     throw new BackendException("elementClass=" + elementClass);
                 }
@@ -1855,7 +1860,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetObjectArrayElement = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _GetObjectArrayElement = svcMemory.registerSvc(new ArmSvc("JNIEnv->GetObjectArrayElement") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1872,7 +1877,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _SetObjectArrayElement = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _SetObjectArrayElement = svcMemory.registerSvc(new ArmSvc("JNIEnv->SetObjectArrayElement") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1890,7 +1895,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _NewFloatArray = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _NewFloatArray = svcMemory.registerSvc(new ArmSvc("JNIEnv->NewFloatArray") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1905,7 +1910,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetFloatArrayElements = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _GetFloatArrayElements = svcMemory.registerSvc(new ArmSvc("JNIEnv->GetFloatArrayElements") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1916,7 +1921,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
         
-        Pointer _NewByteArray = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _NewByteArray = svcMemory.registerSvc(new ArmSvc("JNIEnv->NewByteArray") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1931,7 +1936,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _NewIntArray = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _NewIntArray = svcMemory.registerSvc(new ArmSvc("JNIEnv->NewIntArray") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1946,7 +1951,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
         
-        Pointer _NewDoubleArray = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _NewDoubleArray = svcMemory.registerSvc(new ArmSvc("JNIEnv->NewDoubleArray") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1961,7 +1966,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetByteArrayElements = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _GetByteArrayElements = svcMemory.registerSvc(new ArmSvc("JNIEnv->GetByteArrayElements") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1975,7 +1980,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetIntArrayElements = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _GetIntArrayElements = svcMemory.registerSvc(new ArmSvc("JNIEnv->GetIntArrayElements") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1989,7 +1994,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetStringLength = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _GetStringLength = svcMemory.registerSvc(new ArmSvc("JNIEnv->GetStringLength") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -2003,7 +2008,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetStringChars = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _GetStringChars = svcMemory.registerSvc(new ArmSvc("JNIEnv->GetStringChars") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -2030,7 +2035,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _ReleaseStringChars = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _ReleaseStringChars = svcMemory.registerSvc(new ArmSvc("JNIEnv->ReleaseStringChars") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -2045,7 +2050,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _NewStringUTF = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _NewStringUTF = svcMemory.registerSvc(new ArmSvc("JNIEnv->NewStringUTF") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -2065,7 +2070,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _ReleaseByteArrayElements = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _ReleaseByteArrayElements = svcMemory.registerSvc(new ArmSvc("JNIEnv->ReleaseByteArrayElements") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -2081,7 +2086,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _ReleaseIntArrayElements = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _ReleaseIntArrayElements = svcMemory.registerSvc(new ArmSvc("JNIEnv->ReleaseIntArrayElements") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -2097,7 +2102,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _ReleaseFloatArrayElements = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _ReleaseFloatArrayElements = svcMemory.registerSvc(new ArmSvc("JNIEnv->ReleaseFloatArrayElements") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -2113,7 +2118,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetByteArrayRegion = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _GetByteArrayRegion = svcMemory.registerSvc(new ArmSvc("JNIEnv->GetByteArrayRegion") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -2134,7 +2139,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _SetByteArrayRegion = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _SetByteArrayRegion = svcMemory.registerSvc(new ArmSvc("JNIEnv->SetByteArrayRegion") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -2159,7 +2164,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
         
-        Pointer _SetIntArrayRegion = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _SetIntArrayRegion = svcMemory.registerSvc(new ArmSvc("JNIEnv->SetIntArrayRegion") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -2177,7 +2182,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _SetFloatArrayRegion = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _SetFloatArrayRegion = svcMemory.registerSvc(new ArmSvc("JNIEnv->SetFloatArrayRegion") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -2195,7 +2200,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
         
-        Pointer _SetDoubleArrayRegion = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _SetDoubleArrayRegion = svcMemory.registerSvc(new ArmSvc("JNIEnv->SetDoubleArrayRegion") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -2213,14 +2218,14 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _RegisterNatives = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _RegisterNatives = svcMemory.registerSvc(new ArmSvc("JNIEnv->RegisterNatives") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
                 UnidbgPointer clazz = context.getPointerArg(1);
                 Pointer methods = context.getPointerArg(2);
                 int nMethods = context.getIntArg(3);
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 if (log.isDebugEnabled()) {
                     log.debug("RegisterNatives dvmClass=" + dvmClass + ", methods=" + methods + ", nMethods=" + nMethods);
                 }
@@ -2247,7 +2252,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _MonitorEnter = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _MonitorEnter = svcMemory.registerSvc(new ArmSvc("JNIEnv->MonitorEnter") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -2260,7 +2265,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _MonitorExit = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _MonitorExit = svcMemory.registerSvc(new ArmSvc("JNIEnv->MonitorExit") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -2273,7 +2278,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetJavaVM = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _GetJavaVM = svcMemory.registerSvc(new ArmSvc("JNIEnv->GetJavaVM") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -2286,7 +2291,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetPrimitiveArrayCritical = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _GetPrimitiveArrayCritical = svcMemory.registerSvc(new ArmSvc("JNIEnv->GetPrimitiveArrayCritical") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -2300,7 +2305,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _ReleasePrimitiveArrayCritical = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _ReleasePrimitiveArrayCritical = svcMemory.registerSvc(new ArmSvc("JNIEnv->ReleasePrimitiveArrayCritical") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -2316,7 +2321,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _NewWeakGlobalRef = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _NewWeakGlobalRef = svcMemory.registerSvc(new ArmSvc("JNIEnv->NewWeakGlobalRef") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -2332,7 +2337,23 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _ExceptionCheck = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _DeleteWeakGlobalRef = svcMemory.registerSvc(new ArmSvc("JNIEnv->DeleteWeakGlobalRef") {
+            @Override
+            public long handle(Emulator<?> emulator) {
+                RegisterContext context = emulator.getContext();
+                UnidbgPointer object = context.getPointerArg(1);
+                if (log.isDebugEnabled()) {
+                    log.debug("DeleteWeakGlobalRef object=" + object);
+                }
+                DvmObject<?> ref = object == null ? null : deleteWeakGlobalRef(object.toIntPeer());
+                if (verbose) {
+                    System.out.printf("JNIEnv->DeleteWeakGlobalRef(%s) was called from %s%n", ref, context.getLRPointer());
+                }
+                return 0;
+            }
+        });
+
+        Pointer _ExceptionCheck = svcMemory.registerSvc(new ArmSvc("JNIEnv->ExceptionCheck") {
             @Override
             public long handle(Emulator<?> emulator) {
                 if (log.isDebugEnabled()) {
@@ -2342,7 +2363,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetObjectRefType = svcMemory.registerSvc(new ArmSvc() {
+        Pointer _GetObjectRefType = svcMemory.registerSvc(new ArmSvc("JNIEnv->GetObjectRefType") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -2350,18 +2371,11 @@ public class DalvikVM extends BaseVM implements VM {
                 if (object == null) {
                     return JNIInvalidRefType;
                 }
-                ObjRef dvmGlobalObject = globalObjectMap.get(object.toIntPeer());
-                ObjRef dvmLocalObject = localObjectMap.get(object.toIntPeer());
+                int refType = getObjectRefType(object.toIntPeer());
                 if (log.isDebugEnabled()) {
-                    log.debug("GetObjectRefType object=" + object + ", dvmGlobalObject=" + dvmGlobalObject + ", dvmLocalObject=" + dvmLocalObject + ", LR=" + context.getLRPointer());
-                }
-                if (dvmGlobalObject != null) {
-                    return dvmGlobalObject.weak ? JNIWeakGlobalRefType : JNIGlobalRefType;
-                } else if(dvmLocalObject != null) {
-                    return JNILocalRefType;
-                } else {
-                    return JNIInvalidRefType;
+                    log.debug("GetObjectRefType object=" + object + ", refType=" + refType + ", LR=" + context.getLRPointer());
                 }
+                return refType;
             }
         });
 
@@ -2476,13 +2490,14 @@ public class DalvikVM extends BaseVM implements VM {
         impl.setPointer(0x378, _GetPrimitiveArrayCritical);
         impl.setPointer(0x37c, _ReleasePrimitiveArrayCritical);
         impl.setPointer(0x388, _NewWeakGlobalRef);
+        impl.setPointer(0x38c, _DeleteWeakGlobalRef);
         impl.setPointer(0x390, _ExceptionCheck);
         impl.setPointer(0x3a0, _GetObjectRefType);
 
         _JNIEnv = svcMemory.allocate(emulator.getPointerSize(), "_JNIEnv");
         _JNIEnv.setPointer(0, impl);
 
-        UnidbgPointer _AttachCurrentThread = svcMemory.registerSvc(new ArmSvc() {
+        UnidbgPointer _AttachCurrentThread = svcMemory.registerSvc(new ArmSvc("JavaVM->AttachCurrentThread") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -2497,7 +2512,7 @@ public class DalvikVM extends BaseVM implements VM {
             }
         });
 
-        UnidbgPointer _GetEnv = svcMemory.registerSvc(new ArmSvc() {
+        UnidbgPointer _GetEnv = svcMemory.registerSvc(new ArmSvc("JavaVM->GetEnv") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
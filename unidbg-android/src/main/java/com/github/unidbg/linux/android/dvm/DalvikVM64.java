@@ -39,14 +39,14 @@ public class DalvikVM64 extends BaseVM implements VM {
         final SvcMemory svcMemory = emulator.getSvcMemory();
         _JavaVM = svcMemory.allocate(emulator.getPointerSize(), "_JavaVM");
 
-        Pointer _GetVersion = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _GetVersion = svcMemory.registerSvc(new Arm64Svc("JNIEnv->GetVersion") {
             @Override
             public long handle(Emulator<?> emulator) {
                 return JNI_VERSION_1_8;
             }
         });
 
-        Pointer _FindClass = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _FindClass = svcMemory.registerSvc(new Arm64Svc("JNIEnv->FindClass") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -69,21 +69,21 @@ public class DalvikVM64 extends BaseVM implements VM {
                 }
 
                 DvmClass dvmClass = resolveClass(name);
-                long hash = dvmClass.hashCode() & 0xffffffffL;
+                long ref = getClassRef(dvmClass) & 0xffffffffL;
                 if (log.isDebugEnabled()) {
-                    log.debug("FindClass env=" + env + ", className=" + name + ", hash=0x" + Long.toHexString(hash));
+                    log.debug("FindClass env=" + env + ", className=" + name + ", ref=0x" + Long.toHexString(ref));
                 }
-                return hash;
+                return ref;
             }
         });
 
-        Pointer _ToReflectedMethod = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _ToReflectedMethod = svcMemory.registerSvc(new Arm64Svc("JNIEnv->ToReflectedMethod") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
                 UnidbgPointer clazz = context.getPointerArg(1);
                 UnidbgPointer jmethodID = context.getPointerArg(2);
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmMethod dvmMethod = null;
                 if (dvmClass != null) {
                     dvmMethod = dvmClass.getStaticMethod(jmethodID.toIntPeer());
@@ -106,7 +106,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         }) ;
 
-        Pointer _Throw = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _Throw = svcMemory.registerSvc(new Arm64Svc("JNIEnv->Throw") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -118,17 +118,17 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _ExceptionOccurred = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _ExceptionOccurred = svcMemory.registerSvc(new Arm64Svc("JNIEnv->ExceptionOccurred") {
             @Override
             public long handle(Emulator<?> emulator) {
                 if (log.isDebugEnabled()) {
                     log.debug("ExceptionOccurred");
                 }
-                return throwable == null ? JNI_NULL : (throwable.hashCode() & 0xffffffffL);
+                return throwable == null ? JNI_NULL : addLocalObject(throwable);
             }
         });
 
-        Pointer _ExceptionClear = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _ExceptionClear = svcMemory.registerSvc(new Arm64Svc("JNIEnv->ExceptionClear") {
             @Override
             public long handle(Emulator<?> emulator) {
                 if (log.isDebugEnabled()) {
@@ -139,7 +139,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _PushLocalFrame = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _PushLocalFrame = svcMemory.registerSvc(new Arm64Svc("JNIEnv->PushLocalFrame") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -147,11 +147,11 @@ public class DalvikVM64 extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("PushLocalFrame capacity=" + capacity);
                 }
-                return JNI_OK;
+                return pushLocalFrame(capacity);
             }
         });
 
-        Pointer _PopLocalFrame = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _PopLocalFrame = svcMemory.registerSvc(new Arm64Svc("JNIEnv->PopLocalFrame") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -159,11 +159,11 @@ public class DalvikVM64 extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("PopLocalFrame jresult=" + jresult);
                 }
-                return jresult == null ? 0 : jresult.toIntPeer();
+                return popLocalFrame(jresult == null ? JNI_NULL : jresult.toIntPeer());
             }
         });
 
-        Pointer _NewGlobalRef = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _NewGlobalRef = svcMemory.registerSvc(new Arm64Svc("JNIEnv->NewGlobalRef") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -182,7 +182,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _DeleteGlobalRef = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _DeleteGlobalRef = svcMemory.registerSvc(new Arm64Svc("JNIEnv->DeleteGlobalRef") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -190,10 +190,7 @@ public class DalvikVM64 extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("DeleteGlobalRef object=" + object);
                 }
-                ObjRef ref = object == null ? null : globalObjectMap.remove(object.toIntPeer());
-                if (ref != null) {
-                    ref.obj.onDeleteRef();
-                }
+                DvmObject<?> ref = object == null ? null : deleteGlobalRef(object.toIntPeer());
                 if (verbose) {
                     System.out.printf("JNIEnv->DeleteGlobalRef(%s) was called from %s%n", ref, context.getLRPointer());
                 }
@@ -201,7 +198,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _DeleteLocalRef = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _DeleteLocalRef = svcMemory.registerSvc(new Arm64Svc("JNIEnv->DeleteLocalRef") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -209,11 +206,14 @@ public class DalvikVM64 extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("DeleteLocalRef object=" + object);
                 }
+                if (object != null) {
+                    deleteLocalRef(object.toIntPeer());
+                }
                 return 0;
             }
         });
 
-        Pointer _IsSameObject = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _IsSameObject = svcMemory.registerSvc(new Arm64Svc("JNIEnv->IsSameObject") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -222,11 +222,16 @@ public class DalvikVM64 extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("IsSameObject ref1=" + ref1 + ", ref2=" + ref2);
                 }
-                return ref1 == ref2 || ref1.equals(ref2) ? JNI_TRUE : JNI_FALSE;
+                if (ref1 == ref2 || (ref1 != null && ref1.equals(ref2))) {
+                    return JNI_TRUE;
+                }
+                DvmObject<?> obj1 = ref1 == null ? null : getObject(ref1.toIntPeer());
+                DvmObject<?> obj2 = ref2 == null ? null : getObject(ref2.toIntPeer());
+                return obj1 == obj2 ? JNI_TRUE : JNI_FALSE;
             }
         });
 
-        Pointer _NewLocalRef = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _NewLocalRef = svcMemory.registerSvc(new Arm64Svc("JNIEnv->NewLocalRef") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -241,11 +246,11 @@ public class DalvikVM64 extends BaseVM implements VM {
                 if (verbose) {
                     System.out.printf("JNIEnv->NewLocalRef(%s) was called from %s%n", dvmObject, context.getLRPointer());
                 }
-                return object.toIntPeer();
+                return addLocalObject(dvmObject);
             }
         });
 
-        Pointer _EnsureLocalCapacity = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _EnsureLocalCapacity = svcMemory.registerSvc(new Arm64Svc("JNIEnv->EnsureLocalCapacity") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -253,16 +258,16 @@ public class DalvikVM64 extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("EnsureLocalCapacity capacity=" + capacity);
                 }
-                return 0;
+                return ensureLocalCapacity(capacity);
             }
         });
 
-        Pointer _AllocObject = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _AllocObject = svcMemory.registerSvc(new Arm64Svc("JNIEnv->AllocObject") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
                 UnidbgPointer clazz = context.getPointerArg(1);
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 if (log.isDebugEnabled()) {
                     log.debug("AllocObject clazz=" + dvmClass + ", lr=" + context.getLRPointer());
                 }
@@ -278,13 +283,13 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _NewObject = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _NewObject = svcMemory.registerSvc(new Arm64Svc("JNIEnv->NewObject") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
                 UnidbgPointer clazz = context.getPointerArg(1);
                 UnidbgPointer jmethodID = context.getPointerArg(2);
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmMethod dvmMethod = dvmClass == null ? null : dvmClass.getMethod(jmethodID.toIntPeer());
                 if (log.isDebugEnabled()) {
                     log.debug("NewObject clazz=" + dvmClass + ", jmethodID=" + jmethodID + ", lr=" + context.getLRPointer());
@@ -302,14 +307,14 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _NewObjectV = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _NewObjectV = svcMemory.registerSvc(new Arm64Svc("JNIEnv->NewObjectV") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
                 UnidbgPointer clazz = context.getPointerArg(1);
                 UnidbgPointer jmethodID = context.getPointerArg(2);
                 UnidbgPointer va_list = context.getPointerArg(3);
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmMethod dvmMethod = dvmClass == null ? null : dvmClass.getMethod(jmethodID.toIntPeer());
                 if (log.isDebugEnabled()) {
                     log.debug("NewObjectV clazz=" + dvmClass + ", jmethodID=" + jmethodID + ", va_list=" + va_list + ", lr=" + context.getLRPointer());
@@ -327,7 +332,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetObjectClass = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _GetObjectClass = svcMemory.registerSvc(new Arm64Svc("JNIEnv->GetObjectClass") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -340,19 +345,19 @@ public class DalvikVM64 extends BaseVM implements VM {
                     throw new BackendException();
                 } else {
                     DvmClass dvmClass = dvmObject.getObjectType();
-                    return dvmClass.hashCode();
+                    return getClassRef(dvmClass);
                 }
             }
         });
 
-        Pointer _IsInstanceOf = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _IsInstanceOf = svcMemory.registerSvc(new Arm64Svc("JNIEnv->IsInstanceOf") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
                 UnidbgPointer object = context.getPointerArg(1);
                 UnidbgPointer clazz = context.getPointerArg(2);
                 DvmObject<?> dvmObject = getObject(object.toIntPeer());
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 if (log.isDebugEnabled()) {
                     log.debug("IsInstanceOf object=" + object + ", clazz=" + clazz + ", dvmObject=" + dvmObject + ", dvmClass=" + dvmClass);
                 }
@@ -364,7 +369,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetMethodID = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _GetMethodID = svcMemory.registerSvc(new Arm64Svc("JNIEnv->GetMethodID") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -376,7 +381,7 @@ public class DalvikVM64 extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("GetMethodID class=" + clazz + ", methodName=" + name + ", args=" + args + ", LR=" + context.getLRPointer());
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 if (dvmClass == null) {
                     throw new BackendException();
                 } else {
@@ -389,7 +394,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallObjectMethod = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _CallObjectMethod = svcMemory.registerSvc(new Arm64Svc("JNIEnv->CallObjectMethod") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -414,7 +419,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallObjectMethodV = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _CallObjectMethodV = svcMemory.registerSvc(new Arm64Svc("JNIEnv->CallObjectMethodV") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -440,7 +445,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallBooleanMethod = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _CallBooleanMethod = svcMemory.registerSvc(new Arm64Svc("JNIEnv->CallBooleanMethod") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -465,7 +470,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallBooleanMethodV = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _CallBooleanMethodV = svcMemory.registerSvc(new Arm64Svc("JNIEnv->CallBooleanMethodV") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -491,7 +496,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallBooleanMethodA = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _CallBooleanMethodA = svcMemory.registerSvc(new Arm64Svc("JNIEnv->CallBooleanMethodA") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -517,7 +522,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallByteMethodV = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _CallByteMethodV = svcMemory.registerSvc(new Arm64Svc("JNIEnv->CallByteMethodV") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -543,7 +548,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallShortMethodV = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _CallShortMethodV = svcMemory.registerSvc(new Arm64Svc("JNIEnv->CallShortMethodV") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -569,7 +574,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallIntMethod = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _CallIntMethod = svcMemory.registerSvc(new Arm64Svc("JNIEnv->CallIntMethod") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -594,7 +599,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallIntMethodV = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _CallIntMethodV = svcMemory.registerSvc(new Arm64Svc("JNIEnv->CallIntMethodV") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -620,7 +625,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallLongMethodV = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _CallLongMethodV = svcMemory.registerSvc(new Arm64Svc("JNIEnv->CallLongMethodV") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -646,7 +651,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallFloatMethodV = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _CallFloatMethodV = svcMemory.registerSvc(new Arm64Svc("JNIEnv->CallFloatMethodV") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -676,7 +681,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallDoubleMethod = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _CallDoubleMethod = svcMemory.registerSvc(new Arm64Svc("JNIEnv->CallDoubleMethod") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -705,7 +710,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallVoidMethod = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _CallVoidMethod = svcMemory.registerSvc(new Arm64Svc("JNIEnv->CallVoidMethod") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -730,7 +735,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallVoidMethodV = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _CallVoidMethodV = svcMemory.registerSvc(new Arm64Svc("JNIEnv->CallVoidMethodV") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -756,7 +761,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallNonvirtualVoidMethodV = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _CallNonvirtualVoidMethodV = svcMemory.registerSvc(new Arm64Svc("JNIEnv->CallNonvirtualVoidMethodV") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -768,7 +773,7 @@ public class DalvikVM64 extends BaseVM implements VM {
                     log.debug("CallNonvirtualVoidMethodV object=" + object + ", clazz=" + clazz + ", jmethodID=" + jmethodID + ", va_list=" + va_list);
                 }
                 DvmObject<?> dvmObject = getObject(object.toIntPeer());
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmMethod dvmMethod = dvmClass == null ? null : dvmClass.getMethod(jmethodID.toIntPeer());
                 if (dvmMethod == null) {
                     throw new BackendException();
@@ -784,7 +789,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetFieldID = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _GetFieldID = svcMemory.registerSvc(new Arm64Svc("JNIEnv->GetFieldID") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -796,7 +801,7 @@ public class DalvikVM64 extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("GetFieldID class=" + clazz + ", fieldName=" + name + ", args=" + args);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 if (dvmClass == null) {
                     throw new BackendException();
                 } else {
@@ -805,7 +810,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetObjectField = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _GetObjectField = svcMemory.registerSvc(new Arm64Svc("JNIEnv->GetObjectField") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -829,7 +834,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetBooleanField = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _GetBooleanField = svcMemory.registerSvc(new Arm64Svc("JNIEnv->GetBooleanField") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -853,7 +858,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetIntField = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _GetIntField = svcMemory.registerSvc(new Arm64Svc("JNIEnv->GetIntField") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -877,7 +882,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetLongField = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _GetLongField = svcMemory.registerSvc(new Arm64Svc("JNIEnv->GetLongField") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -901,7 +906,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetFloatField = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _GetFloatField = svcMemory.registerSvc(new Arm64Svc("JNIEnv->GetFloatField") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -929,7 +934,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _SetObjectField = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _SetObjectField = svcMemory.registerSvc(new Arm64Svc("JNIEnv->SetObjectField") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -955,7 +960,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _SetBooleanField = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _SetBooleanField = svcMemory.registerSvc(new Arm64Svc("JNIEnv->SetBooleanField") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -981,7 +986,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _SetIntField = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _SetIntField = svcMemory.registerSvc(new Arm64Svc("JNIEnv->SetIntField") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1006,7 +1011,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _SetLongField = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _SetLongField = svcMemory.registerSvc(new Arm64Svc("JNIEnv->SetLongField") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1031,7 +1036,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _SetDoubleField = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _SetDoubleField = svcMemory.registerSvc(new Arm64Svc("JNIEnv->SetDoubleField") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1060,7 +1065,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetStaticMethodID = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _GetStaticMethodID = svcMemory.registerSvc(new Arm64Svc("JNIEnv->GetStaticMethodID") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1072,7 +1077,7 @@ public class DalvikVM64 extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("GetStaticMethodID class=" + clazz + ", methodName=" + name + ", args=" + args + ", LR=" + context.getLRPointer());
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 if (dvmClass == null) {
                     throw new BackendException();
                 } else {
@@ -1085,7 +1090,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallStaticObjectMethod = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _CallStaticObjectMethod = svcMemory.registerSvc(new Arm64Svc("JNIEnv->CallStaticObjectMethod") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1094,7 +1099,7 @@ public class DalvikVM64 extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("CallStaticObjectMethod clazz=" + clazz + ", jmethodID=" + jmethodID);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmMethod dvmMethod = dvmClass == null ? null : dvmClass.getStaticMethod(jmethodID.toIntPeer());
                 if (dvmMethod == null) {
                     throw new BackendException();
@@ -1109,7 +1114,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallStaticObjectMethodV = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _CallStaticObjectMethodV = svcMemory.registerSvc(new Arm64Svc("JNIEnv->CallStaticObjectMethodV") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1119,7 +1124,7 @@ public class DalvikVM64 extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("CallStaticObjectMethodV clazz=" + clazz + ", jmethodID=" + jmethodID + ", va_list=" + va_list);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmMethod dvmMethod = dvmClass == null ? null : dvmClass.getStaticMethod(jmethodID.toIntPeer());
                 if (dvmMethod == null) {
                     throw new BackendException();
@@ -1134,7 +1139,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallStaticBooleanMethod = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _CallStaticBooleanMethod = svcMemory.registerSvc(new Arm64Svc("JNIEnv->CallStaticBooleanMethod") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1143,7 +1148,7 @@ public class DalvikVM64 extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("CallStaticBooleanMethod clazz=" + clazz + ", jmethodID=" + jmethodID);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmMethod dvmMethod = dvmClass == null ? null : dvmClass.getStaticMethod(jmethodID.toIntPeer());
                 if (dvmMethod == null) {
                     throw new BackendException();
@@ -1158,7 +1163,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallStaticBooleanMethodV = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _CallStaticBooleanMethodV = svcMemory.registerSvc(new Arm64Svc("JNIEnv->CallStaticBooleanMethodV") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1168,7 +1173,7 @@ public class DalvikVM64 extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("CallStaticBooleanMethodV clazz=" + clazz + ", jmethodID=" + jmethodID + ", va_list=" + va_list);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmMethod dvmMethod = dvmClass == null ? null : dvmClass.getStaticMethod(jmethodID.toIntPeer());
                 if (dvmMethod == null) {
                     throw new BackendException();
@@ -1183,7 +1188,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallStaticIntMethod = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _CallStaticIntMethod = svcMemory.registerSvc(new Arm64Svc("JNIEnv->CallStaticIntMethod") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1192,7 +1197,7 @@ public class DalvikVM64 extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("CallStaticIntMethodV clazz=" + clazz + ", jmethodID=" + jmethodID);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmMethod dvmMethod = dvmClass == null ? null : dvmClass.getStaticMethod(jmethodID.toIntPeer());
                 if (dvmMethod == null) {
                     throw new BackendException();
@@ -1207,7 +1212,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallStaticIntMethodV = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _CallStaticIntMethodV = svcMemory.registerSvc(new Arm64Svc("JNIEnv->CallStaticIntMethodV") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1217,7 +1222,7 @@ public class DalvikVM64 extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("CallStaticIntMethodV clazz=" + clazz + ", jmethodID=" + jmethodID + ", va_list=" + va_list);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmMethod dvmMethod = dvmClass == null ? null : dvmClass.getStaticMethod(jmethodID.toIntPeer());
                 if (dvmMethod == null) {
                     throw new BackendException();
@@ -1232,7 +1237,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallStaticLongMethodV = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _CallStaticLongMethodV = svcMemory.registerSvc(new Arm64Svc("JNIEnv->CallStaticLongMethodV") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1242,7 +1247,7 @@ public class DalvikVM64 extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("CallStaticLongMethodV clazz=" + clazz + ", jmethodID=" + jmethodID + ", va_list=" + va_list + ", lr=" + context.getLRPointer());
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmMethod dvmMethod = dvmClass == null ? null : dvmClass.getStaticMethod(jmethodID.toIntPeer());
                 if (dvmMethod == null) {
                     throw new BackendException();
@@ -1257,7 +1262,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallStaticFloatMethod = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _CallStaticFloatMethod = svcMemory.registerSvc(new Arm64Svc("JNIEnv->CallStaticFloatMethod") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1266,7 +1271,7 @@ public class DalvikVM64 extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("CallStaticFloatMethod clazz=" + clazz + ", jmethodID=" + jmethodID);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmMethod dvmMethod = dvmClass == null ? null : dvmClass.getStaticMethod(jmethodID.toIntPeer());
                 if (dvmMethod == null) {
                     throw new BackendException();
@@ -1285,7 +1290,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallStaticVoidMethod = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _CallStaticVoidMethod = svcMemory.registerSvc(new Arm64Svc("JNIEnv->CallStaticVoidMethod") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1294,7 +1299,7 @@ public class DalvikVM64 extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("CallStaticVoidMethod clazz=" + clazz + ", jmethodID=" + jmethodID);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmMethod dvmMethod = dvmClass == null ? null : dvmClass.getStaticMethod(jmethodID.toIntPeer());
                 if (dvmMethod == null) {
                     throw new BackendException();
@@ -1309,7 +1314,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _CallStaticVoidMethodV = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _CallStaticVoidMethodV = svcMemory.registerSvc(new Arm64Svc("JNIEnv->CallStaticVoidMethodV") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1319,7 +1324,7 @@ public class DalvikVM64 extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("CallStaticVoidMethodV clazz=" + clazz + ", jmethodID=" + jmethodID + ", va_list=" + va_list);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmMethod dvmMethod = dvmClass == null ? null : dvmClass.getStaticMethod(jmethodID.toIntPeer());
                 if (dvmMethod == null) {
                     throw new BackendException();
@@ -1334,7 +1339,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetStaticFieldID = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _GetStaticFieldID = svcMemory.registerSvc(new Arm64Svc("JNIEnv->GetStaticFieldID") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1346,7 +1351,7 @@ public class DalvikVM64 extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("GetStaticFieldID class=" + clazz + ", fieldName=" + name + ", args=" + args);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 if (dvmClass == null) {
                     throw new BackendException();
                 } else {
@@ -1355,7 +1360,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetStaticObjectField = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _GetStaticObjectField = svcMemory.registerSvc(new Arm64Svc("JNIEnv->GetStaticObjectField") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1364,7 +1369,7 @@ public class DalvikVM64 extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("GetStaticObjectField clazz=" + clazz + ", jfieldID=" + jfieldID);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmField dvmField = dvmClass == null ? null : dvmClass.getStaticField(jfieldID.toIntPeer());
                 if (dvmField == null) {
                     throw new BackendException();
@@ -1378,7 +1383,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetStaticBooleanField = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _GetStaticBooleanField = svcMemory.registerSvc(new Arm64Svc("JNIEnv->GetStaticBooleanField") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1387,7 +1392,7 @@ public class DalvikVM64 extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("GetStaticBooleanField clazz=" + clazz + ", jfieldID=" + jfieldID);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmField dvmField = dvmClass == null ? null : dvmClass.getStaticField(jfieldID.toIntPeer());
                 if (dvmField == null) {
                     throw new BackendException();
@@ -1401,7 +1406,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetStaticIntField = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _GetStaticIntField = svcMemory.registerSvc(new Arm64Svc("JNIEnv->GetStaticIntField") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1410,7 +1415,7 @@ public class DalvikVM64 extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("GetStaticIntField clazz=" + clazz + ", jfieldID=" + jfieldID);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmField dvmField = dvmClass == null ? null : dvmClass.getStaticField(jfieldID.toIntPeer());
                 if (dvmField == null) {
                     throw new BackendException();
@@ -1424,7 +1429,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetStaticLongField = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _GetStaticLongField = svcMemory.registerSvc(new Arm64Svc("JNIEnv->GetStaticLongField") {
             @Override
             public long handle(Emulator<?> emulator) {
                 Arm64RegisterContext context = emulator.getContext();
@@ -1433,7 +1438,7 @@ public class DalvikVM64 extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("GetStaticLongField clazz=" + clazz + ", jfieldID=" + jfieldID);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmField dvmField = dvmClass == null ? null : dvmClass.getStaticField(jfieldID.toIntPeer());
                 if (dvmField == null) {
                     throw new BackendException();
@@ -1447,7 +1452,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _SetStaticIntField = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _SetStaticIntField = svcMemory.registerSvc(new Arm64Svc("JNIEnv->SetStaticIntField") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1457,7 +1462,7 @@ public class DalvikVM64 extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("SetStaticIntField clazz=" + clazz + ", jfieldID=" + jfieldID + ", value=" + value);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmField dvmField = dvmClass == null ? null : dvmClass.getStaticField(jfieldID.toIntPeer());
                 if (dvmField == null) {
                     throw new BackendException("dvmClass=" + dvmClass);
@@ -1471,7 +1476,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _SetStaticLongField = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _SetStaticLongField = svcMemory.registerSvc(new Arm64Svc("JNIEnv->SetStaticLongField") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1481,7 +1486,7 @@ public class DalvikVM64 extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("SetStaticLongField clazz=" + clazz + ", jfieldID=" + jfieldID + ", value=" + value);
                 }
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 DvmField dvmField = dvmClass == null ? null : dvmClass.getStaticField(jfieldID.toIntPeer());
                 if (dvmField == null) {
                     throw new BackendException("dvmClass=" + dvmClass);
@@ -1495,7 +1500,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetStringUTFLength = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _GetStringUTFLength = svcMemory.registerSvc(new Arm64Svc("JNIEnv->GetStringUTFLength") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1513,7 +1518,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetStringUTFChars = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _GetStringUTFChars = svcMemory.registerSvc(new Arm64Svc("JNIEnv->GetStringUTFChars") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1538,7 +1543,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _ReleaseStringUTFChars = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _ReleaseStringUTFChars = svcMemory.registerSvc(new Arm64Svc("JNIEnv->ReleaseStringUTFChars") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1556,7 +1561,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetArrayLength = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _GetArrayLength = svcMemory.registerSvc(new Arm64Svc("JNIEnv->GetArrayLength") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1572,7 +1577,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _NewObjectArray = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _NewObjectArray = svcMemory.registerSvc(new Arm64Svc("JNIEnv->NewObjectArray") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1582,7 +1587,7 @@ public class DalvikVM64 extends BaseVM implements VM {
                 if (log.isDebugEnabled()) {
                     log.debug("NewObjectArray size=" + size + ", elementClass=" + elementClass + ", initialElement=" + initialElement);
                 }
-                DvmClass dvmClass = classMap.get(elementClass.toIntPeer());
+                DvmClass dvmClass = getDvmClass(elementClass.toIntPeer());
                 if (dvmClass == null) {
                     throw new BackendException("elementClass=" + elementClass);
                 }
@@ -1597,7 +1602,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetObjectArrayElement = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _GetObjectArrayElement = svcMemory.registerSvc(new Arm64Svc("JNIEnv->GetObjectArrayElement") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1614,7 +1619,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _SetObjectArrayElement = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _SetObjectArrayElement = svcMemory.registerSvc(new Arm64Svc("JNIEnv->SetObjectArrayElement") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1632,7 +1637,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _NewByteArray = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _NewByteArray = svcMemory.registerSvc(new Arm64Svc("JNIEnv->NewByteArray") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1647,7 +1652,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _NewIntArray = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _NewIntArray = svcMemory.registerSvc(new Arm64Svc("JNIEnv->NewIntArray") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1662,7 +1667,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _NewDoubleArray = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _NewDoubleArray = svcMemory.registerSvc(new Arm64Svc("JNIEnv->NewDoubleArray") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1677,7 +1682,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetByteArrayElements = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _GetByteArrayElements = svcMemory.registerSvc(new Arm64Svc("JNIEnv->GetByteArrayElements") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1694,7 +1699,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetIntArrayElements = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _GetIntArrayElements = svcMemory.registerSvc(new Arm64Svc("JNIEnv->GetIntArrayElements") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1708,7 +1713,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetStringLength = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _GetStringLength = svcMemory.registerSvc(new Arm64Svc("JNIEnv->GetStringLength") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1722,7 +1727,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetStringChars = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _GetStringChars = svcMemory.registerSvc(new Arm64Svc("JNIEnv->GetStringChars") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1749,7 +1754,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _ReleaseStringChars = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _ReleaseStringChars = svcMemory.registerSvc(new Arm64Svc("JNIEnv->ReleaseStringChars") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1764,7 +1769,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _NewStringUTF = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _NewStringUTF = svcMemory.registerSvc(new Arm64Svc("JNIEnv->NewStringUTF") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1784,7 +1789,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _ReleaseByteArrayElements = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _ReleaseByteArrayElements = svcMemory.registerSvc(new Arm64Svc("JNIEnv->ReleaseByteArrayElements") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1800,7 +1805,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _ReleaseIntArrayElements = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _ReleaseIntArrayElements = svcMemory.registerSvc(new Arm64Svc("JNIEnv->ReleaseIntArrayElements") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1816,7 +1821,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetByteArrayRegion = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _GetByteArrayRegion = svcMemory.registerSvc(new Arm64Svc("JNIEnv->GetByteArrayRegion") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1837,7 +1842,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetShortArrayRegion = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _GetShortArrayRegion = svcMemory.registerSvc(new Arm64Svc("JNIEnv->GetShortArrayRegion") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1858,7 +1863,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetDoubleArrayRegion = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _GetDoubleArrayRegion = svcMemory.registerSvc(new Arm64Svc("JNIEnv->GetDoubleArrayRegion") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1879,7 +1884,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _SetByteArrayRegion = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _SetByteArrayRegion = svcMemory.registerSvc(new Arm64Svc("JNIEnv->SetByteArrayRegion") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1904,7 +1909,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _SetIntArrayRegion = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _SetIntArrayRegion = svcMemory.registerSvc(new Arm64Svc("JNIEnv->SetIntArrayRegion") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1922,7 +1927,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _SetDoubleArrayRegion = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _SetDoubleArrayRegion = svcMemory.registerSvc(new Arm64Svc("JNIEnv->SetDoubleArrayRegion") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1940,14 +1945,14 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _RegisterNatives = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _RegisterNatives = svcMemory.registerSvc(new Arm64Svc("JNIEnv->RegisterNatives") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
                 UnidbgPointer clazz = context.getPointerArg(1);
                 Pointer methods = context.getPointerArg(2);
                 int nMethods = context.getIntArg(3);
-                DvmClass dvmClass = classMap.get(clazz.toIntPeer());
+                DvmClass dvmClass = getDvmClass(clazz.toIntPeer());
                 if (log.isDebugEnabled()) {
                     log.debug("RegisterNatives dvmClass=" + dvmClass + ", methods=" + methods + ", nMethods=" + nMethods);
                 }
@@ -1974,7 +1979,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetJavaVM = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _GetJavaVM = svcMemory.registerSvc(new Arm64Svc("JNIEnv->GetJavaVM") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -1987,7 +1992,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _NewWeakGlobalRef = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _NewWeakGlobalRef = svcMemory.registerSvc(new Arm64Svc("JNIEnv->NewWeakGlobalRef") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -2003,7 +2008,23 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _ExceptionCheck = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _DeleteWeakGlobalRef = svcMemory.registerSvc(new Arm64Svc("JNIEnv->DeleteWeakGlobalRef") {
+            @Override
+            public long handle(Emulator<?> emulator) {
+                RegisterContext context = emulator.getContext();
+                UnidbgPointer object = context.getPointerArg(1);
+                if (log.isDebugEnabled()) {
+                    log.debug("DeleteWeakGlobalRef object=" + object);
+                }
+                DvmObject<?> ref = object == null ? null : deleteWeakGlobalRef(object.toIntPeer());
+                if (verbose) {
+                    System.out.printf("JNIEnv->DeleteWeakGlobalRef(%s) was called from %s%n", ref, context.getLRPointer());
+                }
+                return 0;
+            }
+        });
+
+        Pointer _ExceptionCheck = svcMemory.registerSvc(new Arm64Svc("JNIEnv->ExceptionCheck") {
             @Override
             public long handle(Emulator<?> emulator) {
                 if (log.isDebugEnabled()) {
@@ -2013,7 +2034,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        Pointer _GetObjectRefType = svcMemory.registerSvc(new Arm64Svc() {
+        Pointer _GetObjectRefType = svcMemory.registerSvc(new Arm64Svc("JNIEnv->GetObjectRefType") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -2021,18 +2042,11 @@ public class DalvikVM64 extends BaseVM implements VM {
                 if (object == null) {
                     return JNIInvalidRefType;
                 }
-                ObjRef dvmGlobalObject = globalObjectMap.get(object.toIntPeer());
-                ObjRef dvmLocalObject = localObjectMap.get(object.toIntPeer());
+                int refType = getObjectRefType(object.toIntPeer());
                 if (log.isDebugEnabled()) {
-                    log.debug("GetObjectRefType object=" + object + ", dvmGlobalObject=" + dvmGlobalObject + ", dvmLocalObject=" + dvmLocalObject);
-                }
-                if (dvmGlobalObject != null) {
-                    return dvmGlobalObject.weak ? JNIWeakGlobalRefType : JNIGlobalRefType;
-                } else if(dvmLocalObject != null) {
-                    return JNILocalRefType;
-                } else {
-                    return JNIInvalidRefType;
+                    log.debug("GetObjectRefType object=" + object + ", refType=" + refType);
                 }
+                return refType;
             }
         });
 
@@ -2131,13 +2145,14 @@ public class DalvikVM64 extends BaseVM implements VM {
         impl.setPointer(0x6B8, _RegisterNatives);
         impl.setPointer(0x6D8, _GetJavaVM);
         impl.setPointer(0x710, _NewWeakGlobalRef);
+        impl.setPointer(0x718, _DeleteWeakGlobalRef);
         impl.setPointer(0x720, _ExceptionCheck);
         impl.setPointer(0x740, _GetObjectRefType);
 
         _JNIEnv = svcMemory.allocate(emulator.getPointerSize(), "_JNIEnv");
         _JNIEnv.setPointer(0, impl);
 
-        UnidbgPointer _AttachCurrentThread = svcMemory.registerSvc(new Arm64Svc() {
+        UnidbgPointer _AttachCurrentThread = svcMemory.registerSvc(new Arm64Svc("JavaVM->AttachCurrentThread") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
@@ -2152,7 +2167,7 @@ public class DalvikVM64 extends BaseVM implements VM {
             }
         });
 
-        UnidbgPointer _GetEnv = svcMemory.registerSvc(new Arm64Svc() {
+        UnidbgPointer _GetEnv = svcMemory.registerSvc(new Arm64Svc("JavaVM->GetEnv") {
             @Override
             public long handle(Emulator<?> emulator) {
                 RegisterContext context = emulator.getContext();
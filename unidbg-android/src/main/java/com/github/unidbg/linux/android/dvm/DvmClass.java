@@ -8,6 +8,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
@@ -18,6 +19,11 @@ public class DvmClass extends DvmObject<Class<?>> {
     private static final String ROOT_CLASS = "java/lang/Class";
 
     public final BaseVM vm;
+
+    /**
+     * global reference pinning the class, handed out as jclass.
+     */
+    int ref;
     private final DvmClass superClass;
     private final DvmClass[] interfaceClasses;
     private final String className;
@@ -100,7 +106,7 @@ public class DvmClass extends DvmObject<Class<?>> {
         }
         if (checkJni(vm, this).acceptMethod(this, signature, true)) {
             if (!staticMethodMap.containsKey(hash)) {
-                staticMethodMap.put(hash, new DvmMethod(this, methodName, args, true));
+                staticMethodMap.put(hash, bindMethod(new DvmMethod(this, methodName, args, true)));
             }
             return hash;
         } else {
@@ -110,6 +116,13 @@ public class DvmClass extends DvmObject<Class<?>> {
 
     private final Map<Integer, DvmMethod> methodMap = new HashMap<>();
 
+    private DvmMethod bindMethod(DvmMethod method) {
+        if (vm.jni instanceof AbstractJni) {
+            ((AbstractJni) vm.jni).findMethodHandler(method);
+        }
+        return method;
+    }
+
     final DvmMethod getMethod(int hash) {
         DvmMethod method = methodMap.get(hash);
         if (method == null && superClass != null) {
@@ -134,7 +147,7 @@ public class DvmClass extends DvmObject<Class<?>> {
         }
         if (vm.jni == null || vm.jni.acceptMethod(this, signature, false)) {
             if (!methodMap.containsKey(hash)) {
-                methodMap.put(hash, new DvmMethod(this, methodName, args, false));
+                methodMap.put(hash, bindMethod(new DvmMethod(this, methodName, args, false)));
             }
             return hash;
         } else {
@@ -253,6 +266,7 @@ public class DvmClass extends DvmObject<Class<?>> {
     }
 
     public void callStaticJniMethod(Emulator<?> emulator, String method, Object...args) {
+        vm.enterCall();
         try {
             callJniMethod(emulator, vm, this, this, method, args);
         } finally {
@@ -267,6 +281,7 @@ public class DvmClass extends DvmObject<Class<?>> {
 
     @SuppressWarnings("unused")
     public int callStaticJniMethodInt(Emulator<?> emulator, String method, Object...args) {
+        vm.enterCall();
         try {
             return callJniMethod(emulator, vm, this, this, method, args).intValue();
         } finally {
@@ -276,6 +291,7 @@ public class DvmClass extends DvmObject<Class<?>> {
 
     @SuppressWarnings("unused")
     public long callStaticJniMethodLong(Emulator<?> emulator, String method, Object...args) {
+        vm.enterCall();
         try {
             return callJniMethod(emulator, vm, this, this, method, args).longValue();
         } finally {
@@ -285,6 +301,7 @@ public class DvmClass extends DvmObject<Class<?>> {
 
     @SuppressWarnings("unused")
     public <T extends DvmObject<?>> T callStaticJniMethodObject(Emulator<?> emulator, String method, Object...args) {
+        vm.enterCall();
         try {
             Number number = callJniMethod(emulator, vm, this, this, method, args);
             return vm.getObject(number.intValue());
@@ -293,6 +310,25 @@ public class DvmClass extends DvmObject<Class<?>> {
         }
     }
 
+    /**
+     * Call the static native method once per argument tuple in one go, see {@link #callStaticJniMethodObject(Emulator, String, Object...)}.
+     * The results are in the order of the tuples.
+     */
+    @SuppressWarnings("unused")
+    public List<Integer> callStaticJniMethodIntBatch(Emulator<?> emulator, String method, List<Object[]> argsList) {
+        return toInts(callJniMethodBatch(emulator, vm, this, this, method, argsList, false));
+    }
+
+    @SuppressWarnings("unused")
+    public List<Long> callStaticJniMethodLongBatch(Emulator<?> emulator, String method, List<Object[]> argsList) {
+        return toLongs(callJniMethodBatch(emulator, vm, this, this, method, argsList, false));
+    }
+
+    @SuppressWarnings("unused")
+    public <T extends DvmObject<?>> List<T> callStaticJniMethodObjectBatch(Emulator<?> emulator, String method, List<Object[]> argsList) {
+        return toObjects(callJniMethodBatch(emulator, vm, this, this, method, argsList, true));
+    }
+
     final boolean isInstance(DvmClass dvmClass) {
         if (dvmClass == this) {
             return true;
@@ -18,12 +18,20 @@ public class DvmMethod extends Hashable {
     final String methodName;
     final String args;
     final boolean isStatic;
+    private final String signature;
+
+    /**
+     * handler bound by {@link AbstractJni}, valid while <code>handlerGeneration</code> matches.
+     */
+    JniMethodHandler handler;
+    Object handlerGeneration;
 
     DvmMethod(DvmClass dvmClass, String methodName, String args, boolean isStatic) {
         this.dvmClass = dvmClass;
         this.methodName = methodName;
         this.args = args;
         this.isStatic = isStatic;
+        this.signature = dvmClass.getClassName() + "->" + methodName + args;
     }
 
     public DvmClass getDvmClass() {
@@ -43,7 +51,7 @@ public class DvmMethod extends Hashable {
     }
 
     public final String getSignature() {
-        return dvmClass.getClassName() + "->" + methodName + args;
+        return signature;
     }
 
     public boolean isStatic() {
@@ -186,7 +194,6 @@ public class DvmMethod extends Hashable {
     }
 
     void callStaticVoidMethodA(VaList vaList) {
-        String signature = dvmClass.getClassName() + "->" + methodName + args;
         if (log.isDebugEnabled()) {
             log.debug("callStaticVoidMethodA signature=" + signature);
         }
@@ -210,7 +217,6 @@ public class DvmMethod extends Hashable {
     }
 
     void callVoidMethodA(DvmObject<?>  dvmObject, VaList vaList) {
-        String signature = dvmClass.getClassName() + "->" + methodName + args;
         if (log.isDebugEnabled()) {
             log.debug("callVoidMethodV signature=" + signature + ", dvmObject=" + dvmObject);
         }
@@ -8,6 +8,7 @@ import com.github.unidbg.pointer.UnidbgPointer;
 import com.sun.jna.Pointer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class DvmObject<T> extends Hashable {
@@ -48,6 +49,7 @@ public class DvmObject<T> extends Hashable {
         if (objectType == null) {
             throw new IllegalStateException("objectType is null");
         }
+        vm.enterCall();
         try {
             callJniMethod(emulator, vm, objectType, this, method, args);
         } finally {
@@ -65,6 +67,7 @@ public class DvmObject<T> extends Hashable {
         if (objectType == null) {
             throw new IllegalStateException("objectType is null");
         }
+        vm.enterCall();
         try {
             return callJniMethod(emulator, vm, objectType, this, method, args).intValue();
         } finally {
@@ -77,6 +80,7 @@ public class DvmObject<T> extends Hashable {
         if (objectType == null) {
             throw new IllegalStateException("objectType is null");
         }
+        vm.enterCall();
         try {
             return callJniMethod(emulator, vm, objectType, this, method, args).longValue();
         } finally {
@@ -89,6 +93,7 @@ public class DvmObject<T> extends Hashable {
         if (objectType == null) {
             throw new IllegalStateException("objectType is null");
         }
+        vm.enterCall();
         try {
             Number number = callJniMethod(emulator, vm, objectType, this, method, args);
             return objectType.vm.getObject(number.intValue());
@@ -97,40 +102,156 @@ public class DvmObject<T> extends Hashable {
         }
     }
 
+    /**
+     * Call the native method once per argument tuple in one go, see {@link #callJniMethodObject(Emulator, String, Object...)}.
+     * The results are in the order of the tuples.
+     */
+    @SuppressWarnings("unused")
+    public List<Integer> callJniMethodIntBatch(Emulator<?> emulator, String method, List<Object[]> argsList) {
+        if (objectType == null) {
+            throw new IllegalStateException("objectType is null");
+        }
+        return toInts(callJniMethodBatch(emulator, vm, objectType, this, method, argsList, false));
+    }
+
+    @SuppressWarnings("unused")
+    public List<Long> callJniMethodLongBatch(Emulator<?> emulator, String method, List<Object[]> argsList) {
+        if (objectType == null) {
+            throw new IllegalStateException("objectType is null");
+        }
+        return toLongs(callJniMethodBatch(emulator, vm, objectType, this, method, argsList, false));
+    }
+
+    @SuppressWarnings("unused")
+    public <V extends DvmObject<?>> List<V> callJniMethodObjectBatch(Emulator<?> emulator, String method, List<Object[]> argsList) {
+        if (objectType == null) {
+            throw new IllegalStateException("objectType is null");
+        }
+        return toObjects(callJniMethodBatch(emulator, vm, objectType, this, method, argsList, true));
+    }
+
     protected static Number callJniMethod(Emulator<?> emulator, VM vm, DvmClass objectType, DvmObject<?> thisObj, String method, Object...args) {
         UnidbgPointer fnPtr = objectType.findNativeFunction(emulator, method);
-        vm.addLocalObject(thisObj);
         List<Object> list = new ArrayList<>(10);
         list.add(vm.getJNIEnv());
-        list.add(thisObj.hashCode());
+        list.add(vm.addLocalObject(thisObj));
         if (args != null) {
             for (Object arg : args) {
-                if (arg instanceof Boolean) {
-                    list.add((Boolean) arg ? VM.JNI_TRUE : VM.JNI_FALSE);
-                    continue;
-                } else if(arg instanceof Hashable) {
-                    list.add(arg.hashCode()); // dvm object
-
-                    if(arg instanceof DvmObject) {
-                        vm.addLocalObject((DvmObject<?>) arg);
-                    }
-                    continue;
-                } else if (arg instanceof String) {
-                    StringObject str = new StringObject(vm, (String) arg);
-                    list.add(str.hashCode());
-                    vm.addLocalObject(str);
-                    continue;
-                } else if(arg instanceof byte[]) {
-                    ByteArray array = new ByteArray(vm, (byte[]) arg);
-                    list.add(array.hashCode());
-                    vm.addLocalObject(array);
-                    continue;
+                list.add(toJniArgument(vm, arg));
+            }
+        }
+        return Module.emulateFunction(emulator, fnPtr.peer, list.toArray())[0];
+    }
+
+    private static Object toJniArgument(VM vm, Object arg) {
+        if (arg instanceof Boolean) {
+            return (Boolean) arg ? VM.JNI_TRUE : VM.JNI_FALSE;
+        } else if(arg instanceof DvmObject) {
+            return vm.addLocalObject((DvmObject<?>) arg);
+        } else if(arg instanceof Hashable) {
+            return arg.hashCode(); // jmethodID or jfieldID
+        } else if (arg instanceof String) {
+            return vm.addLocalObject(new StringObject(vm, (String) arg));
+        } else if(arg instanceof byte[]) {
+            return vm.addLocalObject(new ByteArray(vm, (byte[]) arg));
+        }
+
+        return arg;
+    }
+
+    /**
+     * Call the native method once per argument tuple, each call in its own local reference frame.
+     * The native function is resolved once, and each <code>byte[]</code> argument position gets one guest buffer for the whole batch:
+     * the array elements are copied there instead of allocating guest memory per call.
+     * @param returnObject resolve the results to objects before their local references are deleted.
+     */
+    static List<Object> callJniMethodBatch(Emulator<?> emulator, BaseVM vm, DvmClass objectType, DvmObject<?> thisObj, String method,
+                                           List<Object[]> argsList, boolean returnObject) {
+        UnidbgPointer fnPtr = objectType.findNativeFunction(emulator, method);
+        Pointer jniEnv = vm.getJNIEnv();
+
+        int[] bufferSizes = new int[0];
+        for (Object[] args : argsList) {
+            if (args == null) {
+                continue;
+            }
+            if (bufferSizes.length < args.length) {
+                bufferSizes = Arrays.copyOf(bufferSizes, args.length);
+            }
+            for (int i = 0; i < args.length; i++) {
+                if (args[i] instanceof byte[]) {
+                    bufferSizes[i] = Math.max(bufferSizes[i], ((byte[]) args[i]).length);
+                }
+            }
+        }
+        MemoryBlock[] buffers = new MemoryBlock[bufferSizes.length];
+        List<Object> results = new ArrayList<>(argsList.size());
+        try {
+            for (int i = 0; i < buffers.length; i++) {
+                if (bufferSizes[i] > 0) {
+                    buffers[i] = emulator.getMemory().malloc(bufferSizes[i], true);
                 }
+            }
 
-                list.add(arg);
+            Object[] list = new Object[0];
+            for (Object[] args : argsList) {
+                int count = args == null ? 0 : args.length;
+                if (list.length != count + 2) {
+                    list = new Object[count + 2];
+                }
+                vm.enterCall();
+                try {
+                    list[0] = jniEnv;
+                    list[1] = vm.addLocalObject(thisObj);
+                    for (int i = 0; i < count; i++) {
+                        Object arg = args[i];
+                        if (arg instanceof byte[]) {
+                            DvmObject<?> array = new ByteArray(vm, (byte[]) arg);
+                            array.lendMemoryBlock(buffers[i], bufferSizes[i]);
+                            list[i + 2] = vm.addLocalObject(array);
+                        } else {
+                            list[i + 2] = toJniArgument(vm, arg);
+                        }
+                    }
+                    Number number = Module.emulateFunction(emulator, fnPtr.peer, list)[0];
+                    results.add(returnObject ? vm.getObject(number.intValue()) : number);
+                } finally {
+                    vm.deleteLocalRefs();
+                }
+            }
+        } finally {
+            for (MemoryBlock buffer : buffers) {
+                if (buffer != null) {
+                    buffer.free();
+                }
             }
         }
-        return Module.emulateFunction(emulator, fnPtr.peer, list.toArray())[0];
+        return results;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <V extends DvmObject<?>> List<V> toObjects(List<Object> results) {
+        List<V> list = new ArrayList<>(results.size());
+        for (Object result : results) {
+            list.add((V) result);
+        }
+        return list;
+    }
+
+    static List<Integer> toInts(List<Object> results) {
+        List<Integer> list = new ArrayList<>(results.size());
+        for (Object result : results) {
+            list.add(((Number) result).intValue());
+        }
+        return list;
+    }
+
+    static List<Long> toLongs(List<Object> results) {
+        List<Long> list = new ArrayList<>(results.size());
+        for (Object result : results) {
+            list.add(((Number) result).longValue());
+        }
+        return list;
     }
 
     @Override
@@ -146,24 +267,62 @@ public class DvmObject<T> extends Hashable {
 
     protected MemoryBlock memoryBlock;
 
+    /**
+     * Guest memory owned by a batch call, used instead of allocating when large enough and never freed here.
+     */
+    private MemoryBlock lentMemoryBlock;
+    private int lentMemorySize;
+
+    final void lendMemoryBlock(MemoryBlock block, int size) {
+        this.lentMemoryBlock = block;
+        this.lentMemorySize = size;
+    }
+
     protected final UnidbgPointer allocateMemoryBlock(Emulator<?> emulator, int length) {
         if (memoryBlock != null) {
             throw new IllegalStateException("Already allocated array memory");
         }
 
-        memoryBlock = emulator.getMemory().malloc(length, true);
+        if (lentMemoryBlock != null && length <= lentMemorySize) {
+            memoryBlock = lentMemoryBlock;
+        } else {
+            memoryBlock = emulator.getMemory().malloc(length, true);
+        }
         return memoryBlock.getPointer();
     }
 
     protected final void freeMemoryBlock(Pointer pointer) {
         if (this.memoryBlock != null && (pointer == null || this.memoryBlock.isSame(pointer))) {
-            this.memoryBlock.free();
+            if (this.memoryBlock != lentMemoryBlock) {
+                this.memoryBlock.free();
+            }
             this.memoryBlock = null;
         }
     }
 
+    /**
+     * Number of local and global references to this object, weak global references are not counted.
+     */
+    private int refCount;
+
+    final void onAddRef() {
+        refCount++;
+    }
+
+    /**
+     * Array elements and string chars are freed with the last reference, until then native code may still hold them.
+     */
     final void onDeleteRef() {
-        freeMemoryBlock(null);
+        if (refCount > 0) {
+            refCount--;
+        }
+        if (refCount == 0) {
+            freeMemoryBlock(null);
+        }
+    }
+
+    final void resetRefCount() {
+        refCount = 0;
     }
 
 }
@@ -0,0 +1,280 @@
+package com.github.unidbg.linux.android.dvm;
+
+import java.util.Arrays;
+
+/**
+ * JNI reference table like ART's <code>IndirectReferenceTable</code>:
+ * the handle encodes reference kind, slot index and slot serial, so lookup is an array access without allocation,
+ * and a stale handle to a reused slot is detected instead of aliasing another object.
+ */
+final class IndirectReferenceTable {
+
+    static final int KIND_LOCAL = 1;
+    static final int KIND_GLOBAL = 2;
+    static final int KIND_WEAK_GLOBAL = 3;
+
+    private static final int KIND_BITS = 2;
+    private static final int INDEX_BITS = 20;
+    private static final int SERIAL_BITS = 9; // keep handle positive
+
+    private static final int KIND_MASK = (1 << KIND_BITS) - 1;
+    private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+    private static final int SERIAL_MASK = (1 << SERIAL_BITS) - 1;
+
+    private static final int MAX_ENTRIES = 1 << INDEX_BITS;
+
+    static int getKind(int ref) {
+        return ref & KIND_MASK;
+    }
+
+    private final int kind;
+
+    private DvmObject<?>[] objects;
+    private int[] serials;
+
+    /**
+     * free slots below top, linked by slot index, -1 terminated.
+     */
+    private int[] nextFree;
+    private int freeHead = -1;
+
+    private int top;
+    private int size;
+
+    /**
+     * references below segment start belong to outer local frames.
+     */
+    private int segmentStart;
+
+    /**
+     * saved segment start and free list head of the outer frames.
+     */
+    private int[] segments = new int[16];
+    private int segmentDepth;
+
+    IndirectReferenceTable(int kind, int initialCapacity) {
+        this.kind = kind;
+        this.objects = new DvmObject<?>[initialCapacity];
+        this.serials = new int[initialCapacity];
+        this.nextFree = new int[initialCapacity];
+    }
+
+    private IndirectReferenceTable(IndirectReferenceTable table) {
+        this.kind = table.kind;
+        this.objects = Arrays.copyOf(table.objects, table.objects.length);
+        this.serials = Arrays.copyOf(table.serials, table.serials.length);
+        this.nextFree = Arrays.copyOf(table.nextFree, table.nextFree.length);
+        this.freeHead = table.freeHead;
+        this.top = table.top;
+        this.size = table.size;
+        this.segmentStart = table.segmentStart;
+        this.segments = Arrays.copyOf(table.segments, table.segments.length);
+        this.segmentDepth = table.segmentDepth;
+    }
+
+    int add(DvmObject<?> object) {
+        int index;
+        if (freeHead != -1) {
+            index = freeHead;
+            freeHead = nextFree[index];
+        } else {
+            if (top == objects.length) {
+                grow();
+            }
+            index = top++;
+        }
+        objects[index] = object;
+        size++;
+        return (serials[index] << (KIND_BITS + INDEX_BITS)) | (index << KIND_BITS) | kind;
+    }
+
+    private void grow() {
+        if (objects.length >= MAX_ENTRIES) {
+            throw new IllegalStateException("JNI reference table overflow: kind=" + kind + ", size=" + size);
+        }
+        resize(Math.min(MAX_ENTRIES, objects.length * 2));
+    }
+
+    private void resize(int capacity) {
+        objects = Arrays.copyOf(objects, capacity);
+        serials = Arrays.copyOf(serials, capacity);
+        nextFree = Arrays.copyOf(nextFree, capacity);
+    }
+
+    /**
+     * @return slot index of the valid reference, or -1.
+     */
+    private int indexOf(int ref) {
+        if ((ref & KIND_MASK) != kind) {
+            return -1;
+        }
+        int index = (ref >>> KIND_BITS) & INDEX_MASK;
+        if (index >= top || objects[index] == null || serials[index] != ((ref >>> (KIND_BITS + INDEX_BITS)) & SERIAL_MASK)) {
+            return -1;
+        }
+        return index;
+    }
+
+    DvmObject<?> get(int ref) {
+        int index = indexOf(ref);
+        return index == -1 ? null : objects[index];
+    }
+
+    DvmObject<?> remove(int ref) {
+        int index = indexOf(ref);
+        if (index == -1) {
+            return null;
+        }
+        DvmObject<?> object = objects[index];
+        objects[index] = null;
+        serials[index] = (serials[index] + 1) & SERIAL_MASK;
+        if (index >= segmentStart) {
+            nextFree[index] = freeHead;
+            freeHead = index;
+        } else { // slot of an outer frame goes to the saved free list of that frame, reused once it is current again
+            int depth = segmentDepth - 1;
+            while (segments[depth * 2] > index) {
+                depth--;
+            }
+            nextFree[index] = segments[depth * 2 + 1];
+            segments[depth * 2 + 1] = index;
+        }
+        size--;
+        return object;
+    }
+
+    /**
+     * Make sure <code>count</code> more references can be added without growing.
+     * @return <code>false</code> if the table can not hold them.
+     */
+    boolean ensureCapacity(int count) {
+        if (count < 0 || (long) top + count > MAX_ENTRIES) {
+            return false;
+        }
+        if (top + count > objects.length) {
+            resize(Math.min(MAX_ENTRIES, Math.max(top + count, objects.length * 2)));
+        }
+        return true;
+    }
+
+    /**
+     * Start a new frame, references added afterwards are deleted by {@link #popSegment()}.
+     */
+    void pushSegment() {
+        if (segmentDepth * 2 + 2 > segments.length) {
+            segments = Arrays.copyOf(segments, segments.length * 2);
+        }
+        segments[segmentDepth * 2] = segmentStart;
+        segments[segmentDepth * 2 + 1] = freeHead;
+        segmentDepth++;
+        segmentStart = top;
+        freeHead = -1;
+    }
+
+    /**
+     * Delete the references of the current frame, iterate them before with {@link #objectAt(int)} from {@link #segmentStart()}.
+     */
+    void popSegment() {
+        if (segmentDepth == 0) {
+            throw new IllegalStateException("No local frame");
+        }
+        for (int i = segmentStart; i < top; i++) {
+            if (objects[i] != null) {
+                objects[i] = null;
+                size--;
+            }
+            serials[i] = (serials[i] + 1) & SERIAL_MASK;
+        }
+        top = segmentStart;
+        segmentDepth--;
+        segmentStart = segments[segmentDepth * 2];
+        freeHead = segments[segmentDepth * 2 + 1];
+    }
+
+    int segmentStart() {
+        return segmentStart;
+    }
+
+    int segmentDepth() {
+        return segmentDepth;
+    }
+
+    /**
+     * Delete all references, handles handed out before are invalid afterwards.
+     */
+    void clear() {
+        for (int i = 0; i < top; i++) {
+            objects[i] = null;
+            serials[i] = (serials[i] + 1) & SERIAL_MASK;
+        }
+        freeHead = -1;
+        top = 0;
+        size = 0;
+        segmentStart = 0;
+        segmentDepth = 0;
+    }
+
+    /**
+     * Iterate live references in slot order, from <code>0</code> to {@link #capacity()}, <code>null</code> for free slots.
+     */
+    DvmObject<?> objectAt(int index) {
+        return objects[index];
+    }
+
+    int capacity() {
+        return top;
+    }
+
+    /**
+     * @return reference of the live slot <code>index</code>, see {@link #objectAt(int)}.
+     */
+    int refAt(int index) {
+        return (serials[index] << (KIND_BITS + INDEX_BITS)) | (index << KIND_BITS) | kind;
+    }
+
+    /**
+     * Adds <code>object</code> at the slot of <code>ref</code> handed out by a former table, the slots skipped are free.
+     * References must be put in slot order, into a table without local frames.
+     */
+    void put(int ref, DvmObject<?> object) {
+        int index = (ref >>> KIND_BITS) & INDEX_MASK;
+        if ((ref & KIND_MASK) != kind || index < top || segmentDepth != 0) {
+            throw new IllegalArgumentException("ref=0x" + Integer.toHexString(ref) + ", top=" + top);
+        }
+        if (index >= objects.length) {
+            resize(Math.max(index + 1, Math.min(MAX_ENTRIES, objects.length * 2)));
+        }
+        for (int i = top; i < index; i++) {
+            nextFree[i] = freeHead;
+            freeHead = i;
+        }
+        objects[index] = object;
+        serials[index] = (ref >>> (KIND_BITS + INDEX_BITS)) & SERIAL_MASK;
+        top = index + 1;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    IndirectReferenceTable copy() {
+        return new IndirectReferenceTable(this);
+    }
+
+    void restore(IndirectReferenceTable table) {
+        if (table.kind != kind) {
+            throw new IllegalArgumentException("kind=" + table.kind);
+        }
+        this.objects = Arrays.copyOf(table.objects, table.objects.length);
+        this.serials = Arrays.copyOf(table.serials, table.serials.length);
+        this.nextFree = Arrays.copyOf(table.nextFree, table.nextFree.length);
+        this.freeHead = table.freeHead;
+        this.top = table.top;
+        this.size = table.size;
+        this.segmentStart = table.segmentStart;
+        this.segments = Arrays.copyOf(table.segments, table.segments.length);
+        this.segmentDepth = table.segmentDepth;
+    }
+
+}
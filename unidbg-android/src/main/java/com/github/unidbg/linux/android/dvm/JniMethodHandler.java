@@ -0,0 +1,15 @@
+package com.github.unidbg.linux.android.dvm;
+
+/**
+ * Java method called by native code, registered with {@link AbstractJni#register(String, JniMethodHandler)}.
+ */
+public interface JniMethodHandler {
+
+    /**
+     * @param dvmObject <code>this</code> of an instance method, the class of a static method or constructor.
+     * @param varArg arguments, <code>VarArg</code> or <code>VaList</code> depends on the JNI function called.
+     * @return <code>null</code> for void, <code>Boolean</code> or <code>Number</code> for primitive, or <code>DvmObject</code>.
+     */
+    Object invoke(BaseVM vm, DvmObject<?> dvmObject, VarArg varArg);
+
+}
@@ -1,6 +1,7 @@
 package com.github.unidbg.linux.android.dvm;
 
 import com.github.unidbg.Emulator;
+import com.github.unidbg.EmulatorSnapshot;
 import com.github.unidbg.Module;
 import com.github.unidbg.linux.android.dvm.apk.AssetResolver;
 import com.github.unidbg.spi.LibraryFile;
@@ -104,4 +105,19 @@ public interface VM {
     void setDvmClassFactory(DvmClassFactory factory);
 
     Emulator<?> getEmulator();
+
+    /**
+     * 保存已注册的类及全局引用，由 {@link Emulator#snapshot()} 调用
+     */
+    void onSnapshot(EmulatorSnapshot snapshot);
+
+    /**
+     * 恢复已注册的类及全局引用，由 {@link Emulator#restore(EmulatorSnapshot)} 调用
+     */
+    void onRestore(EmulatorSnapshot snapshot);
+
+    /**
+     * 复制jni等设置到fork的模拟器的vm，由 {@link Emulator#fork(EmulatorSnapshot)} 调用
+     */
+    void onFork(VM forked);
 }
@@ -0,0 +1,110 @@
+package com.github.unidbg.linux.android.dvm.jni;
+
+import com.github.unidbg.linux.android.dvm.BaseVM;
+import com.github.unidbg.linux.android.dvm.DvmMethod;
+import com.github.unidbg.linux.android.dvm.Shorty;
+import com.github.unidbg.linux.android.dvm.VarArg;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Java member resolved once for a jmethodID:
+ * arguments are converted by the decoded shorty, and the member is invoked by a method handle instead of reflection.
+ */
+class ProxyCallSite {
+
+    private static final MethodType CALL_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+    /**
+     * @return handle of type <code>(Object thisObj, Object[] args)Object</code>, <code>thisObj</code> is ignored by static methods and constructors.
+     */
+    static MethodHandle createHandle(Member member) throws IllegalAccessException {
+        try {
+            ((AccessibleObject) member).setAccessible(true);
+        } catch (RuntimeException ignored) { // public member of a module not opened
+        }
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle handle;
+        int parameterCount;
+        if (member instanceof Method) {
+            Method method = (Method) member;
+            handle = lookup.unreflect(method);
+            parameterCount = method.getParameterTypes().length;
+            if (Modifier.isStatic(method.getModifiers())) {
+                handle = MethodHandles.dropArguments(handle, 0, Object.class);
+            }
+        } else {
+            Constructor<?> constructor = (Constructor<?>) member;
+            handle = MethodHandles.dropArguments(lookup.unreflectConstructor(constructor), 0, Object.class);
+            parameterCount = constructor.getParameterTypes().length;
+        }
+        return handle.asSpreader(Object[].class, parameterCount).asType(CALL_TYPE);
+    }
+
+    private final Member member;
+    private final MethodHandle handle;
+    private final char[] types;
+    private final ProxyDvmObjectVisitor visitor;
+
+    ProxyCallSite(DvmMethod dvmMethod, Member member, ProxyDvmObjectVisitor visitor) throws IllegalAccessException {
+        this.member = member;
+        this.handle = createHandle(member);
+        this.visitor = visitor;
+
+        Shorty[] shorties = dvmMethod.decodeArgsShorty();
+        this.types = new char[shorties.length];
+        for (int i = 0; i < shorties.length; i++) {
+            types[i] = shorties[i].getType();
+        }
+    }
+
+    ProxyCall bind(VarArg varArg) {
+        Object[] args = new Object[types.length];
+        for (int i = 0; i < types.length; i++) {
+            switch (types[i]) {
+                case 'B':
+                    args[i] = (byte) varArg.getIntArg(i);
+                    break;
+                case 'C':
+                    args[i] = (char) varArg.getIntArg(i);
+                    break;
+                case 'I':
+                    args[i] = varArg.getIntArg(i);
+                    break;
+                case 'S':
+                    args[i] = (short) varArg.getIntArg(i);
+                    break;
+                case 'Z':
+                    args[i] = BaseVM.valueOf(varArg.getIntArg(i));
+                    break;
+                case 'F':
+                    args[i] = varArg.getFloatArg(i);
+                    break;
+                case 'L':
+                    args[i] = ProxyUtils.unpack(varArg.getObjectArg(i));
+                    break;
+                case 'D':
+                    args[i] = varArg.getDoubleArg(i);
+                    break;
+                case 'J':
+                    args[i] = varArg.getLongArg(i);
+                    break;
+                default:
+                    throw new IllegalStateException("c=" + types[i]);
+            }
+        }
+        if (member instanceof Method) {
+            return new ProxyMethod(visitor, (Method) member, handle, args);
+        } else {
+            return new ProxyConstructor(visitor, (Constructor<?>) member, handle, args);
+        }
+    }
+
+}
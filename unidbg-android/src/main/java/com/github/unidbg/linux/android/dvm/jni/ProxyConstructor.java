@@ -3,6 +3,7 @@ package com.github.unidbg.linux.android.dvm.jni;
 import com.github.unidbg.arm.backend.BackendException;
 import com.github.unidbg.linux.android.dvm.VM;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 
@@ -10,33 +11,33 @@ class ProxyConstructor implements ProxyCall {
 
     private final ProxyDvmObjectVisitor visitor;
     private final Constructor<?> constructor;
+    private final MethodHandle handle;
     private final Object[] args;
 
-    ProxyConstructor(ProxyDvmObjectVisitor visitor, Constructor<?> constructor, Object[] args) {
+    ProxyConstructor(ProxyDvmObjectVisitor visitor, Constructor<?> constructor, MethodHandle handle, Object[] args) {
         this.visitor = visitor;
         this.constructor = constructor;
+        this.handle = handle;
         this.args = args;
     }
 
     @Override
-    public Object call(VM vm, Object obj) throws IllegalAccessException, InvocationTargetException, InstantiationException {
+    public Object call(VM vm, Object obj) throws InvocationTargetException {
+        Object inst;
         try {
-            Object inst = constructor.newInstance(args);
-            if (visitor != null) {
-                visitor.onProxyVisit(constructor, inst, args);
-            }
-            return inst;
-        } catch (InvocationTargetException e) {
-            Throwable cause = e.getTargetException();
-            if (cause instanceof BackendException) {
-                throw (BackendException) cause;
-            }
-            if (cause instanceof ProxyDvmException) {
-                vm.throwException(ProxyDvmObject.createObject(vm, cause));
-                return null;
-            }
+            inst = handle.invokeExact((Object) null, args);
+        } catch (BackendException e) {
             throw e;
+        } catch (ProxyDvmException e) {
+            vm.throwException(ProxyDvmObject.createObject(vm, e));
+            return null;
+        } catch (Throwable e) {
+            throw new InvocationTargetException(e);
         }
+        if (visitor != null) {
+            visitor.onProxyVisit(constructor, inst, args);
+        }
+        return inst;
     }
 
 }
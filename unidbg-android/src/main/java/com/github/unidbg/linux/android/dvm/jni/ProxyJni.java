@@ -12,9 +12,12 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 class ProxyJni extends JniFunction {
 
@@ -28,6 +31,33 @@ class ProxyJni extends JniFunction {
         this.visitor = visitor;
     }
 
+    /**
+     * call sites by jmethodID, the java member of a jmethodID is resolved once, see {@link DvmMethod#setMember(Member)}.
+     */
+    private final Map<DvmMethod, ProxyCallSite> callSites = new HashMap<>();
+
+    private ProxyCallSite addCallSite(DvmMethod dvmMethod, Member member) throws IllegalAccessException {
+        ProxyCallSite callSite = new ProxyCallSite(dvmMethod, member, visitor);
+        callSites.put(dvmMethod, callSite);
+        return callSite;
+    }
+
+    private ProxyCall findMethod(Class<?> clazz, DvmMethod dvmMethod, VarArg varArg, boolean isStatic) throws NoSuchMethodException, IllegalAccessException {
+        ProxyCallSite callSite = callSites.get(dvmMethod);
+        if (callSite == null) {
+            callSite = addCallSite(dvmMethod, ProxyUtils.resolveMethod(clazz, dvmMethod, varArg, isStatic));
+        }
+        return callSite.bind(varArg);
+    }
+
+    private ProxyCall findConstructor(Class<?> clazz, DvmMethod dvmMethod, VarArg varArg) throws NoSuchMethodException, IllegalAccessException {
+        ProxyCallSite callSite = callSites.get(dvmMethod);
+        if (callSite == null) {
+            callSite = addCallSite(dvmMethod, ProxyUtils.resolveConstructor(clazz, dvmMethod, varArg));
+        }
+        return callSite.bind(varArg);
+    }
+
     @Override
     public DvmObject<?> allocObject(BaseVM vm, DvmClass dvmClass, String signature) {
         try {
@@ -45,7 +75,7 @@ class ProxyJni extends JniFunction {
     public DvmObject<?> newObject(BaseVM vm, DvmClass dvmClass, DvmMethod dvmMethod, VarArg varArg) {
         try {
             Class<?> clazz = classLoader.loadClass(dvmClass.getName());
-            ProxyCall proxyCall = ProxyUtils.findConstructor(clazz, dvmMethod, varArg, visitor);
+            ProxyCall proxyCall = findConstructor(clazz, dvmMethod, varArg);
             Object obj = proxyCall.call(vm, null);
             return ProxyDvmObject.createObject(vm, obj);
         } catch (ClassNotFoundException | IllegalAccessException | InvocationTargetException | InstantiationException | NoSuchMethodException e) {
@@ -59,7 +89,7 @@ class ProxyJni extends JniFunction {
     public DvmObject<?> newObjectV(BaseVM vm, DvmClass dvmClass, DvmMethod dvmMethod, VaList vaList) {
         try {
             Class<?> clazz = classLoader.loadClass(dvmClass.getName());
-            ProxyCall proxyCall = ProxyUtils.findConstructor(clazz, dvmMethod, vaList, visitor);
+            ProxyCall proxyCall = findConstructor(clazz, dvmMethod, vaList);
             Object obj = proxyCall.call(vm, null);
             return ProxyDvmObject.createObject(vm, obj);
         } catch (ClassNotFoundException | IllegalAccessException | InvocationTargetException | InstantiationException | NoSuchMethodException e) {
@@ -73,7 +103,7 @@ class ProxyJni extends JniFunction {
     public float callStaticFloatMethod(BaseVM vm, DvmClass dvmClass, DvmMethod dvmMethod, VarArg varArg) {
         try {
             Class<?> clazz = classLoader.loadClass(dvmClass.getName());
-            ProxyCall proxyCall = ProxyUtils.findMethod(clazz, dvmMethod, varArg, true, visitor);
+            ProxyCall proxyCall = findMethod(clazz, dvmMethod, varArg, true);
             return (Float) proxyCall.call(vm, null);
         } catch (ClassNotFoundException | IllegalAccessException | InvocationTargetException | InstantiationException | NoSuchMethodException e) {
             log.warn("callStaticVoidMethod", e);
@@ -85,7 +115,7 @@ class ProxyJni extends JniFunction {
     public void callStaticVoidMethod(BaseVM vm, DvmClass dvmClass, DvmMethod dvmMethod, VarArg varArg) {
         try {
             Class<?> clazz = classLoader.loadClass(dvmClass.getName());
-            ProxyCall proxyCall = ProxyUtils.findMethod(clazz, dvmMethod, varArg, true, visitor);
+            ProxyCall proxyCall = findMethod(clazz, dvmMethod, varArg, true);
             proxyCall.call(vm, null);
             return;
         } catch (ClassNotFoundException | IllegalAccessException | InvocationTargetException | InstantiationException | NoSuchMethodException e) {
@@ -98,7 +128,7 @@ class ProxyJni extends JniFunction {
     public void callStaticVoidMethodV(BaseVM vm, DvmClass dvmClass, DvmMethod dvmMethod, VaList vaList) {
         try {
             Class<?> clazz = classLoader.loadClass(dvmClass.getName());
-            ProxyCall proxyCall = ProxyUtils.findMethod(clazz, dvmMethod, vaList, true, visitor);
+            ProxyCall proxyCall = findMethod(clazz, dvmMethod, vaList, true);
             proxyCall.call(vm, null);
             return;
         } catch (ClassNotFoundException | IllegalAccessException | InvocationTargetException | InstantiationException | NoSuchMethodException e) {
@@ -111,7 +141,7 @@ class ProxyJni extends JniFunction {
     public boolean callStaticBooleanMethod(BaseVM vm, DvmClass dvmClass, DvmMethod dvmMethod, VarArg varArg) {
         try {
             Class<?> clazz = classLoader.loadClass(dvmClass.getName());
-            ProxyCall proxyCall = ProxyUtils.findMethod(clazz, dvmMethod, varArg, true, visitor);
+            ProxyCall proxyCall = findMethod(clazz, dvmMethod, varArg, true);
             Object obj = proxyCall.call(vm, null);
             return obj == null ? Boolean.FALSE : (Boolean) obj;
         } catch (ClassNotFoundException | IllegalAccessException | InvocationTargetException | InstantiationException | NoSuchMethodException e) {
@@ -124,7 +154,7 @@ class ProxyJni extends JniFunction {
     public boolean callStaticBooleanMethodV(BaseVM vm, DvmClass dvmClass, DvmMethod dvmMethod, VaList vaList) {
         try {
             Class<?> clazz = classLoader.loadClass(dvmClass.getName());
-            ProxyCall proxyCall = ProxyUtils.findMethod(clazz, dvmMethod, vaList, true, visitor);
+            ProxyCall proxyCall = findMethod(clazz, dvmMethod, vaList, true);
             Object obj = proxyCall.call(vm, null);
             return obj == null ? Boolean.FALSE : (Boolean) obj;
         } catch (ClassNotFoundException | IllegalAccessException | InvocationTargetException | InstantiationException | NoSuchMethodException e) {
@@ -137,7 +167,7 @@ class ProxyJni extends JniFunction {
     public int callStaticIntMethod(BaseVM vm, DvmClass dvmClass, DvmMethod dvmMethod, VarArg varArg) {
         try {
             Class<?> clazz = classLoader.loadClass(dvmClass.getName());
-            ProxyCall proxyCall = ProxyUtils.findMethod(clazz, dvmMethod, varArg, true, visitor);
+            ProxyCall proxyCall = findMethod(clazz, dvmMethod, varArg, true);
             Object obj = proxyCall.call(vm, null);
             return obj == null ? 0 : (Integer) obj;
         } catch (ClassNotFoundException | IllegalAccessException | InvocationTargetException | InstantiationException | NoSuchMethodException e) {
@@ -150,7 +180,7 @@ class ProxyJni extends JniFunction {
     public int callStaticIntMethodV(BaseVM vm, DvmClass dvmClass, DvmMethod dvmMethod, VaList vaList) {
         try {
             Class<?> clazz = classLoader.loadClass(dvmClass.getName());
-            ProxyCall proxyCall = ProxyUtils.findMethod(clazz, dvmMethod, vaList, true, visitor);
+            ProxyCall proxyCall = findMethod(clazz, dvmMethod, vaList, true);
             Object obj = proxyCall.call(vm, null);
             return obj == null ? 0 : (Integer) obj;
         } catch (ClassNotFoundException | IllegalAccessException | InvocationTargetException | InstantiationException | NoSuchMethodException e) {
@@ -163,7 +193,7 @@ class ProxyJni extends JniFunction {
     public long callStaticLongMethod(BaseVM vm, DvmClass dvmClass, DvmMethod dvmMethod, VarArg varArg) {
         try {
             Class<?> clazz = classLoader.loadClass(dvmClass.getName());
-            ProxyCall proxyCall = ProxyUtils.findMethod(clazz, dvmMethod, varArg, true, visitor);
+            ProxyCall proxyCall = findMethod(clazz, dvmMethod, varArg, true);
             Object obj = proxyCall.call(vm, null);
             return obj == null ? 0 : (Long) obj;
         } catch (ClassNotFoundException | IllegalAccessException | InvocationTargetException | InstantiationException | NoSuchMethodException e) {
@@ -176,7 +206,7 @@ class ProxyJni extends JniFunction {
     public long callStaticLongMethodV(BaseVM vm, DvmClass dvmClass, DvmMethod dvmMethod, VaList vaList) {
         try {
             Class<?> clazz = classLoader.loadClass(dvmClass.getName());
-            ProxyCall proxyCall = ProxyUtils.findMethod(clazz, dvmMethod, vaList, true, visitor);
+            ProxyCall proxyCall = findMethod(clazz, dvmMethod, vaList, true);
             Object obj = proxyCall.call(vm, null);
             return obj == null ? 0 : (Long) obj;
         } catch (ClassNotFoundException | IllegalAccessException | InvocationTargetException | InstantiationException | NoSuchMethodException e) {
@@ -189,7 +219,7 @@ class ProxyJni extends JniFunction {
     public DvmObject<?> callStaticObjectMethod(BaseVM vm, DvmClass dvmClass, DvmMethod dvmMethod, VarArg varArg) {
         try {
             Class<?> clazz = classLoader.loadClass(dvmClass.getName());
-            ProxyCall proxyCall = ProxyUtils.findMethod(clazz, dvmMethod, varArg, true, visitor);
+            ProxyCall proxyCall = findMethod(clazz, dvmMethod, varArg, true);
             Object obj = proxyCall.call(vm, null);
             return ProxyDvmObject.createObject(vm, obj);
         } catch (ClassNotFoundException | IllegalAccessException | InvocationTargetException | InstantiationException | NoSuchMethodException e) {
@@ -202,7 +232,7 @@ class ProxyJni extends JniFunction {
     public DvmObject<?> callStaticObjectMethodV(BaseVM vm, DvmClass dvmClass, DvmMethod dvmMethod, VaList vaList) {
         try {
             Class<?> clazz = classLoader.loadClass(dvmClass.getName());
-            ProxyCall proxyCall = ProxyUtils.findMethod(clazz, dvmMethod, vaList, true, visitor);
+            ProxyCall proxyCall = findMethod(clazz, dvmMethod, vaList, true);
             Object obj = proxyCall.call(vm, null);
             return ProxyDvmObject.createObject(vm, obj);
         } catch (ClassNotFoundException | IllegalAccessException | InvocationTargetException | InstantiationException | NoSuchMethodException e) {
@@ -215,7 +245,7 @@ class ProxyJni extends JniFunction {
     public void callVoidMethod(BaseVM vm, DvmObject<?> dvmObject, DvmMethod dvmMethod, VarArg varArg) {
         try {
             Class<?> clazz = classLoader.loadClass(dvmObject.getObjectType().getName());
-            ProxyCall proxyCall = ProxyUtils.findMethod(clazz, dvmMethod, varArg, false, visitor);
+            ProxyCall proxyCall = findMethod(clazz, dvmMethod, varArg, false);
             Object thisObj = dvmObject.getValue();
             if (thisObj == null) {
                 throw new IllegalStateException("obj is null: " + dvmObject);
@@ -232,7 +262,7 @@ class ProxyJni extends JniFunction {
     public void callVoidMethodV(BaseVM vm, DvmObject<?> dvmObject, DvmMethod dvmMethod, VaList vaList) {
         try {
             Class<?> clazz = classLoader.loadClass(dvmObject.getObjectType().getName());
-            ProxyCall proxyCall = ProxyUtils.findMethod(clazz, dvmMethod, vaList, false, visitor);
+            ProxyCall proxyCall = findMethod(clazz, dvmMethod, vaList, false);
             Object thisObj = dvmObject.getValue();
             if (thisObj == null) {
                 throw new IllegalStateException("obj is null: " + dvmObject);
@@ -249,7 +279,7 @@ class ProxyJni extends JniFunction {
     public boolean callBooleanMethod(BaseVM vm, DvmObject<?> dvmObject, DvmMethod dvmMethod, VarArg varArg) {
         try {
             Class<?> clazz = classLoader.loadClass(dvmObject.getObjectType().getName());
-            ProxyCall proxyCall = ProxyUtils.findMethod(clazz, dvmMethod, varArg, false, visitor);
+            ProxyCall proxyCall = findMethod(clazz, dvmMethod, varArg, false);
             Object thisObj = dvmObject.getValue();
             if (thisObj == null) {
                 throw new IllegalStateException("obj is null: " + dvmObject);
@@ -266,7 +296,7 @@ class ProxyJni extends JniFunction {
     public boolean callBooleanMethodV(BaseVM vm, DvmObject<?> dvmObject, DvmMethod dvmMethod, VaList vaList) {
         try {
             Class<?> clazz = classLoader.loadClass(dvmObject.getObjectType().getName());
-            ProxyCall proxyCall = ProxyUtils.findMethod(clazz, dvmMethod, vaList, false, visitor);
+            ProxyCall proxyCall = findMethod(clazz, dvmMethod, vaList, false);
             Object thisObj = dvmObject.getValue();
             if (thisObj == null) {
                 throw new IllegalStateException("obj is null: " + dvmObject);
@@ -283,7 +313,7 @@ class ProxyJni extends JniFunction {
     public int callIntMethod(BaseVM vm, DvmObject<?> dvmObject, DvmMethod dvmMethod, VarArg varArg) {
         try {
             Class<?> clazz = classLoader.loadClass(dvmObject.getObjectType().getName());
-            ProxyCall proxyCall = ProxyUtils.findMethod(clazz, dvmMethod, varArg, false, visitor);
+            ProxyCall proxyCall = findMethod(clazz, dvmMethod, varArg, false);
             Object thisObj = dvmObject.getValue();
             if (thisObj == null) {
                 throw new IllegalStateException("obj is null: " + dvmObject);
@@ -300,7 +330,7 @@ class ProxyJni extends JniFunction {
     public double callDoubleMethod(BaseVM vm, DvmObject<?> dvmObject, DvmMethod dvmMethod, VarArg varArg) {
         try {
             Class<?> clazz = classLoader.loadClass(dvmObject.getObjectType().getName());
-            ProxyCall proxyCall = ProxyUtils.findMethod(clazz, dvmMethod, varArg, false, visitor);
+            ProxyCall proxyCall = findMethod(clazz, dvmMethod, varArg, false);
             Object thisObj = dvmObject.getValue();
             if (thisObj == null) {
                 throw new IllegalStateException("obj is null: " + dvmObject);
@@ -317,7 +347,7 @@ class ProxyJni extends JniFunction {
     public byte callByteMethodV(BaseVM vm, DvmObject<?> dvmObject, DvmMethod dvmMethod, VaList vaList) {
         try {
             Class<?> clazz = classLoader.loadClass(dvmObject.getObjectType().getName());
-            ProxyCall proxyCall = ProxyUtils.findMethod(clazz, dvmMethod, vaList, false, visitor);
+            ProxyCall proxyCall = findMethod(clazz, dvmMethod, vaList, false);
             Object thisObj = dvmObject.getValue();
             if (thisObj == null) {
                 throw new IllegalStateException("obj is null: " + dvmObject);
@@ -334,7 +364,7 @@ class ProxyJni extends JniFunction {
     public short callShortMethodV(BaseVM vm, DvmObject<?> dvmObject, DvmMethod dvmMethod, VaList vaList) {
         try {
             Class<?> clazz = classLoader.loadClass(dvmObject.getObjectType().getName());
-            ProxyCall proxyCall = ProxyUtils.findMethod(clazz, dvmMethod, vaList, false, visitor);
+            ProxyCall proxyCall = findMethod(clazz, dvmMethod, vaList, false);
             Object thisObj = dvmObject.getValue();
             if (thisObj == null) {
                 throw new IllegalStateException("obj is null: " + dvmObject);
@@ -351,7 +381,7 @@ class ProxyJni extends JniFunction {
     public int callIntMethodV(BaseVM vm, DvmObject<?> dvmObject, DvmMethod dvmMethod, VaList vaList) {
         try {
             Class<?> clazz = classLoader.loadClass(dvmObject.getObjectType().getName());
-            ProxyCall proxyCall = ProxyUtils.findMethod(clazz, dvmMethod, vaList, false, visitor);
+            ProxyCall proxyCall = findMethod(clazz, dvmMethod, vaList, false);
             Object thisObj = dvmObject.getValue();
             if (thisObj == null) {
                 throw new IllegalStateException("obj is null: " + dvmObject);
@@ -368,7 +398,7 @@ class ProxyJni extends JniFunction {
     public DvmObject<?> callObjectMethod(BaseVM vm, DvmObject<?> dvmObject, DvmMethod dvmMethod, VarArg varArg) {
         try {
             Class<?> clazz = classLoader.loadClass(dvmObject.getObjectType().getName());
-            ProxyCall proxyCall = ProxyUtils.findMethod(clazz, dvmMethod, varArg, false, visitor);
+            ProxyCall proxyCall = findMethod(clazz, dvmMethod, varArg, false);
             Object thisObj = dvmObject.getValue();
             if (thisObj == null) {
                 throw new IllegalStateException("obj is null: " + dvmObject);
@@ -385,7 +415,7 @@ class ProxyJni extends JniFunction {
     public DvmObject<?> callObjectMethodV(BaseVM vm, DvmObject<?> dvmObject, DvmMethod dvmMethod, VaList vaList) {
         try {
             Class<?> clazz = classLoader.loadClass(dvmObject.getObjectType().getName());
-            ProxyCall proxyCall = ProxyUtils.findMethod(clazz, dvmMethod, vaList, false, visitor);
+            ProxyCall proxyCall = findMethod(clazz, dvmMethod, vaList, false);
             Object thisObj = dvmObject.getValue();
             if (thisObj == null) {
                 throw new IllegalStateException("obj is null: " + dvmObject);
@@ -403,7 +433,7 @@ class ProxyJni extends JniFunction {
     public long callLongMethod(BaseVM vm, DvmObject<?> dvmObject, DvmMethod dvmMethod, VarArg varArg) {
         try {
             Class<?> clazz = classLoader.loadClass(dvmObject.getObjectType().getName());
-            ProxyCall proxyCall = ProxyUtils.findMethod(clazz, dvmMethod, varArg, false, visitor);
+            ProxyCall proxyCall = findMethod(clazz, dvmMethod, varArg, false);
             Object thisObj = dvmObject.getValue();
             if (thisObj == null) {
                 throw new IllegalStateException("obj is null: " + dvmObject);
@@ -420,7 +450,7 @@ class ProxyJni extends JniFunction {
     public long callLongMethodV(BaseVM vm, DvmObject<?> dvmObject, DvmMethod dvmMethod, VaList vaList) {
         try {
             Class<?> clazz = classLoader.loadClass(dvmObject.getObjectType().getName());
-            ProxyCall proxyCall = ProxyUtils.findMethod(clazz, dvmMethod, vaList, false, visitor);
+            ProxyCall proxyCall = findMethod(clazz, dvmMethod, vaList, false);
             Object thisObj = dvmObject.getValue();
             if (thisObj == null) {
                 throw new IllegalStateException("obj is null: " + dvmObject);
@@ -437,7 +467,7 @@ class ProxyJni extends JniFunction {
     public float callFloatMethodV(BaseVM vm, DvmObject<?> dvmObject, DvmMethod dvmMethod, VaList vaList) {
         try {
             Class<?> clazz = classLoader.loadClass(dvmObject.getObjectType().getName());
-            ProxyCall proxyCall = ProxyUtils.findMethod(clazz, dvmMethod, vaList, false, visitor);
+            ProxyCall proxyCall = findMethod(clazz, dvmMethod, vaList, false);
             Object thisObj = dvmObject.getValue();
             if (thisObj == null) {
                 throw new IllegalStateException("obj is null: " + dvmObject);
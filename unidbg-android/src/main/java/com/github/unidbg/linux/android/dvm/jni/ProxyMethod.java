@@ -3,6 +3,7 @@ package com.github.unidbg.linux.android.dvm.jni;
 import com.github.unidbg.arm.backend.BackendException;
 import com.github.unidbg.linux.android.dvm.VM;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
@@ -10,37 +11,32 @@ class ProxyMethod implements ProxyCall {
 
     private final ProxyDvmObjectVisitor visitor;
     private final Method method;
+    private final MethodHandle handle;
     private final Object[] args;
 
-    ProxyMethod(ProxyDvmObjectVisitor visitor, Method method, Object[] args) {
+    ProxyMethod(ProxyDvmObjectVisitor visitor, Method method, MethodHandle handle, Object[] args) {
         this.visitor = visitor;
         this.method = method;
+        this.handle = handle;
         this.args = args;
     }
 
     @Override
-    public Object call(VM vm, Object obj) throws IllegalAccessException, InvocationTargetException {
+    public Object call(VM vm, Object obj) throws InvocationTargetException {
+        patch(obj, args);
+
+        if (visitor != null) {
+            visitor.onProxyVisit(method, obj, args);
+        }
         try {
-            patch(obj, args);
-
-            if (visitor != null) {
-                visitor.onProxyVisit(method, obj, args);
-            }
-            return method.invoke(obj, args);
-        } catch (InvocationTargetException e) {
-            Throwable cause = e.getTargetException();
-            if (cause instanceof BackendException) {
-                throw (BackendException) cause;
-            }
-            if (cause instanceof ProxyDvmException) {
-                vm.throwException(ProxyDvmObject.createObject(vm, cause));
-                return null;
-            }
-            if (cause instanceof ClassNotFoundException) {
-                vm.throwException(ProxyDvmObject.createObject(vm, cause));
-                return null;
-            }
+            return handle.invokeExact(obj, args);
+        } catch (BackendException e) {
             throw e;
+        } catch (ProxyDvmException | ClassNotFoundException e) {
+            vm.throwException(ProxyDvmObject.createObject(vm, e));
+            return null;
+        } catch (Throwable e) {
+            throw new InvocationTargetException(e);
         }
     }
 
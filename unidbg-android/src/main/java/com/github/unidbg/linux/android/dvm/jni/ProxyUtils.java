@@ -5,7 +5,6 @@ import com.github.unidbg.linux.android.dvm.DvmField;
 import com.github.unidbg.linux.android.dvm.DvmMethod;
 import com.github.unidbg.linux.android.dvm.DvmObject;
 import com.github.unidbg.linux.android.dvm.Shorty;
-import com.github.unidbg.linux.android.dvm.VaList;
 import com.github.unidbg.linux.android.dvm.VarArg;
 
 import java.lang.reflect.Array;
@@ -74,7 +73,7 @@ class ProxyUtils {
         }
     }
 
-    private static Object unpack(DvmObject<?> dvmObject) {
+    static Object unpack(DvmObject<?> dvmObject) {
         if (dvmObject == null) {
             return null;
         }
@@ -198,67 +197,38 @@ class ProxyUtils {
         throw new NoSuchMethodException(clazz.getName() + ".<init>" + Arrays.toString(types));
     }
 
-    public static ProxyCall findAllocConstructor(Class<?> clazz, ProxyDvmObjectVisitor visitor) throws NoSuchMethodException {
+    public static ProxyCall findAllocConstructor(Class<?> clazz, ProxyDvmObjectVisitor visitor) throws NoSuchMethodException, IllegalAccessException {
         Constructor<?> constructor = matchConstructorTypes(clazz, new Class<?>[0]);
-        return new ProxyConstructor(visitor, constructor, new Object[0]);
+        return new ProxyConstructor(visitor, constructor, ProxyCallSite.createHandle(constructor), new Object[0]);
     }
 
-    static ProxyCall findConstructor(Class<?> clazz, DvmMethod dvmMethod, VarArg varArg, ProxyDvmObjectVisitor visitor) throws NoSuchMethodException {
+    static Constructor<?> resolveConstructor(Class<?> clazz, DvmMethod dvmMethod, VarArg varArg) throws NoSuchMethodException {
         if (!"<init>".equals(dvmMethod.getMethodName())) {
             throw new IllegalStateException(dvmMethod.getMethodName());
         }
-        List<Class<?>> classes = new ArrayList<>(10);
-        List<Object> args = new ArrayList<>(10);
-        parseMethodArgs(dvmMethod, classes, args, varArg, clazz.getClassLoader());
         if (dvmMethod.member != null) {
-            return new ProxyConstructor(visitor, (Constructor<?>) dvmMethod.member, args.toArray());
-        }
-        Class<?>[] types = classes.toArray(new Class<?>[0]);
-        Constructor<?> constructor = matchConstructorTypes(clazz, types);
-        dvmMethod.setMember(constructor);
-        return new ProxyConstructor(visitor, constructor, args.toArray());
-    }
-
-    static ProxyCall findConstructor(Class<?> clazz, DvmMethod dvmMethod, VaList vaList, ProxyDvmObjectVisitor visitor) throws NoSuchMethodException {
-        if (!"<init>".equals(dvmMethod.getMethodName())) {
-            throw new IllegalStateException(dvmMethod.getMethodName());
+            return (Constructor<?>) dvmMethod.member;
         }
         List<Class<?>> classes = new ArrayList<>(10);
         List<Object> args = new ArrayList<>(10);
-        parseMethodArgs(dvmMethod, classes, args, vaList, clazz.getClassLoader());
-        if (dvmMethod.member != null) {
-            return new ProxyConstructor(visitor, (Constructor<?>) dvmMethod.member, args.toArray());
-        }
+        parseMethodArgs(dvmMethod, classes, args, varArg, clazz.getClassLoader());
         Class<?>[] types = classes.toArray(new Class<?>[0]);
         Constructor<?> constructor = matchConstructorTypes(clazz, types);
         dvmMethod.setMember(constructor);
-        return new ProxyConstructor(visitor, constructor, args.toArray());
+        return constructor;
     }
 
-    static ProxyCall findMethod(Class<?> clazz, DvmMethod dvmMethod, VarArg varArg, boolean isStatic, ProxyDvmObjectVisitor visitor) throws NoSuchMethodException {
-        List<Class<?>> classes = new ArrayList<>(10);
-        List<Object> args = new ArrayList<>(10);
-        parseMethodArgs(dvmMethod, classes, args, varArg, clazz.getClassLoader());
+    static Method resolveMethod(Class<?> clazz, DvmMethod dvmMethod, VarArg varArg, boolean isStatic) throws NoSuchMethodException {
         if (dvmMethod.member != null) {
-            return new ProxyMethod(visitor, (Method) dvmMethod.member, args.toArray());
+            return (Method) dvmMethod.member;
         }
-        Class<?>[] types = classes.toArray(new Class[0]);
-        Method method = matchMethodTypes(clazz, dvmMethod.getMethodName(), types, isStatic);
-        dvmMethod.setMember(method);
-        return new ProxyMethod(visitor, method, args.toArray());
-    }
-
-    static ProxyCall findMethod(Class<?> clazz, DvmMethod dvmMethod, VaList vaList, boolean isStatic, ProxyDvmObjectVisitor visitor) throws NoSuchMethodException {
         List<Class<?>> classes = new ArrayList<>(10);
         List<Object> args = new ArrayList<>(10);
-        parseMethodArgs(dvmMethod, classes, args, vaList, clazz.getClassLoader());
-        if (dvmMethod.member != null) {
-            return new ProxyMethod(visitor, (Method) dvmMethod.member, args.toArray());
-        }
+        parseMethodArgs(dvmMethod, classes, args, varArg, clazz.getClassLoader());
         Class<?>[] types = classes.toArray(new Class[0]);
         Method method = matchMethodTypes(clazz, dvmMethod.getMethodName(), types, isStatic);
         dvmMethod.setMember(method);
-        return new ProxyMethod(visitor, method, args.toArray());
+        return method;
     }
 
     static ProxyField findField(Class<?> clazz, DvmField dvmField, ProxyDvmObjectVisitor visitor) throws NoSuchFieldException {
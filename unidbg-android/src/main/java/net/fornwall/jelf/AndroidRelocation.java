@@ -19,6 +19,6 @@ public class AndroidRelocation implements Iterable<MemoizedObject<ElfRelocation>
 
     @Override
     public Iterator<MemoizedObject<ElfRelocation>> iterator() {
-        return new AndroidRelocationIterator(parser.elfFile.objectSize, symtab, androidRelData, rela);
+        return new AndroidRelocationIterator(parser.elfFile.objectSize, symtab, androidRelData.duplicate(), rela);
     }
 }
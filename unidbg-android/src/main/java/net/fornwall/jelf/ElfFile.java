@@ -261,12 +261,11 @@ public final class ElfFile {
 
 	private ElfFile(ByteBuffer buffer) throws ElfException {
 		byte[] ident = new byte[16];
-		final ElfParser parser = new ElfParser(this, buffer);
-
-		int bytesRead = parser.read(ident);
-		if (bytesRead != ident.length) {
-			throw new ElfException("Error reading elf header (read " + bytesRead + "bytes - expected to read " + ident.length + "bytes)");
+		ByteBuffer header = buffer.duplicate();
+		if (header.remaining() < ident.length) {
+			throw new ElfException("Error reading elf header (read " + header.remaining() + "bytes - expected to read " + ident.length + "bytes)");
 		}
+		header.get(ident);
 
 		if (!(0x7f == ident[0] && 'E' == ident[1] && 'L' == ident[2] && 'F' == ident[3])) throw new ElfException("Bad magic number for file");
 
@@ -280,6 +279,9 @@ public final class ElfFile {
 		// ident[8]; // EI_ABIVERSION, ABI version. Linux kernel (after at least 2.6) has no definition of it.
 		// ident[9-15] // EI_PAD, currently unused.
 
+		final ElfParser parser = new ElfParser(this, buffer);
+		parser.seek(ident.length);
+
 		file_type = parser.readShort();
 		arch = parser.readShort();
 		version = parser.readInt();
@@ -1,6 +1,7 @@
 package net.fornwall.jelf;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 class ElfGnuHashTable implements HashTable {
 
@@ -31,16 +32,13 @@ class ElfGnuHashTable implements HashTable {
         }
 
         buckets = new int[nbucket];
-        for (int i = 0; i < nbucket; i++) {
-            buckets[i] = parser.readInt();
-        }
+        parser.readInts(buckets);
 
         final long chain_base = offset + 16 + (long) gnu_maskwords_ * (parser.elfFile.objectSize == ElfFile.CLASS_32 ? 4 : 8) + nbucket * 4L - symndx * 4L;
         chains = new HashChain() {
             @Override
             public int chain(int index) {
-                parser.seek(chain_base + index * 4L);
-                return parser.readInt();
+                return parser.getInt(chain_base + index * 4L);
             }
         };
 
@@ -86,7 +84,9 @@ class ElfGnuHashTable implements HashTable {
     }
 
     @Override
-    public ElfSymbol findSymbolByAddress(ElfSymbolStructure symbolStructure, long soaddr) throws IOException {
+    public int[] getSymbolIndexes() {
+        int[] indexes = new int[64];
+        int count = 0;
         for (int i = 0; i < nbucket; i++) {
             int n = buckets[i];
 
@@ -95,14 +95,13 @@ class ElfGnuHashTable implements HashTable {
             }
 
             do {
-                ElfSymbol symbol = symbolStructure.getELFSymbol(n);
-                if (symbol.matches(soaddr)) {
-                    return symbol;
+                if (count == indexes.length) {
+                    indexes = Arrays.copyOf(indexes, count * 2);
                 }
+                indexes[count++] = n;
             } while ((chains.chain(n++) & 1) == 0);
         }
-
-        return null;
+        return Arrays.copyOf(indexes, count);
     }
 
     private static long elf_hash(String name) {
@@ -22,14 +22,10 @@ class ElfHashTable implements HashTable {
 		buckets = new int[num_buckets];
 		chains = new int[num_chains];
 		// Read the bucket data.
-		for (int i = 0; i < num_buckets; i++) {
-			buckets[i] = parser.readInt();
-		}
+		parser.readInts(buckets);
 
 		// Read the chain data.
-		for (int i = 0; i < num_chains; i++) {
-			chains[i] = parser.readInt();
-		}
+		parser.readInts(chains);
 
 		// Make sure that the amount of bytes we were supposed to read
 		// was what we actually read.
@@ -75,17 +71,12 @@ class ElfHashTable implements HashTable {
 	}
 
 	@Override
-	public ElfSymbol findSymbolByAddress(ElfSymbolStructure symbolStructure, long soaddr) throws IOException {
-		// Search the library's symbol table for any defined symbol which
-		// contains this address.
-		for (int i = 0; i < chains.length; i++) {
-			ElfSymbol symbol = symbolStructure.getELFSymbol(i);
-			if (symbol.matches(soaddr)) {
-				return symbol;
-			}
+	public int[] getSymbolIndexes() {
+		int[] indexes = new int[chains.length];
+		for (int i = 0; i < indexes.length; i++) {
+			indexes[i] = i;
 		}
-
-		return null;
+		return indexes;
 	}
 
 	@Override
@@ -2,101 +2,74 @@ package net.fornwall.jelf;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 /** Package internal class used for parsing ELF files. */
 class ElfParser implements ElfDataIn {
 
 	final ElfFile elfFile;
-	private final ByteBuffer fsFile;
 
-	ElfParser(ElfFile elfFile, ByteBuffer fsFile) {
-		this.elfFile = elfFile;
-		this.fsFile = fsFile;
-	}
-
-	void seek(long offset) {
-		fsFile.position((int) offset);
-	}
+	/** Whole file in the byte order of {@link ElfFile#encoding}, only used for absolute reads. */
+	private final ByteBuffer buffer;
 
 	/**
-	 * Signed byte utility functions used for converting from big-endian (MSB) to little-endian (LSB).
+	 * Each thread reads with its own position, so a parsed ElfFile can be shared by emulators in different threads.
 	 */
-	short byteSwap(short arg) {
-		return (short) ((arg << 8) | ((arg >>> 8) & 0xFF));
-	}
+	private final ThreadLocal<ByteBuffer> fsFile;
 
-	int byteSwap(int arg) {
-		return ((byteSwap((short) arg)) << 16) | (((byteSwap((short) (arg >>> 16)))) & 0xFFFF);
+	ElfParser(ElfFile elfFile, ByteBuffer buffer) {
+		this.elfFile = elfFile;
+		final ByteOrder order = elfFile.encoding == ElfFile.DATA_LSB ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+		this.buffer = buffer.duplicate().order(order);
+		this.fsFile = new ThreadLocal<ByteBuffer>() {
+			@Override
+			protected ByteBuffer initialValue() {
+				return ElfParser.this.buffer.duplicate().order(order);
+			}
+		};
 	}
 
-	long byteSwap(long arg) {
-		return ((((long) byteSwap((int) arg)) << 32) | (((long) byteSwap((int) (arg >>> 32)))));
+	void seek(long offset) {
+		fsFile.get().position((int) offset);
 	}
 
 	@Override
 	public short readUnsignedByte() {
-		int val = fsFile.get() & 0xff;
+		int val = fsFile.get().get() & 0xff;
 		return (short) val;
 	}
 
 	@Override
 	public short readShort() throws ElfException {
-		int ch1 = readUnsignedByte();
-		int ch2 = readUnsignedByte();
-		short val = (short) ((ch1 << 8) + (ch2));
-		if (elfFile.encoding == ElfFile.DATA_LSB) val = byteSwap(val);
-		return val;
+		return fsFile.get().getShort();
 	}
 
 	@Override
 	public int readInt() throws ElfException {
-		int ch1 = readUnsignedByte();
-		int ch2 = readUnsignedByte();
-		int ch3 = readUnsignedByte();
-		int ch4 = readUnsignedByte();
-		int val = ((ch1 << 24) + (ch2 << 16) + (ch3 << 8) + (ch4));
-
-		if (elfFile.encoding == ElfFile.DATA_LSB) {
-			val = byteSwap(val);
-		}
-		return val;
+		return fsFile.get().getInt();
 	}
 
 	@Override
 	public long readLong() {
-		int ch1 = readUnsignedByte();
-		int ch2 = readUnsignedByte();
-		int ch3 = readUnsignedByte();
-		int ch4 = readUnsignedByte();
-		int val1 = ((ch1 << 24) + (ch2 << 16) + (ch3 << 8) + (ch4));
-		int ch5 = readUnsignedByte();
-		int ch6 = readUnsignedByte();
-		int ch7 = readUnsignedByte();
-		int ch8 = readUnsignedByte();
-		int val2 = ((ch5 << 24) + (ch6 << 16) + (ch7 << 8) + (ch8));
-
-		long val = ((long) (val1) << 32) + (val2 & 0xFFFFFFFFL);
-		if (elfFile.encoding == ElfFile.DATA_LSB) {
-			val = byteSwap(val);
-		}
-		return val;
+		return fsFile.get().getLong();
 	}
 
 	/** Read four-byte int or eight-byte long depending on if {@link ElfFile#objectSize}. */
 	long readIntOrLong() {
-		return elfFile.objectSize == ElfFile.CLASS_32 ? readInt() : readLong();
+		ByteBuffer fsFile = this.fsFile.get();
+		return elfFile.objectSize == ElfFile.CLASS_32 ? fsFile.getInt() : fsFile.getLong();
 	}
 
-	/** Returns a big-endian unsigned representation of the int. */
-	@SuppressWarnings("unused")
-	long unsignedByte(int arg) {
-		long val;
-		if (arg >= 0) {
-			val = arg;
-		} else {
-			val = (unsignedByte((short) (arg >>> 16)) << 16) | ((short) arg);
-		}
-		return val;
+	/** Bulk read of <code>data.length</code> ints from the current position. */
+	void readInts(int[] data) {
+		ByteBuffer fsFile = this.fsFile.get();
+		fsFile.asIntBuffer().get(data);
+		fsFile.position(fsFile.position() + data.length * 4);
+	}
+
+	/** Read an int at the absolute file offset, does not change the position. */
+	int getInt(long offset) {
+		return buffer.getInt((int) offset);
 	}
 
 	/**
@@ -118,15 +91,17 @@ class ElfParser implements ElfDataIn {
 	}
 
 	int read(byte[] data) {
-		fsFile.get(data);
+		fsFile.get().get(data);
 		return data.length;
 	}
 
+	/** Zero-copy view of the next <code>length</code> bytes, in the byte order of the file. */
 	ByteBuffer readBuffer(int length) {
+		ByteBuffer fsFile = this.fsFile.get();
 		int limit = fsFile.limit();
 		try {
 			fsFile.limit(fsFile.position() + length);
-			return fsFile.slice();
+			return fsFile.slice().order(fsFile.order());
 		} finally {
 			fsFile.limit(limit);
 		}
@@ -255,15 +255,21 @@ public final class ElfSection implements SymbolLocator {
 		return null;
 	}
 
-	@Override
-	public ElfSymbol getELFSymbolByAddr(long addr) throws IOException {
-		for (int i = 0, m = getNumberOfSymbols(); i < m; i++) {
-			ElfSymbol symbol = getELFSymbol(i);
-			if (addr >= symbol.value && addr < symbol.value + symbol.size) {
-				return symbol;
+	private final MemoizedObject<SymbolAddressIndex> addressIndex = new MemoizedObject<SymbolAddressIndex>() {
+		@Override
+		protected SymbolAddressIndex computeValue() throws ElfException, IOException {
+			int[] indexes = new int[getNumberOfSymbols()];
+			for (int i = 0; i < indexes.length; i++) {
+				indexes[i] = i;
 			}
+			return SymbolAddressIndex.create(ElfSection.this, indexes);
 		}
-		return null;
+	};
+
+	@Override
+	public ElfSymbol getELFSymbolByAddr(long addr) throws IOException {
+		int index = addressIndex.getValue().find(addr);
+		return index == -1 ? null : getELFSymbol(index);
 	}
 
 	/** Returns the number of relocations in this section or 0 if none. */
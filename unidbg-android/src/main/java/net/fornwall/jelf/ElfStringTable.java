@@ -15,13 +15,10 @@ final class ElfStringTable {
 		buffer = parser.readBuffer(length);
 	}
 
-	private final ByteArrayOutputStream baos = new ByteArrayOutputStream(16);
-
 	String get(int index) {
-		buffer.position(index);
-		baos.reset();
+		ByteArrayOutputStream baos = new ByteArrayOutputStream(16);
 		byte b;
-		while((b = buffer.get()) != 0) {
+		while((b = buffer.get(index++)) != 0) {
 			baos.write(b);
 		}
 		return baos.toString();
@@ -10,12 +10,20 @@ public class ElfSymbolStructure implements SymbolLocator {
     private final MemoizedObject<ElfStringTable> stringTable;
     private final MemoizedObject<HashTable> hashTable;
 
-    ElfSymbolStructure(final ElfParser parser, long offset, int entrySize, MemoizedObject<ElfStringTable> stringTable, MemoizedObject<HashTable> hashTable) {
+    private final MemoizedObject<SymbolAddressIndex> addressIndex;
+
+    ElfSymbolStructure(final ElfParser parser, long offset, int entrySize, MemoizedObject<ElfStringTable> stringTable, final MemoizedObject<HashTable> hashTable) {
         this.parser = parser;
         this.offset = offset;
         this.entrySize = entrySize;
         this.stringTable = stringTable;
         this.hashTable = hashTable;
+        this.addressIndex = new MemoizedObject<SymbolAddressIndex>() {
+            @Override
+            protected SymbolAddressIndex computeValue() throws ElfException, IOException {
+                return SymbolAddressIndex.create(ElfSymbolStructure.this, hashTable.getValue().getSymbolIndexes());
+            }
+        };
     }
 
     /** Returns the symbol at the specified index. The ELF symbol at index 0 is the undefined symbol. */
@@ -29,7 +37,8 @@ public class ElfSymbolStructure implements SymbolLocator {
         if (hashTable == null) {
             throw new UnsupportedOperationException("hashTable is null");
         }
-        return this.hashTable.getValue().findSymbolByAddress(this, addr);
+        int index = addressIndex.getValue().find(addr);
+        return index == -1 ? null : getELFSymbol(index);
     }
 
     @Override
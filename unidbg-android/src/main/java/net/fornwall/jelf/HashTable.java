@@ -10,7 +10,10 @@ public interface HashTable {
      */
     ElfSymbol getSymbol(ElfSymbolStructure symbolStructure, String symbolName) throws IOException;
 
-    ElfSymbol findSymbolByAddress(ElfSymbolStructure symbolStructure, long soaddr) throws IOException;
+    /**
+     * @return indexes of the symbols reachable from this hash table
+     */
+    int[] getSymbolIndexes();
 
     int getNumBuckets();
 
@@ -6,7 +6,7 @@ import java.io.IOException;
  * A memoized object. Override {@link #computeValue} in subclasses; call {@link #getValue} in using code.
  */
 public abstract class MemoizedObject<T> {
-	private boolean computed;
+	private volatile boolean computed;
 	private T value;
 
 	/**
@@ -15,11 +15,15 @@ public abstract class MemoizedObject<T> {
 	 */
 	protected abstract T computeValue() throws ElfException, IOException;
 
-	/** Public accessor for the memoized value. */
+	/** Public accessor for the memoized value, safe to call from multiple threads. */
 	public final T getValue() throws ElfException, IOException {
 		if (!computed) {
-			value = computeValue();
-			computed = true;
+			synchronized (this) {
+				if (!computed) {
+					value = computeValue();
+					computed = true;
+				}
+			}
 		}
 		return value;
 	}
@@ -6,6 +6,11 @@ import java.nio.ByteBuffer;
 
 public class PtLoadData {
 
+    /**
+     * one backend write per chunk
+     */
+    private static final int WRITE_CHUNK_SIZE = 0x100000;
+
     private final ByteBuffer buffer;
 
     PtLoadData(ByteBuffer buffer) {
@@ -13,8 +18,9 @@ public class PtLoadData {
     }
 
     public void writeTo(final Pointer ptr) {
+        ByteBuffer buffer = this.buffer.duplicate();
         Pointer pointer = ptr;
-        byte[] buf = new byte[Math.min(0x1000, buffer.remaining())];
+        byte[] buf = new byte[Math.min(WRITE_CHUNK_SIZE, buffer.remaining())];
         while (buffer.hasRemaining()) {
             int write = Math.min(buf.length, buffer.remaining());
             buffer.get(buf, 0, write);
@@ -0,0 +1,95 @@
+package net.fornwall.jelf;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Defined symbols sorted by address, lookup by binary search.
+ * Built once per symbol table and shared by every module loaded from the same file.
+ */
+final class SymbolAddressIndex {
+
+    private final long[] start;
+    private final long[] size;
+    private final int[] index;
+
+    /**
+     * max end address of entries [0, i], stops the backward scan for symbols enclosing the address.
+     */
+    private final long[] maxEnd;
+
+    private SymbolAddressIndex(long[] start, long[] size, int[] index) {
+        this.start = start;
+        this.size = size;
+        this.index = index;
+
+        this.maxEnd = new long[start.length];
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < start.length; i++) {
+            max = Math.max(max, start[i] + size[i]);
+            maxEnd[i] = max;
+        }
+    }
+
+    static SymbolAddressIndex create(SymbolLocator locator, int[] symbolIndexes) throws IOException {
+        long[][] entries = new long[symbolIndexes.length][];
+        int count = 0;
+        for (int symbolIndex : symbolIndexes) {
+            ElfSymbol symbol = locator.getELFSymbol(symbolIndex);
+            if (symbol.isUndef() || symbol.size <= 0) {
+                continue;
+            }
+            entries[count++] = new long[]{symbol.value & ~1L, symbol.size, symbolIndex};
+        }
+        entries = Arrays.copyOf(entries, count);
+        Arrays.sort(entries, new Comparator<long[]>() {
+            @Override
+            public int compare(long[] o1, long[] o2) {
+                int cmp = Long.compare(o1[0], o2[0]);
+                return cmp != 0 ? cmp : Long.compare(o1[2], o2[2]);
+            }
+        });
+
+        long[] start = new long[count];
+        long[] size = new long[count];
+        int[] index = new int[count];
+        for (int i = 0; i < count; i++) {
+            start[i] = entries[i][0];
+            size[i] = entries[i][1];
+            index[i] = (int) entries[i][2];
+        }
+        return new SymbolAddressIndex(start, size, index);
+    }
+
+    /**
+     * @return index of the symbol with the greatest start address containing <code>soaddr</code>, or -1.
+     */
+    int find(long soaddr) {
+        int low = 0;
+        int high = start.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (start[mid] <= soaddr) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        for (int i = high; i >= 0 && maxEnd[i] > soaddr; i--) {
+            if (soaddr < start[i] + size[i]) {
+                while (i > 0 && start[i - 1] == start[i] && soaddr < start[i - 1] + size[i - 1]) {
+                    i--; // prefer the first symbol in table order
+                }
+                return index[i];
+            }
+        }
+        return -1;
+    }
+
+    int size() {
+        return start.length;
+    }
+
+}
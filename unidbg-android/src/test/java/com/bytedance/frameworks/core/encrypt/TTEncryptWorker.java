@@ -15,12 +15,12 @@ import java.util.concurrent.TimeUnit;
 public class TTEncryptWorker implements Worker {
 
     public static void main(String[] args) throws InterruptedException {
-        final WorkerPool pool = WorkerPoolFactory.create(new WorkerFactory() {
+        final WorkerPool pool = WorkerPoolFactory.builder(new WorkerFactory() {
             @Override
             public Worker createWorker() {
                 return new TTEncryptWorker();
             }
-        }, Runtime.getRuntime().availableProcessors());
+        }).setWorkers(1, Runtime.getRuntime().availableProcessors()).setMaxUses(100).build();
 
         int testThreads = 500;
         ExecutorService executorService = Executors.newFixedThreadPool(testThreads);
@@ -32,12 +32,16 @@ public class TTEncryptWorker implements Worker {
                     long start = System.currentTimeMillis();
                     TTEncryptWorker worker = pool.borrow(1, TimeUnit.MINUTES);
                     if (worker != null) {
+                        Throwable error = null;
                         try {
                             long currentTimeMillis = System.currentTimeMillis();
                             byte[] data = worker.doWork();
                             Inspector.inspect(data, name + ": " + (System.currentTimeMillis() - start) + "ms" + ", " + (System.currentTimeMillis() - currentTimeMillis) + "ms");
+                        } catch (RuntimeException e) {
+                            error = e;
+                            throw e;
                         } finally {
-                            pool.release(worker);
+                            pool.release(worker, error);
                         }
                     } else {
                         System.err.println("Borrow failed");
@@ -47,6 +51,7 @@ public class TTEncryptWorker implements Worker {
         }
         executorService.shutdown();
         executorService.awaitTermination(10, TimeUnit.MINUTES);
+        System.err.println(pool);
         IOUtils.close(pool);
     }
 
@@ -0,0 +1,130 @@
+package com.github.unidbg;
+
+import com.github.unidbg.file.FileResult;
+import com.github.unidbg.file.IOResolver;
+import com.github.unidbg.file.linux.AndroidFileIO;
+import com.github.unidbg.file.linux.IOConstants;
+import com.github.unidbg.linux.android.AndroidEmulatorBuilder;
+import com.github.unidbg.linux.android.AndroidResolver;
+import com.github.unidbg.linux.android.dvm.DalvikModule;
+import com.github.unidbg.linux.android.dvm.DvmClass;
+import com.github.unidbg.linux.android.dvm.VM;
+import com.github.unidbg.linux.android.dvm.array.ByteArray;
+import com.github.unidbg.linux.file.SimpleFileIO;
+import com.github.unidbg.unix.UnixSyscallHandler;
+import junit.framework.TestCase;
+import org.apache.commons.io.FileUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class EmulatorImageTest extends TestCase {
+
+    private static final File TT_ENCRYPT = new File("src/test/resources/example_binaries/libttEncrypt.so");
+    private static final String CLASS_NAME = "com/bytedance/frameworks/core/encrypt/TTEncryptUtils";
+    private static final String DATA_PATH = "/data/local/tmp/image.txt";
+
+    private File dataFile;
+    private File imageFile;
+
+    @Override
+    protected void setUp() throws Exception {
+        dataFile = File.createTempFile("image", ".txt");
+        FileUtils.writeStringToFile(dataFile, "unidbg image", StandardCharsets.UTF_8);
+        imageFile = File.createTempFile("emulator", ".img");
+    }
+
+    @Override
+    protected void tearDown() {
+        FileUtils.deleteQuietly(dataFile);
+        FileUtils.deleteQuietly(imageFile);
+    }
+
+    private AndroidEmulator createEmulator() {
+        AndroidEmulator emulator = AndroidEmulatorBuilder.for32Bit().setProcessName("com.qidian.dldl.official").build();
+        emulator.getMemory().setLibraryResolver(new AndroidResolver(23));
+        emulator.getSyscallHandler().addIOResolver(new IOResolver<AndroidFileIO>() {
+            @Override
+            public FileResult<AndroidFileIO> resolve(Emulator<AndroidFileIO> emulator, String pathname, int oflags) {
+                if (DATA_PATH.equals(pathname)) {
+                    return FileResult.<AndroidFileIO>success(new SimpleFileIO(oflags, dataFile, pathname));
+                }
+                return null;
+            }
+        });
+        return emulator;
+    }
+
+    private static byte[] encrypt(AndroidEmulator emulator) {
+        VM vm = emulator.getDalvikVM();
+        DvmClass cls = vm.resolveClass(CLASS_NAME);
+        byte[] data = new byte[16];
+        ByteArray array = cls.callStaticJniMethodObject(emulator, "ttEncrypt([BI)[B", new ByteArray(vm, data), data.length);
+        return array.getValue();
+    }
+
+    public void testRestoreWithoutLoadLibrary() throws Exception {
+        byte[] expected;
+        int fd;
+        try (AndroidEmulator emulator = createEmulator()) {
+            VM vm = emulator.createDalvikVM();
+            DalvikModule dm = vm.loadLibrary(TT_ENCRYPT, false);
+            dm.callJNI_OnLoad(emulator);
+            fd = emulator.getSyscallHandler().open(emulator, DATA_PATH, IOConstants.O_RDONLY);
+            assertTrue(fd > 2);
+            ((UnixSyscallHandler<AndroidFileIO>) emulator.getSyscallHandler()).fdMap.get(fd).lseek(7, 0);
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(imageFile)))) {
+                emulator.serialize(out);
+            }
+            expected = encrypt(emulator);
+        }
+
+        try (AndroidEmulator emulator = createEmulator()) {
+            emulator.createDalvikVM();
+            emulator.restore(imageFile);
+
+            assertNotNull(emulator.getMemory().findModule("libttEncrypt.so"));
+            assertTrue(Arrays.equals(expected, encrypt(emulator)));
+
+            AndroidFileIO io = ((UnixSyscallHandler<AndroidFileIO>) emulator.getSyscallHandler()).fdMap.get(fd);
+            assertNotNull(io);
+            assertEquals(7, io.lseek(0, 1));
+        }
+    }
+
+    public void testFork() throws Exception {
+        try (AndroidEmulator emulator = createEmulator()) {
+            VM vm = emulator.createDalvikVM();
+            DalvikModule dm = vm.loadLibrary(TT_ENCRYPT, false);
+            dm.callJNI_OnLoad(emulator);
+            Module module = dm.getModule();
+
+            try (EmulatorSnapshot snapshot = emulator.snapshot()) {
+                AndroidEmulator first = (AndroidEmulator) emulator.fork(snapshot);
+                AndroidEmulator second = (AndroidEmulator) emulator.fork(snapshot);
+                try {
+                    assertNotSame(emulator.getBackend(), first.getBackend());
+                    assertNotSame(module, first.getMemory().findModule(module.name));
+
+                    byte[] expected = encrypt(emulator);
+                    assertTrue(Arrays.equals(expected, encrypt(first)));
+                    assertTrue(Arrays.equals(expected, encrypt(second)));
+
+                    byte[] header = emulator.getBackend().mem_read(module.base, 4);
+                    first.getBackend().mem_write(module.base, new byte[4]);
+                    assertTrue(Arrays.equals(header, emulator.getBackend().mem_read(module.base, 4)));
+                    assertTrue(Arrays.equals(header, second.getBackend().mem_read(module.base, 4)));
+                } finally {
+                    first.close();
+                    second.close();
+                }
+            }
+        }
+    }
+
+}
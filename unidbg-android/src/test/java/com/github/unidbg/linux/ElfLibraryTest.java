@@ -0,0 +1,66 @@
+package com.github.unidbg.linux;
+
+import com.github.unidbg.AndroidEmulator;
+import com.github.unidbg.Module;
+import com.github.unidbg.linux.android.AndroidEmulatorBuilder;
+import com.github.unidbg.linux.android.AndroidResolver;
+import com.github.unidbg.linux.android.ElfLibraryFile;
+import com.github.unidbg.linux.android.ElfLibraryRawFile;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.nio.file.Files;
+
+public class ElfLibraryTest extends TestCase {
+
+    private static final File NATIVE_LIB = new File("src/test/resources/example_binaries/armeabi-v7a/libnative-lib.so");
+    private static final File TT_ENCRYPT = new File("src/test/resources/example_binaries/libttEncrypt.so");
+
+    @Override
+    protected void setUp() {
+        ElfLibrary.clear();
+    }
+
+    @Override
+    protected void tearDown() {
+        ElfLibrary.setCacheSize(64);
+        ElfLibrary.clear();
+    }
+
+    private static Module load(AndroidEmulator emulator) {
+        emulator.getMemory().setLibraryResolver(new AndroidResolver(23));
+        return emulator.getMemory().load(new ElfLibraryFile(NATIVE_LIB));
+    }
+
+    public void testSharedAcrossEmulators() throws Exception {
+        try (AndroidEmulator first = AndroidEmulatorBuilder.for32Bit().build();
+             AndroidEmulator second = AndroidEmulatorBuilder.for32Bit().build()) {
+            LinuxModule m1 = (LinuxModule) load(first);
+            LinuxModule m2 = (LinuxModule) load(second);
+            assertNotSame(m1, m2);
+            assertSame(m1.elfFile, m2.elfFile);
+        }
+    }
+
+    public void testContentComparedOnCollision() throws Exception {
+        ElfLibrary library = ElfLibrary.parse(new ElfLibraryFile(NATIVE_LIB));
+        assertSame(library, ElfLibrary.parse(new ElfLibraryFile(NATIVE_LIB)));
+
+        byte[] data = Files.readAllBytes(NATIVE_LIB.toPath());
+        assertSame(library, ElfLibrary.parse(new ElfLibraryRawFile(NATIVE_LIB.getName(), data.clone())));
+
+        data[9] ^= 1; // e_ident padding: same name and size, different content
+        ElfLibrary modified = ElfLibrary.parse(new ElfLibraryRawFile(NATIVE_LIB.getName(), data));
+        assertNotSame(library, modified);
+    }
+
+    public void testLeastRecentlyUsedEvicted() throws Exception {
+        ElfLibrary.setCacheSize(1);
+        ElfLibrary library = ElfLibrary.parse(new ElfLibraryFile(NATIVE_LIB));
+        assertSame(library, ElfLibrary.parse(new ElfLibraryFile(NATIVE_LIB)));
+
+        ElfLibrary.parse(new ElfLibraryFile(TT_ENCRYPT));
+        assertNotSame(library, ElfLibrary.parse(new ElfLibraryFile(NATIVE_LIB)));
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.github.unidbg.linux.android.dvm;
+
+import com.github.unidbg.AndroidEmulator;
+import com.github.unidbg.linux.android.AndroidEmulatorBuilder;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class AbstractJniTest extends TestCase {
+
+    private static final String ADD = "com/example/Calc->add(II)I";
+    private static final String MUL = "com/example/Calc->mul(II)I";
+
+    private static class TestVarArg extends VarArg {
+        TestVarArg(BaseVM vm, DvmMethod method, Object... values) {
+            super(vm, method);
+            args.addAll(Arrays.asList(values));
+        }
+    }
+
+    private static class SwitchJni extends AbstractJni {
+        final List<String> fallbacks = new ArrayList<>();
+        @Override
+        public int callStaticIntMethod(BaseVM vm, DvmClass dvmClass, String signature, VarArg varArg) {
+            fallbacks.add(signature);
+            switch (signature) {
+                case ADD:
+                    return -1;
+                case MUL:
+                    return varArg.getIntArg(0) * varArg.getIntArg(1);
+            }
+            return super.callStaticIntMethod(vm, dvmClass, signature, varArg);
+        }
+        @Override
+        public DvmObject<?> toReflectedMethod(BaseVM vm, DvmClass dvmClass, String signature) {
+            fallbacks.add(signature);
+            return new DvmObject<>(dvmClass, signature);
+        }
+    }
+
+    private static final JniMethodHandler ADD_HANDLER = new JniMethodHandler() {
+        @Override
+        public Object invoke(BaseVM vm, DvmObject<?> dvmObject, VarArg varArg) {
+            return varArg.getIntArg(0) + varArg.getIntArg(1);
+        }
+    };
+
+    private AndroidEmulator emulator;
+    private BaseVM vm;
+    private SwitchJni jni;
+    private DvmClass calc;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        emulator = AndroidEmulatorBuilder.for32Bit().build();
+        vm = (BaseVM) emulator.createDalvikVM();
+        jni = new SwitchJni();
+        vm.setJni(jni);
+        calc = vm.resolveClass("com/example/Calc");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        emulator.close();
+
+        super.tearDown();
+    }
+
+    private DvmMethod getStaticMethod(String name) {
+        return calc.getStaticMethod(calc.getStaticMethodID(name, "(II)I"));
+    }
+
+    private int call(DvmMethod method, int a, int b) {
+        return method.callStaticIntMethod(new TestVarArg(vm, method, a, b));
+    }
+
+    public void testRegisteredHandler() {
+        jni.register(ADD, ADD_HANDLER);
+        DvmMethod add = getStaticMethod("add");
+        assertSame(ADD_HANDLER, add.handler);
+        assertEquals(5, call(add, 2, 3));
+        assertTrue(jni.fallbacks.isEmpty());
+    }
+
+    public void testFallbackToSignature() {
+        jni.register(ADD, ADD_HANDLER);
+        DvmMethod mul = getStaticMethod("mul");
+        assertNull(mul.handler);
+        assertEquals(6, call(mul, 2, 3));
+        assertEquals(Arrays.asList(MUL), jni.fallbacks);
+    }
+
+    public void testRegisterAfterBound() {
+        DvmMethod add = getStaticMethod("add");
+        assertEquals(-1, call(add, 2, 3));
+
+        jni.register(ADD, ADD_HANDLER);
+        assertEquals(5, call(add, 2, 3));
+
+        jni.register(ADD, new JniMethodHandler() {
+            @Override
+            public Object invoke(BaseVM vm, DvmObject<?> dvmObject, VarArg varArg) {
+                return varArg.getIntArg(0) - varArg.getIntArg(1);
+            }
+        });
+        assertEquals(-1, call(add, 2, 3));
+        assertEquals(1, call(add, 3, 2));
+
+        jni.register(ADD, null);
+        assertEquals(-1, call(add, 3, 2));
+        assertEquals(Arrays.asList(ADD, ADD), jni.fallbacks);
+    }
+
+    public void testToReflectedMethodIgnoresHandler() {
+        jni.register(ADD, ADD_HANDLER);
+        DvmMethod add = getStaticMethod("add");
+        DvmObject<?> reflected = jni.toReflectedMethod(vm, calc, add);
+        assertEquals(ADD, reflected.getValue());
+        assertEquals(Arrays.asList(ADD), jni.fallbacks);
+    }
+
+}
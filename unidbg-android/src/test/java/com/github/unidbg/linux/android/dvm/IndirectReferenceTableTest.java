@@ -0,0 +1,151 @@
+package com.github.unidbg.linux.android.dvm;
+
+import junit.framework.TestCase;
+
+public class IndirectReferenceTableTest extends TestCase {
+
+    private static DvmObject<?> object(String value) {
+        return new DvmObject<>(null, value);
+    }
+
+    public void testAddRemove() {
+        IndirectReferenceTable table = new IndirectReferenceTable(IndirectReferenceTable.KIND_GLOBAL, 1);
+        DvmObject<?> a = object("a");
+        DvmObject<?> b = object("b");
+        int refA = table.add(a);
+        int refB = table.add(b); // grows
+        assertTrue(refA > 0 && refB > 0 && refA != refB);
+        assertEquals(IndirectReferenceTable.KIND_GLOBAL, IndirectReferenceTable.getKind(refA));
+        assertEquals(2, table.size());
+        assertSame(a, table.get(refA));
+        assertSame(b, table.get(refB));
+
+        assertSame(a, table.remove(refA));
+        assertNull(table.get(refA));
+        assertNull("removed twice", table.remove(refA));
+        assertEquals(1, table.size());
+
+        IndirectReferenceTable local = new IndirectReferenceTable(IndirectReferenceTable.KIND_LOCAL, 4);
+        assertNull("reference of another kind", local.get(refB));
+        assertNull(table.get(0));
+        assertNull(table.get(refB + (100 << 2)));
+    }
+
+    public void testSlotReuse() {
+        IndirectReferenceTable table = new IndirectReferenceTable(IndirectReferenceTable.KIND_LOCAL, 4);
+        DvmObject<?> a = object("a");
+        DvmObject<?> b = object("b");
+        int refA = table.add(a);
+        table.remove(refA);
+        int refB = table.add(b);
+        assertEquals("slot reused", 1, table.capacity());
+        assertTrue("serial changed", refA != refB);
+        assertNull("stale reference", table.get(refA));
+        assertNull(table.remove(refA));
+        assertSame(b, table.get(refB));
+        assertEquals(1, table.size());
+    }
+
+    public void testSegments() {
+        IndirectReferenceTable table = new IndirectReferenceTable(IndirectReferenceTable.KIND_LOCAL, 4);
+        DvmObject<?> outer = object("outer");
+        DvmObject<?> removed = object("removed");
+        int refOuter = table.add(outer);
+        int refRemoved = table.add(removed);
+
+        table.pushSegment();
+        assertEquals(1, table.segmentDepth());
+        assertEquals(2, table.segmentStart());
+        int refInner = table.add(object("inner"));
+        assertSame(removed, table.remove(refRemoved));
+        int refInner2 = table.add(object("inner2"));
+        assertEquals("slot of the outer frame is not reused inside the frame", 4, table.capacity());
+        table.popSegment();
+
+        assertEquals(0, table.segmentDepth());
+        assertEquals(1, table.size());
+        assertSame(outer, table.get(refOuter));
+        assertNull(table.get(refInner));
+        assertNull(table.get(refInner2));
+
+        int ref = table.add(object("reused"));
+        assertEquals("slot of the outer frame is reused after the frame", 2, table.capacity());
+        assertNull(table.get(refRemoved));
+        assertNotNull(table.get(ref));
+
+        try {
+            table.popSegment();
+            fail();
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+    }
+
+    public void testNestedSegments() {
+        IndirectReferenceTable table = new IndirectReferenceTable(IndirectReferenceTable.KIND_LOCAL, 4);
+        int ref0 = table.add(object("frame0"));
+        table.add(object("frame0"));
+        table.pushSegment();
+        int ref2 = table.add(object("frame1"));
+        table.pushSegment();
+        table.add(object("frame2"));
+        assertNotNull(table.remove(ref0));
+        assertNotNull(table.remove(ref2));
+        assertEquals(2, table.size());
+
+        table.popSegment();
+        int reused2 = table.add(object("frame1"));
+        assertEquals(3, table.capacity());
+        assertTrue(reused2 != ref2);
+        table.popSegment();
+        int reused0 = table.add(object("frame0"));
+        assertEquals(2, table.capacity());
+        assertTrue(reused0 != ref0);
+        assertEquals(2, table.size());
+    }
+
+    public void testClearAndCopy() {
+        IndirectReferenceTable table = new IndirectReferenceTable(IndirectReferenceTable.KIND_WEAK_GLOBAL, 4);
+        DvmObject<?> a = object("a");
+        int refA = table.add(a);
+        IndirectReferenceTable copy = table.copy();
+
+        table.clear();
+        assertEquals(0, table.size());
+        assertNull(table.get(refA));
+        int refB = table.add(object("b"));
+        assertTrue(refA != refB);
+
+        table.restore(copy);
+        assertSame(a, table.get(refA));
+        assertNull(table.get(refB));
+        assertEquals(1, table.size());
+    }
+
+    public void testPut() {
+        IndirectReferenceTable table = new IndirectReferenceTable(IndirectReferenceTable.KIND_GLOBAL, 4);
+        for (int i = 0; i < 3; i++) {
+            table.remove(table.add(object("tmp")));
+        }
+        table.add(object("skipped"));
+        DvmObject<?> a = object("a");
+        int refA = table.add(a);
+        assertEquals(refA, table.refAt(1));
+
+        IndirectReferenceTable restored = new IndirectReferenceTable(IndirectReferenceTable.KIND_GLOBAL, 1);
+        restored.put(refA, a);
+        assertSame(a, restored.get(refA));
+        assertEquals(2, restored.capacity());
+        assertEquals(1, restored.size());
+        restored.add(object("b"));
+        assertEquals("skipped slot is free", 2, restored.capacity());
+
+        try {
+            restored.put(refA, a);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+}
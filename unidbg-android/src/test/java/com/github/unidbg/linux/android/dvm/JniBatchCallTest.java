@@ -0,0 +1,74 @@
+package com.github.unidbg.linux.android.dvm;
+
+import com.github.unidbg.AndroidEmulator;
+import com.github.unidbg.linux.android.AndroidEmulatorBuilder;
+import com.github.unidbg.linux.android.AndroidResolver;
+import com.github.unidbg.linux.android.dvm.array.ByteArray;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Batch calls return the same results as calling the native method once per argument tuple.
+ */
+public class JniBatchCallTest extends TestCase {
+
+    private static byte[] bytes(int length, int seed) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (seed + i * 7);
+        }
+        return data;
+    }
+
+    public void testStaticBatch() throws Exception {
+        try (AndroidEmulator emulator = AndroidEmulatorBuilder.for32Bit().build()) {
+            emulator.getMemory().setLibraryResolver(new AndroidResolver(23));
+            VM vm = emulator.createDalvikVM();
+            DalvikModule dm = vm.loadLibrary(new File("src/test/resources/example_binaries/libttEncrypt.so"), false);
+            dm.callJNI_OnLoad(emulator);
+            DvmClass cls = vm.resolveClass("com/bytedance/frameworks/core/encrypt/TTEncryptUtils");
+            String method = "ttEncrypt([BI)[B";
+
+            List<Object[]> argsList = new ArrayList<>();
+            for (byte[] data : new byte[][]{bytes(64, 1), bytes(16, 2), bytes(5, 3), bytes(64, 4)}) { // shorter arrays reuse the batch buffer
+                argsList.add(new Object[]{data, data.length});
+            }
+            List<byte[]> expected = new ArrayList<>();
+            for (Object[] args : argsList) {
+                ByteArray array = cls.callStaticJniMethodObject(emulator, method, new ByteArray(vm, (byte[]) args[0]), args[1]);
+                expected.add(array.getValue());
+            }
+
+            List<ByteArray> results = cls.callStaticJniMethodObjectBatch(emulator, method, argsList);
+            assertEquals(expected.size(), results.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertTrue("result " + i, Arrays.equals(expected.get(i), results.get(i).getValue()));
+            }
+        }
+    }
+
+    public void testInstanceBatch() throws Exception {
+        try (AndroidEmulator emulator = AndroidEmulatorBuilder.for32Bit().build()) {
+            emulator.getMemory().setLibraryResolver(new AndroidResolver(23));
+            VM vm = emulator.createDalvikVM();
+            DalvikModule dm = vm.loadLibrary(new File("src/test/resources/example_binaries/armeabi-v7a/libnative-lib.so"), false);
+            dm.callJNI_OnLoad(emulator);
+            DvmObject<?> obj = vm.resolveClass("com/kanxue/test2/MainActivity").newObject(null);
+            String method = "jnitest(Ljava/lang/String;)Z";
+
+            List<Object[]> argsList = new ArrayList<>();
+            List<Integer> expected = new ArrayList<>();
+            for (String str : new String[]{"abc", "XYZ", "Kan", "xue"}) {
+                argsList.add(new Object[]{str});
+                expected.add(obj.callJniMethodBoolean(emulator, method, str) ? VM.JNI_TRUE : VM.JNI_FALSE);
+            }
+
+            assertEquals(expected, obj.callJniMethodIntBatch(emulator, method, argsList));
+        }
+    }
+
+}
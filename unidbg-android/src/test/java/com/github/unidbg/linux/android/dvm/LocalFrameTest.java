@@ -0,0 +1,59 @@
+package com.github.unidbg.linux.android.dvm;
+
+import com.github.unidbg.AndroidEmulator;
+import com.github.unidbg.linux.android.AndroidEmulatorBuilder;
+import com.github.unidbg.pointer.UnidbgPointer;
+import junit.framework.TestCase;
+
+/**
+ * <code>PushLocalFrame</code> and <code>PopLocalFrame</code> called by guest code through the JNIEnv function table.
+ */
+public class LocalFrameTest extends TestCase {
+
+    private static void checkLocalFrame(AndroidEmulator emulator) {
+        BaseVM vm = (BaseVM) emulator.createDalvikVM();
+        UnidbgPointer env = (UnidbgPointer) vm.getJNIEnv();
+        UnidbgPointer functions = (UnidbgPointer) env.getPointer(0);
+        int pointerSize = emulator.getPointerSize();
+        long pushLocalFrame = functions.getPointer(19 * pointerSize).peer;
+        long popLocalFrame = functions.getPointer(20 * pointerSize).peer;
+        Number jniEnv = emulator.is32Bit() ? (Number) (int) env.peer : (Number) env.peer; // a long takes two registers on arm32
+
+        DvmObject<?> outer = new DvmObject<>(null, "outer");
+        int outerRef = vm.addLocalObject(outer);
+
+        assertEquals(VM.JNI_OK, emulator.eFunc(pushLocalFrame, jniEnv, 4)[0].intValue());
+        DvmObject<?> inner = new DvmObject<>(null, "inner");
+        int innerRef = vm.addLocalObject(inner);
+        DvmObject<?> survivor = new DvmObject<>(null, "survivor");
+        int survivorRef = vm.addLocalObject(survivor);
+        assertSame(inner, vm.getObject(innerRef));
+
+        int resultRef = emulator.eFunc(popLocalFrame, jniEnv, survivorRef)[0].intValue();
+        assertTrue(resultRef != VM.JNI_NULL);
+        assertSame(survivor, vm.getObject(resultRef));
+        assertNull("local of the popped frame", vm.getObject(innerRef));
+        assertTrue("reference of the popped frame", resultRef == survivorRef || vm.getObject(survivorRef) == null);
+        assertSame(outer, vm.getObject(outerRef));
+
+        assertEquals(VM.JNI_OK, emulator.eFunc(pushLocalFrame, jniEnv, 4)[0].intValue());
+        innerRef = vm.addLocalObject(inner);
+        assertEquals(VM.JNI_NULL, emulator.eFunc(popLocalFrame, jniEnv, VM.JNI_NULL)[0].intValue());
+        assertNull(vm.getObject(innerRef));
+        assertSame(survivor, vm.getObject(resultRef));
+        assertSame(outer, vm.getObject(outerRef));
+    }
+
+    public void testDalvikVM() throws Exception {
+        try (AndroidEmulator emulator = AndroidEmulatorBuilder.for32Bit().build()) {
+            checkLocalFrame(emulator);
+        }
+    }
+
+    public void testDalvikVM64() throws Exception {
+        try (AndroidEmulator emulator = AndroidEmulatorBuilder.for64Bit().build()) {
+            checkLocalFrame(emulator);
+        }
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.github.unidbg.linux.android.dvm.jni;
+
+import junit.framework.TestCase;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+
+public class ProxyMethodTest extends TestCase {
+
+    public static class Base {
+        private final int base;
+        public Base(int base) {
+            this.base = base;
+        }
+        public int value(int add) {
+            return base + add;
+        }
+        public static long sum(long a, long b) {
+            return a + b;
+        }
+        public void fail(String message) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+    public static class Sub extends Base {
+        public Sub(int base) {
+            super(base);
+        }
+        @Override
+        public int value(int add) {
+            return -super.value(add);
+        }
+    }
+
+    private static final ProxyDvmObjectVisitor FAILING_VISITOR = new ProxyDvmObjectVisitor() {
+        @Override
+        public void onProxyVisit(Member member, Object obj, Object[] args) {
+            throw new IllegalArgumentException("visitor");
+        }
+    };
+
+    private static ProxyMethod createMethod(ProxyDvmObjectVisitor visitor, String name, Class<?>... types) throws Exception {
+        Method method = Base.class.getMethod(name, types);
+        return new ProxyMethod(visitor, method, ProxyCallSite.createHandle(method), new Object[types.length]);
+    }
+
+    private static Object call(Member member, Object obj, Object... args) throws Exception {
+        MethodHandle handle = ProxyCallSite.createHandle(member);
+        ProxyCall call = member instanceof Method ? new ProxyMethod(null, (Method) member, handle, args) : new ProxyConstructor(null, (Constructor<?>) member, handle, args);
+        return call.call(null, obj);
+    }
+
+    public void testCall() throws Exception {
+        assertEquals(7L, call(Base.class.getMethod("sum", long.class, long.class), null, 3L, 4L));
+
+        Object base = call(Base.class.getConstructor(int.class), null, 10);
+        assertTrue(base instanceof Base);
+        assertEquals(15, call(Base.class.getMethod("value", int.class), base, 5));
+    }
+
+    /**
+     * The call site of a jmethodID is shared by all receivers, the handle dispatches like the jni call.
+     */
+    public void testVirtualDispatch() throws Exception {
+        Method method = Base.class.getMethod("value", int.class);
+        assertEquals(11, call(method, new Base(10), 1));
+        assertEquals(-11, call(method, new Sub(10), 1));
+    }
+
+    public void testTargetExceptionWrapped() throws Exception {
+        try {
+            call(Base.class.getMethod("fail", String.class), new Base(0), "boom");
+            fail();
+        } catch (InvocationTargetException e) {
+            assertTrue(e.getTargetException() instanceof IllegalStateException);
+            assertEquals("boom", e.getTargetException().getMessage());
+        }
+    }
+
+    public void testBridgeExceptionNotWrapped() throws Exception {
+        ProxyMethod method = createMethod(FAILING_VISITOR, "value", int.class);
+        try {
+            method.call(null, new Base(0));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("visitor", e.getMessage());
+        }
+
+        Constructor<Base> constructor = Base.class.getConstructor(int.class);
+        ProxyConstructor proxyConstructor = new ProxyConstructor(FAILING_VISITOR, constructor, ProxyCallSite.createHandle(constructor), new Object[]{1});
+        try {
+            proxyConstructor.call(null, null);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("visitor", e.getMessage());
+        }
+    }
+
+}
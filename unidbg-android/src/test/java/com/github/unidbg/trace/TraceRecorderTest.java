@@ -0,0 +1,133 @@
+package com.github.unidbg.trace;
+
+import com.github.unidbg.AndroidEmulator;
+import com.github.unidbg.TraceHook;
+import com.github.unidbg.linux.android.AndroidEmulatorBuilder;
+import com.github.unidbg.linux.android.AndroidResolver;
+import com.github.unidbg.linux.android.dvm.DalvikModule;
+import com.github.unidbg.linux.android.dvm.DvmClass;
+import com.github.unidbg.linux.android.dvm.VM;
+import com.github.unidbg.linux.android.dvm.array.ByteArray;
+import com.github.unidbg.linux.android.dvm.jni.ProxyClassFactory;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+
+/**
+ * The rendered binary trace must be identical to the text trace of the same run.
+ */
+public class TraceRecorderTest extends TestCase {
+
+    private File file;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        file = File.createTempFile("unidbg_trace", ".bin");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        assertTrue(file.delete());
+
+        super.tearDown();
+    }
+
+    private static AndroidEmulator createEmulator(boolean is64Bit) {
+        AndroidEmulator emulator = (is64Bit ? AndroidEmulatorBuilder.for64Bit() : AndroidEmulatorBuilder.for32Bit()).setProcessName("com.github.unidbg.trace").build();
+        emulator.getMemory().setLibraryResolver(new AndroidResolver(23));
+        return emulator;
+    }
+
+    /**
+     * Trace one call of <code>ttEncrypt</code>.
+     * @param out text trace, <code>null</code> to record the binary trace to <code>file</code>
+     */
+    private static void traceEncrypt(PrintStream out, File file) throws IOException {
+        AndroidEmulator emulator = createEmulator(false);
+        try (TraceRecorder recorder = out == null ? new TraceRecorder(emulator, file) : null) {
+            VM vm = emulator.createDalvikVM();
+            DalvikModule dm = vm.loadLibrary(new File("src/test/resources/example_binaries/libttEncrypt.so"), false);
+            dm.callJNI_OnLoad(emulator);
+            DvmClass cls = vm.resolveClass("com/bytedance/frameworks/core/encrypt/TTEncryptUtils");
+            attach(out, recorder, emulator.traceCode(), emulator.traceRead(), emulator.traceWrite());
+            byte[] data = new byte[16];
+            cls.callStaticJniMethodObject(emulator, "ttEncrypt([BI)[B", new ByteArray(vm, data), data.length);
+        } finally {
+            emulator.close();
+        }
+    }
+
+    /**
+     * Trace one call of <code>Native.getAPIChecksum</code> in libjnidispatch, recording the registers too.
+     * @param out text trace, <code>null</code> to record the binary trace to <code>file</code>
+     */
+    private static void traceChecksum(PrintStream out, File file) throws IOException {
+        AndroidEmulator emulator = createEmulator(true);
+        try (TraceRecorder recorder = out == null ? new TraceRecorder(emulator, file, true) : null) {
+            VM vm = emulator.createDalvikVM();
+            vm.setDvmClassFactory(new ProxyClassFactory());
+            DalvikModule dm = vm.loadLibrary(new File("src/test/resources/example_binaries/arm64-v8a/libjnidispatch.so"), false);
+            dm.callJNI_OnLoad(emulator);
+            DvmClass cNative = vm.resolveClass("com/sun/jna/Native");
+            long base = dm.getModule().base;
+            attach(out, recorder, emulator.traceCode(base, base + dm.getModule().size), emulator.traceRead(), emulator.traceWrite());
+            cNative.callStaticJniMethodObject(emulator, "getAPIChecksum()Ljava/lang/String;");
+        } finally {
+            emulator.close();
+        }
+    }
+
+    private static void attach(PrintStream out, TraceRecorder recorder, TraceHook... hooks) {
+        for (TraceHook hook : hooks) {
+            if (recorder == null) {
+                hook.setRedirect(out);
+            } else {
+                hook.setRecorder(recorder);
+            }
+        }
+    }
+
+    private String render() throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(baos, true);
+        try (TraceReader reader = new TraceReader(file)) {
+            reader.render(out);
+        }
+        out.flush();
+        return baos.toString();
+    }
+
+    public void testRender32() throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(baos, true);
+        traceEncrypt(out, null);
+        out.flush();
+        String text = baos.toString();
+
+        traceEncrypt(null, file);
+        assertTrue(file.length() > 0 && file.length() < text.length());
+        assertEquals(text, render());
+    }
+
+    public void testRender64() throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(baos, true);
+        traceChecksum(out, null);
+        out.flush();
+        String text = baos.toString();
+
+        traceChecksum(null, file);
+        assertTrue(file.length() > 0 && file.length() < text.length());
+        try (TraceReader reader = new TraceReader(file)) {
+            assertTrue(reader.is64Bit());
+            assertTrue(reader.getRegisterIds().length > 0);
+        }
+        assertEquals(text, render());
+    }
+
+}
@@ -0,0 +1,216 @@
+package com.github.unidbg.unix;
+
+import com.github.unidbg.AndroidEmulator;
+import com.github.unidbg.linux.android.AndroidEmulatorBuilder;
+import com.github.unidbg.memory.Memory;
+import com.github.unidbg.pointer.UnidbgPointer;
+import junit.framework.TestCase;
+import keystone.Keystone;
+import keystone.KeystoneArchitecture;
+import keystone.KeystoneEncoded;
+import keystone.KeystoneMode;
+import unicorn.UnicornConst;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Guest threads cloned by raw arm64 syscalls: clone 220, futex 98, nanosleep 101 and exit 93.
+ * The code gets the data page in <code>x0</code> and keeps it in <code>x20</code>.
+ */
+public class ThreadSchedulerTest extends TestCase {
+
+    private static final int LOG_COUNT = 0x8;
+    private static final int LOG = 0x10;
+    private static final int RESULT = 0x40;
+    private static final int TIMESPEC = 0x80;
+    private static final int CTID = 0x100;
+
+    /**
+     * CLONE_VM | CLONE_FS | CLONE_FILES | CLONE_SIGHAND | CLONE_THREAD | CLONE_SYSVSEM | CLONE_CHILD_CLEARTID | CLONE_CHILD_SETTID
+     */
+    private static final String[] SPAWN = new String[]{
+            "spawn:",
+            "movz x0, #0xf00",
+            "movk x0, #0x125, lsl #16",
+            "mov x1, x22",
+            "mov x2, #0",
+            "mov x3, #0",
+            "mov x4, x21",
+            "mov x5, #0",
+            "mov x6, #0",
+            "mov x8, #220",
+            "svc #0",
+            "cbz x0, worker",
+            "ret",
+    };
+
+    private static final String[] EXIT = new String[]{
+            "mov x0, #0",
+            "mov x8, #93",
+            "svc #0",
+    };
+
+    /**
+     * Waits on the <code>clear_child_tid</code> at <code>x21</code> until the thread exited, counting the waits at RESULT + 8.
+     */
+    private static final String[] JOIN = new String[]{
+            "join:",
+            "ldr w2, [x21]",
+            "cbz w2, joined",
+            "ldr x9, [x20, #0x48]",
+            "add x9, x9, #1",
+            "str x9, [x20, #0x48]",
+            "mov x0, x21",
+            "mov x1, #0",
+            "mov x3, #0",
+            "mov x8, #98",
+            "svc #0",
+            "b join",
+            "joined:",
+    };
+
+    private AndroidEmulator emulator;
+    private UnidbgPointer data;
+    private UnidbgPointer code;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        emulator = AndroidEmulatorBuilder.for64Bit().build();
+        emulator.getSyscallHandler().getThreadScheduler().setEnabled(true);
+        Memory memory = emulator.getMemory();
+        data = memory.mmap(0x4000, UnicornConst.UC_PROT_READ | UnicornConst.UC_PROT_WRITE);
+        code = memory.mmap(0x1000, UnicornConst.UC_PROT_READ | UnicornConst.UC_PROT_WRITE | UnicornConst.UC_PROT_EXEC);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        emulator.close();
+
+        super.tearDown();
+    }
+
+    private void run(List<String> asm) {
+        try (Keystone keystone = new Keystone(KeystoneArchitecture.Arm64, KeystoneMode.LittleEndian)) {
+            KeystoneEncoded encoded = keystone.assemble(asm);
+            byte[] machineCode = encoded.getMachineCode();
+            code.write(0, machineCode, 0, machineCode.length);
+        }
+        emulator.eFunc(code.peer, data.peer);
+    }
+
+    private static List<String> program(String[] main, String[] worker) {
+        List<String> asm = new ArrayList<>();
+        asm.add("mov x20, x0");
+        asm.add("stp x29, x30, [sp, #-16]!");
+        asm.addAll(Arrays.asList(main));
+        asm.add("ldp x29, x30, [sp], #16");
+        asm.add("ret");
+        asm.addAll(Arrays.asList(SPAWN));
+        asm.add("worker:");
+        asm.addAll(Arrays.asList(worker));
+        asm.addAll(Arrays.asList(EXIT));
+        return asm;
+    }
+
+    private static String[] spawn(int id, int index) {
+        return new String[]{
+                "mov x19, #" + id,
+                "add x21, x20, #0x" + Integer.toHexString(CTID + index * 4),
+                "add x22, x20, #0x" + Integer.toHexString(0x1000 + index * 0x1000),
+                "bl spawn",
+        };
+    }
+
+    private static String[] concat(String[]... parts) {
+        List<String> list = new ArrayList<>();
+        for (String[] part : parts) {
+            list.addAll(Arrays.asList(part));
+        }
+        return list.toArray(new String[0]);
+    }
+
+    private UnixSyscallHandler<?> getSyscallHandler() {
+        return (UnixSyscallHandler<?>) emulator.getSyscallHandler();
+    }
+
+    public void testFutexWakeOrder() {
+        String[] main = concat(spawn(30, 0), spawn(10, 1), spawn(20, 2), new String[]{
+                "mov x0, x20", "mov x1, #0", "mov x2, #1", "mov x3, #0", "mov x8, #98", "svc #0", // value mismatch
+                "str x0, [x20, #0x40]",
+                "mov x0, x20", "mov x1, #1", "mov x2, #1", "mov x8, #98", "svc #0",
+                "str x0, [x20, #0x48]",
+                "mov x0, x20", "mov x1, #1", "mov x2, #10", "mov x8, #98", "svc #0",
+                "str x0, [x20, #0x50]",
+        });
+        String[] worker = new String[]{
+                "mov x0, x20", "mov x1, #0", "mov x2, #0", "mov x3, #0", "mov x8, #98", "svc #0",
+                "ldr x9, [x20, #8]",
+                "add x10, x20, #16",
+                "str x19, [x10, x9, lsl #3]",
+                "add x9, x9, #1",
+                "str x9, [x20, #8]",
+        };
+        run(program(main, worker));
+
+        assertEquals(-UnixEmulator.EAGAIN, data.getLong(RESULT));
+        assertEquals(1, data.getLong(RESULT + 8));
+        assertEquals(2, data.getLong(RESULT + 16));
+        assertEquals(3, data.getLong(LOG_COUNT));
+        assertEquals(30, data.getLong(LOG));
+        assertEquals(10, data.getLong(LOG + 8));
+        assertEquals(20, data.getLong(LOG + 16));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, data.getInt(CTID + i * 4));
+        }
+        assertTrue(getSyscallHandler().threadMap.isEmpty());
+    }
+
+    public void testTimedWaitExpires() {
+        VirtualTimeSource timeSource = new VirtualTimeSource(0);
+        emulator.getSyscallHandler().setTimeSource(timeSource);
+        data.setLong(TIMESPEC, 2); // tv_sec
+        data.setLong(TIMESPEC + 8, 0);
+
+        String[] main = concat(spawn(1, 0), JOIN);
+        String[] worker = new String[]{
+                "mov x0, x20", "mov x1, #0", "mov x2, #0", "add x3, x20, #0x80", "mov x8, #98", "svc #0",
+                "str x0, [x20, #0x40]",
+        };
+        long start = System.currentTimeMillis();
+        run(program(main, worker));
+
+        assertEquals(-UnixEmulator.ETIMEDOUT, data.getLong(RESULT));
+        assertTrue(timeSource.getElapsedNanos() >= 2000000000L);
+        assertTrue(System.currentTimeMillis() - start < 2000);
+        assertEquals(0, data.getInt(CTID));
+    }
+
+    public void testExitWakesClearChildTid() {
+        VirtualTimeSource timeSource = new VirtualTimeSource(0);
+        emulator.getSyscallHandler().setTimeSource(timeSource);
+        data.setLong(TIMESPEC, 0);
+        data.setLong(TIMESPEC + 8, 10000000); // 10ms
+
+        String[] main = concat(spawn(7, 0), new String[]{
+                "ldr w9, [x21]",
+                "str x9, [x20, #0x50]", // tid set by CLONE_CHILD_SETTID
+        }, JOIN);
+        String[] worker = new String[]{
+                "add x0, x20, #0x80", "mov x1, #0", "mov x8, #101", "svc #0",
+                "str x19, [x20, #0x40]",
+        };
+        run(program(main, worker));
+
+        int tid = (int) data.getLong(RESULT + 16);
+        assertTrue(tid > 0);
+        assertEquals(7, data.getLong(RESULT));
+        assertEquals("main thread blocked once in the join", 1, data.getLong(RESULT + 8));
+        assertEquals(0, data.getInt(CTID));
+        assertFalse(getSyscallHandler().threadMap.containsKey(tid));
+    }
+
+}
@@ -0,0 +1,130 @@
+package net.fornwall.jelf;
+
+import junit.framework.TestCase;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+public class SymbolAddressIndexTest extends TestCase {
+
+    private static final int SYMBOL_SIZE = 16; // Elf32_Sym
+
+    private ElfFile elfFile;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        File file = new File("src/test/resources/example_binaries/armeabi-v7a/libnative-lib.so");
+        elfFile = ElfFile.fromBytes(ByteBuffer.wrap(FileUtils.readFileToByteArray(file)));
+        assertEquals(ElfFile.CLASS_32, elfFile.objectSize);
+    }
+
+    /**
+     * @param symbols value, size and section header index of each symbol
+     */
+    private SymbolLocator createLocator(long[][] symbols) {
+        ByteBuffer buffer = ByteBuffer.allocate(symbols.length * SYMBOL_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        for (long[] symbol : symbols) {
+            buffer.putInt(0); // name
+            buffer.putInt((int) symbol[0]);
+            buffer.putInt((int) symbol[1]);
+            buffer.put((byte) 0x12); // STB_GLOBAL, STT_FUNC
+            buffer.put((byte) 0);
+            buffer.putShort((short) symbol[2]);
+        }
+        final ElfParser parser = new ElfParser(elfFile, buffer);
+        return new SymbolLocator() {
+            @Override
+            public ElfSymbol getELFSymbol(int index) {
+                return new ElfSymbol(parser, (long) index * SYMBOL_SIZE, ElfSection.SHT_DYNSYM);
+            }
+            @Override
+            public ElfSymbol getELFSymbolByName(String name) {
+                throw new UnsupportedOperationException();
+            }
+            @Override
+            public ElfSymbol getELFSymbolByAddr(long addr) {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private static int[] indexes(int count) {
+        int[] indexes = new int[count];
+        for (int i = 0; i < count; i++) {
+            indexes[i] = i;
+        }
+        return indexes;
+    }
+
+    public void testClosestSymbol() throws IOException {
+        long[][] symbols = new long[][]{
+                {0, 0, 0},
+                {0x1001, 0x100, 1}, // thumb
+                {0x1000, 0x80, 1}, // same start as 1
+                {0x1040, 0x10, 1}, // nested in 1 and 2
+                {0x2000, 0, 1}, // no size
+                {0x3000, 0x20, 0}, // undefined
+                {0x4000, 0x10, 1},
+                {0x4000, 0x40, 1},
+        };
+        SymbolAddressIndex index = SymbolAddressIndex.create(createLocator(symbols), indexes(symbols.length));
+        assertEquals(5, index.size());
+
+        assertEquals(-1, index.find(0xfff));
+        assertEquals(1, index.find(0x1000));
+        assertEquals(3, index.find(0x1040));
+        assertEquals(3, index.find(0x104f));
+        assertEquals("tie on the start address resolves in table order", 1, index.find(0x1050));
+        assertEquals(1, index.find(0x1090));
+        assertEquals(1, index.find(0x10ff));
+        assertEquals(-1, index.find(0x1100));
+        assertEquals(-1, index.find(0x2000));
+        assertEquals(-1, index.find(0x3000));
+        assertEquals(6, index.find(0x4008));
+        assertEquals("only the larger symbol of the tie contains it", 7, index.find(0x4020));
+        assertEquals(-1, index.find(0x4040));
+    }
+
+    public void testEmpty() throws IOException {
+        SymbolAddressIndex index = SymbolAddressIndex.create(createLocator(new long[][]{{0, 0, 0}}), indexes(1));
+        assertEquals(0, index.size());
+        assertEquals(-1, index.find(0));
+    }
+
+    public void testLinearScan() throws IOException {
+        Random random = new Random(0x1234);
+        long[][] symbols = new long[500][];
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = new long[]{0x10000 + random.nextInt(0x2000) * 4, random.nextInt(8) == 0 ? 0 : random.nextInt(0x100), random.nextInt(10) == 0 ? 0 : 1};
+        }
+        SymbolAddressIndex index = SymbolAddressIndex.create(createLocator(symbols), indexes(symbols.length));
+        for (long addr = 0xfff0; addr < 0x18100; addr += 3) {
+            assertEquals("addr=0x" + Long.toHexString(addr), linearScan(symbols, addr), index.find(addr));
+        }
+    }
+
+    /**
+     * Symbol with the greatest start address containing <code>addr</code>, the first in table order on ties.
+     */
+    private static int linearScan(long[][] symbols, long addr) {
+        int found = -1;
+        for (int i = 0; i < symbols.length; i++) {
+            long[] symbol = symbols[i];
+            if (symbol[2] == 0 || symbol[1] <= 0) {
+                continue;
+            }
+            long start = symbol[0] & ~1L;
+            if (start <= addr && addr < start + symbol[1] && (found == -1 || start > (symbols[found][0] & ~1L))) {
+                found = i;
+            }
+        }
+        return found;
+    }
+
+}
@@ -6,6 +6,7 @@ import com.github.unidbg.arm.Arguments;
 import com.github.unidbg.arm.backend.Backend;
 import com.github.unidbg.arm.backend.BackendException;
 import com.github.unidbg.arm.backend.BackendFactory;
+import com.github.unidbg.arm.backend.EmulationTimeoutException;
 import com.github.unidbg.arm.backend.ReadHook;
 import com.github.unidbg.arm.backend.WriteHook;
 import com.github.unidbg.arm.context.RegisterContext;
@@ -23,9 +24,13 @@ import com.github.unidbg.listener.TraceWriteListener;
 import com.github.unidbg.memory.Memory;
 import com.github.unidbg.memory.MemoryBlock;
 import com.github.unidbg.memory.MemoryBlockImpl;
+import com.github.unidbg.memory.MemorySnapshot;
 import com.github.unidbg.memory.SvcMemory;
+import com.github.unidbg.metrics.EmulatorMetrics;
 import com.github.unidbg.pointer.MemoryWriteListener;
 import com.github.unidbg.pointer.UnidbgPointer;
+import com.github.unidbg.serialize.ValueSerializer;
+import com.github.unidbg.spi.AbstractLoader;
 import com.github.unidbg.spi.Dlfcn;
 import com.github.unidbg.unix.UnixSyscallHandler;
 import com.github.unidbg.utils.Inspector;
@@ -40,12 +45,16 @@ import java.io.DataOutput;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.RandomAccessFile;
 import java.io.StringWriter;
 import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -81,6 +90,10 @@ public abstract class AbstractEmulator<T extends NewFileIO> implements Emulator<
 
     private final Family family;
 
+    protected final EmulatorMetrics metrics;
+
+    private final Collection<BackendFactory> backendFactories;
+
     public AbstractEmulator(boolean is64Bit, String processName, long svcBase, int svcSize, File rootDir, Family family, Collection<BackendFactory> backendFactories) {
         super();
         this.family = family;
@@ -100,7 +113,9 @@ public abstract class AbstractEmulator<T extends NewFileIO> implements Emulator<
         }
         this.fileSystem = createFileSystem(rootDir);
         this.backend = BackendFactory.createBackend(this, is64Bit, backendFactories);
+        this.backendFactories = backendFactories;
         this.processName = processName == null ? "unidbg" : processName;
+        this.metrics = new EmulatorMetrics(this.processName);
         this.registerContext = createRegisterContext(backend);
 
         String name = ManagementFactory.getRuntimeMXBean().getName();
@@ -124,6 +139,11 @@ public abstract class AbstractEmulator<T extends NewFileIO> implements Emulator<
 
     protected abstract int getPageAlignInternal();
 
+    @Override
+    public EmulatorMetrics getMetrics() {
+        return metrics;
+    }
+
     @Override
     public Family getFamily() {
         return family;
@@ -346,6 +366,8 @@ public abstract class AbstractEmulator<T extends NewFileIO> implements Emulator<
 
         final Pointer pointer = UnidbgPointer.pointer(this, begin);
         long start = 0;
+        final boolean recordMetrics = metrics.isEnabled();
+        final long startNanos = recordMetrics ? System.nanoTime() : 0;
         Thread exitHook = null;
         try {
             setContextEmulator(this);
@@ -367,7 +389,7 @@ public abstract class AbstractEmulator<T extends NewFileIO> implements Emulator<
                 };
                 Runtime.getRuntime().addShutdownHook(exitHook);
             }
-            backend.emu_start(begin, until, timeout, 0);
+            getSyscallHandler().getThreadScheduler().run(this, begin, until, timeout);
             if (is64Bit()) {
                 return backend.reg_read(Arm64Const.UC_ARM64_REG_X0);
             } else {
@@ -376,6 +398,10 @@ public abstract class AbstractEmulator<T extends NewFileIO> implements Emulator<
                 return (r0.intValue() & 0xffffffffL) | ((r1.intValue() & 0xffffffffL) << 32);
             }
         } catch (RuntimeException e) {
+            if (e instanceof EmulationTimeoutException) { // the guest was halted at an arbitrary instruction, let the caller discard the emulator
+                log.warn("emulate " + pointer + " timeout sp=" + getStackPointer() + ", offset=" + (System.currentTimeMillis() - start) + "ms");
+                throw e;
+            }
             if (!entry && e instanceof BackendException && !log.isDebugEnabled()) {
                 log.warn("emulate " + pointer + " failed: sp=" + getStackPointer() + ", offset=" + (System.currentTimeMillis() - start) + "ms", e);
                 return -1;
@@ -394,6 +420,9 @@ public abstract class AbstractEmulator<T extends NewFileIO> implements Emulator<
                 Runtime.getRuntime().removeShutdownHook(exitHook);
             }
             running = false;
+            if (recordMetrics) {
+                metrics.recordEmulate(System.nanoTime() - startNanos);
+            }
 
             if (log.isDebugEnabled()) {
                 log.debug("emulate " + pointer + " finished sp=" + getStackPointer() + ", offset=" + (System.currentTimeMillis() - start) + "ms");
@@ -413,6 +442,7 @@ public abstract class AbstractEmulator<T extends NewFileIO> implements Emulator<
 
         try {
             IOUtils.close(debugger);
+            metrics.unregisterMBean();
 
             closeInternal();
 
@@ -471,13 +501,157 @@ public abstract class AbstractEmulator<T extends NewFileIO> implements Emulator<
         throw new UnsupportedOperationException("searchClass keywords=" + keywords);
     }
 
+    @Override
+    public final EmulatorSnapshot snapshot() {
+        if (running) {
+            throw new IllegalStateException("running");
+        }
+
+        long context = 0;
+        try {
+            context = backend.context_alloc();
+            backend.context_save(context);
+        } catch (UnsupportedOperationException e) {
+            log.debug("snapshot without register context: backend=" + backend);
+        }
+        Map<Integer, Long> registers = new LinkedHashMap<>();
+        for (int regId : getSnapshotRegisters()) {
+            try {
+                registers.put(regId, backend.reg_read(regId).longValue());
+            } catch (BackendException e) {
+                log.debug("snapshot skip register: regId=" + regId, e);
+            }
+        }
+        EmulatorSnapshot snapshot = new EmulatorSnapshot(backend, getMemory().snapshot(), context, registers);
+        onSnapshot(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * @return registers saved by snapshot, restored when the backend register context not available.
+     */
+    protected abstract int[] getSnapshotRegisters();
+
+    @Override
+    public final void restore(EmulatorSnapshot snapshot) {
+        if (running) {
+            throw new IllegalStateException("running");
+        }
+        snapshot.checkOpen();
+
+        getMemory().restore(snapshot.memory);
+        if (snapshot.context != 0) {
+            backend.context_restore(snapshot.context);
+        } else {
+            for (Map.Entry<Integer, Long> entry : snapshot.registers.entrySet()) {
+                try {
+                    backend.reg_write(entry.getKey(), entry.getValue());
+                } catch (BackendException e) {
+                    log.debug("restore skip register: regId=" + entry.getKey(), e);
+                }
+            }
+        }
+        onRestore(snapshot);
+    }
+
+    private static final int IMAGE_MAGIC = 0x55494d47; // UIMG
+    private static final int IMAGE_VERSION = 2;
+
+    @Override
+    public final void restore(File imageFile) throws IOException {
+        EmulatorSnapshot snapshot;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(imageFile, "r")) {
+            FileChannel channel = randomAccessFile.getChannel();
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), MemorySnapshot.MAP_CHUNK_SIZE));
+            snapshot = readImage(imageFile, buffer, channel);
+        }
+        String notPersisted = snapshot.getNotPersisted();
+        if (notPersisted != null) {
+            throw new IllegalStateException("Image can't be restored, it was taken with " + notPersisted + ": " + imageFile);
+        }
+        checkImage(snapshot);
+        restore(snapshot);
+    }
+
+    private EmulatorSnapshot readImage(File imageFile, ByteBuffer buffer, FileChannel channel) throws IOException {
+        if (buffer.getInt() != IMAGE_MAGIC || buffer.getInt() != IMAGE_VERSION) {
+            throw new IOException("Invalid emulator image: " + imageFile);
+        }
+        String className = ValueSerializer.readString(buffer);
+        if (!getClass().getName().equals(className)) {
+            throw new IllegalStateException("Image emulator class mismatch: expected=" + className + ", actual=" + getClass().getName());
+        }
+
+        return EmulatorSnapshot.read(buffer, channel);
+    }
+
+    @Override
+    public final Emulator<T> fork(EmulatorSnapshot snapshot) {
+        if (running) {
+            throw new IllegalStateException("running");
+        }
+
+        EmulatorSnapshot image = snapshot.toImage();
+        String notPersisted = image.getNotPersisted();
+        if (notPersisted != null) {
+            throw new IllegalStateException("Snapshot can't be forked, it was taken with " + notPersisted);
+        }
+        AbstractEmulator<T> forked = newInstance(backendFactories);
+        try {
+            onFork(forked);
+            forked.checkImage(image);
+            forked.restore(image);
+            return forked;
+        } catch (RuntimeException e) {
+            IOUtils.close(forked);
+            throw e;
+        }
+    }
+
+    /**
+     * @return emulator built the same way as this one, without any library loaded.
+     * @throws UnsupportedOperationException if this emulator can't be forked.
+     */
+    protected AbstractEmulator<T> newInstance(Collection<BackendFactory> backendFactories) {
+        throw new UnsupportedOperationException("fork " + getClass().getName());
+    }
+
+    /**
+     * Copies the settings needed to restore a snapshot of this emulator to the forked emulator.
+     */
+    protected void onFork(AbstractEmulator<T> forked) {
+        ((UnixSyscallHandler<T>) getSyscallHandler()).onFork(forked.getSyscallHandler());
+        ((AbstractLoader<T>) getMemory()).onFork(forked.getMemory());
+    }
+
+    /**
+     * Verifies this emulator can restore the image before any state is changed.
+     * @throws IllegalStateException if not.
+     */
+    protected void checkImage(EmulatorSnapshot snapshot) {
+    }
+
+    protected void onSnapshot(EmulatorSnapshot snapshot) {
+        if (svcMemory instanceof ARMSvcMemory) {
+            ((ARMSvcMemory) svcMemory).onSnapshot(snapshot);
+        }
+    }
+
+    protected void onRestore(EmulatorSnapshot snapshot) {
+        if (svcMemory instanceof ARMSvcMemory) {
+            ((ARMSvcMemory) svcMemory).onRestore(snapshot);
+        }
+    }
+
     @Override
     public final void serialize(DataOutput out) throws IOException {
-        out.writeUTF(getClass().getName());
-        getMemory().serialize(out);
-        getSvcMemory().serialize(out);
-        getSyscallHandler().serialize(out);
-        getDlfcn().serialize(out);
+        out.writeInt(IMAGE_MAGIC);
+        out.writeInt(IMAGE_VERSION);
+        ValueSerializer.writeString(out, getClass().getName());
+
+        try (EmulatorSnapshot snapshot = snapshot()) {
+            snapshot.serialize(out);
+        }
     }
 
 }
@@ -5,8 +5,9 @@ import com.alibaba.fastjson.util.IOUtils;
 import com.github.unidbg.arm.backend.Backend;
 import com.github.unidbg.arm.backend.BackendException;
 import com.github.unidbg.arm.backend.CodeHook;
+import com.github.unidbg.arm.backend.UnHook;
 import com.github.unidbg.listener.TraceCodeListener;
-import unicorn.Unicorn;
+import com.github.unidbg.trace.TraceRecorder;
 
 import java.io.PrintStream;
 import java.util.Arrays;
@@ -37,10 +38,10 @@ public class AssemblyCodeDumper implements CodeHook, TraceHook {
         this.listener = listener;
     }
 
-    private Unicorn.UnHook unHook;
+    private UnHook unHook;
 
     @Override
-    public void onAttach(Unicorn.UnHook unHook) {
+    public void onAttach(UnHook unHook) {
         if (this.unHook != null) {
             throw new IllegalStateException();
         }
@@ -73,15 +74,28 @@ public class AssemblyCodeDumper implements CodeHook, TraceHook {
         this.redirect = redirect;
     }
 
+    private TraceRecorder recorder;
+
+    @Override
+    public void setRecorder(TraceRecorder recorder) {
+        this.recorder = recorder;
+    }
+
     @Override
     public void hook(Backend backend, long address, int size, Object user) {
         if (canTrace(address)) {
             try {
-                PrintStream out = System.out;
-                if (redirect != null) {
-                    out = redirect;
+                Capstone.CsInsn[] insns;
+                if (recorder != null) {
+                    recorder.recordInstruction(backend, address, size);
+                    insns = listener == null ? null : emulator.disassemble(address, size, 0);
+                } else {
+                    PrintStream out = System.out;
+                    if (redirect != null) {
+                        out = redirect;
+                    }
+                    insns = emulator.printAssemble(out, address, size);
                 }
-                Capstone.CsInsn[] insns = emulator.printAssemble(out, address, size);
                 if (listener != null) {
                     if (insns == null || insns.length != 1) {
                         throw new IllegalStateException("insns=" + Arrays.toString(insns));
@@ -12,6 +12,7 @@ import com.github.unidbg.listener.TraceSystemMemoryWriteListener;
 import com.github.unidbg.listener.TraceWriteListener;
 import com.github.unidbg.memory.Memory;
 import com.github.unidbg.memory.SvcMemory;
+import com.github.unidbg.metrics.EmulatorMetrics;
 import com.github.unidbg.serialize.Serializable;
 import com.github.unidbg.spi.Disassembler;
 import com.github.unidbg.spi.Dlfcn;
@@ -22,6 +23,7 @@ import com.github.unidbg.unwind.Unwinder;
 
 import java.io.Closeable;
 import java.io.File;
+import java.io.IOException;
 import java.net.URL;
 
 /**
@@ -117,6 +119,8 @@ public interface Emulator<T extends NewFileIO> extends Closeable, Disassembler,
 
     SyscallHandler<T> getSyscallHandler();
 
+    EmulatorMetrics getMetrics();
+
     Family getFamily();
     LibraryFile createURLibraryFile(URL url, String libName);
 
@@ -131,4 +135,32 @@ public interface Emulator<T extends NewFileIO> extends Closeable, Disassembler,
 
     Unwinder getUnwinder();
 
+    /**
+     * 保存当前模拟器状态：内存、寄存器、已加载模块等，通常在加载so及调用JNI_OnLoad后调用。
+     * 不再使用时调用 {@link EmulatorSnapshot#close()} 释放寄存器上下文
+     */
+    EmulatorSnapshot snapshot();
+
+    /**
+     * 恢复到快照时的状态，跳过重新加载so及初始化
+     */
+    void restore(EmulatorSnapshot snapshot);
+
+    /**
+     * 从 {@link #serialize(java.io.DataOutput)} 保存的镜像文件恢复内存及寄存器，镜像文件以mmap方式读取。
+     * 镜像包含已加载的模块、svc及按路径打开的文件，无需再加载so：需先以保存时相同的方式创建模拟器、设置相同的LibraryResolver，
+     * 保存时有dalvik vm则需先创建vm，并添加相同的HookListener。
+     * vm的类、类引用及RegisterNatives会被恢复；保存时有非路径打开的文件、有线程或有对象的jni全局引用的镜像无法恢复
+     * @throws IllegalStateException 镜像无法恢复
+     */
+    void restore(File imageFile) throws IOException;
+
+    /**
+     * 从快照创建新的独立模拟器，跳过重新加载so及JNI_OnLoad：快照的页在进程内共享，写入新模拟器自己的内存。
+     * 复制IOResolver、LibraryResolver及vm的设置；另外添加的HookListener及手动注册的svc不会复制，快照用到时无法fork
+     * @throws IllegalStateException 快照无法fork，与 {@link #restore(File)} 无法恢复的镜像相同
+     * @throws UnsupportedOperationException 模拟器不支持fork
+     */
+    Emulator<T> fork(EmulatorSnapshot snapshot);
+
 }
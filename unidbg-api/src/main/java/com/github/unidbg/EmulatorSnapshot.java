@@ -0,0 +1,161 @@
+package com.github.unidbg;
+
+import com.github.unidbg.arm.backend.Backend;
+import com.github.unidbg.memory.MemorySnapshot;
+import com.github.unidbg.serialize.Serializable;
+import com.github.unidbg.serialize.ValueSerializer;
+import com.github.unidbg.spi.ValuePair;
+
+import java.io.Closeable;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Warmed-up emulator state: memory, registers, loader, syscall handler and vm state.
+ * Created by {@link Emulator#snapshot()}, can be restored any number of times by {@link Emulator#restore(EmulatorSnapshot)}.
+ * Serialized form keeps memory, registers and primitive values only, see {@link Emulator#restore(java.io.File)}.
+ * Close it to free the backend register contexts it holds.
+ */
+public class EmulatorSnapshot implements ValuePair, Serializable, Closeable {
+
+    public final MemorySnapshot memory;
+
+    /**
+     * backend register context, 0 if the backend does not support context save.
+     */
+    final long context;
+
+    /**
+     * register values readable by the backend, used when no register context available.
+     */
+    final Map<Integer, Long> registers;
+
+    /**
+     * owner of the register contexts, <code>null</code> for a snapshot read from an image.
+     */
+    private final Backend backend;
+
+    private final List<Long> contexts = new ArrayList<>();
+    private boolean closed;
+
+    EmulatorSnapshot(Backend backend, MemorySnapshot memory, long context, Map<Integer, Long> registers) {
+        this.backend = backend;
+        this.memory = memory;
+        this.context = context;
+        this.registers = registers;
+        if (context != 0) {
+            contexts.add(context);
+        }
+    }
+
+    /**
+     * Allocates a backend register context freed by {@link #close()}.
+     */
+    public long allocContext() {
+        checkOpen();
+        long context = backend.context_alloc();
+        contexts.add(context);
+        return context;
+    }
+
+    final void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("snapshot closed");
+        }
+    }
+
+    /**
+     * Frees the register contexts, the snapshot can not be restored afterwards.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (long context : contexts) {
+            backend.context_free(context);
+        }
+        contexts.clear();
+    }
+
+    @Override
+    public void serialize(DataOutput out) throws IOException {
+        out.writeInt(registers.size());
+        for (Map.Entry<Integer, Long> entry : registers.entrySet()) {
+            out.writeInt(entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+        ValueSerializer.writeValues(out, values);
+        memory.serialize(out);
+    }
+
+    /**
+     * @param buffer mapped from the start of <code>channel</code>, pages are mapped from the channel
+     */
+    static EmulatorSnapshot read(ByteBuffer buffer, FileChannel channel) throws IOException {
+        int count = buffer.getInt();
+        Map<Integer, Long> registers = new LinkedHashMap<>(count);
+        for (int i = 0; i < count; i++) {
+            registers.put(buffer.getInt(), buffer.getLong());
+        }
+        Map<String, Object> values = new HashMap<>();
+        ValueSerializer.readValues(buffer, values);
+        EmulatorSnapshot snapshot = new EmulatorSnapshot(null, MemorySnapshot.read(buffer, channel), 0, registers);
+        snapshot.values.putAll(values);
+        return snapshot;
+    }
+
+    private final Map<String, Object> values = new HashMap<>();
+
+    /**
+     * @return copy restored like an image read back, used by {@link Emulator#fork(EmulatorSnapshot)}: registers instead of the
+     * register context, values bound to this process left out and the memory pages shared.
+     */
+    EmulatorSnapshot toImage() {
+        checkOpen();
+        EmulatorSnapshot image = new EmulatorSnapshot(null, memory.toImage(), 0, registers);
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            if (ValueSerializer.isValue(entry.getValue())) {
+                image.values.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return image;
+    }
+
+    private static final String NOT_PERSISTED = "image.notPersisted";
+
+    /**
+     * Marks state which can't be serialized, {@link Emulator#restore(java.io.File)} refuses the image.
+     */
+    public void notPersisted(String state) {
+        String notPersisted = get(NOT_PERSISTED);
+        set(NOT_PERSISTED, notPersisted == null ? state : notPersisted + ", " + state);
+    }
+
+    /**
+     * @return state marked by {@link #notPersisted(String)}, <code>null</code> if none.
+     */
+    public String getNotPersisted() {
+        return get(NOT_PERSISTED);
+    }
+
+    @Override
+    public void set(String key, Object value) {
+        values.put(key, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <V> V get(String key) {
+        return (V) values.get(key);
+    }
+
+}
@@ -1,11 +1,18 @@
 package com.github.unidbg;
 
+import com.github.unidbg.trace.TraceRecorder;
+
 import java.io.PrintStream;
 
 public interface TraceHook {
 
     void setRedirect(PrintStream redirect);
 
+    /**
+     * Record to the binary trace instead of printing, the recorder is not closed by {@link #stopTrace()}.
+     */
+    void setRecorder(TraceRecorder recorder);
+
     void stopTrace();
 
 }
@@ -4,13 +4,14 @@ import com.alibaba.fastjson.util.IOUtils;
 import com.github.unidbg.arm.backend.Backend;
 import com.github.unidbg.arm.backend.BackendException;
 import com.github.unidbg.arm.backend.ReadHook;
+import com.github.unidbg.arm.backend.UnHook;
 import com.github.unidbg.arm.backend.WriteHook;
 import com.github.unidbg.arm.context.RegisterContext;
 import com.github.unidbg.listener.TraceReadListener;
 import com.github.unidbg.listener.TraceWriteListener;
 import com.github.unidbg.pointer.UnidbgPointer;
+import com.github.unidbg.trace.TraceRecorder;
 import org.apache.commons.codec.binary.Hex;
-import unicorn.Unicorn;
 
 import java.io.PrintStream;
 import java.nio.ByteBuffer;
@@ -33,10 +34,10 @@ public class TraceMemoryHook implements ReadHook, WriteHook, TraceHook {
     TraceReadListener traceReadListener;
     TraceWriteListener traceWriteListener;
 
-    private Unicorn.UnHook unHook;
+    private UnHook unHook;
 
     @Override
-    public void onAttach(Unicorn.UnHook unHook) {
+    public void onAttach(UnHook unHook) {
         if (this.unHook != null) {
             throw new IllegalStateException();
         }
@@ -63,6 +64,13 @@ public class TraceMemoryHook implements ReadHook, WriteHook, TraceHook {
         this.redirect = redirect;
     }
 
+    private TraceRecorder recorder;
+
+    @Override
+    public void setRecorder(TraceRecorder recorder) {
+        this.recorder = recorder;
+    }
+
     @Override
     public void hook(Backend backend, long address, int size, Object user) {
         if (!read) {
@@ -81,6 +89,10 @@ public class TraceMemoryHook implements ReadHook, WriteHook, TraceHook {
             }
             Emulator<?> emulator = (Emulator<?>) user;
             if (traceReadListener == null || traceReadListener.onRead(emulator, address, data, value)) {
+                if (recorder != null) {
+                    recorder.recordRead(address, data);
+                    return;
+                }
                 printMsg("### Memory READ at 0x", emulator, address, size, value);
             }
         } catch (BackendException e) {
@@ -111,6 +123,10 @@ public class TraceMemoryHook implements ReadHook, WriteHook, TraceHook {
         try {
             Emulator<?> emulator = (Emulator<?>) user;
             if (traceWriteListener == null || traceWriteListener.onWrite(emulator, address, size, value)) {
+                if (recorder != null) {
+                    recorder.recordWrite(address, size, value);
+                    return;
+                }
                 printMsg("### Memory WRITE at 0x", emulator, address, size, "0x" + Long.toHexString(value));
             }
         } catch (BackendException e) {
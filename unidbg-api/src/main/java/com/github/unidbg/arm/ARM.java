@@ -39,6 +39,10 @@ public class ARM {
         return Cpsr.getArm(backend).isThumb();
     }
 
+    public static boolean isThumb(int cpsr) {
+        return Cpsr.isThumb(cpsr);
+    }
+
     /**
      * 是否为thumb32
      */
@@ -1011,28 +1015,8 @@ public class ARM {
         char space = current ? '*' : ' ';
         StringBuilder sb = new StringBuilder();
         Module module = memory.findModuleByAddress(address);
-        String maxLengthSoName = memory.getMaxLengthLibraryName();
-        if (module != null) {
-            sb.append(String.format("[%" + maxLengthSoName.length() + "s]", module.name)).append(space);
-            sb.append(String.format("[0x%0" + Long.toHexString(memory.getMaxSizeOfLibrary()).length() + "x]", address - module.base + (thumb ? 1 : 0))).append(space);
-        } else if (address >= 0xfffe0000L && maxLengthSoName != null) { // kernel
-            sb.append(String.format("[%" + maxLengthSoName.length() + "s]", "0x" + Long.toHexString(address))).append(space);
-            sb.append(String.format("[0x%0" + Long.toHexString(memory.getMaxSizeOfLibrary()).length() + "x]", address - 0xfffe0000L + (thumb ? 1 : 0))).append(space);
-        }
-        sb.append("[");
-        if (ins.size == 2) {
-            sb.append(space).append("     ");
-        }
-        for (byte b : ins.bytes) {
-            sb.append(' ');
-            String hex = Integer.toHexString(b & 0xff);
-            if (hex.length() == 1) {
-                sb.append(0);
-            }
-            sb.append(hex);
-        }
-        sb.append(" ]").append(space);
-        sb.append(String.format("0x%08x:" + space + "%s %s", ins.address, ins.mnemonic, ins.opStr));
+        appendInstruction(sb, ins, address, thumb, module == null ? null : module.name, module == null ? 0 : module.base,
+                memory.getMaxLengthLibraryName(), memory.getMaxSizeOfLibrary(), space);
 
         Arm.OpInfo opInfo = null;
         Arm64.OpInfo opInfo64 = null;
@@ -1052,6 +1036,35 @@ public class ARM {
         return sb.toString();
     }
 
+    /**
+     * Append the trace line of the instruction without the memory details, also used to render recorded traces.
+     * @param libraryName the library holding the instruction, <code>null</code> if none.
+     */
+    public static void appendInstruction(StringBuilder sb, Capstone.CsInsn ins, long address, boolean thumb, String libraryName, long libraryBase,
+                                         String maxLengthSoName, long maxSizeOfLibrary, char space) {
+        if (libraryName != null) {
+            sb.append(String.format("[%" + maxLengthSoName.length() + "s]", libraryName)).append(space);
+            sb.append(String.format("[0x%0" + Long.toHexString(maxSizeOfLibrary).length() + "x]", address - libraryBase + (thumb ? 1 : 0))).append(space);
+        } else if (address >= 0xfffe0000L && maxLengthSoName != null) { // kernel
+            sb.append(String.format("[%" + maxLengthSoName.length() + "s]", "0x" + Long.toHexString(address))).append(space);
+            sb.append(String.format("[0x%0" + Long.toHexString(maxSizeOfLibrary).length() + "x]", address - 0xfffe0000L + (thumb ? 1 : 0))).append(space);
+        }
+        sb.append("[");
+        if (ins.size == 2) {
+            sb.append(space).append("     ");
+        }
+        for (byte b : ins.bytes) {
+            sb.append(' ');
+            String hex = Integer.toHexString(b & 0xff);
+            if (hex.length() == 1) {
+                sb.append(0);
+            }
+            sb.append(hex);
+        }
+        sb.append(" ]").append(space);
+        sb.append(String.format("0x%08x:" + space + "%s %s", ins.address, ins.mnemonic, ins.opStr));
+    }
+
     private static void appendAddrValue(StringBuilder sb, long addr, Memory memory, boolean is64Bit, int bytesRead) {
         long mask = -bytesRead;
         Pointer pointer = memory.pointer(addr & mask);
@@ -1,10 +1,12 @@
 package com.github.unidbg.arm;
 
 import com.github.unidbg.Emulator;
+import com.github.unidbg.EmulatorSnapshot;
 import com.github.unidbg.Svc;
 import com.github.unidbg.arm.backend.Backend;
 import com.github.unidbg.memory.MemRegion;
 import com.github.unidbg.memory.SvcMemory;
+import com.github.unidbg.metrics.EmulatorMetrics;
 import com.github.unidbg.pointer.UnidbgPointer;
 import com.github.unidbg.spi.SyscallHandler;
 import org.apache.commons.codec.binary.Hex;
@@ -13,22 +15,26 @@ import org.apache.commons.logging.LogFactory;
 import unicorn.UnicornConst;
 
 import java.io.DataOutput;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 public class ARMSvcMemory implements SvcMemory {
 
     private static final Log log = LogFactory.getLog(ARMSvcMemory.class);
 
     private final Emulator<?> emulator;
+    private final EmulatorMetrics metrics;
     private UnidbgPointer base;
 
     public ARMSvcMemory(long base, int size, Emulator<?> emulator) {
         this.emulator = emulator;
+        this.metrics = emulator.getMetrics();
         this.base = UnidbgPointer.pointer(emulator, base);
         assert this.base != null;
         this.base.setSize(size);
@@ -41,8 +47,12 @@ public class ARMSvcMemory implements SvcMemory {
     }
 
     @Override
-    public void serialize(DataOutput out) {
-        throw new UnsupportedOperationException();
+    public void serialize(DataOutput out) throws IOException {
+        out.writeLong(baseAddr);
+        out.writeInt(size);
+        out.writeLong(base.peer - baseAddr);
+        out.writeInt(thumbSvcNumber);
+        out.writeInt(armSvcNumber);
     }
 
     private final long baseAddr;
@@ -78,13 +88,17 @@ public class ARMSvcMemory implements SvcMemory {
         if (log.isDebugEnabled()) {
             log.debug("allocate size=" + size + ", label=" + label + ", base=" + base);
         }
-        memRegions.add(new MemRegion(pointer.peer, pointer.peer + size, UnicornConst.UC_PROT_READ | UnicornConst.UC_PROT_EXEC, null, 0) {
+        addRegion(pointer.peer, pointer.peer + size, label);
+        return pointer;
+    }
+
+    private void addRegion(long begin, long end, final String label) {
+        memRegions.add(new MemRegion(begin, end, UnicornConst.UC_PROT_READ | UnicornConst.UC_PROT_EXEC, null, 0) {
             @Override
             public String getName() {
                 return label;
             }
         });
-        return pointer;
     }
 
     private final Map<String, UnidbgPointer> symbolMap = new HashMap<>();
@@ -109,7 +123,11 @@ public class ARMSvcMemory implements SvcMemory {
 
     @Override
     public Svc getSvc(int svcNumber) {
-        return svcMap.get(svcNumber);
+        Svc svc = svcMap.get(svcNumber);
+        if (svc != null && metrics.isEnabled()) {
+            metrics.countSvc(svc, svcNumber);
+        }
+        return svc;
     }
 
     @Override
@@ -145,6 +163,135 @@ public class ARMSvcMemory implements SvcMemory {
         return svc.onRegister(this, number);
     }
 
+    /**
+     * Allocation state, svc memory is append-only so a snapshot only needs the sizes.
+     */
+    private static class State {
+        final long base;
+        final int regionCount;
+        final int thumbSvcNumber;
+        final int armSvcNumber;
+        final Map<Integer, Svc> svcMap;
+        final Map<String, UnidbgPointer> symbolMap;
+        State(ARMSvcMemory memory) {
+            this.base = memory.base.peer;
+            this.regionCount = memory.memRegions.size();
+            this.thumbSvcNumber = memory.thumbSvcNumber;
+            this.armSvcNumber = memory.armSvcNumber;
+            this.svcMap = new HashMap<>(memory.svcMap);
+            this.symbolMap = new HashMap<>(memory.symbolMap);
+        }
+    }
+
+    public void onSnapshot(EmulatorSnapshot snapshot) {
+        snapshot.set("svcMemory", new State(this));
+
+        snapshot.set("svcMemory.image.base", base.peer);
+        snapshot.set("svcMemory.image.thumbSvcNumber", thumbSvcNumber);
+        snapshot.set("svcMemory.image.armSvcNumber", armSvcNumber);
+        StringBuilder regions = new StringBuilder();
+        for (MemRegion region : memRegions) {
+            regions.append(region.begin).append('\t').append(region.end).append('\t').append(region.getName()).append('\n');
+        }
+        snapshot.set("svcMemory.image.regions", regions.toString());
+        StringBuilder symbols = new StringBuilder();
+        for (Map.Entry<String, UnidbgPointer> entry : symbolMap.entrySet()) {
+            symbols.append(entry.getKey()).append('\t').append(entry.getValue().peer).append('\n');
+        }
+        snapshot.set("svcMemory.image.symbols", symbols.toString());
+        StringBuilder svcs = new StringBuilder();
+        for (Map.Entry<Integer, Svc> entry : new TreeMap<>(svcMap).entrySet()) {
+            svcs.append(entry.getKey()).append('\t').append(getSvcKey(entry.getValue())).append('\n');
+        }
+        snapshot.set("svcMemory.image.svcs", svcs.toString());
+    }
+
+    /**
+     * Identifies a svc registered again by another emulator: its name, or its class if it has none.
+     */
+    private static String getSvcKey(Svc svc) {
+        String name = EmulatorMetrics.getSvcName(svc);
+        return name == null ? svc.getClass().getName() : name;
+    }
+
+    /**
+     * Drops the svc and allocations made after the snapshot, their memory is cleared by the memory restore.
+     */
+    public void onRestore(EmulatorSnapshot snapshot) {
+        State state = snapshot.get("svcMemory");
+        if (state == null) {
+            restoreImage(snapshot);
+            return;
+        }
+        long used = state.base - baseAddr;
+        base = UnidbgPointer.pointer(emulator, state.base);
+        assert base != null;
+        base.setSize(size - used);
+        memRegions.subList(state.regionCount, memRegions.size()).clear();
+        thumbSvcNumber = state.thumbSvcNumber;
+        armSvcNumber = state.armSvcNumber;
+        svcMap.clear();
+        svcMap.putAll(state.svcMap);
+        symbolMap.clear();
+        symbolMap.putAll(state.symbolMap);
+    }
+
+    /**
+     * Restored from an image: the svc memory content comes from the image, each svc number of the image is bound to the svc
+     * this emulator registered with the same key. Svcs sharing a key are bound in registration order.
+     * @throws IllegalStateException if a svc of the image is not registered by this emulator.
+     */
+    private void restoreImage(EmulatorSnapshot snapshot) {
+        Map<String, List<Svc>> registered = new HashMap<>();
+        for (Svc svc : new TreeMap<>(svcMap).values()) {
+            String key = getSvcKey(svc);
+            List<Svc> list = registered.get(key);
+            if (list == null) {
+                list = new ArrayList<>();
+                registered.put(key, list);
+            }
+            list.add(svc);
+        }
+        Map<Integer, Svc> svcMap = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String line : imageLines(snapshot, "svcMemory.image.svcs")) {
+            String[] fields = line.split("\t", 2);
+            List<Svc> list = registered.get(fields[1]);
+            if (list == null || list.isEmpty()) {
+                missing.add(fields[1]);
+            } else {
+                svcMap.put(Integer.parseInt(fields[0]), list.remove(0));
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Image svc not registered by this emulator: " + missing);
+        }
+
+        long base = snapshot.<Long>get("svcMemory.image.base");
+        this.base = UnidbgPointer.pointer(emulator, base);
+        assert this.base != null;
+        this.base.setSize(size - (base - baseAddr));
+        memRegions.clear();
+        for (String line : imageLines(snapshot, "svcMemory.image.regions")) {
+            String[] fields = line.split("\t", 3);
+            addRegion(Long.parseLong(fields[0]), Long.parseLong(fields[1]), fields[2]);
+        }
+        thumbSvcNumber = snapshot.<Integer>get("svcMemory.image.thumbSvcNumber");
+        armSvcNumber = snapshot.<Integer>get("svcMemory.image.armSvcNumber");
+        this.svcMap.clear();
+        this.svcMap.putAll(svcMap);
+        symbolMap.clear();
+        for (String line : imageLines(snapshot, "svcMemory.image.symbols")) {
+            int index = line.lastIndexOf('\t');
+            symbolMap.put(line.substring(0, index), UnidbgPointer.pointer(emulator, Long.parseLong(line.substring(index + 1))));
+        }
+    }
+
+    private static String[] imageLines(EmulatorSnapshot snapshot, String key) {
+        String value = snapshot.get(key);
+        return value == null || value.isEmpty() ? new String[0] : value.split("\n");
+    }
+
     @Override
     public final UnidbgPointer writeStackString(String str) {
         byte[] data = str.getBytes(StandardCharsets.UTF_8);
@@ -2,6 +2,7 @@ package com.github.unidbg.arm;
 
 import capstone.Capstone;
 import com.github.unidbg.AbstractEmulator;
+import com.github.unidbg.EmulatorSnapshot;
 import com.github.unidbg.Family;
 import com.github.unidbg.Module;
 import com.github.unidbg.arm.backend.Backend;
@@ -33,6 +34,7 @@ import java.io.File;
 import java.io.PrintStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.Arrays;
 import java.util.Collection;
 
 public abstract class AbstractARM64Emulator<T extends NewFileIO> extends AbstractEmulator<T> implements ARMEmulator<T> {
@@ -128,11 +130,26 @@ public abstract class AbstractARM64Emulator<T extends NewFileIO> extends Abstrac
         };
     }
 
+    @Override
+    protected void onSnapshot(EmulatorSnapshot snapshot) {
+        super.onSnapshot(snapshot);
+
+        syscallHandler.onSnapshot(this, snapshot);
+    }
+
+    @Override
+    protected void onRestore(EmulatorSnapshot snapshot) {
+        super.onRestore(snapshot);
+
+        syscallHandler.onRestore(this, snapshot);
+    }
+
     @Override
     protected void closeInternal() {
         for (FileIO io : syscallHandler.fdMap.values()) {
             io.close();
         }
+        syscallHandler.getThreadScheduler().destroy(backend);
 
         if (capstoneArm64Cache != null) {
             capstoneArm64Cache.close();
@@ -169,17 +186,19 @@ public abstract class AbstractARM64Emulator<T extends NewFileIO> extends Abstrac
         ARM.showRegs64(this, regs);
     }
 
+    private final InstructionCache instructionCache = new InstructionCache();
+
     @Override
     public Capstone.CsInsn[] printAssemble(PrintStream out, long address, int size) {
-        Capstone.CsInsn[] insns = disassemble(address, size, 0);
-        printAssemble(out, insns, address);
-        return insns;
+        InstructionCache.Entry entry = disassemble(address, backend.mem_read(address, size));
+        out.print(entry.getText(this));
+        return entry.insns;
     }
 
     @Override
     public Capstone.CsInsn[] disassemble(long address, int size, long count) {
         byte[] code = backend.mem_read(address, size);
-        return createCapstoneArm64().disasm(code, address, count);
+        return disassemble(address, code, false, count);
     }
 
     @Override
@@ -187,18 +206,28 @@ public abstract class AbstractARM64Emulator<T extends NewFileIO> extends Abstrac
         if (thumb) {
             throw new IllegalStateException();
         }
-        return createCapstoneArm64().disasm(code, address, count);
+        if (code.length > InstructionCache.MAX_INSTRUCTION_SIZE) {
+            return createCapstoneArm64().disasm(code, address, count);
+        }
+        Capstone.CsInsn[] insns = disassemble(address, code).insns;
+        return count > 0 && insns.length > count ? Arrays.copyOf(insns, (int) count) : insns;
     }
 
-    private void printAssemble(PrintStream out, Capstone.CsInsn[] insns, long address) {
-        StringBuilder sb = new StringBuilder();
-        for (Capstone.CsInsn ins : insns) {
-            sb.append("### Trace Instruction ");
-            sb.append(ARM.assembleDetail(this, ins, address, false));
-            sb.append('\n');
-            address += ins.size;
+    private InstructionCache.Entry disassemble(long address, byte[] code) {
+        if (code.length > InstructionCache.MAX_INSTRUCTION_SIZE) {
+            return new InstructionCache.Entry(address, false, code, createCapstoneArm64().disasm(code, address, 0));
+        }
+        InstructionCache.Entry entry = instructionCache.get(address, code, false);
+        if (entry == null) {
+            entry = instructionCache.put(address, code, false, createCapstoneArm64().disasm(code, address, 0));
         }
-        out.print(sb);
+        return entry;
+    }
+
+    @Override
+    public void onSystemWrite(long addr, byte[] data) {
+        instructionCache.invalidate(addr, data.length);
+        super.onSystemWrite(addr, data);
     }
 
     @Override
@@ -211,6 +240,23 @@ public abstract class AbstractARM64Emulator<T extends NewFileIO> extends Abstrac
         return PAGE_ALIGN;
     }
 
+    private static final int[] SNAPSHOT_REGISTERS = {
+            Arm64Const.UC_ARM64_REG_X0, Arm64Const.UC_ARM64_REG_X1, Arm64Const.UC_ARM64_REG_X2, Arm64Const.UC_ARM64_REG_X3,
+            Arm64Const.UC_ARM64_REG_X4, Arm64Const.UC_ARM64_REG_X5, Arm64Const.UC_ARM64_REG_X6, Arm64Const.UC_ARM64_REG_X7,
+            Arm64Const.UC_ARM64_REG_X8, Arm64Const.UC_ARM64_REG_X9, Arm64Const.UC_ARM64_REG_X10, Arm64Const.UC_ARM64_REG_X11,
+            Arm64Const.UC_ARM64_REG_X12, Arm64Const.UC_ARM64_REG_X13, Arm64Const.UC_ARM64_REG_X14, Arm64Const.UC_ARM64_REG_X15,
+            Arm64Const.UC_ARM64_REG_X16, Arm64Const.UC_ARM64_REG_X17, Arm64Const.UC_ARM64_REG_X18, Arm64Const.UC_ARM64_REG_X19,
+            Arm64Const.UC_ARM64_REG_X20, Arm64Const.UC_ARM64_REG_X21, Arm64Const.UC_ARM64_REG_X22, Arm64Const.UC_ARM64_REG_X23,
+            Arm64Const.UC_ARM64_REG_X24, Arm64Const.UC_ARM64_REG_X25, Arm64Const.UC_ARM64_REG_X26, Arm64Const.UC_ARM64_REG_X27,
+            Arm64Const.UC_ARM64_REG_X28, Arm64Const.UC_ARM64_REG_FP, Arm64Const.UC_ARM64_REG_LR, Arm64Const.UC_ARM64_REG_SP,
+            Arm64Const.UC_ARM64_REG_PC, Arm64Const.UC_ARM64_REG_NZCV, Arm64Const.UC_ARM64_REG_TPIDR_EL0
+    };
+
+    @Override
+    protected int[] getSnapshotRegisters() {
+        return SNAPSHOT_REGISTERS;
+    }
+
     @Override
     public Number[] eFunc(long begin, Number... arguments) {
         long spBackup = memory.getStackPoint();
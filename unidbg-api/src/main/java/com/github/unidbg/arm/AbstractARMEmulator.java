@@ -2,6 +2,7 @@ package com.github.unidbg.arm;
 
 import capstone.Capstone;
 import com.github.unidbg.AbstractEmulator;
+import com.github.unidbg.EmulatorSnapshot;
 import com.github.unidbg.Family;
 import com.github.unidbg.Module;
 import com.github.unidbg.arm.backend.Backend;
@@ -33,6 +34,7 @@ import java.io.File;
 import java.io.PrintStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.Arrays;
 import java.util.Collection;
 
 public abstract class AbstractARMEmulator<T extends NewFileIO> extends AbstractEmulator<T> implements ARMEmulator<T> {
@@ -137,11 +139,26 @@ public abstract class AbstractARMEmulator<T extends NewFileIO> extends AbstractE
         };
     }
 
+    @Override
+    protected void onSnapshot(EmulatorSnapshot snapshot) {
+        super.onSnapshot(snapshot);
+
+        syscallHandler.onSnapshot(this, snapshot);
+    }
+
+    @Override
+    protected void onRestore(EmulatorSnapshot snapshot) {
+        super.onRestore(snapshot);
+
+        syscallHandler.onRestore(this, snapshot);
+    }
+
     @Override
     protected void closeInternal() {
         for (FileIO io : syscallHandler.fdMap.values()) {
             io.close();
         }
+        syscallHandler.getThreadScheduler().destroy(backend);
 
         if (capstoneThumbCache != null) {
             capstoneThumbCache.close();
@@ -181,34 +198,47 @@ public abstract class AbstractARMEmulator<T extends NewFileIO> extends AbstractE
         ARM.showRegs(this, regs);
     }
 
+    private final InstructionCache instructionCache = new InstructionCache();
+
     @Override
     public Capstone.CsInsn[] printAssemble(PrintStream out, long address, int size) {
-        Capstone.CsInsn[] insns = disassemble(address, size, 0);
-        printAssemble(out, insns, address, ARM.isThumb(backend));
-        return insns;
+        InstructionCache.Entry entry = disassemble(address, backend.mem_read(address, size), ARM.isThumb(backend));
+        out.print(entry.getText(this));
+        return entry.insns;
     }
 
     @Override
     public Capstone.CsInsn[] disassemble(long address, int size, long count) {
         boolean thumb = ARM.isThumb(backend);
         byte[] code = backend.mem_read(address, size);
-        return thumb ? createThumbCapstone().disasm(code, address, count) : createArmCapstone().disasm(code, address, count);
+        return disassemble(address, code, thumb, count);
     }
 
     @Override
     public Capstone.CsInsn[] disassemble(long address, byte[] code, boolean thumb, long count) {
-        return thumb ? createThumbCapstone().disasm(code, address, count) : createArmCapstone().disasm(code, address, count);
+        if (code.length > InstructionCache.MAX_INSTRUCTION_SIZE) {
+            return thumb ? createThumbCapstone().disasm(code, address, count) : createArmCapstone().disasm(code, address, count);
+        }
+        Capstone.CsInsn[] insns = disassemble(address, code, thumb).insns;
+        return count > 0 && insns.length > count ? Arrays.copyOf(insns, (int) count) : insns;
     }
 
-    private void printAssemble(PrintStream out, Capstone.CsInsn[] insns, long address, boolean thumb) {
-        StringBuilder sb = new StringBuilder();
-        for (Capstone.CsInsn ins : insns) {
-            sb.append("### Trace Instruction ");
-            sb.append(ARM.assembleDetail(this, ins, address, thumb));
-            sb.append('\n');
-            address += ins.size;
+    private InstructionCache.Entry disassemble(long address, byte[] code, boolean thumb) {
+        if (code.length > InstructionCache.MAX_INSTRUCTION_SIZE) {
+            return new InstructionCache.Entry(address, thumb, code, disassemble(address, code, thumb, 0));
+        }
+        InstructionCache.Entry entry = instructionCache.get(address, code, thumb);
+        if (entry == null) {
+            Capstone.CsInsn[] insns = thumb ? createThumbCapstone().disasm(code, address, 0) : createArmCapstone().disasm(code, address, 0);
+            entry = instructionCache.put(address, code, thumb, insns);
         }
-        out.print(sb);
+        return entry;
+    }
+
+    @Override
+    public void onSystemWrite(long addr, byte[] data) {
+        instructionCache.invalidate(addr, data.length);
+        super.onSystemWrite(addr, data);
     }
 
     @Override
@@ -276,6 +306,19 @@ public abstract class AbstractARMEmulator<T extends NewFileIO> extends AbstractE
         return PAGE_ALIGN;
     }
 
+    private static final int[] SNAPSHOT_REGISTERS = {
+            ArmConst.UC_ARM_REG_R0, ArmConst.UC_ARM_REG_R1, ArmConst.UC_ARM_REG_R2, ArmConst.UC_ARM_REG_R3,
+            ArmConst.UC_ARM_REG_R4, ArmConst.UC_ARM_REG_R5, ArmConst.UC_ARM_REG_R6, ArmConst.UC_ARM_REG_R7,
+            ArmConst.UC_ARM_REG_R8, ArmConst.UC_ARM_REG_R9, ArmConst.UC_ARM_REG_R10, ArmConst.UC_ARM_REG_R11,
+            ArmConst.UC_ARM_REG_R12, ArmConst.UC_ARM_REG_SP, ArmConst.UC_ARM_REG_LR, ArmConst.UC_ARM_REG_PC,
+            ArmConst.UC_ARM_REG_CPSR, ArmConst.UC_ARM_REG_C13_C0_3
+    };
+
+    @Override
+    protected int[] getSnapshotRegisters() {
+        return SNAPSHOT_REGISTERS;
+    }
+
     @Override
     protected Pointer getStackPointer() {
         return UnidbgPointer.register(this, ArmConst.UC_ARM_REG_SP);
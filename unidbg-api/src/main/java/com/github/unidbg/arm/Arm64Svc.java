@@ -14,6 +14,23 @@ public abstract class Arm64Svc implements Svc {
 
     private static final Log log = LogFactory.getLog(Arm64Svc.class);
 
+    private final String name;
+
+    public Arm64Svc() {
+        this(null);
+    }
+
+    public Arm64Svc(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return name counted by {@link com.github.unidbg.metrics.EmulatorMetrics}, <code>null</code> if anonymous.
+     */
+    public String getName() {
+        return name;
+    }
+
     public static int assembleSvc(int svcNumber) {
         return 0xd4000001 | (svcNumber << 5);
     }
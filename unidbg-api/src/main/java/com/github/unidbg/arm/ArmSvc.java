@@ -10,6 +10,23 @@ import java.nio.ByteOrder;
 
 public abstract class ArmSvc implements Svc {
 
+    private final String name;
+
+    public ArmSvc() {
+        this(null);
+    }
+
+    public ArmSvc(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return name counted by {@link com.github.unidbg.metrics.EmulatorMetrics}, <code>null</code> if anonymous.
+     */
+    public String getName() {
+        return name;
+    }
+
     public static int assembleSvc(int svcNumber) {
         return 0xef000000 | svcNumber;
     }
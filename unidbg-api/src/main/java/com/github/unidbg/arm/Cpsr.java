@@ -53,7 +53,11 @@ public class Cpsr {
     private static final int THUMB_BIT = 5;
 
     boolean isThumb() {
-        return hasBit(value, THUMB_BIT);
+        return isThumb(value);
+    }
+
+    static boolean isThumb(int cpsr) {
+        return hasBit(cpsr, THUMB_BIT);
     }
 
     private static final int NEGATIVE_BIT = 31;
@@ -0,0 +1,118 @@
+package com.github.unidbg.arm;
+
+import capstone.Capstone;
+import com.github.unidbg.Emulator;
+import com.github.unidbg.memory.Memory;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Decoded instructions by address, reused while the code bytes and the instruction set at the address are unchanged:
+ * tracing a loop decodes its body once instead of once per iteration.
+ */
+public class InstructionCache {
+
+    private static final int MAX_ENTRIES = 0x10000;
+
+    /**
+     * Only single instructions are cached, as traced by the code hook.
+     */
+    static final int MAX_INSTRUCTION_SIZE = 4;
+
+    static class Entry {
+        private final long address;
+        private final boolean thumb;
+        private final byte[] code;
+        final Capstone.CsInsn[] insns;
+
+        private String maxLengthLibraryName;
+        private long maxSizeOfLibrary;
+        private String text;
+
+        Entry(long address, boolean thumb, byte[] code, Capstone.CsInsn[] insns) {
+            this.address = address;
+            this.thumb = thumb;
+            this.code = code;
+            this.insns = insns;
+        }
+
+        /**
+         * @return the trace lines, formatted again when the loaded libraries change the column widths.
+         */
+        String getText(Emulator<?> emulator) {
+            Memory memory = emulator.getMemory();
+            String maxLengthLibraryName = memory.getMaxLengthLibraryName();
+            long maxSizeOfLibrary = memory.getMaxSizeOfLibrary();
+            if (text == null || maxSizeOfLibrary != this.maxSizeOfLibrary ||
+                    (maxLengthLibraryName == null ? this.maxLengthLibraryName != null : !maxLengthLibraryName.equals(this.maxLengthLibraryName))) {
+                StringBuilder sb = new StringBuilder();
+                long address = this.address;
+                for (Capstone.CsInsn ins : insns) {
+                    sb.append("### Trace Instruction ");
+                    sb.append(ARM.assembleDetail(emulator, ins, address, thumb));
+                    sb.append('\n');
+                    address += ins.size;
+                }
+                this.text = sb.toString();
+                this.maxLengthLibraryName = maxLengthLibraryName;
+                this.maxSizeOfLibrary = maxSizeOfLibrary;
+            }
+            return text;
+        }
+    }
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+
+    synchronized Entry get(long address, byte[] code, boolean thumb) {
+        Entry entry = entries.get(address);
+        if (entry != null && entry.thumb == thumb && Arrays.equals(entry.code, code)) {
+            return entry;
+        } else {
+            return null;
+        }
+    }
+
+    synchronized Entry put(long address, byte[] code, boolean thumb, Capstone.CsInsn[] insns) {
+        if (code.length > MAX_INSTRUCTION_SIZE) {
+            throw new IllegalArgumentException("size=" + code.length);
+        }
+        if (entries.size() >= MAX_ENTRIES) {
+            entries.clear();
+        }
+        Entry entry = new Entry(address, thumb, code, insns);
+        entries.put(address, entry);
+        return entry;
+    }
+
+    /**
+     * Drop the instructions overlapping the written range.
+     */
+    public synchronized void invalidate(long address, int size) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        if (entries.size() < size / 2) {
+            for (Iterator<Entry> iterator = entries.values().iterator(); iterator.hasNext(); ) {
+                Entry entry = iterator.next();
+                if (entry.address < address + size && address < entry.address + entry.code.length) {
+                    iterator.remove();
+                }
+            }
+        } else {
+            for (long addr = (address & ~1L) - (MAX_INSTRUCTION_SIZE - 2); addr < address + size; addr += 2) {
+                Entry entry = entries.get(addr);
+                if (entry != null && address < entry.address + entry.code.length) {
+                    entries.remove(addr);
+                }
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+}
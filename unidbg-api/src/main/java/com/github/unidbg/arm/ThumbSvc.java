@@ -10,6 +10,23 @@ import java.nio.ByteOrder;
 
 public abstract class ThumbSvc implements Svc {
 
+    private final String name;
+
+    public ThumbSvc() {
+        this(null);
+    }
+
+    public ThumbSvc(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return name counted by {@link com.github.unidbg.metrics.EmulatorMetrics}, <code>null</code> if anonymous.
+     */
+    public String getName() {
+        return name;
+    }
+
     public static short assembleSvc(int svcNumber) {
         if (svcNumber > 0 && svcNumber <= 0xff) {
             return (short) (0xdf00 | svcNumber);
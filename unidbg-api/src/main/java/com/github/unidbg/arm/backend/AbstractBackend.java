@@ -11,4 +11,23 @@ abstract class AbstractBackend implements Backend {
         return 0;
     }
 
+    @Override
+    public void context_free(long context) {
+    }
+
+    @Override
+    public void reg_read_batch(int[] regIds, long[] out) throws BackendException {
+        for (int i = 0; i < regIds.length; i++) {
+            Number number = reg_read(regIds[i]);
+            out[i] = number instanceof Integer ? number.intValue() & 0xffffffffL : number.longValue();
+        }
+    }
+
+    @Override
+    public void reg_write_batch(int[] regIds, long[] values) throws BackendException {
+        for (int i = 0; i < regIds.length; i++) {
+            reg_write(regIds[i], values[i]);
+        }
+    }
+
 }
@@ -18,6 +18,17 @@ public interface Backend {
 
     void reg_write(int regId, Number value) throws BackendException;
 
+    /**
+     * Reads the registers in one call where the backend supports it.
+     * @param out receives the value of <code>regIds[i]</code> at index <code>i</code>, 32-bit registers are zero extended.
+     */
+    void reg_read_batch(int[] regIds, long[] out) throws BackendException;
+
+    /**
+     * Writes the registers in one call where the backend supports it.
+     */
+    void reg_write_batch(int[] regIds, long[] values) throws BackendException;
+
     byte[] mem_read(long address, long size) throws BackendException;
 
     void mem_write(long address, byte[] bytes) throws BackendException;
@@ -57,6 +68,11 @@ public interface Backend {
     void context_save(long context);
     long context_alloc();
 
+    /**
+     * Frees a context of {@link #context_alloc()}, it must not be used afterwards.
+     */
+    void context_free(long context);
+
     int getPageSize();
 
 }
@@ -1,10 +1,14 @@
 package com.github.unidbg.arm.backend;
 
-import unicorn.Unicorn;
-
+/**
+ * Since 0.9.4 {@link #onAttach(UnHook)} receives the backend neutral {@link UnHook} instead of
+ * <code>unicorn.Unicorn.UnHook</code>: the latter is an inner class of a live unicorn instance, which the
+ * dynarmic, hypervisor and kvm backends cannot hand out. Implementations only need to change the parameter type,
+ * {@link UnHook#unhook()} keeps its meaning.
+ */
 public interface Detachable {
 
-    void onAttach(Unicorn.UnHook unHook);
+    void onAttach(UnHook unHook);
 
     void detach();
 
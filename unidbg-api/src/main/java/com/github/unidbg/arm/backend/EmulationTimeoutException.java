@@ -0,0 +1,23 @@
+package com.github.unidbg.arm.backend;
+
+/**
+ * The emulation was halted because it ran past the timeout given to {@link Backend#emu_start(long, long, long, long)},
+ * the guest is stopped at an arbitrary instruction.
+ */
+public class EmulationTimeoutException extends BackendException {
+
+    private final long timeout;
+
+    public EmulationTimeoutException(long timeout) {
+        super("emulation timeout: " + timeout + "us");
+        this.timeout = timeout;
+    }
+
+    /**
+     * @return the timeout in microseconds.
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+}
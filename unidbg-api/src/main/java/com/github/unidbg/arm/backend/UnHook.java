@@ -0,0 +1,10 @@
+package com.github.unidbg.arm.backend;
+
+/**
+ * Removes a hook added to a {@link Backend}, passed to {@link Detachable#onAttach(UnHook)}.
+ */
+public interface UnHook {
+
+    void unhook();
+
+}
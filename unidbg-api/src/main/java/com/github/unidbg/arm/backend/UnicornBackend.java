@@ -104,6 +104,18 @@ public class UnicornBackend extends AbstractBackend implements Backend {
         }
     }
 
+    @Override
+    public void reg_read_batch(int[] regIds, long[] out) throws BackendException {
+        try {
+            for (int i = 0; i < regIds.length; i++) {
+                Number number = (Number) unicorn.reg_read(regIds[i]);
+                out[i] = is64Bit ? number.longValue() : number.intValue() & 0xffffffffL;
+            }
+        } catch (UnicornException e) {
+            throw new BackendException(e);
+        }
+    }
+
     @Override
     public byte[] mem_read(long address, long size) throws BackendException {
         try {
@@ -207,7 +219,7 @@ public class UnicornBackend extends AbstractBackend implements Backend {
                     callback.hook(UnicornBackend.this, address, size, user);
                 }
             }, begin, end, user_data);
-            callback.onAttach(unHook);
+            callback.onAttach(new UnicornUnHook(unHook));
         } catch (UnicornException e) {
             throw new BackendException(e);
         }
@@ -227,7 +239,7 @@ public class UnicornBackend extends AbstractBackend implements Backend {
                     callback.hook(UnicornBackend.this, address, size, user);
                 }
             }, begin, end, user_data);
-            callback.onAttach(unHook);
+            callback.onAttach(new UnicornUnHook(unHook));
         } catch (UnicornException e) {
             throw new BackendException(e);
         }
@@ -242,7 +254,7 @@ public class UnicornBackend extends AbstractBackend implements Backend {
                     callback.hook(UnicornBackend.this, address, size, user);
                 }
             }, begin, end, user_data);
-            callback.onAttach(unHook);
+            callback.onAttach(new UnicornUnHook(unHook));
         } catch (UnicornException e) {
             throw new BackendException(e);
         }
@@ -257,7 +269,7 @@ public class UnicornBackend extends AbstractBackend implements Backend {
                     callback.hook(UnicornBackend.this, address, size, value, user);
                 }
             }, begin, end, user_data);
-            callback.onAttach(unHook);
+            callback.onAttach(new UnicornUnHook(unHook));
         } catch (UnicornException e) {
             throw new BackendException(e);
         }
@@ -277,6 +289,9 @@ public class UnicornBackend extends AbstractBackend implements Backend {
         }
     }
 
+    private static final int[] THUMB_REGS = new int[]{ArmConst.UC_ARM_REG_PC, ArmConst.UC_ARM_REG_CPSR};
+    private final long[] thumbRegs = new long[THUMB_REGS.length];
+
     @Override
     public void hook_add_new(final InterruptHook callback, Object user_data) throws BackendException {
         try {
@@ -288,8 +303,10 @@ public class UnicornBackend extends AbstractBackend implements Backend {
                         UnidbgPointer pc = UnidbgPointer.register(emulator, Arm64Const.UC_ARM64_REG_PC);
                         swi = (pc.getInt(-4) >> 5) & 0xffff;
                     } else {
-                        UnidbgPointer pc = UnidbgPointer.register(emulator, ArmConst.UC_ARM_REG_PC);
-                        boolean isThumb = ARM.isThumb(UnicornBackend.this);
+                        long[] regs = thumbRegs;
+                        reg_read_batch(THUMB_REGS, regs);
+                        UnidbgPointer pc = UnidbgPointer.pointer(emulator, regs[0]);
+                        boolean isThumb = ARM.isThumb((int) regs[1]);
                         if (isThumb) {
                             swi = pc.getShort(-2) & 0xff;
                         } else {
@@ -313,7 +330,7 @@ public class UnicornBackend extends AbstractBackend implements Backend {
                     callback.hookBlock(UnicornBackend.this, address, size, user);
                 }
             }, begin, end, user_data);
-            callback.onAttach(unHook);
+            callback.onAttach(new UnicornUnHook(unHook));
         } catch (UnicornException e) {
             throw new BackendException(e);
         }
@@ -360,4 +377,21 @@ public class UnicornBackend extends AbstractBackend implements Backend {
     public long context_alloc() {
         return unicorn.context_alloc();
     }
+
+    @Override
+    public void context_free(long context) {
+        unicorn.free(context);
+    }
+
+    private static class UnicornUnHook implements UnHook {
+        private final Unicorn.UnHook unHook;
+        UnicornUnHook(Unicorn.UnHook unHook) {
+            this.unHook = unHook;
+        }
+        @Override
+        public void unhook() {
+            unHook.unhook();
+        }
+    }
+
 }
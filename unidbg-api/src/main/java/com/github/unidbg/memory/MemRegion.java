@@ -51,6 +51,10 @@ public class MemRegion implements Comparable<MemRegion> {
         return libraryFile.getMapRegionName();
     }
 
+    public LibraryFile getLibraryFile() {
+        return libraryFile;
+    }
+
     public byte[] readLibrary() throws IOException {
         ByteBuffer buffer = libraryFile.mapBuffer();
         byte[] data = new byte[buffer.remaining()];
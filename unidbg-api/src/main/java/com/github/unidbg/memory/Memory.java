@@ -41,4 +41,14 @@ public interface Memory extends IO, Loader, StackMemory {
 
     Collection<MemoryMap> getMemoryMap();
 
+    /**
+     * 保存当前内存映射及内容
+     */
+    MemorySnapshot snapshot();
+
+    /**
+     * 恢复到指定快照时的内存映射及内容，只写回与快照内容不同的页
+     */
+    void restore(MemorySnapshot snapshot);
+
 }
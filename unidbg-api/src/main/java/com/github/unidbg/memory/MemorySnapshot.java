@@ -0,0 +1,290 @@
+package com.github.unidbg.memory;
+
+import com.github.unidbg.serialize.Serializable;
+import com.github.unidbg.serialize.ValueSerializer;
+import com.github.unidbg.spi.ValuePair;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Immutable copy of the guest address space taken by {@link Memory#snapshot()}.
+ * Page contents are shared by every restore, all-zero pages are not stored.
+ * Serialized form is page-indexed, so a snapshot read from a memory-mapped file only touches the pages being restored.
+ */
+public class MemorySnapshot implements ValuePair, Serializable {
+
+    /**
+     * Largest region of an image file mapped at once, images bigger than that are mapped in several chunks.
+     */
+    public static final long MAP_CHUNK_SIZE = 1L << 30;
+
+    public final long sp;
+    public final long mmapBaseAddress;
+    public final long stackBase;
+    public final int stackSize;
+    public final int pageSize;
+
+    /**
+     * entries of the loader memory map
+     */
+    public final List<MemoryMap> memoryMaps;
+
+    /**
+     * all captured regions, includes stack and other regions not tracked by the memory map
+     */
+    public final List<MemoryMap> regions;
+
+    private final Map<Long, byte[]> pages;
+
+    public MemorySnapshot(long sp, long mmapBaseAddress, long stackBase, int stackSize, int pageSize,
+                          List<MemoryMap> memoryMaps, List<MemoryMap> regions, Map<Long, byte[]> pages) {
+        this.sp = sp;
+        this.mmapBaseAddress = mmapBaseAddress;
+        this.stackBase = stackBase;
+        this.stackSize = stackSize;
+        this.pageSize = pageSize;
+        this.memoryMaps = Collections.unmodifiableList(memoryMaps);
+        this.regions = Collections.unmodifiableList(regions);
+        this.pages = pages;
+    }
+
+    /**
+     * @return page content or <code>null</code> if the page is filled with zero.
+     */
+    public byte[] getPage(long address) {
+        return pages.get(address);
+    }
+
+    public int getPageCount() {
+        return pages.size();
+    }
+
+    public static boolean isZeroPage(byte[] data, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (data[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return <code>true</code> if <code>data</code> from <code>offset</code> has the content of <code>page</code>.
+     */
+    public static boolean isSamePage(byte[] data, int offset, byte[] page) {
+        if (data.length - offset < page.length) {
+            return false;
+        }
+        for (int i = 0; i < page.length; i++) {
+            if (data[offset + i] != page[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * header, memory maps, regions, primitive context values, page index: (address, length) and then page contents.
+     */
+    @Override
+    public void serialize(DataOutput out) throws IOException {
+        out.writeLong(sp);
+        out.writeLong(mmapBaseAddress);
+        out.writeLong(stackBase);
+        out.writeInt(stackSize);
+        out.writeInt(pageSize);
+        writeMaps(out, memoryMaps);
+        writeMaps(out, regions);
+        ValueSerializer.writeValues(out, context);
+
+        Map<Long, byte[]> pages = new TreeMap<>(this.pages);
+        out.writeInt(pages.size());
+        for (Map.Entry<Long, byte[]> entry : pages.entrySet()) {
+            out.writeLong(entry.getKey());
+            out.writeInt(entry.getValue().length);
+        }
+        for (byte[] data : pages.values()) {
+            out.write(data);
+        }
+    }
+
+    private static void writeMaps(DataOutput out, List<MemoryMap> maps) throws IOException {
+        out.writeInt(maps.size());
+        for (MemoryMap map : maps) {
+            map.serialize(out);
+        }
+    }
+
+    private static List<MemoryMap> readMaps(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        List<MemoryMap> maps = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            maps.add(new MemoryMap(buffer.getLong(), buffer.getLong(), buffer.getInt()));
+        }
+        return maps;
+    }
+
+    /**
+     * Read the snapshot written by {@link #serialize(DataOutput)}, page contents are not copied until restored.
+     * @param buffer big endian, the position will be advanced past the snapshot.
+     */
+    public static MemorySnapshot read(ByteBuffer buffer) throws IOException {
+        return read(buffer, null);
+    }
+
+    /**
+     * Read the snapshot written by {@link #serialize(DataOutput)} at the end of a file, page contents are not copied until restored.
+     * @param buffer mapped from the start of <code>channel</code>, holding the snapshot up to the page contents.
+     * @param channel page contents are mapped from it in chunks of {@link #MAP_CHUNK_SIZE},
+     *                <code>null</code> when <code>buffer</code> holds the whole snapshot.
+     */
+    public static MemorySnapshot read(ByteBuffer buffer, FileChannel channel) throws IOException {
+        long sp = buffer.getLong();
+        long mmapBaseAddress = buffer.getLong();
+        long stackBase = buffer.getLong();
+        int stackSize = buffer.getInt();
+        int pageSize = buffer.getInt();
+        List<MemoryMap> memoryMaps = readMaps(buffer);
+        List<MemoryMap> regions = readMaps(buffer);
+        Map<String, Object> context = new HashMap<>();
+        ValueSerializer.readValues(buffer, context);
+
+        int count = buffer.getInt();
+        Map<Long, long[]> index = new TreeMap<>();
+        long offset = 0;
+        for (int i = 0; i < count; i++) {
+            long address = buffer.getLong();
+            int length = buffer.getInt();
+            index.put(address, new long[]{offset, length});
+            offset += length;
+        }
+        ByteBuffer[] chunks;
+        long chunkSize;
+        if (channel == null) {
+            chunks = new ByteBuffer[]{buffer.slice()};
+            chunkSize = Long.MAX_VALUE;
+            buffer.position(buffer.position() + (int) offset);
+        } else {
+            long position = buffer.position();
+            chunkSize = MAP_CHUNK_SIZE;
+            chunks = new ByteBuffer[(int) ((offset + MAP_CHUNK_SIZE - 1) / MAP_CHUNK_SIZE)];
+            for (int i = 0; i < chunks.length; i++) {
+                long chunkOffset = i * MAP_CHUNK_SIZE;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position + chunkOffset, Math.min(MAP_CHUNK_SIZE, offset - chunkOffset));
+            }
+        }
+
+        MemorySnapshot snapshot = new MemorySnapshot(sp, mmapBaseAddress, stackBase, stackSize, pageSize, memoryMaps, regions, new MappedPages(index, chunks, chunkSize));
+        snapshot.context.putAll(context);
+        return snapshot;
+    }
+
+    /**
+     * Read-only page map over serialized page contents, copies a page on access.
+     */
+    private static class MappedPages extends AbstractMap<Long, byte[]> {
+        private final Map<Long, long[]> index;
+        private final ByteBuffer[] chunks;
+        private final long chunkSize;
+        MappedPages(Map<Long, long[]> index, ByteBuffer[] chunks, long chunkSize) {
+            this.index = index;
+            this.chunks = chunks;
+            this.chunkSize = chunkSize;
+        }
+        @Override
+        public byte[] get(Object key) {
+            long[] entry = index.get(key);
+            if (entry == null) {
+                return null;
+            }
+            byte[] page = new byte[(int) entry[1]];
+            long offset = entry[0];
+            int read = 0;
+            while (read < page.length) { // a page may span two chunks
+                ByteBuffer buffer = chunks[(int) (offset / chunkSize)].duplicate();
+                buffer.position((int) (offset % chunkSize));
+                int length = Math.min(page.length - read, buffer.remaining());
+                buffer.get(page, read, length);
+                read += length;
+                offset += length;
+            }
+            return page;
+        }
+        @Override
+        public boolean containsKey(Object key) {
+            return index.containsKey(key);
+        }
+        @Override
+        public int size() {
+            return index.size();
+        }
+        @Override
+        public Set<Entry<Long, byte[]>> entrySet() {
+            return new AbstractSet<Entry<Long, byte[]>>() {
+                @Override
+                public Iterator<Entry<Long, byte[]>> iterator() {
+                    final Iterator<Long> iterator = index.keySet().iterator();
+                    return new Iterator<Entry<Long, byte[]>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+                        @Override
+                        public Entry<Long, byte[]> next() {
+                            Long address = iterator.next();
+                            return new SimpleImmutableEntry<>(address, get(address));
+                        }
+                        @Override
+                        public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+                @Override
+                public int size() {
+                    return index.size();
+                }
+            };
+        }
+    }
+
+    private final Map<String, Object> context = new HashMap<>();
+
+    /**
+     * @return copy holding what an image holds: the pages are shared, context values bound to this process are left out.
+     */
+    public MemorySnapshot toImage() {
+        MemorySnapshot image = new MemorySnapshot(sp, mmapBaseAddress, stackBase, stackSize, pageSize, memoryMaps, regions, pages);
+        for (Map.Entry<String, Object> entry : context.entrySet()) {
+            if (ValueSerializer.isValue(entry.getValue())) {
+                image.context.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return image;
+    }
+
+    @Override
+    public void set(String key, Object value) {
+        context.put(key, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> T get(String key) {
+        return (T) context.get(key);
+    }
+
+}
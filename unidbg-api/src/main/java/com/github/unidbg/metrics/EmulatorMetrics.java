@@ -0,0 +1,292 @@
+package com.github.unidbg.metrics;
+
+import com.github.unidbg.Emulator;
+import com.github.unidbg.Svc;
+import com.github.unidbg.arm.ARM;
+import com.github.unidbg.arm.Arm64Svc;
+import com.github.unidbg.arm.ArmSvc;
+import com.github.unidbg.arm.ThumbSvc;
+import com.github.unidbg.arm.backend.Backend;
+import com.github.unidbg.arm.backend.BlockHook;
+import com.github.unidbg.arm.backend.UnHook;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ConcurrentModificationException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of one emulator, disabled by default: each probe then costs a volatile read.
+ * Read with the getters, or over JMX after {@link #registerMBean()}.
+ */
+public class EmulatorMetrics implements EmulatorMetricsMXBean {
+
+    /**
+     * Svc name prefixes of the JNI functions.
+     */
+    public static final String JNI_ENV_PREFIX = "JNIEnv->";
+    public static final String JAVA_VM_PREFIX = "JavaVM->";
+
+    private final String processName;
+
+    private volatile boolean enabled;
+
+    private final LatencyHistogram emulateLatency = new LatencyHistogram();
+    private final AtomicLong blockCount = new AtomicLong();
+    private final AtomicLong instructionCount = new AtomicLong();
+    private final ConcurrentMap<Integer, AtomicLong> syscallCounts = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicLong> svcCounts = new ConcurrentHashMap<>();
+    private final Map<String, Gauge> gauges = new ConcurrentHashMap<>();
+
+    public EmulatorMetrics(String processName) {
+        this.processName = processName;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void recordEmulate(long nanos) {
+        emulateLatency.record(nanos);
+    }
+
+    public void countSyscall(int NR) {
+        increment(syscallCounts, NR);
+    }
+
+    public void countSvc(Svc svc, int svcNumber) {
+        String name = getSvcName(svc);
+        increment(svcCounts, name == null ? "svc#0x" + Integer.toHexString(svcNumber) : name);
+    }
+
+    /**
+     * @return name given to the svc, <code>null</code> if none.
+     */
+    public static String getSvcName(Svc svc) {
+        if (svc instanceof ArmSvc) {
+            return ((ArmSvc) svc).getName();
+        }
+        if (svc instanceof ThumbSvc) {
+            return ((ThumbSvc) svc).getName();
+        }
+        if (svc instanceof Arm64Svc) {
+            return ((Arm64Svc) svc).getName();
+        }
+        return null;
+    }
+
+    private static <K> void increment(ConcurrentMap<K, AtomicLong> counts, K key) {
+        AtomicLong count = counts.get(key);
+        if (count == null) {
+            AtomicLong old = counts.putIfAbsent(key, count = new AtomicLong());
+            if (old != null) {
+                count = old;
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    public void registerGauge(String name, Gauge gauge) {
+        gauges.put(name, gauge);
+    }
+
+    public void unregisterGauge(String name) {
+        gauges.remove(name);
+    }
+
+    private UnHook unHook;
+
+    /**
+     * Count executed blocks and instructions while enabled, through a block hook of the backend.
+     * Instructions are estimated from the block size: 4 bytes each, 2 bytes in thumb mode.
+     */
+    public synchronized void countInstructions(final Emulator<?> emulator) {
+        if (unHook != null) {
+            return;
+        }
+        emulator.getBackend().hook_add_new(new BlockHook() {
+            @Override
+            public void hookBlock(Backend backend, long address, int size, Object user) {
+                if (enabled) {
+                    blockCount.incrementAndGet();
+                    int instructionSize = emulator.is32Bit() && ARM.isThumb(backend) ? 2 : 4;
+                    instructionCount.addAndGet(Math.max(1, size / instructionSize));
+                }
+            }
+            @Override
+            public void onAttach(UnHook unHook) {
+                EmulatorMetrics.this.unHook = unHook;
+            }
+            @Override
+            public void detach() {
+                stopCountingInstructions();
+            }
+        }, 1, 0, null);
+    }
+
+    /**
+     * Remove the block hook installed by {@link #countInstructions(Emulator)}, counts are kept.
+     */
+    public synchronized void stopCountingInstructions() {
+        if (unHook != null) {
+            unHook.unhook();
+            unHook = null;
+        }
+    }
+
+    public LatencyHistogram getEmulateLatency() {
+        return emulateLatency;
+    }
+
+    @Override
+    public long getEmulateCount() {
+        return emulateLatency.getCount();
+    }
+
+    @Override
+    public long getEmulateTotalMillis() {
+        return emulateLatency.getTotalNanos() / 1000000L;
+    }
+
+    @Override
+    public long getEmulateMeanMicros() {
+        return emulateLatency.getMeanNanos() / 1000L;
+    }
+
+    @Override
+    public long getEmulateP50Micros() {
+        return emulateLatency.getPercentileNanos(50) / 1000L;
+    }
+
+    @Override
+    public long getEmulateP99Micros() {
+        return emulateLatency.getPercentileNanos(99) / 1000L;
+    }
+
+    @Override
+    public long getEmulateMaxMicros() {
+        return emulateLatency.getMaxNanos() / 1000L;
+    }
+
+    @Override
+    public long getBlockCount() {
+        return blockCount.get();
+    }
+
+    @Override
+    public long getInstructionCount() {
+        return instructionCount.get();
+    }
+
+    public long getSyscallCount(int NR) {
+        AtomicLong count = syscallCounts.get(NR);
+        return count == null ? 0 : count.get();
+    }
+
+    @Override
+    public Map<String, Long> getSyscallCounts() {
+        Map<Integer, Long> sorted = new TreeMap<>();
+        for (Map.Entry<Integer, AtomicLong> entry : syscallCounts.entrySet()) {
+            sorted.put(entry.getKey(), entry.getValue().get());
+        }
+        Map<String, Long> map = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Long> entry : sorted.entrySet()) {
+            map.put(String.valueOf(entry.getKey()), entry.getValue());
+        }
+        return map;
+    }
+
+    @Override
+    public Map<String, Long> getSvcCounts() {
+        Map<String, Long> map = new TreeMap<>();
+        for (Map.Entry<String, AtomicLong> entry : svcCounts.entrySet()) {
+            map.put(entry.getKey(), entry.getValue().get());
+        }
+        return map;
+    }
+
+    @Override
+    public Map<String, Long> getJniCounts() {
+        Map<String, Long> map = new TreeMap<>();
+        for (Map.Entry<String, AtomicLong> entry : svcCounts.entrySet()) {
+            String name = entry.getKey();
+            if (name.startsWith(JNI_ENV_PREFIX) || name.startsWith(JAVA_VM_PREFIX)) {
+                map.put(name, entry.getValue().get());
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Gauges read the emulator state without locking: a gauge that fails while the emulator is changing it is skipped.
+     */
+    @Override
+    public Map<String, Long> getGauges() {
+        Map<String, Long> map = new TreeMap<>();
+        for (Map.Entry<String, Gauge> entry : gauges.entrySet()) {
+            try {
+                map.put(entry.getKey(), entry.getValue().getValue());
+            } catch (ConcurrentModificationException ignored) {
+            }
+        }
+        return map;
+    }
+
+    @Override
+    public void reset() {
+        emulateLatency.reset();
+        blockCount.set(0);
+        instructionCount.set(0);
+        syscallCounts.clear();
+        svcCounts.clear();
+    }
+
+    private ObjectName objectName;
+
+    /**
+     * Register to the platform MBean server as <code>com.github.unidbg:type=EmulatorMetrics</code>, unregistered when the emulator is closed.
+     */
+    public synchronized ObjectName registerMBean() {
+        if (objectName != null) {
+            return objectName;
+        }
+        try {
+            ObjectName objectName = new ObjectName("com.github.unidbg:type=EmulatorMetrics,name=" + ObjectName.quote(processName) + ",id=" + Integer.toHexString(System.identityHashCode(this)));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            this.objectName = objectName;
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public synchronized void unregisterMBean() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            objectName = null;
+        }
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.github.unidbg.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link EmulatorMetrics}.
+ */
+public interface EmulatorMetricsMXBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    long getEmulateCount();
+
+    long getEmulateTotalMillis();
+
+    long getEmulateMeanMicros();
+
+    long getEmulateP50Micros();
+
+    long getEmulateP99Micros();
+
+    long getEmulateMaxMicros();
+
+    /**
+     * Only counted after {@link EmulatorMetrics#countInstructions(com.github.unidbg.Emulator)}.
+     */
+    long getBlockCount();
+
+    /**
+     * Only counted after {@link EmulatorMetrics#countInstructions(com.github.unidbg.Emulator)}.
+     */
+    long getInstructionCount();
+
+    /**
+     * syscall number -> count
+     */
+    Map<String, Long> getSyscallCounts();
+
+    /**
+     * svc name -> count, including the JNI functions.
+     */
+    Map<String, Long> getSvcCounts();
+
+    /**
+     * JNI function name -> count
+     */
+    Map<String, Long> getJniCounts();
+
+    Map<String, Long> getGauges();
+
+    void reset();
+
+}
@@ -0,0 +1,10 @@
+package com.github.unidbg.metrics;
+
+/**
+ * Value sampled when the metrics are read.
+ */
+public interface Gauge {
+
+    long getValue();
+
+}
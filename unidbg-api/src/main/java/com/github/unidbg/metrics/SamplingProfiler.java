@@ -0,0 +1,240 @@
+package com.github.unidbg.metrics;
+
+import com.github.unidbg.Emulator;
+import com.github.unidbg.Module;
+import com.github.unidbg.Symbol;
+import com.github.unidbg.arm.backend.Backend;
+import com.github.unidbg.arm.backend.BlockHook;
+import com.github.unidbg.arm.backend.UnHook;
+import com.github.unidbg.memory.MemRegion;
+import com.github.unidbg.unwind.Frame;
+import com.github.unidbg.unwind.Unwinder;
+import com.github.zhkl0228.demumble.DemanglerFactory;
+import com.github.zhkl0228.demumble.GccDemangler;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sampling profiler of the emulated code.
+ * A timer requests a sample every interval, the next executed block takes it: the stack is walked with
+ * {@link Emulator#getUnwinder()} and symbolized. Between two samples the hook only reads a flag: the cost is the
+ * backend calling the hook for each block, far below tracing the code.
+ * Stacks are aggregated in the folded format of <a href="https://github.com/brendangregg/FlameGraph">FlameGraph</a>,
+ * one <code>root;...;leaf count</code> line per stack, frames named <code>module!symbol</code>.
+ * Needs block hooks of the backend.
+ */
+public class SamplingProfiler implements BlockHook {
+
+    private static ScheduledExecutorService scheduler;
+
+    private static synchronized ScheduledExecutorService getScheduler() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "unidbg-profiler");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return scheduler;
+    }
+
+    private final Emulator<?> emulator;
+    private final long interval;
+    private final TimeUnit unit;
+
+    private int maxDepth = 64;
+
+    private volatile boolean sampleRequested;
+
+    private final ConcurrentMap<String, AtomicLong> stacks = new ConcurrentHashMap<>();
+    private final AtomicLong sampleCount = new AtomicLong();
+
+    /**
+     * Frame names by address, only touched by the emulator thread.
+     */
+    private final Map<Long, String> frameNames = new HashMap<>();
+
+    public SamplingProfiler(Emulator<?> emulator, long interval, TimeUnit unit) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("interval=" + interval);
+        }
+        this.emulator = emulator;
+        this.interval = interval;
+        this.unit = unit;
+    }
+
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    private ScheduledFuture<?> future;
+
+    /**
+     * Install the block hook and start the timer, call it while the emulator is not running.
+     */
+    public synchronized void start() {
+        if (future != null) {
+            return;
+        }
+        if (unHook == null) {
+            emulator.getBackend().hook_add_new(this, 1, 0, null);
+        }
+        future = getScheduler().scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                if (emulator.isRunning()) { // not charging the time between two calls to the first block of the next one
+                    sampleRequested = true;
+                }
+            }
+        }, interval, interval, unit);
+    }
+
+    /**
+     * Stop the timer and remove the block hook, call it while the emulator is not running.
+     * The collected stacks are kept.
+     */
+    public synchronized void stop() {
+        if (future != null) {
+            future.cancel(false);
+            future = null;
+        }
+        sampleRequested = false;
+        detach();
+    }
+
+    private UnHook unHook;
+
+    @Override
+    public void onAttach(UnHook unHook) {
+        if (this.unHook != null) {
+            throw new IllegalStateException();
+        }
+        this.unHook = unHook;
+    }
+
+    @Override
+    public void detach() {
+        if (unHook != null) {
+            unHook.unhook();
+            unHook = null;
+        }
+    }
+
+    @Override
+    public void hookBlock(Backend backend, long address, int size, Object user) {
+        if (sampleRequested) {
+            sampleRequested = false;
+            sample(address);
+        }
+    }
+
+    private void sample(long pc) {
+        String leaf = getFrameName(pc);
+        Unwinder unwinder = emulator.getUnwinder();
+        List<Frame> frames = unwinder.getFrames(maxDepth);
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < frames.size(); i++) {
+            String name = getFrameName(frames.get(i).ip.peer);
+            // the first caller comes from lr without a frame record after the function made a call
+            if (i == 0 && name.equals(leaf)) {
+                continue;
+            }
+            sb.insert(0, ';').insert(0, name);
+        }
+        sb.append(leaf);
+
+        String stack = sb.toString();
+        AtomicLong count = stacks.get(stack);
+        if (count == null) {
+            AtomicLong old = stacks.putIfAbsent(stack, count = new AtomicLong());
+            if (old != null) {
+                count = old;
+            }
+        }
+        count.incrementAndGet();
+        sampleCount.incrementAndGet();
+    }
+
+    private String getFrameName(long address) {
+        String name = frameNames.get(address);
+        if (name == null) {
+            name = symbolize(address);
+            frameNames.put(address, name);
+        }
+        return name;
+    }
+
+    private String symbolize(long address) {
+        Module module = emulator.getMemory().findModuleByAddress(address);
+        if (module == null) {
+            MemRegion region = emulator.getSvcMemory().findRegion(address);
+            return region == null ? "0x" + Long.toHexString(address) : region.getName();
+        }
+        Symbol symbol = module.findClosestSymbolByAddress(address, false);
+        if (symbol != null && address - symbol.getAddress() <= Unwinder.SYMBOL_SIZE) {
+            GccDemangler demangler = DemanglerFactory.createDemangler();
+            return module.name + '!' + demangler.demangle(symbol.getName()).replace(';', ':');
+        }
+        return module.name + "!0x" + Long.toHexString(address - module.base);
+    }
+
+    public long getSampleCount() {
+        return sampleCount.get();
+    }
+
+    /**
+     * @return folded stack -> sample count
+     */
+    public Map<String, Long> getFoldedStacks() {
+        Map<String, Long> map = new TreeMap<>();
+        for (Map.Entry<String, AtomicLong> entry : stacks.entrySet()) {
+            map.put(entry.getKey(), entry.getValue().get());
+        }
+        return map;
+    }
+
+    public void writeFolded(Writer writer) {
+        PrintWriter printWriter = new PrintWriter(writer);
+        for (Map.Entry<String, Long> entry : getFoldedStacks().entrySet()) {
+            printWriter.print(entry.getKey());
+            printWriter.print(' ');
+            printWriter.print(entry.getValue());
+            printWriter.print('\n');
+        }
+        printWriter.flush();
+    }
+
+    public void writeFolded(File file) throws IOException {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writeFolded(writer);
+        }
+    }
+
+    public void reset() {
+        stacks.clear();
+        sampleCount.set(0);
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.github.unidbg.serialize;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read and write the primitive entries of a {@link com.github.unidbg.spi.ValuePair}, other values are bound to the running process and skipped.
+ * A {@link ByteBuffer} value is written with its remaining bytes and read back as a read-only slice of the source buffer.
+ */
+public class ValueSerializer {
+
+    private static final int TYPE_NULL = 0;
+    private static final int TYPE_LONG = 1;
+    private static final int TYPE_INT = 2;
+    private static final int TYPE_BOOLEAN = 3;
+    private static final int TYPE_STRING = 4;
+    private static final int TYPE_BYTES = 5;
+
+    /**
+     * @return <code>true</code> if the value is written by {@link #writeValues(DataOutput, Map)}.
+     */
+    public static boolean isValue(Object value) {
+        return value == null || value instanceof Long || value instanceof Integer || value instanceof Boolean || value instanceof String || value instanceof ByteBuffer;
+    }
+
+    public static void writeValues(DataOutput out, Map<String, Object> values) throws IOException {
+        List<Map.Entry<String, Object>> list = new ArrayList<>(values.size());
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            if (isValue(entry.getValue())) {
+                list.add(entry);
+            }
+        }
+        out.writeInt(list.size());
+        for (Map.Entry<String, Object> entry : list) {
+            writeString(out, entry.getKey());
+            Object value = entry.getValue();
+            if (value == null) {
+                out.writeByte(TYPE_NULL);
+            } else if (value instanceof Long) {
+                out.writeByte(TYPE_LONG);
+                out.writeLong((Long) value);
+            } else if (value instanceof Integer) {
+                out.writeByte(TYPE_INT);
+                out.writeInt((Integer) value);
+            } else if (value instanceof Boolean) {
+                out.writeByte(TYPE_BOOLEAN);
+                out.writeBoolean((Boolean) value);
+            } else if (value instanceof ByteBuffer) {
+                ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+                out.writeByte(TYPE_BYTES);
+                out.writeInt(buffer.remaining());
+                byte[] data = new byte[Math.min(buffer.remaining(), 0x10000)];
+                while (buffer.hasRemaining()) {
+                    int length = Math.min(data.length, buffer.remaining());
+                    buffer.get(data, 0, length);
+                    out.write(data, 0, length);
+                }
+            } else {
+                out.writeByte(TYPE_STRING);
+                writeString(out, (String) value);
+            }
+        }
+    }
+
+    public static void readValues(ByteBuffer buffer, Map<String, Object> values) {
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            String key = readString(buffer);
+            int type = buffer.get();
+            switch (type) {
+                case TYPE_NULL:
+                    values.put(key, null);
+                    break;
+                case TYPE_LONG:
+                    values.put(key, buffer.getLong());
+                    break;
+                case TYPE_INT:
+                    values.put(key, buffer.getInt());
+                    break;
+                case TYPE_BOOLEAN:
+                    values.put(key, buffer.get() != 0);
+                    break;
+                case TYPE_STRING:
+                    values.put(key, readString(buffer));
+                    break;
+                case TYPE_BYTES: {
+                    int length = buffer.getInt();
+                    ByteBuffer bytes = buffer.slice();
+                    bytes.limit(length);
+                    values.put(key, bytes.asReadOnlyBuffer());
+                    buffer.position(buffer.position() + length);
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Invalid value type: key=" + key + ", type=" + type);
+            }
+        }
+    }
+
+    public static void writeString(DataOutput out, String str) throws IOException {
+        byte[] data = str.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    public static String readString(ByteBuffer buffer) {
+        byte[] data = new byte[buffer.getInt()];
+        buffer.get(data);
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+}
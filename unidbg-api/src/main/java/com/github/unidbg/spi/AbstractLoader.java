@@ -12,6 +12,9 @@ import com.github.unidbg.file.NewFileIO;
 import com.github.unidbg.hook.HookListener;
 import com.github.unidbg.memory.Memory;
 import com.github.unidbg.memory.MemoryMap;
+import com.github.unidbg.memory.MemorySnapshot;
+import com.github.unidbg.memory.SvcMemory;
+import com.github.unidbg.metrics.Gauge;
 import com.github.unidbg.pointer.UnidbgPointer;
 import com.github.unidbg.unix.UnixEmulator;
 import com.github.unidbg.unix.UnixSyscallHandler;
@@ -20,6 +23,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import unicorn.Arm64Const;
 import unicorn.ArmConst;
+import unicorn.UnicornConst;
 
 import java.io.DataOutput;
 import java.io.File;
@@ -30,8 +34,12 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 
 public abstract class AbstractLoader<T extends NewFileIO> implements Memory, Loader {
@@ -60,6 +68,23 @@ public abstract class AbstractLoader<T extends NewFileIO> implements Memory, Loa
         this.syscallHandler = syscallHandler;
 
         setMMapBaseAddress(MMAP_BASE);
+
+        emulator.getMetrics().registerGauge("memory.mappedBytes", new Gauge() {
+            @Override
+            public long getValue() {
+                long size = 0;
+                for (MemoryMap map : memoryMap.values()) {
+                    size += map.size;
+                }
+                return size;
+            }
+        });
+        emulator.getMetrics().registerGauge("memory.mapCount", new Gauge() {
+            @Override
+            public long getValue() {
+                return memoryMap.size();
+            }
+        });
     }
 
     @Override
@@ -230,9 +255,25 @@ public abstract class AbstractLoader<T extends NewFileIO> implements Memory, Loa
 
     protected final List<HookListener> hookListeners = new ArrayList<>();
 
+    /**
+     * Symbols bound to a hook in call order: <code>listener index, library name, symbol name, old address</code>,
+     * replayed when restored from an image to register the same svcs again.
+     */
+    private final List<String> hooks = new ArrayList<>();
+
     @Override
-    public final void addHookListener(HookListener listener) {
-        hookListeners.add(listener);
+    public final void addHookListener(final HookListener listener) {
+        final int index = hookListeners.size();
+        hookListeners.add(new HookListener() {
+            @Override
+            public long hook(SvcMemory svcMemory, String libraryName, String symbolName, long old) {
+                long hook = listener.hook(svcMemory, libraryName, symbolName, old);
+                if (hook > 0) {
+                    hooks.add(index + "\t" + libraryName + "\t" + symbolName + "\t" + old);
+                }
+                return hook;
+            }
+        });
     }
 
     protected LibraryResolver libraryResolver;
@@ -373,22 +414,167 @@ public abstract class AbstractLoader<T extends NewFileIO> implements Memory, Loa
         throw new UnsupportedOperationException();
     }
 
+    private static final int SNAPSHOT_READ_PAGES = 256;
+
     @Override
-    public void serialize(DataOutput out) throws IOException {
-        out.writeLong(sp);
-        out.writeLong(mmapBaseAddress);
-        out.writeLong(stackBase);
-        out.writeLong(stackSize);
-        out.writeInt(memoryMap.size());
-        for (Map.Entry<Long, MemoryMap> entry : memoryMap.entrySet()) {
-            MemoryMap map = entry.getValue();
-            out.writeLong(entry.getKey());
-            map.serialize(out);
-            UnidbgPointer pointer = UnidbgPointer.pointer(emulator, map.base);
-            assert pointer != null;
-            byte[] data = pointer.getByteArray(0, (int) map.size);
-            out.write(data);
+    public MemorySnapshot snapshot() {
+        int pageSize = emulator.getPageAlign();
+        List<MemoryMap> regions = getSnapshotRegions();
+        Map<Long, byte[]> pages = new HashMap<>();
+        for (MemoryMap region : regions) {
+            long end = region.base + region.size;
+            for (long address = region.base; address < end; ) {
+                int size = (int) Math.min(end - address, (long) pageSize * SNAPSHOT_READ_PAGES);
+                byte[] data = backend.mem_read(address, size);
+                for (int offset = 0; offset < size; offset += pageSize) {
+                    int length = Math.min(pageSize, size - offset);
+                    if (!MemorySnapshot.isZeroPage(data, offset, length)) {
+                        pages.put(address + offset, Arrays.copyOfRange(data, offset, offset + length));
+                    }
+                }
+                address += size;
+            }
+        }
+        MemorySnapshot snapshot = new MemorySnapshot(sp, mmapBaseAddress, stackBase, stackSize, pageSize,
+                new ArrayList<>(memoryMap.values()), regions, pages);
+        onSnapshot(snapshot);
+        if (log.isDebugEnabled()) {
+            log.debug("snapshot regions=" + regions.size() + ", pages=" + pages.size());
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return regions whose content will be captured: memory map, stack and svc memory.
+     */
+    protected List<MemoryMap> getSnapshotRegions() {
+        List<MemoryMap> regions = new ArrayList<>(memoryMap.values());
+        regions.add(new MemoryMap(stackBase - stackSize, stackSize, UnicornConst.UC_PROT_READ | UnicornConst.UC_PROT_WRITE));
+        SvcMemory svcMemory = emulator.getSvcMemory();
+        regions.add(new MemoryMap(svcMemory.getBase(), svcMemory.getSize(), UnicornConst.UC_PROT_READ | UnicornConst.UC_PROT_EXEC));
+        return regions;
+    }
+
+    /**
+     * save loader specific state
+     */
+    protected void onSnapshot(MemorySnapshot snapshot) {
+        snapshot.set("hooks", new ArrayList<>(hooks));
+        StringBuilder builder = new StringBuilder();
+        for (String hook : hooks) {
+            builder.append(hook).append('\n');
+        }
+        snapshot.set("loader.image.hooks", builder.toString());
+    }
+
+    /**
+     * restore loader specific state, called after memory map restored and before memory content restored.
+     */
+    protected void onRestore(MemorySnapshot snapshot) {
+        this.hooks.clear();
+        if (!isImage(snapshot)) {
+            this.hooks.addAll(snapshot.<List<String>>get("hooks"));
+            return;
+        }
+
+        String image = snapshot.get("loader.image.hooks");
+        for (String line : image.isEmpty() ? new String[0] : image.split("\n")) { // restored from image: register the hooked svcs again
+            String[] fields = line.split("\t");
+            int index = Integer.parseInt(fields[0]);
+            if (index >= hookListeners.size()) {
+                throw new IllegalStateException("Image hooked " + fields[2] + " of " + fields[1] + " by hook listener #" + index + ", add the same hook listeners before restore");
+            }
+            hookListeners.get(index).hook(emulator.getSvcMemory(), fields[1], fields[2], Long.parseLong(fields[3]));
+        }
+    }
+
+    /**
+     * Sets the library resolver of this loader to the loader of a forked emulator.
+     */
+    public void onFork(Memory forked) {
+        if (libraryResolver != null) {
+            forked.setLibraryResolver(libraryResolver);
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the snapshot was read from an image or copied for a fork: it holds no object bound to this process.
+     */
+    protected static boolean isImage(MemorySnapshot snapshot) {
+        return snapshot.get("hooks") == null;
+    }
+
+    @Override
+    public void restore(MemorySnapshot snapshot) {
+        if (snapshot.pageSize != emulator.getPageAlign()) {
+            throw new IllegalArgumentException("pageSize=" + snapshot.pageSize);
+        }
+
+        Map<Long, MemoryMap> maps = new HashMap<>();
+        for (MemoryMap map : snapshot.memoryMaps) {
+            maps.put(map.base, map);
+        }
+        for (Iterator<MemoryMap> iterator = memoryMap.values().iterator(); iterator.hasNext(); ) {
+            MemoryMap map = iterator.next();
+            MemoryMap old = maps.get(map.base);
+            if (old == null || old.size != map.size || old.prot != map.prot) {
+                backend.mem_unmap(map.base, map.size);
+                iterator.remove();
+            }
+        }
+        Set<Long> mapped = new HashSet<>();
+        for (MemoryMap map : snapshot.memoryMaps) {
+            if (!memoryMap.containsKey(map.base)) {
+                backend.mem_map(map.base, map.size, map.prot);
+                memoryMap.put(map.base, map);
+                mapped.add(map.base);
+            }
         }
+        onRestore(snapshot);
+
+        int pageSize = snapshot.pageSize;
+        byte[] zero = new byte[pageSize];
+        int dirty = 0;
+        for (MemoryMap region : snapshot.regions) {
+            long end = region.base + region.size;
+            boolean zeroFilled = mapped.contains(region.base); // new mapped memory is zero filled
+            for (long address = region.base; address < end; ) {
+                int size = (int) Math.min(end - address, (long) pageSize * SNAPSHOT_READ_PAGES);
+                byte[] current = zeroFilled ? null : backend.mem_read(address, size);
+                for (int offset = 0; offset < size; offset += pageSize) {
+                    int length = Math.min(pageSize, size - offset);
+                    byte[] data = snapshot.getPage(address + offset);
+                    boolean same;
+                    if (current == null) {
+                        same = data == null;
+                    } else {
+                        same = data == null ? MemorySnapshot.isZeroPage(current, offset, length) : MemorySnapshot.isSamePage(current, offset, data);
+                    }
+                    if (same) {
+                        continue;
+                    }
+                    if (data == null) {
+                        data = length < zero.length ? Arrays.copyOf(zero, length) : zero;
+                    }
+                    backend.mem_write(address + offset, data);
+                    dirty++;
+                }
+                address += size;
+            }
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("restore regions=" + snapshot.regions.size() + ", dirty pages=" + dirty);
+        }
+
+        this.stackBase = snapshot.stackBase;
+        this.stackSize = snapshot.stackSize;
+        setStackPoint(snapshot.sp);
+        setMMapBaseAddress(snapshot.mmapBaseAddress);
+    }
+
+    @Override
+    public void serialize(DataOutput out) throws IOException {
+        snapshot().serialize(out);
     }
 
 }
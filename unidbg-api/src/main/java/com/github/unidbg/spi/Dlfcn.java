@@ -6,13 +6,10 @@ import com.github.unidbg.hook.HookListener;
 import com.github.unidbg.memory.Memory;
 import com.github.unidbg.memory.SvcMemory;
 import com.github.unidbg.pointer.UnidbgPointer;
-import com.github.unidbg.serialize.Serializable;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
-import java.io.DataOutput;
-
-public abstract class Dlfcn implements HookListener, Serializable {
+public abstract class Dlfcn implements HookListener {
 
     private static final Log log = LogFactory.getLog(Dlfcn.class);
 
@@ -34,9 +31,4 @@ public abstract class Dlfcn implements HookListener, Serializable {
         }
         return symbol.getAddress();
     }
-
-    @Override
-    public void serialize(DataOutput out) {
-        throw new UnsupportedOperationException();
-    }
 }
@@ -5,15 +5,16 @@ import com.github.unidbg.arm.backend.InterruptHook;
 import com.github.unidbg.debugger.Breaker;
 import com.github.unidbg.file.IOResolver;
 import com.github.unidbg.file.NewFileIO;
-import com.github.unidbg.serialize.Serializable;
 import com.github.unidbg.unix.FileListener;
+import com.github.unidbg.unix.ThreadScheduler;
+import com.github.unidbg.unix.TimeSource;
 
 /**
  * syscall handler
  * Created by zhkl0228 on 2017/5/9.
  */
 
-public interface SyscallHandler<T extends NewFileIO> extends InterruptHook, Serializable {
+public interface SyscallHandler<T extends NewFileIO> extends InterruptHook {
 
     int DARWIN_SWI_SYSCALL = 0x80;
 
@@ -30,4 +31,15 @@ public interface SyscallHandler<T extends NewFileIO> extends InterruptHook, Seri
 
     void setBreaker(Breaker breaker);
 
+    /**
+     * Clock of time related syscalls, use {@link com.github.unidbg.unix.VirtualTimeSource} so guest sleeps do not block.
+     */
+    void setTimeSource(TimeSource timeSource);
+    TimeSource getTimeSource();
+
+    /**
+     * Runs the cloned guest threads along with the calling thread.
+     */
+    ThreadScheduler getThreadScheduler();
+
 }
@@ -0,0 +1,102 @@
+package com.github.unidbg.trace;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Layout of the binary trace.
+ * <p>
+ * The file starts with an uncompressed header: {@link #MAGIC}, version byte, flags byte, register count then register ids.
+ * Records follow in deflated blocks: raw size and compressed size as little endian ints, then the compressed bytes.
+ * A record never spans two blocks.
+ * <p>
+ * Each record starts with its tag byte, numbers are varints, signed deltas are zigzag encoded:
+ * <ul>
+ *     <li>{@link #TAG_LAYOUT}: longest library name, largest library size, the column widths of the text trace.</li>
+ *     <li>{@link #TAG_MODULE}: base, size, name of a module, written before the first record inside it.</li>
+ *     <li>{@link #TAG_REGION}: base, size, prot of a memory map, written before the first pc or lr inside it.</li>
+ *     <li>{@link #TAG_CODE}: address, thumb, size and bytes of the instruction at an address, written again when they change.</li>
+ *     <li>{@link #TAG_REGISTERS}: mask of the changed registers, then their delta, before the instruction.</li>
+ *     <li>{@link #TAG_NEXT_INSTRUCTION}: the instruction following the previous one.</li>
+ *     <li>{@link #TAG_INSTRUCTION}: delta from the previous pc.</li>
+ *     <li>{@link #TAG_READ}: address delta from the previous access, size, data, pc delta, lr delta.</li>
+ *     <li>{@link #TAG_WRITE}: address delta from the previous access, size, value, pc delta, lr delta.</li>
+ * </ul>
+ */
+final class TraceFormat {
+
+    static final byte[] MAGIC = "UNIDBGTR".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 1;
+
+    static final int FLAG_64_BIT = 1;
+    static final int FLAG_REGISTERS = 2;
+
+    static final int TAG_LAYOUT = 1;
+    static final int TAG_MODULE = 2;
+    static final int TAG_REGION = 3;
+    static final int TAG_CODE = 4;
+    static final int TAG_REGISTERS = 5;
+    static final int TAG_NEXT_INSTRUCTION = 6;
+    static final int TAG_INSTRUCTION = 7;
+    static final int TAG_READ = 8;
+    static final int TAG_WRITE = 9;
+
+    static final int MAX_VARINT_SIZE = 10;
+
+    static void putVarint(ByteBuffer buffer, long value) {
+        while ((value & ~0x7fL) != 0) {
+            buffer.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static long getVarint(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint");
+    }
+
+    static void putSigned(ByteBuffer buffer, long value) {
+        putVarint(buffer, (value << 1) ^ (value >> 63));
+    }
+
+    static long getSigned(ByteBuffer buffer) {
+        long value = getVarint(buffer);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * <code>null</code> is written as length 0, other strings as length + 1.
+     */
+    static void putString(ByteBuffer buffer, String str) {
+        if (str == null) {
+            putVarint(buffer, 0);
+        } else {
+            byte[] data = str.getBytes(StandardCharsets.UTF_8);
+            putVarint(buffer, data.length + 1);
+            buffer.put(data);
+        }
+    }
+
+    static String getString(ByteBuffer buffer) {
+        int length = (int) getVarint(buffer);
+        if (length == 0) {
+            return null;
+        }
+        byte[] data = new byte[length - 1];
+        buffer.get(data);
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    static int sizeOf(String str) {
+        return str == null ? 1 : MAX_VARINT_SIZE + str.length() * 3;
+    }
+
+}
@@ -0,0 +1,408 @@
+package com.github.unidbg.trace;
+
+import capstone.Capstone;
+import com.github.unidbg.arm.ARM;
+import org.apache.commons.codec.binary.Hex;
+import unicorn.UnicornConst;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a trace written by {@link TraceRecorder}, without an emulator: {@link #render(PrintStream)} prints it as
+ * {@link com.github.unidbg.Emulator#traceCode()}, {@link com.github.unidbg.Emulator#traceRead()} and
+ * {@link com.github.unidbg.Emulator#traceWrite()} would have.
+ * <p>
+ * <code>java com.github.unidbg.trace.TraceReader trace.bin [trace.txt]</code>
+ */
+public class TraceReader implements Closeable {
+
+    public static class RecordedModule {
+        public final String name;
+        public final long base;
+        public final long size;
+        RecordedModule(String name, long base, long size) {
+            this.name = name;
+            this.base = base;
+            this.size = size;
+        }
+    }
+
+    private static class Region {
+        final long end;
+        final int prot;
+        Region(long end, int prot) {
+            this.end = end;
+            this.prot = prot;
+        }
+    }
+
+    private static class Code {
+        final byte[] code;
+        final boolean thumb;
+        String text;
+        int layout;
+        Code(byte[] code, boolean thumb) {
+            this.code = code;
+            this.thumb = thumb;
+        }
+    }
+
+    private final FileChannel channel;
+    private final boolean is64Bit;
+    private final int[] registerIds;
+
+    public TraceReader(File file) throws IOException {
+        this.channel = new RandomAccessFile(file, "r").getChannel();
+
+        try {
+            ByteBuffer header = ByteBuffer.allocate(TraceFormat.MAGIC.length + 2);
+            readFully(header);
+            byte[] magic = new byte[TraceFormat.MAGIC.length];
+            header.get(magic);
+            int version = header.get() & 0xff;
+            if (!Arrays.equals(magic, TraceFormat.MAGIC) || version != TraceFormat.VERSION) {
+                throw new IOException("Not a trace file: " + file);
+            }
+            int flags = header.get() & 0xff;
+            this.is64Bit = (flags & TraceFormat.FLAG_64_BIT) != 0;
+
+            ByteBuffer varint = ByteBuffer.allocate(1);
+            this.registerIds = new int[(int) readVarint(varint)];
+            for (int i = 0; i < registerIds.length; i++) {
+                registerIds[i] = (int) readVarint(varint);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private long readVarint(ByteBuffer one) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            one.clear();
+            readFully(one);
+            byte b = one.get();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private boolean readFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) == -1) {
+                if (buffer.position() == 0) {
+                    return false;
+                }
+                throw new EOFException();
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+
+    public boolean is64Bit() {
+        return is64Bit;
+    }
+
+    /**
+     * @return unicorn ids of the recorded registers, empty if they were not recorded.
+     */
+    public int[] getRegisterIds() {
+        return registerIds.clone();
+    }
+
+    private final TreeMap<Long, RecordedModule> modules = new TreeMap<>();
+    private final TreeMap<Long, Region> regions = new TreeMap<>();
+    private final Map<Long, Code> codes = new HashMap<>();
+
+    private String maxLengthLibraryName;
+    private long maxSizeOfLibrary;
+    private int layout;
+
+    /**
+     * @return the module holding the address as recorded so far, while visiting.
+     */
+    public RecordedModule findModule(long address) {
+        Map.Entry<Long, RecordedModule> entry = modules.floorEntry(address);
+        if (entry != null && address < entry.getKey() + entry.getValue().size) {
+            return entry.getValue();
+        }
+        return null;
+    }
+
+    /**
+     * Visit the records, once.
+     */
+    public void accept(TraceVisitor visitor) throws IOException {
+        long[] registers = registerIds.length == 0 ? null : new long[registerIds.length];
+        long lastPc = 0, nextPc = -1, lastLr = 0, lastAccess = 0;
+
+        ByteBuffer blockHeader = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer compressed = ByteBuffer.allocate(0);
+        byte[] raw = new byte[0];
+        Inflater inflater = new Inflater();
+        try {
+            while (true) {
+                blockHeader.clear();
+                if (!readFully(blockHeader)) {
+                    break;
+                }
+                int size = blockHeader.getInt();
+                int length = blockHeader.getInt();
+                if (compressed.capacity() < length) {
+                    compressed = ByteBuffer.allocate(length);
+                }
+                compressed.clear();
+                compressed.limit(length);
+                readFully(compressed);
+                if (raw.length < size) {
+                    raw = new byte[size];
+                }
+                inflater.reset();
+                inflater.setInput(compressed.array(), 0, length);
+                try {
+                    if (inflater.inflate(raw, 0, size) != size) {
+                        throw new IOException("Truncated block");
+                    }
+                } catch (DataFormatException e) {
+                    throw new IOException(e);
+                }
+
+                ByteBuffer buffer = ByteBuffer.wrap(raw, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+                while (buffer.hasRemaining()) {
+                    int tag = buffer.get();
+                    switch (tag) {
+                        case TraceFormat.TAG_LAYOUT:
+                            maxLengthLibraryName = TraceFormat.getString(buffer);
+                            maxSizeOfLibrary = TraceFormat.getVarint(buffer);
+                            layout++;
+                            break;
+                        case TraceFormat.TAG_MODULE: {
+                            long base = TraceFormat.getVarint(buffer);
+                            long moduleSize = TraceFormat.getVarint(buffer);
+                            String name = TraceFormat.getString(buffer);
+                            modules.put(base, new RecordedModule(name, base, moduleSize));
+                            layout++;
+                            break;
+                        }
+                        case TraceFormat.TAG_REGION: {
+                            long base = TraceFormat.getVarint(buffer);
+                            long regionSize = TraceFormat.getVarint(buffer);
+                            int prot = (int) TraceFormat.getVarint(buffer);
+                            regions.put(base, new Region(base + regionSize, prot));
+                            break;
+                        }
+                        case TraceFormat.TAG_CODE: {
+                            long address = TraceFormat.getVarint(buffer);
+                            boolean thumb = buffer.get() != 0;
+                            byte[] code = new byte[buffer.get() & 0xff];
+                            buffer.get(code);
+                            codes.put(address, new Code(code, thumb));
+                            break;
+                        }
+                        case TraceFormat.TAG_REGISTERS: {
+                            if (registers == null) {
+                                throw new IOException("Registers were not recorded");
+                            }
+                            long mask = TraceFormat.getVarint(buffer);
+                            for (int i = 0; i < registers.length; i++) {
+                                if ((mask & (1L << i)) != 0) {
+                                    registers[i] += TraceFormat.getSigned(buffer);
+                                }
+                            }
+                            break;
+                        }
+                        case TraceFormat.TAG_NEXT_INSTRUCTION:
+                        case TraceFormat.TAG_INSTRUCTION: {
+                            long address = tag == TraceFormat.TAG_NEXT_INSTRUCTION ? nextPc : lastPc + TraceFormat.getSigned(buffer);
+                            Code code = codes.get(address);
+                            if (code == null) {
+                                throw new IOException("No code at 0x" + Long.toHexString(address));
+                            }
+                            visitor.onInstruction(address, code.code, code.thumb, registers);
+                            lastPc = address;
+                            nextPc = address + code.code.length;
+                            break;
+                        }
+                        case TraceFormat.TAG_READ: {
+                            long address = lastAccess + TraceFormat.getSigned(buffer);
+                            byte[] data = new byte[(int) TraceFormat.getVarint(buffer)];
+                            buffer.get(data);
+                            lastPc += TraceFormat.getSigned(buffer);
+                            lastLr += TraceFormat.getSigned(buffer);
+                            visitor.onRead(address, data, lastPc, lastLr);
+                            lastAccess = address;
+                            break;
+                        }
+                        case TraceFormat.TAG_WRITE: {
+                            long address = lastAccess + TraceFormat.getSigned(buffer);
+                            int accessSize = (int) TraceFormat.getVarint(buffer);
+                            long value = TraceFormat.getVarint(buffer);
+                            lastPc += TraceFormat.getSigned(buffer);
+                            lastLr += TraceFormat.getSigned(buffer);
+                            visitor.onWrite(address, accessSize, value, lastPc, lastLr);
+                            lastAccess = address;
+                            break;
+                        }
+                        default:
+                            throw new IOException("Unknown record: tag=" + tag);
+                    }
+                }
+            }
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Print the trace in the text format of the trace hooks.
+     */
+    public void render(final PrintStream out) throws IOException {
+        accept(new TraceVisitor() {
+            @Override
+            public void onInstruction(long address, byte[] code, boolean thumb, long[] registers) {
+                out.print(getText(address));
+            }
+            @Override
+            public void onRead(long address, byte[] data, long pc, long lr) {
+                String value;
+                if (data.length == 4) {
+                    value = "0x" + Long.toHexString(ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN).getInt() & 0xffffffffL);
+                } else if (data.length == 8) {
+                    value = "0x" + Long.toHexString(ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN).getLong());
+                } else {
+                    value = "0x" + Hex.encodeHexString(data);
+                }
+                printMsg("### Memory READ at 0x", address, data.length, value, pc, lr);
+            }
+            @Override
+            public void onWrite(long address, int size, long value, long pc, long lr) {
+                printMsg("### Memory WRITE at 0x", address, size, "0x" + Long.toHexString(value), pc, lr);
+            }
+            private void printMsg(String type, long address, int size, String value, long pc, long lr) {
+                out.println(type + Long.toHexString(address) + ", data size = " + size + ", data value = " + value +
+                        " pc=" + toPointerString(pc) +
+                        " lr=" + toPointerString(lr));
+            }
+        });
+    }
+
+    private String getText(long address) {
+        Code code = codes.get(address);
+        if (code.text == null || code.layout != layout) {
+            Capstone.CsInsn[] insns = getCapstone(code.thumb).disasm(code.code, address);
+            RecordedModule module = findModule(address);
+            StringBuilder sb = new StringBuilder();
+            for (Capstone.CsInsn ins : insns) {
+                sb.append("### Trace Instruction ");
+                ARM.appendInstruction(sb, ins, ins.address, code.thumb, module == null ? null : module.name, module == null ? 0 : module.base,
+                        maxLengthLibraryName, maxSizeOfLibrary, ' ');
+                sb.append('\n');
+            }
+            code.text = sb.toString();
+            code.layout = layout;
+        }
+        return code.text;
+    }
+
+    /**
+     * @return the pointer as <code>UnidbgPointer.toString()</code> would print it.
+     */
+    public String toPointerString(long address) {
+        if (address == 0) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder();
+        Map.Entry<Long, Region> entry = regions.floorEntry(address);
+        if (entry == null || address >= entry.getValue().end) {
+            sb.append("unidbg");
+        } else {
+            int prot = entry.getValue().prot;
+            if ((prot & UnicornConst.UC_PROT_READ) != 0) {
+                sb.append('R');
+            }
+            if ((prot & UnicornConst.UC_PROT_WRITE) != 0) {
+                sb.append('W');
+            }
+            if ((prot & UnicornConst.UC_PROT_EXEC) != 0) {
+                sb.append('X');
+            }
+        }
+        sb.append("@0x").append(Long.toHexString(address));
+        RecordedModule module = findModule(address);
+        if (module != null) {
+            sb.append("[").append(module.name).append("]0x").append(Long.toHexString(address - module.base));
+        }
+        return sb.toString();
+    }
+
+    private Capstone arm, thumb, arm64;
+
+    private Capstone getCapstone(boolean thumb) {
+        if (is64Bit) {
+            if (arm64 == null) {
+                arm64 = new Capstone(Capstone.CS_ARCH_ARM64, Capstone.CS_MODE_ARM);
+            }
+            return arm64;
+        } else if (thumb) {
+            if (this.thumb == null) {
+                this.thumb = new Capstone(Capstone.CS_ARCH_ARM, Capstone.CS_MODE_THUMB);
+            }
+            return this.thumb;
+        } else {
+            if (arm == null) {
+                arm = new Capstone(Capstone.CS_ARCH_ARM, Capstone.CS_MODE_ARM);
+            }
+            return arm;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Capstone capstone : new Capstone[]{arm, thumb, arm64}) {
+            if (capstone != null) {
+                capstone.close();
+            }
+        }
+        arm = thumb = arm64 = null;
+        channel.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: java " + TraceReader.class.getName() + " trace.bin [trace.txt]");
+            System.exit(1);
+            return;
+        }
+        PrintStream out = args.length > 1 ? new PrintStream(new BufferedOutputStream(new FileOutputStream(args[1])), false) : System.out;
+        try (TraceReader reader = new TraceReader(new File(args[0]))) {
+            reader.render(out);
+        } finally {
+            out.flush();
+            if (out != System.out) {
+                out.close();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,374 @@
+package com.github.unidbg.trace;
+
+import com.github.unidbg.Emulator;
+import com.github.unidbg.Module;
+import com.github.unidbg.arm.ARM;
+import com.github.unidbg.arm.backend.Backend;
+import com.github.unidbg.arm.context.RegisterContext;
+import com.github.unidbg.memory.Memory;
+import com.github.unidbg.memory.MemoryMap;
+import com.github.unidbg.pointer.UnidbgPointer;
+import unicorn.Arm64Const;
+import unicorn.ArmConst;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.Deflater;
+
+/**
+ * Records the instructions and memory accesses of {@link com.github.unidbg.TraceHook}s to a compact binary file,
+ * see {@link TraceFormat}: each executed instruction usually costs one byte before compression.
+ * Render it with {@link TraceReader}.
+ * <p>
+ * Modules and memory maps are recorded the first time the trace meets them, later changes at the same address are not.
+ * One recorder may be shared by the code and memory hooks of an emulator, close it after {@link com.github.unidbg.TraceHook#stopTrace()}.
+ */
+public class TraceRecorder implements Closeable {
+
+    private static final int BLOCK_SIZE = 0x40000;
+
+    private final Emulator<?> emulator;
+    private final Memory memory;
+    private final FileChannel channel;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final int[] registerIds;
+    private final long[] registers;
+    private final long[] values;
+
+    private ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private byte[] compressed = new byte[BLOCK_SIZE];
+
+    public TraceRecorder(Emulator<?> emulator, File file) throws IOException {
+        this(emulator, file, false);
+    }
+
+    /**
+     * @param recordRegisters record the changed general registers and flags before each instruction,
+     *                        reading them costs a backend call per register and instruction.
+     */
+    public TraceRecorder(Emulator<?> emulator, File file, boolean recordRegisters) throws IOException {
+        this.emulator = emulator;
+        this.memory = emulator.getMemory();
+        this.registerIds = recordRegisters ? getRegisterIds(emulator) : new int[0];
+        this.registers = new long[registerIds.length];
+        this.values = new long[registerIds.length];
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(0);
+        this.channel = raf.getChannel();
+
+        ByteBuffer header = ByteBuffer.allocate(TraceFormat.MAGIC.length + 2 + TraceFormat.MAX_VARINT_SIZE * (registerIds.length + 1));
+        header.put(TraceFormat.MAGIC);
+        header.put((byte) TraceFormat.VERSION);
+        header.put((byte) ((emulator.is64Bit() ? TraceFormat.FLAG_64_BIT : 0) | (recordRegisters ? TraceFormat.FLAG_REGISTERS : 0)));
+        TraceFormat.putVarint(header, registerIds.length);
+        for (int id : registerIds) {
+            TraceFormat.putVarint(header, id);
+        }
+        header.flip();
+        write(header);
+    }
+
+    private static int[] getRegisterIds(Emulator<?> emulator) {
+        int[] ids;
+        if (emulator.is32Bit()) {
+            ids = new int[16];
+            for (int i = 0; i <= 12; i++) {
+                ids[i] = ArmConst.UC_ARM_REG_R0 + i;
+            }
+            ids[13] = ArmConst.UC_ARM_REG_SP;
+            ids[14] = ArmConst.UC_ARM_REG_LR;
+            ids[15] = ArmConst.UC_ARM_REG_CPSR;
+        } else {
+            ids = new int[33];
+            for (int i = 0; i <= 28; i++) {
+                ids[i] = Arm64Const.UC_ARM64_REG_X0 + i;
+            }
+            ids[29] = Arm64Const.UC_ARM64_REG_X29;
+            ids[30] = Arm64Const.UC_ARM64_REG_X30;
+            ids[31] = Arm64Const.UC_ARM64_REG_SP;
+            ids[32] = Arm64Const.UC_ARM64_REG_NZCV;
+        }
+        return ids;
+    }
+
+    private final Map<Long, byte[]> codes = new HashMap<>();
+
+    private String maxLengthLibraryName;
+    private long maxSizeOfLibrary = -1;
+
+    private long lastPc;
+    private long nextPc = -1;
+    private long lastLr;
+    private long lastAccess;
+
+    /**
+     * Called by the code hook before the instruction executes.
+     */
+    public void recordInstruction(Backend backend, long address, int size) {
+        checkLayout();
+        checkModule(address);
+
+        byte[] data = backend.mem_read(address, size);
+        if (!Arrays.equals(codes.get(address), data)) {
+            boolean thumb = emulator.is32Bit() && ARM.isThumb(backend);
+            ensure(3 + TraceFormat.MAX_VARINT_SIZE + data.length);
+            buffer.put((byte) TraceFormat.TAG_CODE);
+            TraceFormat.putVarint(buffer, address);
+            buffer.put((byte) (thumb ? 1 : 0));
+            buffer.put((byte) data.length);
+            buffer.put(data);
+            codes.put(address, data);
+        }
+
+        if (registerIds.length > 0) {
+            recordRegisters(backend);
+        }
+
+        if (address == nextPc) {
+            ensure(1);
+            buffer.put((byte) TraceFormat.TAG_NEXT_INSTRUCTION);
+        } else {
+            ensure(1 + TraceFormat.MAX_VARINT_SIZE);
+            buffer.put((byte) TraceFormat.TAG_INSTRUCTION);
+            TraceFormat.putSigned(buffer, address - lastPc);
+        }
+        lastPc = address;
+        nextPc = address + size;
+    }
+
+    private void recordRegisters(Backend backend) {
+        long mask = 0;
+        long[] values = this.values;
+        backend.reg_read_batch(registerIds, values);
+        boolean is32Bit = emulator.is32Bit();
+        for (int i = 0; i < registerIds.length; i++) {
+            if (is32Bit) {
+                values[i] &= 0xffffffffL;
+            }
+            if (values[i] != registers[i]) {
+                mask |= 1L << i;
+            }
+        }
+        if (mask == 0) {
+            return;
+        }
+        ensure(1 + TraceFormat.MAX_VARINT_SIZE * (Long.bitCount(mask) + 1));
+        buffer.put((byte) TraceFormat.TAG_REGISTERS);
+        TraceFormat.putVarint(buffer, mask);
+        for (int i = 0; i < registerIds.length; i++) {
+            if ((mask & (1L << i)) != 0) {
+                TraceFormat.putSigned(buffer, values[i] - registers[i]);
+                registers[i] = values[i];
+            }
+        }
+    }
+
+    /**
+     * Called by the read hook.
+     */
+    public void recordRead(long address, byte[] data) {
+        RegisterContext context = emulator.getContext();
+        long pc = toAddress(context.getPCPointer());
+        long lr = toAddress(context.getLRPointer());
+        checkPointer(pc);
+        checkPointer(lr);
+
+        ensure(1 + TraceFormat.MAX_VARINT_SIZE * 4 + data.length);
+        buffer.put((byte) TraceFormat.TAG_READ);
+        TraceFormat.putSigned(buffer, address - lastAccess);
+        TraceFormat.putVarint(buffer, data.length);
+        buffer.put(data);
+        putPcAndLr(pc, lr);
+        lastAccess = address;
+    }
+
+    /**
+     * Called by the write hook.
+     */
+    public void recordWrite(long address, int size, long value) {
+        RegisterContext context = emulator.getContext();
+        long pc = toAddress(context.getPCPointer());
+        long lr = toAddress(context.getLRPointer());
+        checkPointer(pc);
+        checkPointer(lr);
+
+        ensure(1 + TraceFormat.MAX_VARINT_SIZE * 5);
+        buffer.put((byte) TraceFormat.TAG_WRITE);
+        TraceFormat.putSigned(buffer, address - lastAccess);
+        TraceFormat.putVarint(buffer, size);
+        TraceFormat.putVarint(buffer, value);
+        putPcAndLr(pc, lr);
+        lastAccess = address;
+    }
+
+    private static long toAddress(UnidbgPointer pointer) {
+        return pointer == null ? 0 : pointer.peer;
+    }
+
+    private void putPcAndLr(long pc, long lr) {
+        TraceFormat.putSigned(buffer, pc - lastPc);
+        TraceFormat.putSigned(buffer, lr - lastLr);
+        lastPc = pc;
+        lastLr = lr;
+    }
+
+    private void checkLayout() {
+        String maxLengthLibraryName = memory.getMaxLengthLibraryName();
+        long maxSizeOfLibrary = memory.getMaxSizeOfLibrary();
+        if (maxSizeOfLibrary != this.maxSizeOfLibrary ||
+                (maxLengthLibraryName == null ? this.maxLengthLibraryName != null : !maxLengthLibraryName.equals(this.maxLengthLibraryName))) {
+            ensure(1 + TraceFormat.sizeOf(maxLengthLibraryName) + TraceFormat.MAX_VARINT_SIZE);
+            buffer.put((byte) TraceFormat.TAG_LAYOUT);
+            TraceFormat.putString(buffer, maxLengthLibraryName);
+            TraceFormat.putVarint(buffer, maxSizeOfLibrary);
+            this.maxLengthLibraryName = maxLengthLibraryName;
+            this.maxSizeOfLibrary = maxSizeOfLibrary;
+        }
+    }
+
+    /**
+     * Recorded ranges by base: the value is the end.
+     */
+    private final TreeMap<Long, Long> modules = new TreeMap<>();
+    private final TreeMap<Long, Long> regions = new TreeMap<>();
+
+    /**
+     * Pages without memory map, looked up once.
+     */
+    private final Set<Long> unmappedPages = new HashSet<>();
+
+    private long moduleBase = 1, moduleEnd;
+
+    private void checkModule(long address) {
+        if (address >= moduleBase && address < moduleEnd) {
+            return;
+        }
+        if (contains(modules, address)) {
+            Map.Entry<Long, Long> entry = modules.floorEntry(address);
+            moduleBase = entry.getKey();
+            moduleEnd = entry.getValue();
+            return;
+        }
+        Module module = memory.findModuleByAddress(address);
+        if (module != null) {
+            ensure(1 + TraceFormat.MAX_VARINT_SIZE * 2 + TraceFormat.sizeOf(module.name));
+            buffer.put((byte) TraceFormat.TAG_MODULE);
+            TraceFormat.putVarint(buffer, module.base);
+            TraceFormat.putVarint(buffer, module.size);
+            TraceFormat.putString(buffer, module.name);
+            modules.put(module.base, module.base + module.size);
+            moduleBase = module.base;
+            moduleEnd = module.base + module.size;
+        }
+    }
+
+    /**
+     * Pointers are rendered with their module and memory map.
+     */
+    private void checkPointer(long address) {
+        if (address == 0) {
+            return;
+        }
+        checkModule(address);
+        if (contains(regions, address)) {
+            return;
+        }
+        long page = address & ~(emulator.getPageAlign() - 1L);
+        if (unmappedPages.contains(page)) {
+            return;
+        }
+        for (MemoryMap map : memory.getMemoryMap()) {
+            if (address >= map.base && address < map.base + map.size) {
+                ensure(1 + TraceFormat.MAX_VARINT_SIZE * 3);
+                buffer.put((byte) TraceFormat.TAG_REGION);
+                TraceFormat.putVarint(buffer, map.base);
+                TraceFormat.putVarint(buffer, map.size);
+                TraceFormat.putVarint(buffer, map.prot);
+                regions.put(map.base, map.base + map.size);
+                return;
+            }
+        }
+        unmappedPages.add(page);
+    }
+
+    private static boolean contains(TreeMap<Long, Long> ranges, long address) {
+        Map.Entry<Long, Long> entry = ranges.floorEntry(address);
+        return entry != null && address < entry.getValue();
+    }
+
+    private void ensure(int size) {
+        if (!channel.isOpen()) {
+            throw new IllegalStateException("closed");
+        }
+        if (buffer.remaining() < size) {
+            flush();
+            if (buffer.capacity() < size) {
+                buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+    }
+
+    /**
+     * Compress the buffered records to a block of the file.
+     */
+    public void flush() {
+        if (buffer.position() == 0) {
+            return;
+        }
+        int size = buffer.position();
+        deflater.setInput(buffer.array(), 0, size);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+        deflater.reset();
+        buffer.clear();
+
+        ByteBuffer block = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        block.putInt(size);
+        block.putInt(length);
+        block.flip();
+        try {
+            write(block);
+            write(ByteBuffer.wrap(compressed, 0, length));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!channel.isOpen()) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            deflater.end();
+            channel.close();
+        }
+    }
+
+}
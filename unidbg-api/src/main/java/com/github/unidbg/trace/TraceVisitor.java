@@ -0,0 +1,18 @@
+package com.github.unidbg.trace;
+
+/**
+ * Records of a binary trace, in execution order.
+ */
+public interface TraceVisitor {
+
+    /**
+     * @param registers values of {@link TraceReader#getRegisterIds()} before the instruction, updated in place by the reader,
+     *                  <code>null</code> if the registers were not recorded.
+     */
+    void onInstruction(long address, byte[] code, boolean thumb, long[] registers);
+
+    void onRead(long address, byte[] data, long pc, long lr);
+
+    void onWrite(long address, int size, long value, long pc, long lr);
+
+}
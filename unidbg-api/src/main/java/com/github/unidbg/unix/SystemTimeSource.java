@@ -0,0 +1,27 @@
+package com.github.unidbg.unix;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Host clock, guest sleeps block the emulator thread.
+ */
+public class SystemTimeSource implements TimeSource {
+
+    private final long nanoTime = System.nanoTime();
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public long nanoTime() {
+        return System.nanoTime() - nanoTime;
+    }
+
+    @Override
+    public void sleep(long nanos) throws InterruptedException {
+        TimeUnit.NANOSECONDS.sleep(nanos);
+    }
+
+}
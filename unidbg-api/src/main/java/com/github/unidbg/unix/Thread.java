@@ -4,6 +4,41 @@ import com.github.unidbg.Emulator;
 
 public abstract class Thread {
 
+    protected final int tid;
+
+    protected Thread(int tid) {
+        this.tid = tid;
+    }
+
+    public int getTid() {
+        return tid;
+    }
+
+    /**
+     * Registers to resume the thread with.
+     */
+    protected long context;
+
+    /**
+     * Address where the thread stops, 0 for a thread ending by the exit syscall.
+     */
+    protected long until;
+
+    /**
+     * Futex address waited on, 0 when not waiting on a futex.
+     */
+    long waitAddress;
+
+    /**
+     * Monotonic time of {@link TimeSource#nanoTime()} to wake up at, -1 when waiting without timeout.
+     */
+    long wakeTime = -1;
+
+    /**
+     * Woken up by timeout instead of a futex wake.
+     */
+    boolean timedOut;
+
     public abstract void runThread(Emulator<?> emulator, long __thread_entry, long timeout);
 
 }
@@ -0,0 +1,624 @@
+package com.github.unidbg.unix;
+
+import com.github.unidbg.Emulator;
+import com.github.unidbg.EmulatorSnapshot;
+import com.github.unidbg.arm.ARM;
+import com.github.unidbg.arm.backend.Backend;
+import com.github.unidbg.spi.SyscallHandler;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import unicorn.Arm64Const;
+import unicorn.ArmConst;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Green thread scheduler: the thread calling into the emulator and the guest threads it cloned share the backend,
+ * switched by saved register contexts when one blocks on a futex, sleeps, exits or runs out of its time slice.
+ * Disabled by default, it needs the register contexts and the instruction count of
+ * {@link Backend#emu_start(long, long, long, long)}, so it stays off on the KVM and Hypervisor backends.
+ */
+public class ThreadScheduler {
+
+    private static final Log log = LogFactory.getLog(ThreadScheduler.class);
+
+    /**
+     * Instructions a thread runs before yielding to the next runnable thread.
+     */
+    public static final long DEFAULT_TIME_SLICE = 100000;
+
+    private static final int STOP_NONE = 0;
+    private static final int STOP_YIELD = 1;
+    private static final int STOP_BLOCK = 2;
+    private static final int STOP_EXIT = 3;
+    private static final int STOP_ALL = 4;
+    private static final int STOP_EXIT_GROUP = 5;
+
+    private final SyscallHandler<?> syscallHandler;
+    private final Map<Integer, Thread> threadMap;
+
+    private Deque<Thread> runQueue = new ArrayDeque<>();
+    private Map<Long, Deque<Thread>> waitQueues = new HashMap<>();
+    private List<Thread> timedWaiters = new ArrayList<>();
+
+    private boolean enabled;
+    private long timeSlice = DEFAULT_TIME_SLICE;
+
+    /**
+     * Registers of the thread calling into the emulator while a cloned thread runs, allocated once.
+     */
+    private long mainContext;
+    private long scratchContext;
+    private boolean contextUnsupported;
+
+    private Thread current;
+    private long currentSlice;
+    private int stopReason;
+    private int nested;
+
+    ThreadScheduler(SyscallHandler<?> syscallHandler, Map<Integer, Thread> threadMap) {
+        this.syscallHandler = syscallHandler;
+        this.threadMap = threadMap;
+    }
+
+    /**
+     * Disabled, cloned threads are only run by {@link com.github.unidbg.spi.Loader#runThread(int, long)} and futex waits never block.
+     * Enabling has no effect on a backend without register contexts.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return <code>false</code> when the backend has no register context, like KVM and Hypervisor.
+     */
+    public boolean isContextSupported(Emulator<?> emulator) {
+        if (mainContext == 0 && !contextUnsupported) {
+            try {
+                mainContext = emulator.getBackend().context_alloc();
+            } catch (UnsupportedOperationException e) {
+                contextUnsupported = true;
+                if (enabled) {
+                    log.warn("thread scheduler disabled without register context: backend=" + emulator.getBackend());
+                }
+            }
+        }
+        return mainContext != 0;
+    }
+
+    /**
+     * @return <code>true</code> when cloned threads are queued and run by {@link #run(Emulator, long, long, long)}.
+     */
+    public boolean isScheduling(Emulator<?> emulator) {
+        return enabled && isContextSupported(emulator);
+    }
+
+    /**
+     * Allocates a register context holding the current registers, owned by the caller.
+     * @return 0 when the backend has no register context.
+     */
+    public long saveContext(Emulator<?> emulator) {
+        if (!isContextSupported(emulator)) {
+            return 0;
+        }
+        Backend backend = emulator.getBackend();
+        long context = backend.context_alloc();
+        backend.context_save(context);
+        return context;
+    }
+
+    /**
+     * Frees the register contexts of the scheduler and of the threads, the backend is about to be destroyed.
+     */
+    public void destroy(Backend backend) {
+        for (Thread thread : threadMap.values()) {
+            free(backend, thread);
+        }
+        if (mainContext != 0) {
+            backend.context_free(mainContext);
+            mainContext = 0;
+        }
+        if (scratchContext != 0) {
+            backend.context_free(scratchContext);
+            scratchContext = 0;
+        }
+    }
+
+    /**
+     * @param timeSlice instructions a thread runs while other threads are runnable.
+     */
+    public void setTimeSlice(long timeSlice) {
+        if (timeSlice <= 0) {
+            throw new IllegalArgumentException("timeSlice=" + timeSlice);
+        }
+        this.timeSlice = timeSlice;
+    }
+
+    /**
+     * @return thread running in the scheduler, <code>null</code> when not running.
+     */
+    public Thread getCurrentThread() {
+        return current;
+    }
+
+    /**
+     * @return id of the running thread, the process id for the calling thread.
+     */
+    public int getTid(Emulator<?> emulator) {
+        return current == null ? emulator.getPid() : current.tid;
+    }
+
+    /**
+     * Queues a cloned thread, it starts at the next switch.
+     */
+    public void add(Emulator<?> emulator, Thread thread) {
+        if (!enabled || thread.context == 0) {
+            return;
+        }
+        runQueue.addLast(thread);
+        if (canSwitch() && currentSlice == 0) { // running without time slice, switch to let the new thread run
+            stop(emulator, STOP_YIELD);
+        }
+    }
+
+    /**
+     * Removes a thread about to be run by hand.
+     */
+    public void remove(Thread thread) {
+        runQueue.remove(thread);
+        timedWaiters.remove(thread);
+        Deque<Thread> queue = waitQueues.get(thread.waitAddress);
+        if (queue != null) {
+            queue.remove(thread);
+            if (queue.isEmpty()) {
+                waitQueues.remove(thread.waitAddress);
+            }
+        }
+        thread.waitAddress = 0;
+        thread.wakeTime = -1;
+    }
+
+    /**
+     * Threads are switched only by the outermost run, not by an emulation nested in a hook.
+     */
+    private boolean canSwitch() {
+        return current != null && nested == 0;
+    }
+
+    private boolean canBlock() {
+        return canSwitch() && (!runQueue.isEmpty() || !timedWaiters.isEmpty());
+    }
+
+    /**
+     * Blocks the running thread until {@link #wake(Emulator, long, int)} on <code>address</code>.
+     * @param timeout nanoseconds, negative to wait forever. The guest sees <code>-ETIMEDOUT</code> when it expires.
+     * @return <code>false</code> when no other thread could wake it up, the caller must not wait.
+     */
+    public boolean wait(Emulator<?> emulator, long address, long timeout) {
+        if (!canBlock()) {
+            return false;
+        }
+        Thread thread = current;
+        thread.waitAddress = address;
+        Deque<Thread> queue = waitQueues.get(address);
+        if (queue == null) {
+            queue = new ArrayDeque<>();
+            waitQueues.put(address, queue);
+        }
+        queue.addLast(thread);
+        if (timeout >= 0) {
+            thread.wakeTime = syscallHandler.getTimeSource().nanoTime() + timeout;
+            timedWaiters.add(thread);
+        }
+        stop(emulator, STOP_BLOCK);
+        return true;
+    }
+
+    /**
+     * Wakes up threads waiting on <code>address</code>.
+     * @return number of threads woken up.
+     */
+    public int wake(Emulator<?> emulator, long address, int count) {
+        Deque<Thread> queue = waitQueues.get(address);
+        int woken = 0;
+        while (queue != null && woken < count && !queue.isEmpty()) {
+            Thread thread = queue.pollFirst();
+            thread.waitAddress = 0;
+            if (thread.wakeTime >= 0) {
+                timedWaiters.remove(thread);
+                thread.wakeTime = -1;
+            }
+            runQueue.addLast(thread);
+            woken++;
+        }
+        if (queue != null && queue.isEmpty()) {
+            waitQueues.remove(address);
+        }
+        if (woken > 0 && canSwitch() && currentSlice == 0) {
+            stop(emulator, STOP_YIELD);
+        }
+        return woken;
+    }
+
+    /**
+     * Suspends the running thread for <code>nanos</code> and runs the other threads meanwhile.
+     * @return <code>false</code> when no other thread is runnable, the caller sleeps by the time source.
+     */
+    public boolean sleep(Emulator<?> emulator, long nanos) {
+        if (!canBlock()) {
+            return false;
+        }
+        Thread thread = current;
+        thread.wakeTime = syscallHandler.getTimeSource().nanoTime() + Math.max(0, nanos);
+        timedWaiters.add(thread);
+        stop(emulator, STOP_BLOCK);
+        return true;
+    }
+
+    /**
+     * Terminates the running thread, the emulation stops when it is the calling thread.
+     * @return <code>false</code> when the calling thread exits.
+     */
+    public boolean exit(Emulator<?> emulator) {
+        if (!canSwitch() || current instanceof MainThread) {
+            stop(emulator, STOP_ALL);
+            return false;
+        }
+        threadMap.remove(current.tid);
+        stop(emulator, STOP_EXIT);
+        return true;
+    }
+
+    /**
+     * Terminates all threads.
+     */
+    public void exitGroup(Emulator<?> emulator) {
+        Backend backend = emulator.getBackend();
+        for (Thread thread : runQueue) {
+            exited(backend, thread);
+        }
+        for (Thread thread : timedWaiters) {
+            exited(backend, thread);
+        }
+        for (Deque<Thread> queue : waitQueues.values()) {
+            for (Thread thread : queue) {
+                exited(backend, thread);
+            }
+        }
+        runQueue.clear();
+        waitQueues.clear();
+        timedWaiters.clear();
+        if (current != null) {
+            exited(backend, current);
+        }
+        stop(emulator, STOP_EXIT_GROUP);
+    }
+
+    private void exited(Backend backend, Thread thread) {
+        if (thread instanceof MainThread) {
+            return;
+        }
+        threadMap.remove(thread.tid);
+        free(backend, thread);
+    }
+
+    private static void free(Backend backend, Thread thread) {
+        if (thread.context != 0) {
+            backend.context_free(thread.context);
+            thread.context = 0;
+        }
+    }
+
+    /**
+     * Stops the emulation, threads not running stay queued for the next call.
+     */
+    public void stop(Emulator<?> emulator) {
+        stop(emulator, STOP_ALL);
+    }
+
+    private void stop(Emulator<?> emulator, int reason) {
+        stopReason = reason;
+        emulator.getBackend().emu_stop();
+    }
+
+    /**
+     * Emulates the calling thread from <code>begin</code> until it reaches <code>until</code> or exits, interleaved with the runnable guest threads.
+     * The registers of the calling thread are live when it returns, whichever thread ran last.
+     * @param timeout  Duration to emulate the code (in microseconds). When this value is 0, we will emulate the code in infinite time, until the code is finished.
+     */
+    public void run(Emulator<?> emulator, long begin, long until, long timeout) {
+        Backend backend = emulator.getBackend();
+        if (current != null) { // nested emulation from a hook, stays on the running thread
+            int stopReason = this.stopReason;
+            nested++;
+            try {
+                backend.emu_start(begin, until, timeout, 0);
+            } finally {
+                nested--;
+                this.stopReason = stopReason;
+            }
+            return;
+        }
+        if (!isScheduling(emulator)) {
+            backend.emu_start(begin, until, timeout, 0);
+            return;
+        }
+
+        Thread main = new MainThread(emulator.getPid(), until, mainContext);
+        long deadline = timeout > 0 ? System.nanoTime() + timeout * 1000L : 0;
+        Thread thread = main;
+        long pc = begin;
+        try {
+            while (true) {
+                long remaining = 0;
+                if (deadline != 0) {
+                    remaining = (deadline - System.nanoTime()) / 1000L;
+                    if (remaining <= 0) {
+                        log.warn("run threads timeout: " + timeout + "us");
+                        if (thread != main) {
+                            backend.context_save(thread.context);
+                            runQueue.addFirst(thread);
+                        }
+                        return;
+                    }
+                }
+                current = thread;
+                currentSlice = runQueue.isEmpty() && timedWaiters.isEmpty() ? 0 : timeSlice;
+                stopReason = STOP_NONE;
+                backend.emu_start(pc, thread.until, remaining, currentSlice);
+
+                int reason = stopReason;
+                if (reason == STOP_NONE) {
+                    if (isAddress(emulator, readPC(emulator), thread.until)) { // start routine returned
+                        if (thread == main) {
+                            return;
+                        }
+                        threadMap.remove(thread.tid);
+                        reason = STOP_EXIT;
+                    } else if (currentSlice == 0 || (deadline != 0 && System.nanoTime() >= deadline)) {
+                        reason = STOP_ALL;
+                    } else {
+                        reason = STOP_YIELD;
+                    }
+                }
+                switch (reason) {
+                    case STOP_ALL:
+                        if (thread != main) {
+                            backend.context_save(thread.context);
+                            runQueue.addFirst(thread);
+                        }
+                        return;
+                    case STOP_EXIT_GROUP:
+                        return;
+                    case STOP_EXIT:
+                        if (thread == main) {
+                            return;
+                        }
+                        free(backend, thread);
+                        break;
+                    case STOP_YIELD:
+                        backend.context_save(thread.context);
+                        runQueue.addLast(thread);
+                        break;
+                    case STOP_BLOCK:
+                        backend.context_save(thread.context);
+                        break;
+                    default:
+                        throw new IllegalStateException("reason=" + reason);
+                }
+
+                Thread next = next();
+                if (next == null) {
+                    throw new IllegalStateException("All threads are blocked");
+                }
+                thread = next;
+                backend.context_restore(thread.context);
+                pc = resumePC(emulator);
+                if (thread.timedOut) {
+                    thread.timedOut = false;
+                    backend.reg_write(emulator.is32Bit() ? ArmConst.UC_ARM_REG_R0 : Arm64Const.UC_ARM64_REG_X0, -UnixEmulator.ETIMEDOUT);
+                }
+                if (log.isDebugEnabled()) {
+                    log.debug("switch to thread: tid=" + thread.tid + ", pc=0x" + Long.toHexString(pc));
+                }
+            }
+        } finally {
+            current = null;
+            remove(main);
+            if (thread != main) { // registers of a cloned thread are live
+                backend.context_restore(mainContext);
+            }
+        }
+    }
+
+    private Thread next() {
+        TimeSource timeSource = syscallHandler.getTimeSource();
+        wakeExpired(timeSource.nanoTime());
+        if (runQueue.isEmpty() && !timedWaiters.isEmpty()) {
+            long wakeTime = Long.MAX_VALUE;
+            for (Thread thread : timedWaiters) {
+                wakeTime = Math.min(wakeTime, thread.wakeTime);
+            }
+            long nanos = wakeTime - timeSource.nanoTime();
+            if (nanos > 0) {
+                try {
+                    timeSource.sleep(nanos);
+                } catch (InterruptedException e) {
+                    java.lang.Thread.currentThread().interrupt();
+                }
+            }
+            wakeExpired(Math.max(wakeTime, timeSource.nanoTime()));
+        }
+        return runQueue.pollFirst();
+    }
+
+    private void wakeExpired(long now) {
+        for (Iterator<Thread> iterator = timedWaiters.iterator(); iterator.hasNext(); ) {
+            Thread thread = iterator.next();
+            if (thread.wakeTime > now) {
+                continue;
+            }
+            iterator.remove();
+            thread.wakeTime = -1;
+            if (thread.waitAddress != 0) {
+                Deque<Thread> queue = waitQueues.get(thread.waitAddress);
+                if (queue != null) {
+                    queue.remove(thread);
+                    if (queue.isEmpty()) {
+                        waitQueues.remove(thread.waitAddress);
+                    }
+                }
+                thread.waitAddress = 0;
+                thread.timedOut = true;
+            }
+            runQueue.addLast(thread);
+        }
+    }
+
+    private static long readPC(Emulator<?> emulator) {
+        Backend backend = emulator.getBackend();
+        if (emulator.is32Bit()) {
+            return backend.reg_read(ArmConst.UC_ARM_REG_PC).intValue() & 0xffffffffL;
+        } else {
+            return backend.reg_read(Arm64Const.UC_ARM64_REG_PC).longValue();
+        }
+    }
+
+    private static long resumePC(Emulator<?> emulator) {
+        long pc = readPC(emulator);
+        if (emulator.is32Bit() && ARM.isThumb(emulator.getBackend())) {
+            pc |= 1;
+        }
+        return pc;
+    }
+
+    private static boolean isAddress(Emulator<?> emulator, long pc, long address) {
+        return emulator.is32Bit() ? (pc & ~1L) == (address & ~1L) : pc == address;
+    }
+
+    /**
+     * Thread fields changed by scheduling, with a copy of its registers owned by the snapshot.
+     */
+    private static class ThreadState {
+        final Thread thread;
+        final long context;
+        final long waitAddress;
+        final long wakeTime;
+        final boolean timedOut;
+        ThreadState(Thread thread, long context) {
+            this.thread = thread;
+            this.context = context;
+            this.waitAddress = thread.waitAddress;
+            this.wakeTime = thread.wakeTime;
+            this.timedOut = thread.timedOut;
+        }
+    }
+
+    /**
+     * Copies the registers between contexts, keeping the live registers.
+     */
+    private void copyContext(Backend backend, long from, long to) {
+        if (scratchContext == 0) {
+            scratchContext = backend.context_alloc();
+        }
+        backend.context_save(scratchContext);
+        try {
+            backend.context_restore(from);
+            backend.context_save(to);
+        } finally {
+            backend.context_restore(scratchContext);
+        }
+    }
+
+    public void onSnapshot(Emulator<?> emulator, EmulatorSnapshot snapshot) {
+        Backend backend = emulator.getBackend();
+        List<ThreadState> threads = new ArrayList<>(threadMap.size());
+        for (Thread thread : threadMap.values()) {
+            long context = 0;
+            if (thread.context != 0) {
+                context = snapshot.allocContext();
+                copyContext(backend, thread.context, context);
+            }
+            threads.add(new ThreadState(thread, context));
+        }
+        snapshot.set("threadStates", threads);
+        snapshot.set("runQueue", new ArrayDeque<>(runQueue));
+        Map<Long, Deque<Thread>> waitQueues = new HashMap<>();
+        for (Map.Entry<Long, Deque<Thread>> entry : this.waitQueues.entrySet()) {
+            waitQueues.put(entry.getKey(), new ArrayDeque<>(entry.getValue()));
+        }
+        snapshot.set("waitQueues", waitQueues);
+        snapshot.set("timedWaiters", new ArrayList<>(timedWaiters));
+    }
+
+    public void onRestore(Emulator<?> emulator, EmulatorSnapshot snapshot) {
+        List<ThreadState> threads = snapshot.get("threadStates");
+        if (threads == null) { // restored from image
+            return;
+        }
+        Backend backend = emulator.getBackend();
+        Map<Thread, ThreadState> states = new IdentityHashMap<>();
+        for (ThreadState state : threads) {
+            states.put(state.thread, state);
+        }
+        for (Thread thread : threadMap.values()) {
+            if (!states.containsKey(thread)) { // cloned after the snapshot
+                free(backend, thread);
+            }
+        }
+        for (ThreadState state : threads) {
+            Thread thread = state.thread;
+            thread.waitAddress = state.waitAddress;
+            thread.wakeTime = state.wakeTime;
+            thread.timedOut = state.timedOut;
+            if (state.context != 0) {
+                if (thread.context == 0) { // exited after the snapshot
+                    thread.context = backend.context_alloc();
+                }
+                copyContext(backend, state.context, thread.context);
+            } else {
+                free(backend, thread);
+            }
+        }
+
+        Deque<Thread> runQueue = snapshot.get("runQueue");
+        this.runQueue = new ArrayDeque<>(runQueue);
+        this.waitQueues = new HashMap<>();
+        Map<Long, Deque<Thread>> waitQueues = snapshot.get("waitQueues");
+        for (Map.Entry<Long, Deque<Thread>> entry : waitQueues.entrySet()) {
+            this.waitQueues.put(entry.getKey(), new ArrayDeque<>(entry.getValue()));
+        }
+        List<Thread> timedWaiters = snapshot.get("timedWaiters");
+        this.timedWaiters = new ArrayList<>(timedWaiters);
+    }
+
+    /**
+     * The thread calling into the emulator.
+     */
+    private static class MainThread extends Thread {
+        MainThread(int tid, long until, long context) {
+            super(tid);
+            this.until = until;
+            this.context = context;
+        }
+        @Override
+        public void runThread(Emulator<?> emulator, long __thread_entry, long timeout) {
+            Backend backend = emulator.getBackend();
+            backend.context_restore(context);
+            backend.emu_start(resumePC(emulator), until, timeout, 0);
+            backend.context_save(context);
+        }
+    }
+
+}
@@ -0,0 +1,25 @@
+package com.github.unidbg.unix;
+
+/**
+ * Time seen by the guest through syscalls like <code>gettimeofday</code>, <code>clock_gettime</code> and <code>nanosleep</code>.
+ * @see SystemTimeSource
+ * @see VirtualTimeSource
+ */
+public interface TimeSource {
+
+    /**
+     * realtime clock, milliseconds since epoch.
+     */
+    long currentTimeMillis();
+
+    /**
+     * monotonic clock, nanoseconds since the time source was created.
+     */
+    long nanoTime();
+
+    /**
+     * Guest sleep of <code>nanos</code>.
+     */
+    void sleep(long nanos) throws InterruptedException;
+
+}
@@ -18,6 +18,7 @@ public interface UnixEmulator {
     int EOPNOTSUPP = 95; /* Operation not supported on transport endpoint */
     int EAFNOSUPPORT = 97; /* Address family not supported by protocol family */
     int EADDRINUSE = 98; /* Address already in use */
+    int ETIMEDOUT = 110; /* Connection timed out */
     int ECONNREFUSED = 111; /* Connection refused */
 
 }
@@ -1,6 +1,7 @@
 package com.github.unidbg.unix;
 
 import com.github.unidbg.Emulator;
+import com.github.unidbg.EmulatorSnapshot;
 import com.github.unidbg.Family;
 import com.github.unidbg.Module;
 import com.github.unidbg.debugger.Breaker;
@@ -18,15 +19,20 @@ import com.sun.jna.Pointer;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
-import java.io.DataOutput;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -38,9 +44,21 @@ public abstract class UnixSyscallHandler<T extends NewFileIO> implements Syscall
 
     public final Map<Integer, T> fdMap = new TreeMap<>();
 
+    /**
+     * Files opened by path: <code>oflags, pathname</code>, opened again when restored from an image.
+     */
+    private final Map<T, String> openedPaths = new IdentityHashMap<>();
+
     public final Map<Integer, Thread> threadMap = new HashMap<>(5);
     public int lastThread = -1;
 
+    protected final ThreadScheduler threadScheduler = new ThreadScheduler(this, threadMap);
+
+    @Override
+    public ThreadScheduler getThreadScheduler() {
+        return threadScheduler;
+    }
+
     protected boolean verbose;
 
     @Override
@@ -59,6 +77,35 @@ public abstract class UnixSyscallHandler<T extends NewFileIO> implements Syscall
         return verbose;
     }
 
+    protected TimeSource timeSource = new SystemTimeSource();
+
+    @Override
+    public void setTimeSource(TimeSource timeSource) {
+        if (timeSource == null) {
+            throw new NullPointerException("timeSource");
+        }
+        this.timeSource = timeSource;
+    }
+
+    @Override
+    public TimeSource getTimeSource() {
+        return timeSource;
+    }
+
+    /**
+     * Sleep of the guest, other runnable threads run meanwhile. Returns immediately with a virtual time source.
+     */
+    protected final void sleep(Emulator<?> emulator, long nanos) {
+        if (threadScheduler.sleep(emulator, nanos)) {
+            return;
+        }
+        try {
+            timeSource.sleep(nanos);
+        } catch (InterruptedException e) {
+            java.lang.Thread.currentThread().interrupt();
+        }
+    }
+
     private Breaker breaker;
 
     @Override
@@ -89,6 +136,16 @@ public abstract class UnixSyscallHandler<T extends NewFileIO> implements Syscall
         }
     }
 
+    /**
+     * Adds the io resolvers of this handler to the handler of a forked emulator, in the same order.
+     */
+    public void onFork(SyscallHandler<T> forked) {
+        for (int i = resolvers.size() - 1; i >= 0; i--) {
+            forked.addIOResolver(resolvers.get(i));
+        }
+        forked.setVerbose(verbose);
+    }
+
     protected final FileResult<T> resolve(Emulator<T> emulator, String pathname, int oflags) {
         FileResult<T> failResult = null;
         for (IOResolver<T> resolver : resolvers) {
@@ -174,7 +231,7 @@ public abstract class UnixSyscallHandler<T extends NewFileIO> implements Syscall
             Inspector.inspect(before, "gettimeofday tz");
         }
 
-        long currentTimeMillis = System.currentTimeMillis();
+        long currentTimeMillis = timeSource.currentTimeMillis();
         long tv_sec = currentTimeMillis / 1000;
         long tv_usec = (currentTimeMillis % 1000) * 1000;
         TimeVal32 timeVal = new TimeVal32(tv);
@@ -216,7 +273,7 @@ public abstract class UnixSyscallHandler<T extends NewFileIO> implements Syscall
             Inspector.inspect(before, "gettimeofday tz");
         }
 
-        long currentTimeMillis = System.currentTimeMillis();
+        long currentTimeMillis = timeSource.currentTimeMillis();
         long tv_sec = currentTimeMillis / 1000;
         long tv_usec = (currentTimeMillis % 1000) * 1000;
         TimeVal64 timeVal = new TimeVal64(tv);
@@ -287,8 +344,9 @@ public abstract class UnixSyscallHandler<T extends NewFileIO> implements Syscall
     }
 
     protected final int close(Emulator<?> emulator, int fd) {
-        FileIO file = fdMap.remove(fd);
+        T file = fdMap.remove(fd);
         if (file != null) {
+            openedPaths.remove(file);
             file.close();
             if (verbose) {
                 System.out.printf("File closed '%s' from %s%n", file, emulator.getContext().getLRPointer());
@@ -311,6 +369,7 @@ public abstract class UnixSyscallHandler<T extends NewFileIO> implements Syscall
         if (resolveResult != null && resolveResult.isSuccess()) {
             emulator.getMemory().setErrno(0);
             this.fdMap.put(minFd, resolveResult.io);
+            openedPaths.put(resolveResult.io, oflags + "\t" + pathname);
             if (verbose) {
                 System.out.printf("File opened '%s' with oflags=0x%x from %s%n", resolveResult.io, oflags, emulator.getContext().getLRPointer());
             }
@@ -324,6 +383,7 @@ public abstract class UnixSyscallHandler<T extends NewFileIO> implements Syscall
         if (driverIO != null) {
             emulator.getMemory().setErrno(0);
             this.fdMap.put(minFd, driverIO);
+            openedPaths.put(driverIO, oflags + "\t" + pathname);
             if (verbose) {
                 System.out.printf("File opened '%s' with oflags=0x%x from %s%n", driverIO, oflags, emulator.getContext().getLRPointer());
             }
@@ -548,9 +608,165 @@ public abstract class UnixSyscallHandler<T extends NewFileIO> implements Syscall
         return false;
     }
 
-    @Override
-    public void serialize(DataOutput out) {
-        throw new UnsupportedOperationException();
+    /**
+     * Copy of an opened file taken by a snapshot, files which can't be duplicated are shared.
+     */
+    private static class FileState<T extends NewFileIO> {
+        final T io;
+        final int position;
+        final boolean shared;
+        FileState(T io, int position, boolean shared) {
+            this.io = io;
+            this.position = position;
+            this.shared = shared;
+        }
+    }
+
+    /**
+     * Only a file not implementing <code>lseek</code> or <code>dup2</code>, see {@link com.github.unidbg.file.AbstractFileIO}, is shared,
+     * any other failure fails the snapshot.
+     */
+    @SuppressWarnings("unchecked")
+    private FileState<T> copyFile(T io) {
+        int position;
+        try {
+            position = io.lseek(0, FileIO.SEEK_CUR);
+        } catch (AbstractMethodError | UnsupportedOperationException e) {
+            position = -1;
+        }
+        try {
+            return new FileState<>((T) io.dup2(), position, false);
+        } catch (AbstractMethodError | UnsupportedOperationException e) {
+            return new FileState<>(io, position, true);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T openFile(FileState<T> state) {
+        if (state.shared) {
+            return state.io;
+        }
+        T io = (T) state.io.dup2();
+        if (state.position > 0) {
+            io.lseek(state.position, FileIO.SEEK_SET);
+        }
+        return io;
+    }
+
+    public void onSnapshot(Emulator<?> emulator, EmulatorSnapshot snapshot) {
+        Map<Integer, FileState<T>> files = new TreeMap<>();
+        List<Integer> standardStreams = Arrays.asList(0, 1, 2);
+        for (Map.Entry<Integer, T> entry : fdMap.entrySet()) {
+            if (standardStreams.contains(entry.getKey())) { // streams without position
+                files.put(entry.getKey(), new FileState<>(entry.getValue(), -1, true));
+            } else {
+                files.put(entry.getKey(), copyFile(entry.getValue()));
+            }
+        }
+        snapshot.set("fdMap", files);
+        openedPaths.keySet().retainAll(new HashSet<>(fdMap.values()));
+        Set<Integer> opened = new TreeSet<>();
+        StringBuilder image = new StringBuilder();
+        for (Map.Entry<Integer, T> entry : fdMap.entrySet()) {
+            if (standardStreams.contains(entry.getKey())) { // standard streams are opened again by the restoring emulator
+                continue;
+            }
+            String path = openedPaths.get(entry.getValue());
+            if (path == null) {
+                opened.add(entry.getKey());
+            } else {
+                image.append(entry.getKey()).append('\t').append(files.get(entry.getKey()).position).append('\t').append(path).append('\n');
+            }
+        }
+        snapshot.set("fdMap.image", image.toString());
+        if (!opened.isEmpty()) {
+            snapshot.notPersisted("opened files " + opened);
+        }
+        if (!threadMap.isEmpty()) {
+            snapshot.notPersisted("threads " + threadMap.keySet());
+        }
+        snapshot.set("threadMap", new HashMap<>(threadMap));
+        snapshot.set("lastThread", lastThread);
+        threadScheduler.onSnapshot(emulator, snapshot);
+        if (timeSource instanceof VirtualTimeSource) {
+            snapshot.set("virtualTime", ((VirtualTimeSource) timeSource).getElapsedNanos());
+        }
+    }
+
+    public void onRestore(Emulator<?> emulator, EmulatorSnapshot snapshot) {
+        this.lastThread = snapshot.<Integer>get("lastThread");
+        threadScheduler.onRestore(emulator, snapshot);
+        Long virtualTime = snapshot.get("virtualTime");
+        if (virtualTime != null && timeSource instanceof VirtualTimeSource) {
+            ((VirtualTimeSource) timeSource).setElapsedNanos(virtualTime);
+        }
+
+        Map<Integer, FileState<T>> files = snapshot.get("fdMap");
+        if (files == null) {
+            restoreImageFiles(emulator, snapshot.<String>get("fdMap.image"));
+            return;
+        }
+        for (Map.Entry<Integer, T> entry : this.fdMap.entrySet()) {
+            FileState<T> state = files.get(entry.getKey());
+            if (state == null || state.io != entry.getValue()) {
+                openedPaths.remove(entry.getValue());
+                entry.getValue().close();
+            }
+        }
+        this.fdMap.clear();
+        for (Map.Entry<Integer, FileState<T>> entry : files.entrySet()) {
+            T io = openFile(entry.getValue());
+            String path = openedPaths.get(entry.getValue().io);
+            if (path != null) {
+                openedPaths.put(io, path);
+            }
+            this.fdMap.put(entry.getKey(), io);
+        }
+
+        Map<Integer, Thread> threadMap = snapshot.get("threadMap");
+        this.threadMap.clear();
+        this.threadMap.putAll(threadMap);
+    }
+
+    /**
+     * Restored from an image: the standard streams are kept, files opened by path are opened again at the same position.
+     * @throws IllegalStateException if a file can't be opened again.
+     */
+    @SuppressWarnings("unchecked")
+    private void restoreImageFiles(Emulator<?> emulator, String image) {
+        for (Iterator<Map.Entry<Integer, T>> iterator = fdMap.entrySet().iterator(); iterator.hasNext(); ) {
+            Map.Entry<Integer, T> entry = iterator.next();
+            if (entry.getKey() > 2) {
+                openedPaths.remove(entry.getValue());
+                entry.getValue().close();
+                iterator.remove();
+            }
+        }
+        for (String line : image.isEmpty() ? new String[0] : image.split("\n")) {
+            String[] fields = line.split("\t", 4);
+            int fd = Integer.parseInt(fields[0]);
+            int position = Integer.parseInt(fields[1]);
+            int oflags = Integer.parseInt(fields[2]);
+            String pathname = fields[3];
+            int flags = getReopenFlags(oflags);
+            FileResult<T> result = resolve((Emulator<T>) emulator, pathname, flags);
+            T io = result != null && result.isSuccess() ? result.io : createDriverFileIO(emulator, flags, pathname);
+            if (io == null) {
+                throw new IllegalStateException("Image file can't be opened again: fd=" + fd + ", path=" + pathname);
+            }
+            if (position > 0) {
+                io.lseek(position, FileIO.SEEK_SET);
+            }
+            fdMap.put(fd, io);
+            openedPaths.put(io, oflags + "\t" + pathname);
+        }
+    }
+
+    /**
+     * @return flags to open a file of an image again, it must not create or truncate the file: the access mode by default.
+     */
+    protected int getReopenFlags(int oflags) {
+        return oflags & 3;
     }
 
 }
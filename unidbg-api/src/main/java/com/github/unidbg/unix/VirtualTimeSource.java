@@ -0,0 +1,120 @@
+package com.github.unidbg.unix;
+
+import com.github.unidbg.Emulator;
+import com.github.unidbg.arm.ARM;
+import com.github.unidbg.arm.backend.Backend;
+import com.github.unidbg.arm.backend.BlockHook;
+import com.github.unidbg.arm.backend.UnHook;
+
+/**
+ * Deterministic clock: time only advances when the guest sleeps, reads the clock, or executes instructions when attached.
+ * Guest sleeps return immediately, so a sleeping native routine does not block the emulator thread.
+ */
+public class VirtualTimeSource implements TimeSource, BlockHook {
+
+    private final long epochMillis;
+    private long elapsedNanos;
+
+    private long readStepNanos = 1000;
+    private long nanosPerInstruction;
+    private boolean is32Bit;
+
+    /**
+     * Start at the current host time.
+     */
+    public VirtualTimeSource() {
+        this(System.currentTimeMillis());
+    }
+
+    /**
+     * @param epochMillis realtime clock at start, fixed for reproducible runs.
+     */
+    public VirtualTimeSource(long epochMillis) {
+        this.epochMillis = epochMillis;
+    }
+
+    /**
+     * Time advanced by each clock read, so a guest polling the clock until a deadline terminates. Default 1us.
+     */
+    public VirtualTimeSource setReadStep(long nanos) {
+        if (nanos < 0) {
+            throw new IllegalArgumentException("nanos=" + nanos);
+        }
+        this.readStepNanos = nanos;
+        return this;
+    }
+
+    /**
+     * Advance time by executed instructions, counted per basic block from its size: 4 bytes per instruction, 2 bytes in thumb mode.
+     * @param nanosPerInstruction time of one instruction
+     */
+    public VirtualTimeSource attach(Emulator<?> emulator, long nanosPerInstruction) {
+        if (nanosPerInstruction <= 0) {
+            throw new IllegalArgumentException("nanosPerInstruction=" + nanosPerInstruction);
+        }
+        if (this.nanosPerInstruction != 0) {
+            throw new IllegalStateException("Already attached");
+        }
+        this.nanosPerInstruction = nanosPerInstruction;
+        this.is32Bit = emulator.is32Bit();
+        emulator.getBackend().hook_add_new(this, 1, 0, null);
+        return this;
+    }
+
+    public void advance(long nanos) {
+        if (nanos < 0) {
+            throw new IllegalArgumentException("nanos=" + nanos);
+        }
+        elapsedNanos += nanos;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        elapsedNanos += readStepNanos;
+        return epochMillis + elapsedNanos / 1000000L;
+    }
+
+    @Override
+    public long nanoTime() {
+        elapsedNanos += readStepNanos;
+        return elapsedNanos;
+    }
+
+    @Override
+    public void sleep(long nanos) {
+        if (nanos > 0) {
+            elapsedNanos += nanos;
+        }
+    }
+
+    @Override
+    public void hookBlock(Backend backend, long address, int size, Object user) {
+        int instructionSize = is32Bit && ARM.isThumb(backend) ? 2 : 4;
+        elapsedNanos += Math.max(1, size / instructionSize) * nanosPerInstruction;
+    }
+
+    private UnHook unHook;
+
+    @Override
+    public void onAttach(UnHook unHook) {
+        this.unHook = unHook;
+    }
+
+    @Override
+    public void detach() {
+        if (unHook != null) {
+            unHook.unhook();
+            unHook = null;
+        }
+        nanosPerInstruction = 0;
+    }
+
+}
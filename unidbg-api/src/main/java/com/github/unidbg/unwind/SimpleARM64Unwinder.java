@@ -43,7 +43,9 @@ public class SimpleARM64Unwinder extends Unwinder {
         }
 
         if (frame.fp == null) {
-            System.err.println("fp is null");
+            if (!quiet) {
+                System.err.println("fp is null");
+            }
             return null;
         }
 
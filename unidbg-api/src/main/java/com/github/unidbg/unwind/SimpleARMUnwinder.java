@@ -44,7 +44,9 @@ public class SimpleARMUnwinder extends Unwinder {
 
         UnidbgPointer sp = UnidbgPointer.register(emulator, ArmConst.UC_ARM_REG_SP);
         if (frame.fp == null || frame.fp.peer < sp.peer) {
-            System.err.println("fp=" + frame.fp + ", sp=" + sp);
+            if (!quiet) {
+                System.err.println("fp=" + frame.fp + ", sp=" + sp);
+            }
             return null;
         }
 
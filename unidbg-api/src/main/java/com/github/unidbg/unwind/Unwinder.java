@@ -9,6 +9,9 @@ import com.github.unidbg.pointer.UnidbgPointer;
 import com.github.zhkl0228.demumble.DemanglerFactory;
 import com.github.zhkl0228.demumble.GccDemangler;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public abstract class Unwinder {
 
     public static final int SYMBOL_SIZE = 0x1000;
@@ -25,6 +28,30 @@ public abstract class Unwinder {
 
     protected abstract String getBaseFormat();
 
+    /**
+     * Set while walking the stack with {@link #getFrames(int)}: failures are not reported.
+     */
+    protected boolean quiet;
+
+    /**
+     * Walk the stack without printing, a frame that cannot be read ends the walk.
+     * @return frames of the callers, innermost first, at most <code>maxDepth</code>.
+     */
+    public final List<Frame> getFrames(int maxDepth) {
+        List<Frame> frames = new ArrayList<>();
+        quiet = true;
+        try {
+            Frame frame = null;
+            while (frames.size() < maxDepth && (frame = unw_step(emulator, frame)) != null && !frame.isFinish()) {
+                frames.add(frame);
+            }
+        } catch (RuntimeException ignored) {
+        } finally {
+            quiet = false;
+        }
+        return frames;
+    }
+
     public final void unwind() {
         Memory memory = emulator.getMemory();
         String maxLengthSoName = memory.getMaxLengthLibraryName();
@@ -0,0 +1,21 @@
+package com.github.unidbg.worker;
+
+import com.github.unidbg.arm.backend.BackendException;
+
+/**
+ * Discards workers released with a {@link BackendException} in the cause chain, the emulator state is undefined after it.
+ */
+public class BackendHealthCheck implements WorkerHealthCheck {
+
+    @Override
+    public boolean isHealthy(Worker worker, Throwable error) {
+        while (error != null) {
+            if (error instanceof BackendException) {
+                return false;
+            }
+            error = error.getCause();
+        }
+        return true;
+    }
+
+}
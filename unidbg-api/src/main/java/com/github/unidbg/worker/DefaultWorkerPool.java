@@ -4,68 +4,260 @@ import com.alibaba.fastjson.util.IOUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
-class DefaultWorkerPool implements WorkerPool, Runnable {
+/**
+ * Elastic pool between <code>minWorkers</code> and <code>maxWorkers</code>: workers are created in the background on demand,
+ * idle workers above the minimum are evicted, workers failing the health check or exceeding <code>maxUses</code> are replaced.
+ */
+class DefaultWorkerPool implements WorkerPool, WorkerPoolMXBean {
 
     private static final Log log = LogFactory.getLog(DefaultWorkerPool.class);
 
-    private final BlockingQueue<Worker> releaseQueue = new LinkedBlockingQueue<>();
-    private final BlockingQueue<Worker> workers;
+    private static final AtomicInteger POOL_ID = new AtomicInteger();
+
+    private static class PooledWorker {
+        final Worker worker;
+        int uses;
+        long idleSince;
+        PooledWorker(Worker worker) {
+            this.worker = worker;
+        }
+    }
+
+    /**
+     * most recently released first, so the workers at the tail are the ones idle for the longest time.
+     */
+    private final BlockingDeque<PooledWorker> idle = new LinkedBlockingDeque<>();
+    private final Map<Worker, PooledWorker> borrowed = new IdentityHashMap<>();
+
+    /**
+     * Notified when a worker becomes idle, no creation is pending any more or the pool is closed.
+     */
+    private final Object available = new Object();
 
     private final WorkerFactory factory;
-    private final int workerCount;
+    private final int minWorkers;
+    private final int maxWorkers;
+    private final long idleTimeoutMillis;
+    private final int maxUses;
+    private final WorkerHealthCheck healthCheck;
+    private final WorkerWarmup warmup;
 
-    DefaultWorkerPool(WorkerFactory factory, int workerCount) {
-        this.factory = factory;
-        this.workerCount = workerCount;
-        this.workers = new LinkedBlockingQueue<>(workerCount - 1);
+    private final ExecutorService creator;
+    private final ScheduledExecutorService evictor;
+    private final ObjectName objectName;
 
-        Thread thread = new Thread(this, "worker pool for " + factory);
-        thread.start();
-    }
+    private final AtomicInteger workerCount = new AtomicInteger();
 
-    private boolean stopped;
-    private int created;
+    /**
+     * workers being created by the <code>creator</code>.
+     */
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicInteger waitingCount = new AtomicInteger();
 
-    @Override
-    public void run() {
-        while (!stopped) {
-            try {
-                Worker release = created >= workerCount ? releaseQueue.poll(10, TimeUnit.MILLISECONDS) : releaseQueue.poll();
-                if (release != null) {
-                    workers.put(release);
-                    continue;
-                }
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong createFailedCount = new AtomicLong();
+    private final AtomicLong destroyedCount = new AtomicLong();
+    private final AtomicLong unhealthyCount = new AtomicLong();
+    private final AtomicLong recycledCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong borrowTimeoutCount = new AtomicLong();
+    private final AtomicLong borrowFailedCount = new AtomicLong();
+    private final AtomicLong borrowNanos = new AtomicLong();
+    private final AtomicLong maxBorrowNanos = new AtomicLong();
+
+    private volatile boolean stopped;
 
-                if (created < workerCount) {
-                    workers.put(factory.createWorker());
-                    created++;
+    DefaultWorkerPool(WorkerPoolBuilder builder) {
+        this.factory = builder.factory;
+        this.minWorkers = builder.minWorkers;
+        this.maxWorkers = builder.maxWorkers;
+        this.idleTimeoutMillis = builder.idleTimeoutMillis;
+        this.maxUses = builder.maxUses;
+        this.healthCheck = builder.healthCheck;
+        this.warmup = builder.warmup;
+
+        String name = builder.name == null ? "worker-pool-" + POOL_ID.incrementAndGet() : builder.name;
+        this.creator = Executors.newFixedThreadPool(builder.createThreads, new DaemonThreadFactory(name + "-creator"));
+        this.evictor = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory(name + "-evictor"));
+        this.objectName = registerMBean(name);
+
+        ensureWorkers();
+        if (idleTimeoutMillis > 0) {
+            long period = Math.max(100, idleTimeoutMillis / 2);
+            evictor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    evictIdleWorkers();
                 }
-            } catch (InterruptedException e) {
-                log.warn("worker pool loop failed", e);
+            }, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private ObjectName registerMBean(String name) {
+        try {
+            ObjectName objectName = new ObjectName("com.github.unidbg:type=WorkerPool,name=" + ObjectName.quote(name));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(this, objectName);
+            return objectName;
+        } catch (Exception e) {
+            log.warn("register worker pool mbean failed: name=" + name, e);
+            return null;
+        }
+    }
+
+    /**
+     * Reserve a slot below <code>maxWorkers</code> and create the worker in the background.
+     */
+    private boolean tryCreateWorker() {
+        while (true) {
+            int count = workerCount.get();
+            if (count >= maxWorkers) {
+                return false;
+            }
+            if (workerCount.compareAndSet(count, count + 1)) {
                 break;
             }
         }
 
-        closeWorkers(releaseQueue);
-        closeWorkers(workers);
+        pendingCount.incrementAndGet();
+        try {
+            creator.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        createWorker();
+                    } finally {
+                        if (pendingCount.decrementAndGet() == 0) {
+                            signal(true);
+                        }
+                    }
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            pendingCount.decrementAndGet();
+            workerCount.decrementAndGet();
+            return false;
+        }
     }
 
-    private static void closeWorkers(BlockingQueue<Worker> queue) {
-        Worker worker;
-        while ((worker = queue.poll()) != null) {
-            com.alibaba.fastjson.util.IOUtils.close(worker);
+    private void createWorker() {
+        Worker worker = null;
+        try {
+            long start = System.currentTimeMillis();
+            worker = factory.createWorker();
+            if (warmup != null) {
+                warmup.warmup(worker);
+            }
+            createdCount.incrementAndGet();
+            if (log.isDebugEnabled()) {
+                log.debug("create worker " + worker + " offset=" + (System.currentTimeMillis() - start) + "ms");
+            }
+        } catch (Throwable t) {
+            log.warn("create worker failed", t);
+            createFailedCount.incrementAndGet();
+            workerCount.decrementAndGet();
+            IOUtils.close(worker);
+            return;
         }
+
+        if (stopped) {
+            destroy(worker);
+            return;
+        }
+        PooledWorker pooled = new PooledWorker(worker);
+        pooled.idleSince = System.currentTimeMillis();
+        idle.offerFirst(pooled);
+        if (stopped && idle.remove(pooled)) {
+            destroy(worker);
+        }
+        signal(false);
     }
 
-    @Override
-    public void close() {
-        stopped = true;
+    /**
+     * Wakes up the borrowers waiting for a worker.
+     * @param all every waiter, to check if a worker can still arrive, see {@link #canArrive(long)}.
+     */
+    private void signal(boolean all) {
+        if (waitingCount.get() == 0) {
+            return;
+        }
+        synchronized (available) {
+            if (all) {
+                available.notifyAll();
+            } else {
+                available.notify();
+            }
+        }
+    }
+
+    /**
+     * Keep at least <code>minWorkers</code>, and one worker for every thread still waiting.
+     * The missing workers are counted once: a creation failing in the background must not be retried by this loop.
+     */
+    private void ensureWorkers() {
+        int count = workerCount.get();
+        int missing = Math.max(minWorkers - count, waitingCount.get() - (count - borrowedCount()));
+        for (int i = 0; i < missing && !stopped; i++) {
+            if (!tryCreateWorker()) {
+                break;
+            }
+        }
+    }
 
-        closeWorkers(workers);
+    private void destroy(Worker worker) {
+        workerCount.decrementAndGet();
+        destroyedCount.incrementAndGet();
+        IOUtils.close(worker);
+    }
+
+    private void evictIdleWorkers() {
+        long now = System.currentTimeMillis();
+        List<PooledWorker> evicted = new ArrayList<>();
+        Iterator<PooledWorker> iterator = idle.descendingIterator();
+        while (iterator.hasNext() && workerCount.get() - evicted.size() > minWorkers) {
+            PooledWorker pooled = iterator.next();
+            if (now - pooled.idleSince < idleTimeoutMillis) {
+                break;
+            }
+            if (idle.remove(pooled)) {
+                evicted.add(pooled);
+            }
+        }
+        for (PooledWorker pooled : evicted) {
+            evictedCount.incrementAndGet();
+            destroy(pooled.worker);
+        }
+        ensureWorkers();
+    }
+
+    /**
+     * A waiting borrower gives up before its timeout only when creating a worker failed while it waited,
+     * and neither a pending creation nor the release of a borrowed worker can bring one.
+     * @param failed {@link #createFailedCount} when the borrower started waiting.
+     */
+    private boolean canArrive(long failed) {
+        return createFailedCount.get() == failed || pendingCount.get() > 0 || borrowedCount() > 0;
     }
 
     @SuppressWarnings("unchecked")
@@ -75,20 +267,247 @@ class DefaultWorkerPool implements WorkerPool, Runnable {
             return null;
         }
 
-        try {
-            return (T) workers.poll(timeout, unit);
-        } catch (InterruptedException e) {
-            log.warn("borrow failed", e);
+        long start = System.nanoTime();
+        PooledWorker pooled = idle.pollFirst();
+        boolean failed = false;
+        if (pooled == null) {
+            waitingCount.incrementAndGet();
+            try {
+                long failedCount = createFailedCount.get();
+                ensureWorkers();
+                long remaining = unit.toNanos(timeout);
+                synchronized (available) {
+                    while ((pooled = idle.pollFirst()) == null && remaining > 0 && !stopped) {
+                        if (!canArrive(failedCount)) {
+                            failed = true;
+                            break;
+                        }
+                        TimeUnit.NANOSECONDS.timedWait(available, remaining);
+                        remaining = unit.toNanos(timeout) - (System.nanoTime() - start);
+                    }
+                }
+            } catch (InterruptedException e) {
+                log.warn("borrow failed", e);
+                Thread.currentThread().interrupt();
+            } finally {
+                waitingCount.decrementAndGet();
+            }
+        }
+        if (pooled == null) {
+            if (failed) {
+                borrowFailedCount.incrementAndGet();
+            } else if (!stopped) {
+                borrowTimeoutCount.incrementAndGet();
+            }
             return null;
         }
+
+        long elapsed = System.nanoTime() - start;
+        borrowCount.incrementAndGet();
+        borrowNanos.addAndGet(elapsed);
+        long max;
+        while (elapsed > (max = maxBorrowNanos.get()) && !maxBorrowNanos.compareAndSet(max, elapsed)) {
+            Thread.yield();
+        }
+
+        pooled.uses++;
+        synchronized (borrowed) {
+            borrowed.put(pooled.worker, pooled);
+        }
+        return (T) pooled.worker;
     }
 
     @Override
     public void release(Worker worker) {
+        release(worker, null);
+    }
+
+    @Override
+    public void release(Worker worker, Throwable error) {
+        PooledWorker pooled;
+        synchronized (borrowed) {
+            pooled = borrowed.remove(worker);
+        }
+        if (pooled == null) {
+            log.warn("release worker not borrowed from this pool: " + worker);
+            return;
+        }
+
         if (stopped) {
-            IOUtils.close(worker);
+            destroy(worker);
+            return;
+        }
+
+        boolean healthy;
+        try {
+            healthy = healthCheck == null || healthCheck.isHealthy(worker, error);
+        } catch (Throwable t) {
+            log.warn("health check failed: " + worker, t);
+            healthy = false;
+        }
+        if (!healthy) {
+            unhealthyCount.incrementAndGet();
+            destroy(worker);
+            ensureWorkers();
+        } else if (maxUses > 0 && pooled.uses >= maxUses) {
+            recycledCount.incrementAndGet();
+            destroy(worker);
+            ensureWorkers();
         } else {
-            releaseQueue.offer(worker);
+            pooled.idleSince = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+            signal(false);
+        }
+    }
+
+    @Override
+    public void close() {
+        stopped = true;
+
+        evictor.shutdownNow();
+        creator.shutdown();
+        PooledWorker pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled.worker);
+        }
+        signal(true);
+
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (Exception e) {
+                log.debug("unregister worker pool mbean failed: " + objectName, e);
+            }
+        }
+    }
+
+    private int borrowedCount() {
+        synchronized (borrowed) {
+            return borrowed.size();
+        }
+    }
+
+    @Override
+    public int getMinWorkers() {
+        return minWorkers;
+    }
+
+    @Override
+    public int getMaxWorkers() {
+        return maxWorkers;
+    }
+
+    @Override
+    public int getWorkerCount() {
+        return workerCount.get();
+    }
+
+    @Override
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    @Override
+    public int getBorrowedCount() {
+        return borrowedCount();
+    }
+
+    @Override
+    public int getWaitingCount() {
+        return waitingCount.get();
+    }
+
+    @Override
+    public double getUtilization() {
+        return (double) borrowedCount() / maxWorkers;
+    }
+
+    @Override
+    public long getCreatedCount() {
+        return createdCount.get();
+    }
+
+    @Override
+    public long getCreateFailedCount() {
+        return createFailedCount.get();
+    }
+
+    @Override
+    public long getDestroyedCount() {
+        return destroyedCount.get();
+    }
+
+    @Override
+    public long getUnhealthyCount() {
+        return unhealthyCount.get();
+    }
+
+    @Override
+    public long getRecycledCount() {
+        return recycledCount.get();
+    }
+
+    @Override
+    public long getEvictedCount() {
+        return evictedCount.get();
+    }
+
+    @Override
+    public long getBorrowCount() {
+        return borrowCount.get();
+    }
+
+    @Override
+    public long getBorrowTimeoutCount() {
+        return borrowTimeoutCount.get();
+    }
+
+    @Override
+    public long getBorrowFailedCount() {
+        return borrowFailedCount.get();
+    }
+
+    @Override
+    public double getAverageBorrowMillis() {
+        long count = borrowCount.get();
+        return count == 0 ? 0 : borrowNanos.get() / 1e6 / count;
+    }
+
+    @Override
+    public double getMaxBorrowMillis() {
+        return maxBorrowNanos.get() / 1e6;
+    }
+
+    @Override
+    public void resetStatistics() {
+        borrowCount.set(0);
+        borrowTimeoutCount.set(0);
+        borrowFailedCount.set(0);
+        borrowNanos.set(0);
+        maxBorrowNanos.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "DefaultWorkerPool{" +
+                "factory=" + factory +
+                ", workers=" + workerCount +
+                ", idle=" + idle.size() +
+                ", waiting=" + waitingCount +
+                '}';
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger index = new AtomicInteger();
+        DaemonThreadFactory(String name) {
+            this.name = name;
+        }
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, name + "-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
         }
     }
 
@@ -0,0 +1,14 @@
+package com.github.unidbg.worker;
+
+/**
+ * Checked every time a worker is released, unhealthy workers are closed and replaced.
+ */
+public interface WorkerHealthCheck {
+
+    /**
+     * @param error the error raised while the worker was borrowed, <code>null</code> if it was released normally.
+     * @return <code>false</code> to discard the worker.
+     */
+    boolean isHealthy(Worker worker, Throwable error);
+
+}
@@ -9,4 +9,9 @@ public interface WorkerPool extends Closeable {
 
     void release(Worker worker);
 
+    /**
+     * Release the worker after it failed, the worker is discarded if the {@link WorkerHealthCheck} rejects it.
+     */
+    void release(Worker worker, Throwable error);
+
 }
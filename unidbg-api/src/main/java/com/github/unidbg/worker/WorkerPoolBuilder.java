@@ -0,0 +1,91 @@
+package com.github.unidbg.worker;
+
+import java.util.concurrent.TimeUnit;
+
+public class WorkerPoolBuilder {
+
+    final WorkerFactory factory;
+
+    WorkerPoolBuilder(WorkerFactory factory) {
+        this.factory = factory;
+    }
+
+    int minWorkers;
+    int maxWorkers = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * @param minWorkers workers created on start and never evicted.
+     * @param maxWorkers upper bound of created workers.
+     */
+    public WorkerPoolBuilder setWorkers(int minWorkers, int maxWorkers) {
+        if (minWorkers < 0 || maxWorkers < 1 || minWorkers > maxWorkers) {
+            throw new IllegalArgumentException("minWorkers=" + minWorkers + ", maxWorkers=" + maxWorkers);
+        }
+        this.minWorkers = minWorkers;
+        this.maxWorkers = maxWorkers;
+        return this;
+    }
+
+    long idleTimeoutMillis = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * Workers above <code>minWorkers</code> idle longer than timeout are closed, 0 to disable eviction.
+     */
+    public WorkerPoolBuilder setIdleTimeout(long timeout, TimeUnit unit) {
+        this.idleTimeoutMillis = unit.toMillis(timeout);
+        return this;
+    }
+
+    int maxUses;
+
+    /**
+     * Recycle the worker after borrowed <code>maxUses</code> times, 0 for unlimited.
+     */
+    public WorkerPoolBuilder setMaxUses(int maxUses) {
+        this.maxUses = maxUses;
+        return this;
+    }
+
+    int createThreads = 1;
+
+    /**
+     * Workers created in parallel, 1 by default: the unicorn backend can't be constructed concurrently,
+     * raise it only for a factory whose backend can.
+     */
+    public WorkerPoolBuilder setCreateThreads(int createThreads) {
+        if (createThreads < 1) {
+            throw new IllegalArgumentException("createThreads=" + createThreads);
+        }
+        this.createThreads = createThreads;
+        return this;
+    }
+
+    WorkerHealthCheck healthCheck = new BackendHealthCheck();
+
+    public WorkerPoolBuilder setHealthCheck(WorkerHealthCheck healthCheck) {
+        this.healthCheck = healthCheck;
+        return this;
+    }
+
+    WorkerWarmup warmup;
+
+    public WorkerPoolBuilder setWarmup(WorkerWarmup warmup) {
+        this.warmup = warmup;
+        return this;
+    }
+
+    String name;
+
+    /**
+     * JMX name of the pool, generated if not set.
+     */
+    public WorkerPoolBuilder setName(String name) {
+        this.name = name;
+        return this;
+    }
+
+    public WorkerPool build() {
+        return new DefaultWorkerPool(this);
+    }
+
+}
@@ -3,7 +3,11 @@ package com.github.unidbg.worker;
 public class WorkerPoolFactory {
 
     public static WorkerPool create(WorkerFactory factory, int workerCount) {
-        return new DefaultWorkerPool(factory, workerCount);
+        return builder(factory).setWorkers(workerCount, workerCount).build();
+    }
+
+    public static WorkerPoolBuilder builder(WorkerFactory factory) {
+        return new WorkerPoolBuilder(factory);
     }
 
 }
@@ -0,0 +1,58 @@
+package com.github.unidbg.worker;
+
+/**
+ * Registered as <code>com.github.unidbg:type=WorkerPool,name=...</code>
+ */
+public interface WorkerPoolMXBean {
+
+    int getMinWorkers();
+
+    int getMaxWorkers();
+
+    /**
+     * created and creating workers
+     */
+    int getWorkerCount();
+
+    int getIdleCount();
+
+    int getBorrowedCount();
+
+    /**
+     * threads waiting in {@link WorkerPool#borrow(long, java.util.concurrent.TimeUnit)}
+     */
+    int getWaitingCount();
+
+    /**
+     * borrowed / max workers
+     */
+    double getUtilization();
+
+    long getCreatedCount();
+
+    long getCreateFailedCount();
+
+    long getDestroyedCount();
+
+    long getUnhealthyCount();
+
+    long getRecycledCount();
+
+    long getEvictedCount();
+
+    long getBorrowCount();
+
+    long getBorrowTimeoutCount();
+
+    /**
+     * borrows given up before their timeout: creating a worker failed and no other worker could become idle.
+     */
+    long getBorrowFailedCount();
+
+    double getAverageBorrowMillis();
+
+    double getMaxBorrowMillis();
+
+    void resetStatistics();
+
+}
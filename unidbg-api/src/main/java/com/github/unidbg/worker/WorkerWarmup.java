@@ -0,0 +1,10 @@
+package com.github.unidbg.worker;
+
+/**
+ * Run on the creator thread after the worker is created and before it can be borrowed.
+ */
+public interface WorkerWarmup {
+
+    void warmup(Worker worker) throws Exception;
+
+}
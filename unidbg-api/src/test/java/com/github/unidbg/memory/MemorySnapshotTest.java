@@ -0,0 +1,111 @@
+package com.github.unidbg.memory;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class MemorySnapshotTest extends TestCase {
+
+    private static final int PAGE_SIZE = 0x1000;
+
+    private static MemorySnapshot createSnapshot() {
+        List<MemoryMap> memoryMaps = Collections.singletonList(new MemoryMap(0x40000000L, 2 * PAGE_SIZE, 5));
+        List<MemoryMap> regions = Arrays.asList(new MemoryMap(0x40000000L, 2 * PAGE_SIZE, 5), new MemoryMap(0xbffff000L, PAGE_SIZE, 3));
+        Map<Long, byte[]> pages = new HashMap<>();
+        pages.put(0x40000000L, page(1));
+        pages.put(0xbffff000L, page(7));
+        MemorySnapshot snapshot = new MemorySnapshot(0xbffffff0L, 0x40002000L, 0xc0000000L, 1, PAGE_SIZE, memoryMaps, regions, pages);
+        snapshot.set("long", 0x123456789L);
+        snapshot.set("int", 42);
+        snapshot.set("boolean", true);
+        snapshot.set("string", "unidbg");
+        snapshot.set("null", null);
+        snapshot.set("object", new Object());
+        return snapshot;
+    }
+
+    private static byte[] page(int seed) {
+        byte[] page = new byte[PAGE_SIZE];
+        for (int i = 0; i < page.length; i++) {
+            page[i] = (byte) (seed * i);
+        }
+        return page;
+    }
+
+    private static void assertSnapshot(MemorySnapshot snapshot) {
+        assertEquals(0xbffffff0L, snapshot.sp);
+        assertEquals(0x40002000L, snapshot.mmapBaseAddress);
+        assertEquals(0xc0000000L, snapshot.stackBase);
+        assertEquals(1, snapshot.stackSize);
+        assertEquals(PAGE_SIZE, snapshot.pageSize);
+        assertEquals(1, snapshot.memoryMaps.size());
+        assertEquals(2, snapshot.regions.size());
+        assertEquals(0xbffff000L, snapshot.regions.get(1).base);
+        assertEquals(3, snapshot.regions.get(1).prot);
+
+        assertEquals(2, snapshot.getPageCount());
+        assertTrue(Arrays.equals(page(1), snapshot.getPage(0x40000000L)));
+        assertTrue(Arrays.equals(page(7), snapshot.getPage(0xbffff000L)));
+        assertNull(snapshot.getPage(0x40001000L));
+
+        assertEquals(Long.valueOf(0x123456789L), snapshot.<Long>get("long"));
+        assertEquals(Integer.valueOf(42), snapshot.<Integer>get("int"));
+        assertEquals(Boolean.TRUE, snapshot.<Boolean>get("boolean"));
+        assertEquals("unidbg", snapshot.<String>get("string"));
+        assertNull(snapshot.get("null"));
+        assertNull("process bound values are not serialized", snapshot.get("object"));
+    }
+
+    private static byte[] serialize(MemorySnapshot snapshot) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        snapshot.serialize(new DataOutputStream(baos));
+        return baos.toByteArray();
+    }
+
+    public void testRoundTrip() throws Exception {
+        byte[] data = serialize(createSnapshot());
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        assertSnapshot(MemorySnapshot.read(buffer));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    public void testMappedFile() throws Exception {
+        File file = File.createTempFile("snapshot", ".bin");
+        try {
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                out.write(new byte[13]); // header before the snapshot
+                out.write(serialize(createSnapshot()));
+            }
+            try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+                FileChannel channel = randomAccessFile.getChannel();
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                buffer.position(13);
+                assertSnapshot(MemorySnapshot.read(buffer, channel));
+            }
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    public void testSamePage() {
+        byte[] data = new byte[PAGE_SIZE * 2];
+        System.arraycopy(page(3), 0, data, PAGE_SIZE, PAGE_SIZE);
+        assertTrue(MemorySnapshot.isZeroPage(data, 0, PAGE_SIZE));
+        assertFalse(MemorySnapshot.isZeroPage(data, PAGE_SIZE, PAGE_SIZE));
+        assertTrue(MemorySnapshot.isSamePage(data, PAGE_SIZE, page(3)));
+        assertFalse(MemorySnapshot.isSamePage(data, PAGE_SIZE, page(5)));
+        assertFalse(MemorySnapshot.isSamePage(data, PAGE_SIZE + 1, page(3)));
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.github.unidbg.metrics;
+
+import junit.framework.TestCase;
+
+public class LatencyHistogramTest extends TestCase {
+
+    public void testEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMeanNanos());
+        assertEquals(0, histogram.getPercentileNanos(50));
+        assertEquals(0, histogram.getPercentileNanos(99));
+    }
+
+    public void testRecord() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(5050000L, histogram.getTotalNanos());
+        assertEquals(50500L, histogram.getMeanNanos());
+        assertEquals(100000L, histogram.getMaxNanos());
+
+        long p50 = histogram.getPercentileNanos(50);
+        assertTrue("p50=" + p50, p50 >= 50000L && p50 < 2 * 50000L);
+        assertEquals(65535L, p50);
+        long p99 = histogram.getPercentileNanos(99);
+        assertTrue("p99=" + p99, p99 >= 99000L && p99 <= 100000L);
+        assertEquals("capped by the max", 100000L, histogram.getPercentileNanos(100));
+        assertEquals(1023L, histogram.getPercentileNanos(0));
+    }
+
+    public void testBounds() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(0);
+        assertEquals(2, histogram.getCount());
+        assertEquals(0, histogram.getMaxNanos());
+        assertEquals(0, histogram.getPercentileNanos(100));
+
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histogram.getPercentileNanos(100));
+
+        try {
+            histogram.getPercentileNanos(101);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+    public void testReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(123);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getTotalNanos());
+        assertEquals(0, histogram.getMaxNanos());
+        assertEquals(0, histogram.getPercentileNanos(50));
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.github.unidbg.serialize;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class ValueSerializerTest extends TestCase {
+
+    private static ByteBuffer write(Map<String, Object> values) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ValueSerializer.writeValues(new DataOutputStream(baos), values);
+        return ByteBuffer.wrap(baos.toByteArray());
+    }
+
+    public void testRoundTrip() throws IOException {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("long", Long.MIN_VALUE);
+        values.put("int", -1);
+        values.put("true", true);
+        values.put("false", false);
+        values.put("string", "模拟器\n\t");
+        values.put("empty", "");
+        values.put("null", null);
+        values.put("object", new Object());
+        values.put("short", (short) 1);
+
+        ByteBuffer buffer = write(values);
+        Map<String, Object> read = new HashMap<>();
+        ValueSerializer.readValues(buffer, read);
+        assertFalse(buffer.hasRemaining());
+
+        values.remove("object");
+        values.remove("short");
+        assertEquals("process bound values are skipped", values, read);
+        assertTrue(read.containsKey("null"));
+    }
+
+    public void testBytes() throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5});
+        data.position(1);
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("bytes", data);
+        values.put("after", 7);
+
+        ByteBuffer buffer = write(values);
+        Map<String, Object> read = new HashMap<>();
+        ValueSerializer.readValues(buffer, read);
+        assertFalse(buffer.hasRemaining());
+        assertEquals(1, data.position());
+
+        ByteBuffer bytes = (ByteBuffer) read.get("bytes");
+        assertTrue(bytes.isReadOnly());
+        assertEquals(ByteBuffer.wrap(new byte[]{2, 3, 4, 5}), bytes);
+        assertEquals(7, read.get("after"));
+    }
+
+    public void testEmpty() throws IOException {
+        ByteBuffer buffer = write(new HashMap<String, Object>());
+        Map<String, Object> read = new HashMap<>();
+        ValueSerializer.readValues(buffer, read);
+        assertTrue(read.isEmpty());
+        assertFalse(buffer.hasRemaining());
+    }
+
+    public void testInvalidType() throws IOException {
+        ByteBuffer buffer = write(Collections.<String, Object>singletonMap("key", 1L));
+        buffer.put(buffer.limit() - 9, (byte) 0x7f);
+        try {
+            ValueSerializer.readValues(buffer, new HashMap<String, Object>());
+            fail();
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+    }
+
+}
@@ -0,0 +1,184 @@
+package com.github.unidbg.worker;
+
+import junit.framework.TestCase;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DefaultWorkerPoolTest extends TestCase {
+
+    private static class TestWorker implements Worker {
+        final int id;
+        volatile boolean closed;
+        TestWorker(int id) {
+            this.id = id;
+        }
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    /**
+     * Creates <code>succeed</code> workers, then fails.
+     */
+    private static class TestFactory implements WorkerFactory {
+        final AtomicInteger created = new AtomicInteger();
+        final int succeed;
+        TestFactory(int succeed) {
+            this.succeed = succeed;
+        }
+        @Override
+        public Worker createWorker() {
+            int id = created.incrementAndGet();
+            if (id > succeed) {
+                throw new IllegalStateException("create worker " + id);
+            }
+            return new TestWorker(id);
+        }
+    }
+
+    private static DefaultWorkerPool build(WorkerPoolBuilder builder) {
+        return (DefaultWorkerPool) builder.setHealthCheck(null).build();
+    }
+
+    private static void waitFor(DefaultWorkerPool pool, int workerCount) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (pool.getWorkerCount() != workerCount && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(workerCount, pool.getWorkerCount());
+    }
+
+    public void testElastic() throws Exception {
+        try (DefaultWorkerPool pool = build(WorkerPoolFactory.builder(new TestFactory(Integer.MAX_VALUE)).setWorkers(1, 3))) {
+            waitFor(pool, 1);
+            Set<Worker> workers = new HashSet<>();
+            for (int i = 0; i < 3; i++) {
+                Worker worker = pool.borrow(5, TimeUnit.SECONDS);
+                assertNotNull(worker);
+                workers.add(worker);
+            }
+            assertEquals(3, workers.size());
+            assertEquals(3, pool.getWorkerCount());
+            assertEquals(3, pool.getBorrowedCount());
+
+            long start = System.currentTimeMillis();
+            assertNull("pool at max", pool.borrow(200, TimeUnit.MILLISECONDS));
+            assertTrue(System.currentTimeMillis() - start >= 150);
+            assertEquals(1, pool.getBorrowTimeoutCount());
+            assertEquals(0, pool.getBorrowFailedCount());
+
+            for (Worker worker : workers) {
+                pool.release(worker);
+            }
+            assertEquals(3, pool.getIdleCount());
+            assertEquals(3, pool.getCreatedCount());
+        }
+    }
+
+    public void testEviction() throws Exception {
+        try (DefaultWorkerPool pool = build(WorkerPoolFactory.builder(new TestFactory(Integer.MAX_VALUE)).setWorkers(1, 3).setIdleTimeout(100, TimeUnit.MILLISECONDS))) {
+            TestWorker[] workers = new TestWorker[3];
+            for (int i = 0; i < workers.length; i++) {
+                workers[i] = pool.borrow(5, TimeUnit.SECONDS);
+            }
+            for (TestWorker worker : workers) {
+                pool.release(worker);
+            }
+            waitFor(pool, 1);
+            assertEquals(2, pool.getEvictedCount());
+            int closed = 0;
+            for (TestWorker worker : workers) {
+                closed += worker.closed ? 1 : 0;
+            }
+            assertEquals(2, closed);
+            assertEquals("minWorkers are never evicted", 1, pool.getIdleCount());
+        }
+    }
+
+    public void testMaxUses() throws Exception {
+        try (DefaultWorkerPool pool = build(WorkerPoolFactory.builder(new TestFactory(Integer.MAX_VALUE)).setWorkers(1, 1).setMaxUses(2))) {
+            TestWorker first = pool.borrow(5, TimeUnit.SECONDS);
+            pool.release(first);
+            assertSame(first, pool.borrow(5, TimeUnit.SECONDS));
+            pool.release(first);
+            assertTrue(first.closed);
+            assertEquals(1, pool.getRecycledCount());
+
+            TestWorker second = pool.borrow(5, TimeUnit.SECONDS);
+            assertNotNull(second);
+            assertNotSame(first, second);
+            pool.release(second);
+        }
+    }
+
+    public void testHealthCheck() throws Exception {
+        WorkerPoolBuilder builder = WorkerPoolFactory.builder(new TestFactory(Integer.MAX_VALUE)).setWorkers(1, 1);
+        builder.setHealthCheck(new WorkerHealthCheck() {
+            @Override
+            public boolean isHealthy(Worker worker, Throwable error) {
+                return error == null;
+            }
+        });
+        try (DefaultWorkerPool pool = (DefaultWorkerPool) builder.build()) {
+            TestWorker first = pool.borrow(5, TimeUnit.SECONDS);
+            pool.release(first);
+            assertSame(first, pool.borrow(5, TimeUnit.SECONDS));
+            pool.release(first, new IllegalStateException("crashed"));
+            assertTrue(first.closed);
+            assertEquals(1, pool.getUnhealthyCount());
+
+            TestWorker second = pool.borrow(5, TimeUnit.SECONDS);
+            assertNotNull("replaced", second);
+            assertNotSame(first, second);
+            pool.release(second);
+        }
+    }
+
+    public void testCreateFailedGivesUp() throws Exception {
+        try (DefaultWorkerPool pool = build(WorkerPoolFactory.builder(new TestFactory(0)).setWorkers(0, 2))) {
+            long start = System.currentTimeMillis();
+            assertNull(pool.borrow(10, TimeUnit.SECONDS));
+            assertTrue("no worker can arrive", System.currentTimeMillis() - start < 5000);
+            assertEquals(1, pool.getBorrowFailedCount());
+            assertEquals(0, pool.getBorrowTimeoutCount());
+            assertTrue(pool.getCreateFailedCount() > 0);
+        }
+    }
+
+    public void testCreateFailedWaitsForRelease() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (final DefaultWorkerPool pool = build(WorkerPoolFactory.builder(new TestFactory(1)).setWorkers(0, 2))) {
+            final Worker first = pool.borrow(5, TimeUnit.SECONDS);
+            assertNotNull(first);
+
+            Future<Worker> future = executor.submit(new Callable<Worker>() {
+                @Override
+                public Worker call() {
+                    return pool.borrow(10, TimeUnit.SECONDS);
+                }
+            });
+            long deadline = System.currentTimeMillis() + 5000;
+            while (pool.getCreateFailedCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(1, pool.getCreateFailedCount());
+            Thread.sleep(100);
+            assertFalse("a borrowed worker can still be released", future.isDone());
+
+            pool.release(first);
+            assertSame(first, future.get(5, TimeUnit.SECONDS));
+            assertEquals(0, pool.getBorrowFailedCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
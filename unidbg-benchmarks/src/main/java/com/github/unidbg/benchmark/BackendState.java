@@ -0,0 +1,65 @@
+package com.github.unidbg.benchmark;
+
+import com.github.unidbg.AndroidEmulator;
+import com.github.unidbg.arm.backend.DynarmicFactory;
+import com.github.unidbg.linux.android.AndroidEmulatorBuilder;
+import com.github.unidbg.linux.android.AndroidResolver;
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Every benchmark runs once per backend, so the backends are compared on the same workloads.
+ * Dynarmic never falls back to unicorn: when its native library is not available on this platform,
+ * the setup fails and JMH reports the dynarmic runs as errors instead of measuring unicorn twice.
+ */
+@State(Scope.Benchmark)
+public abstract class BackendState {
+
+    @Param({"unicorn", "dynarmic"})
+    public String backend;
+
+    protected AndroidEmulator createEmulator(boolean is64Bit) {
+        AndroidEmulatorBuilder builder = is64Bit ? AndroidEmulatorBuilder.for64Bit() : AndroidEmulatorBuilder.for32Bit();
+        builder.setProcessName("benchmark");
+        boolean dynarmic = "dynarmic".equals(backend);
+        if (dynarmic) {
+            builder.addBackendFactory(new DynarmicFactory(false));
+        }
+        AndroidEmulator emulator;
+        try {
+            emulator = builder.build();
+        } catch (RuntimeException | UnsatisfiedLinkError e) {
+            if (dynarmic) {
+                throw new IllegalStateException("dynarmic backend not available on this platform", e);
+            }
+            throw e;
+        }
+        emulator.getMemory().setLibraryResolver(new AndroidResolver(23));
+        return emulator;
+    }
+
+    /**
+     * Copy the classpath resource to a temp file, libraries are loaded from file.
+     */
+    protected static File extractResource(String name) throws IOException {
+        InputStream inputStream = BackendState.class.getResourceAsStream(name);
+        if (inputStream == null) {
+            throw new IllegalStateException("resource not found: " + name);
+        }
+        File file = File.createTempFile("unidbg_benchmark", ".so");
+        file.deleteOnExit();
+        try (InputStream in = inputStream; OutputStream outputStream = new FileOutputStream(file)) {
+            IOUtils.copy(in, outputStream);
+        }
+        return file;
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.github.unidbg.benchmark;
+
+import com.github.unidbg.AndroidEmulator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <code>AndroidEmulatorBuilder.build()</code>, the emulator is closed in the same operation to not leak native memory.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmulatorBuildBenchmark extends BackendState {
+
+    @Benchmark
+    public void build32() throws IOException {
+        AndroidEmulator emulator = createEmulator(false);
+        emulator.close();
+    }
+
+    @Benchmark
+    public void build64() throws IOException {
+        AndroidEmulator emulator = createEmulator(true);
+        emulator.close();
+    }
+
+}
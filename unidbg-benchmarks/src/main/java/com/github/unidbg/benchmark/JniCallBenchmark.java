@@ -0,0 +1,53 @@
+package com.github.unidbg.benchmark;
+
+import com.github.unidbg.AndroidEmulator;
+import com.github.unidbg.linux.android.dvm.DalvikModule;
+import com.github.unidbg.linux.android.dvm.DvmObject;
+import com.github.unidbg.linux.android.dvm.VM;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot <code>DvmObject.callJniMethod</code> round-trip into <code>MainActivity.jnitest</code> of the test <code>libnative-lib.so</code>.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JniCallBenchmark extends BackendState {
+
+    private AndroidEmulator emulator;
+    private DvmObject<?> activity;
+
+    @Setup
+    public void setup() throws IOException {
+        emulator = createEmulator(false);
+        VM vm = emulator.createDalvikVM();
+        vm.setVerbose(false);
+        DalvikModule dm = vm.loadLibrary(extractResource("/example_binaries/armeabi-v7a/libnative-lib.so"), false);
+        dm.callJNI_OnLoad(emulator);
+        activity = vm.resolveClass("com/kanxue/test2/MainActivity").newObject(null);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        emulator.close();
+    }
+
+    @Benchmark
+    public boolean callJniMethod() {
+        return activity.callJniMethodBoolean(emulator, "jnitest(Ljava/lang/String;)Z", "abc");
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.github.unidbg.benchmark;
+
+import com.github.unidbg.AndroidEmulator;
+import com.github.unidbg.linux.android.dvm.DalvikModule;
+import com.github.unidbg.linux.android.dvm.VM;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <code>loadLibrary</code> and <code>callJNI_OnLoad</code> of the test <code>libnative-lib.so</code> into a fresh emulator.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadLibraryBenchmark extends BackendState {
+
+    private File library;
+
+    private AndroidEmulator emulator;
+    private VM vm;
+
+    @Setup(Level.Trial)
+    public void extract() throws IOException {
+        library = extractResource("/example_binaries/armeabi-v7a/libnative-lib.so");
+    }
+
+    @Setup(Level.Invocation)
+    public void setup() {
+        emulator = createEmulator(false);
+        vm = emulator.createDalvikVM();
+        vm.setVerbose(false);
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() throws IOException {
+        emulator.close();
+    }
+
+    @Benchmark
+    public DalvikModule loadLibrary() {
+        DalvikModule dm = vm.loadLibrary(library, false);
+        dm.callJNI_OnLoad(emulator);
+        return dm;
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.github.unidbg.benchmark;
+
+import com.github.unidbg.AndroidEmulator;
+import com.github.unidbg.memory.MemoryBlock;
+import com.github.unidbg.pointer.UnidbgPointer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Guest memory access through <code>UnidbgPointer</code>.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MemoryBenchmark extends BackendState {
+
+    private AndroidEmulator emulator;
+    private UnidbgPointer pointer;
+
+    @Setup
+    public void setup() {
+        emulator = createEmulator(false);
+        MemoryBlock block = emulator.getMemory().malloc(0x2000, true);
+        pointer = block.getPointer();
+        pointer.write(0, new byte[0x1000], 0, 0x1000);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        emulator.close();
+    }
+
+    @Benchmark
+    public int getInt() {
+        return pointer.getInt(0);
+    }
+
+    @Benchmark
+    public byte[] getByteArray() {
+        return pointer.getByteArray(0, 0x100);
+    }
+
+    @Benchmark
+    public byte[] getByteArrayPage() {
+        return pointer.getByteArray(0, 0x1000);
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.github.unidbg.benchmark;
+
+import com.github.unidbg.AndroidEmulator;
+import com.github.unidbg.Module;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <code>ARM64SyscallHandler</code> dispatch of cheap syscalls, called through the libc wrappers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SyscallBenchmark extends BackendState {
+
+    private AndroidEmulator emulator;
+    private Module libc;
+
+    @Setup
+    public void setup() {
+        emulator = createEmulator(true);
+        libc = emulator.getMemory().dlopen("libc.so");
+        if (libc == null) {
+            throw new IllegalStateException("libc.so not found");
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        emulator.close();
+    }
+
+    @Benchmark
+    public int getuid() {
+        return libc.callFunction(emulator, "getuid")[0].intValue();
+    }
+
+    @Benchmark
+    public int getppid() {
+        return libc.callFunction(emulator, "getppid")[0].intValue();
+    }
+
+}
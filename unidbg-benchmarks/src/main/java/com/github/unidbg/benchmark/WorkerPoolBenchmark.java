@@ -0,0 +1,70 @@
+package com.github.unidbg.benchmark;
+
+import com.github.unidbg.worker.Worker;
+import com.github.unidbg.worker.WorkerFactory;
+import com.github.unidbg.worker.WorkerPool;
+import com.github.unidbg.worker.WorkerPoolFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <code>WorkerPool</code> borrow/release overhead, the workers hold no emulator.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorkerPoolBenchmark {
+
+    private static class NoopWorker implements Worker {
+        @Override
+        public void close() {
+        }
+    }
+
+    private WorkerPool pool;
+
+    @Setup
+    public void setup() {
+        pool = WorkerPoolFactory.builder(new WorkerFactory() {
+            @Override
+            public Worker createWorker() {
+                return new NoopWorker();
+            }
+        }).setWorkers(4, 4).build();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        pool.close();
+    }
+
+    @Benchmark
+    public void borrowRelease() {
+        Worker worker = pool.borrow(1, TimeUnit.MINUTES);
+        pool.release(worker);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void borrowReleaseContended() {
+        Worker worker = pool.borrow(1, TimeUnit.MINUTES);
+        pool.release(worker);
+    }
+
+}
@@ -75,6 +75,7 @@ import com.github.unidbg.ios.struct.sysctl.TaskDyldInfo;
 import com.github.unidbg.memory.MemoryBlock;
 import com.github.unidbg.memory.MemoryMap;
 import com.github.unidbg.memory.SvcMemory;
+import com.github.unidbg.metrics.EmulatorMetrics;
 import com.github.unidbg.pointer.UnidbgPointer;
 import com.github.unidbg.pointer.UnidbgStructure;
 import com.github.unidbg.unix.UnixEmulator;
@@ -112,13 +113,23 @@ public class ARM32SyscallHandler extends DarwinSyscallHandler {
         this.svcMemory = svcMemory;
     }
 
+    private static final int[] HOOK_REGS = new int[]{ArmConst.UC_ARM_REG_PC, ArmConst.UC_ARM_REG_CPSR, ArmConst.UC_ARM_REG_R12};
+    private static final int[] CALLBACK_REGS = new int[]{ArmConst.UC_ARM_REG_R5, ArmConst.UC_ARM_REG_R7, ArmConst.UC_ARM_REG_R4};
+
+    /**
+     * Scratch for the register batches, the values are consumed before any nested emulation can reenter the hook.
+     */
+    private final long[] regs = new long[Math.max(HOOK_REGS.length, CALLBACK_REGS.length)];
+
     @SuppressWarnings("unchecked")
     @Override
     public void hook(Backend backend, int intno, int swi, Object user) {
         Emulator<DarwinFileIO> emulator = (Emulator<DarwinFileIO>) user;
-        UnidbgPointer pc = UnidbgPointer.register(emulator, ArmConst.UC_ARM_REG_PC);
+        long[] regs = this.regs;
+        backend.reg_read_batch(HOOK_REGS, regs);
+        UnidbgPointer pc = UnidbgPointer.pointer(emulator, regs[0]);
         final int bkpt;
-        if (ARM.isThumb(backend)) {
+        if (ARM.isThumb((int) regs[1])) {
             bkpt = pc.getShort(0) & 0xff;
         } else {
             int instruction = pc.getInt(0);
@@ -134,19 +145,22 @@ public class ARM32SyscallHandler extends DarwinSyscallHandler {
             throw new BackendException("intno=" + intno);
         }
 
-        int NR = backend.reg_read(ArmConst.UC_ARM_REG_R12).intValue();
+        int NR = (int) regs[2];
         String syscall = null;
         Throwable exception = null;
         try {
-            if (swi == 0 && (backend.reg_read(ArmConst.UC_ARM_REG_R5).intValue()) == Svc.CALLBACK_SYSCALL_NUMBER && (backend.reg_read(ArmConst.UC_ARM_REG_R7).intValue()) == 0) { // callback
-                int number = backend.reg_read(ArmConst.UC_ARM_REG_R4).intValue();
-                Svc svc = svcMemory.getSvc(number);
-                if (svc != null) {
-                    svc.handleCallback(emulator);
-                    return;
+            if (swi == 0) {
+                backend.reg_read_batch(CALLBACK_REGS, regs);
+                if ((int) regs[0] == Svc.CALLBACK_SYSCALL_NUMBER && (int) regs[1] == 0) { // callback
+                    int number = (int) regs[2];
+                    Svc svc = svcMemory.getSvc(number);
+                    if (svc != null) {
+                        svc.handleCallback(emulator);
+                        return;
+                    }
+                    backend.emu_stop();
+                    throw new IllegalStateException("svc number: " + swi);
                 }
-                backend.emu_stop();
-                throw new IllegalStateException("svc number: " + swi);
             }
             if (swi != DARWIN_SWI_SYSCALL) {
                 Svc svc = svcMemory.getSvc(swi);
@@ -163,6 +177,10 @@ public class ARM32SyscallHandler extends DarwinSyscallHandler {
             }
 
             Cpsr.getArm(backend).setCarry(false);
+            EmulatorMetrics metrics = emulator.getMetrics();
+            if (metrics.isEnabled()) {
+                metrics.countSyscall(NR);
+            }
             if (handleSyscall(emulator, NR)) {
                 return;
             }
@@ -1632,9 +1650,9 @@ public class ARM32SyscallHandler extends DarwinSyscallHandler {
 
     @Override
     protected void fillKernelBootTime(Pointer buffer) {
-        long currentTimeMillis = bootTime;
-        long tv_sec = currentTimeMillis / 1000;
-        long tv_usec = (currentTimeMillis % 1000) * 1000 + (bootTime / 7 % 1000);
+        long bootTime = getBootTime();
+        long tv_sec = bootTime / 1000;
+        long tv_usec = (bootTime % 1000) * 1000 + (bootTime / 7 % 1000);
         TimeVal32 timeVal = new TimeVal32(buffer);
         timeVal.tv_sec = (int) tv_sec;
         timeVal.tv_usec = (int) tv_usec;
@@ -2424,7 +2442,7 @@ public class ARM32SyscallHandler extends DarwinSyscallHandler {
 
     protected int gettimeofday(Emulator<?> emulator) {
         EditableArm32RegisterContext context = emulator.getContext();
-        long currentTimeMillis = System.currentTimeMillis();
+        long currentTimeMillis = timeSource.currentTimeMillis();
         long tv_sec = currentTimeMillis / 1000;
         long tv_usec = (currentTimeMillis % 1000) * 1000;
         context.setR1((int) tv_usec);
@@ -2480,7 +2498,7 @@ public class ARM32SyscallHandler extends DarwinSyscallHandler {
     }
 
     private int mach_absolute_time(Emulator<?> emulator) {
-        long nanoTime = System.nanoTime();
+        long nanoTime = timeSource.nanoTime();
         if (log.isDebugEnabled()) {
             log.debug("mach_absolute_time nanoTime=" + nanoTime);
         }
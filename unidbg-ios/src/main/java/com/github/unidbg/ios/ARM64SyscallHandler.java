@@ -81,6 +81,7 @@ import com.github.unidbg.ios.struct.sysctl.TaskDyldInfo;
 import com.github.unidbg.memory.MemoryBlock;
 import com.github.unidbg.memory.MemoryMap;
 import com.github.unidbg.memory.SvcMemory;
+import com.github.unidbg.metrics.EmulatorMetrics;
 import com.github.unidbg.pointer.UnidbgPointer;
 import com.github.unidbg.pointer.UnidbgStructure;
 import com.github.unidbg.unix.UnixEmulator;
@@ -120,11 +121,21 @@ public class ARM64SyscallHandler extends DarwinSyscallHandler {
         this.svcMemory = svcMemory;
     }
 
+    private static final int[] HOOK_REGS = new int[]{Arm64Const.UC_ARM64_REG_PC, Arm64Const.UC_ARM64_REG_X16};
+    private static final int[] CALLBACK_REGS = new int[]{Arm64Const.UC_ARM64_REG_X8, Arm64Const.UC_ARM64_REG_X4};
+
+    /**
+     * Scratch for the register batches, the values are consumed before any nested emulation can reenter the hook.
+     */
+    private final long[] regs = new long[Math.max(HOOK_REGS.length, CALLBACK_REGS.length)];
+
     @SuppressWarnings("unchecked")
     @Override
     public void hook(Backend backend, int intno, int swi, Object user) {
         Emulator<DarwinFileIO> emulator = (Emulator<DarwinFileIO>) user;
-        UnidbgPointer pc = UnidbgPointer.register(emulator, Arm64Const.UC_ARM64_REG_PC);
+        long[] regs = this.regs;
+        backend.reg_read_batch(HOOK_REGS, regs);
+        UnidbgPointer pc = UnidbgPointer.pointer(emulator, regs[0]);
 
         if (intno == ARMEmulator.EXCP_BKPT) { // brk
             createBreaker(emulator).brk(pc, pc == null ? swi : (pc.getInt(0) >> 5) & 0xffff);
@@ -135,19 +146,22 @@ public class ARM64SyscallHandler extends DarwinSyscallHandler {
             throw new BackendException("intno=" + intno);
         }
 
-        int NR = backend.reg_read(Arm64Const.UC_ARM64_REG_X16).intValue();
+        int NR = (int) regs[1];
         String syscall = null;
         Throwable exception = null;
         try {
-            if (swi == 0 && NR == Svc.CALLBACK_SYSCALL_NUMBER && backend.reg_read(Arm64Const.UC_ARM64_REG_X8).intValue() == 0) { // callback
-                int number = backend.reg_read(Arm64Const.UC_ARM64_REG_X4).intValue();
-                Svc svc = svcMemory.getSvc(number);
-                if (svc != null) {
-                    svc.handleCallback(emulator);
-                    return;
+            if (swi == 0 && NR == Svc.CALLBACK_SYSCALL_NUMBER) {
+                backend.reg_read_batch(CALLBACK_REGS, regs);
+                if ((int) regs[0] == 0) { // callback
+                    int number = (int) regs[1];
+                    Svc svc = svcMemory.getSvc(number);
+                    if (svc != null) {
+                        svc.handleCallback(emulator);
+                        return;
+                    }
+                    backend.emu_stop();
+                    throw new IllegalStateException("svc number: " + swi);
                 }
-                backend.emu_stop();
-                throw new IllegalStateException("svc number: " + swi);
             }
             if (swi != DARWIN_SWI_SYSCALL) {
                 Svc svc = svcMemory.getSvc(swi);
@@ -177,6 +191,10 @@ public class ARM64SyscallHandler extends DarwinSyscallHandler {
                 return;
             }
 
+            EmulatorMetrics metrics = emulator.getMetrics();
+            if (metrics.isEnabled()) {
+                metrics.countSyscall(NR);
+            }
             if (handleSyscall(emulator, NR)) {
                 return;
             }
@@ -1699,9 +1717,9 @@ public class ARM64SyscallHandler extends DarwinSyscallHandler {
 
     @Override
     protected void fillKernelBootTime(Pointer buffer) {
-        long currentTimeMillis = bootTime;
-        long tv_sec = currentTimeMillis / 1000;
-        long tv_usec = (currentTimeMillis % 1000) * 1000 + (bootTime / 7 % 1000);
+        long bootTime = getBootTime();
+        long tv_sec = bootTime / 1000;
+        long tv_usec = (bootTime % 1000) * 1000 + (bootTime / 7 % 1000);
         TimeVal64 timeVal = new TimeVal64(buffer);
         timeVal.tv_sec = tv_sec;
         timeVal.tv_usec = tv_usec;
@@ -2863,8 +2881,8 @@ public class ARM64SyscallHandler extends DarwinSyscallHandler {
 
     protected long gettimeofday(Emulator<?> emulator) {
         EditableArm64RegisterContext context = emulator.getContext();
-        long currentTimeMillis = System.currentTimeMillis();
-        long nanoTime = System.nanoTime();
+        long currentTimeMillis = timeSource.currentTimeMillis();
+        long nanoTime = timeSource.nanoTime();
         long tv_sec = currentTimeMillis / 1000;
         long tv_usec = (currentTimeMillis % 1000) * 1000 + nanoTime % 1000;
         context.setXLong(1, tv_usec);
@@ -2920,7 +2938,7 @@ public class ARM64SyscallHandler extends DarwinSyscallHandler {
     }
 
     private long mach_absolute_time() {
-        long nanoTime = System.nanoTime();
+        long nanoTime = timeSource.nanoTime();
         if (log.isDebugEnabled()) {
             log.debug("mach_absolute_time nanoTime=" + nanoTime);
         }
@@ -0,0 +1,61 @@
+package com.github.unidbg.ios;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Sorted addresses answering closest lower address lookups by binary search.
+ * On equal addresses the entry added first wins.
+ */
+public final class AddressIndex {
+
+    private final long[] addresses;
+    private final int[] ordinals;
+
+    /**
+     * @param addresses address of each entry, the entry is identified by its ordinal in this array
+     */
+    public AddressIndex(final long[] addresses) {
+        Integer[] order = new Integer[addresses.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() { // stable: keeps the first added entry in front
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return Long.compare(addresses[o1], addresses[o2]);
+            }
+        });
+
+        long[] sorted = new long[order.length];
+        int[] ordinals = new int[order.length];
+        int size = 0;
+        for (Integer ordinal : order) {
+            long address = addresses[ordinal];
+            if (size > 0 && sorted[size - 1] == address) {
+                continue;
+            }
+            sorted[size] = address;
+            ordinals[size] = ordinal;
+            size++;
+        }
+        this.addresses = Arrays.copyOf(sorted, size);
+        this.ordinals = Arrays.copyOf(ordinals, size);
+    }
+
+    /**
+     * @return ordinal of the entry with the greatest address less than or equal to <code>address</code>, -1 if none.
+     */
+    public int findClosest(long address) {
+        int index = Arrays.binarySearch(addresses, address);
+        if (index < 0) {
+            index = -index - 2;
+        }
+        return index < 0 ? -1 : ordinals[index];
+    }
+
+    public int size() {
+        return addresses.length;
+    }
+
+}
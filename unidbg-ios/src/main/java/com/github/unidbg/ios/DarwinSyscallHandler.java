@@ -16,6 +16,7 @@ import com.github.unidbg.ios.struct.kernel.VprocMigLookupRequest;
 import com.github.unidbg.pointer.UnidbgPointer;
 import com.github.unidbg.pointer.UnidbgStructure;
 import com.github.unidbg.spi.SyscallHandler;
+import com.github.unidbg.unix.TimeSource;
 import com.github.unidbg.unix.UnixEmulator;
 import com.github.unidbg.unix.UnixSyscallHandler;
 import com.sun.jna.Pointer;
@@ -29,7 +30,19 @@ abstract class DarwinSyscallHandler extends UnixSyscallHandler<DarwinFileIO> imp
 
     private static final Log log = LogFactory.getLog(DarwinSyscallHandler.class);
 
-    final long bootTime = System.currentTimeMillis();
+    private TimeSource bootTimeSource;
+    private long bootTime;
+
+    /**
+     * kern.boottime in milliseconds: when the monotonic clock of the current time source started.
+     */
+    final long getBootTime() {
+        if (bootTimeSource != timeSource) {
+            bootTime = timeSource.currentTimeMillis() - timeSource.nanoTime() / 1000000L;
+            bootTimeSource = timeSource;
+        }
+        return bootTime;
+    }
 
     /**
      * sysctl hw.machine
@@ -34,6 +34,7 @@ import com.github.unidbg.memory.MemoryAllocBlock;
 import com.github.unidbg.memory.MemoryBlock;
 import com.github.unidbg.memory.MemoryBlockImpl;
 import com.github.unidbg.memory.MemoryMap;
+import com.github.unidbg.memory.MemorySnapshot;
 import com.github.unidbg.pointer.UnidbgPointer;
 import com.github.unidbg.pointer.UnidbgStructure;
 import com.github.unidbg.spi.AbstractLoader;
@@ -732,6 +733,7 @@ public class MachOLoader extends AbstractLoader<DarwinFileIO> implements Memory,
         if (subModule != null) {
             subModule.exportModules.put(FilenameUtils.getBaseName(module.name), module);
         }
+        symbolNamespace.add(module);
 
         if (maxDylibName == null || dyId.length() > maxDylibName.length()) {
             maxDylibName = dyId;
@@ -1360,11 +1362,10 @@ public class MachOLoader extends AbstractLoader<DarwinFileIO> implements Memory,
         } else if (libraryOrdinal <= 0) {
             throw new IllegalStateException(String.format("bad mach-o binary, unknown special library ordinal (%d) too big for symbol %s in %s", libraryOrdinal, symbolName, module.getPath()));
         } else if (libraryOrdinal <= module.ordinalList.size()) {
-            String path = module.ordinalList.get(libraryOrdinal - 1);
-            targetImage = this.modules.get(FilenameUtils.getName(path));
+            targetImage = symbolNamespace.getImage(module, libraryOrdinal);
             if (targetImage == null) { // LOAD_WEAK_DYLIB
                 if (log.isDebugEnabled()) {
-                    log.debug("doBindAt LOAD_WEAK_DYLIB: " + path);
+                    log.debug("doBindAt LOAD_WEAK_DYLIB: " + module.ordinalList.get(libraryOrdinal - 1));
                 }
                 return false;
             }
@@ -1463,6 +1464,8 @@ public class MachOLoader extends AbstractLoader<DarwinFileIO> implements Memory,
 
     final Map<String, MachOModule> modules = new LinkedHashMap<>();
 
+    final SymbolNamespace symbolNamespace = new SymbolNamespace(modules);
+
     private int get_segment_protection(MachO.VmProt vmProt) {
         int prot = Unicorn.UC_PROT_NONE;
         if (vmProt.read()) prot |= Unicorn.UC_PROT_READ;
@@ -1604,6 +1607,36 @@ public class MachOLoader extends AbstractLoader<DarwinFileIO> implements Memory,
         return list;
     }
 
+    @Override
+    protected void onSnapshot(MemorySnapshot snapshot) {
+        super.onSnapshot(snapshot);
+
+        snapshot.set("modules", new LinkedHashMap<>(modules));
+        snapshot.set("executableModule", executableModule);
+        snapshot.set("maxDylibName", maxDylibName);
+        snapshot.set("maxSizeOfDylib", maxSizeOfDylib);
+        snapshot.set("malloc", malloc);
+        snapshot.set("free", free);
+    }
+
+    @Override
+    protected void onRestore(MemorySnapshot snapshot) {
+        super.onRestore(snapshot);
+
+        this.maxDylibName = snapshot.get("maxDylibName");
+        this.maxSizeOfDylib = snapshot.<Long>get("maxSizeOfDylib");
+
+        Map<String, MachOModule> modules = snapshot.get("modules");
+        if (modules != null) { // null if restored from image: modules were loaded again
+            this.modules.clear();
+            this.modules.putAll(modules);
+            this.symbolNamespace.rebuild();
+            this.executableModule = snapshot.get("executableModule");
+            this.malloc = snapshot.get("malloc");
+            this.free = snapshot.get("free");
+        }
+    }
+
     @Override
     public String getMaxLengthLibraryName() {
         return maxDylibName;
@@ -1869,6 +1902,7 @@ public class MachOLoader extends AbstractLoader<DarwinFileIO> implements Memory,
     public Module loadVirtualModule(String name, Map<String, UnidbgPointer> symbols) {
         MachOModule module = MachOModule.createVirtualModule(name, symbols, emulator);
         modules.put(name, module);
+        symbolNamespace.add(module);
         if (maxDylibName == null || name.length() > maxDylibName.length()) {
             maxDylibName = name;
         }
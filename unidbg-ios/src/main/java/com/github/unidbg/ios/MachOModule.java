@@ -20,7 +20,6 @@ import com.github.unidbg.virtualmodule.VirtualSymbol;
 import com.sun.jna.Pointer;
 import io.kaitai.MachO;
 import io.kaitai.struct.ByteBufferKaitaiStream;
-import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -29,11 +28,11 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -42,7 +41,7 @@ public class MachOModule extends Module implements com.github.unidbg.ios.MachO {
 
     final Emulator<?> emulator;
     final MachO machO;
-    private final MachO.SymtabCommand symtabCommand;
+    final MachO.SymtabCommand symtabCommand;
     final MachO.DysymtabCommand dysymtabCommand;
     final ByteBuffer buffer;
     final List<NeedLibrary> lazyLoadNeededList;
@@ -602,31 +601,35 @@ public class MachOModule extends Module implements com.github.unidbg.ios.MachO {
             return symbol;
         }
 
-        if (withDependencies) {
-            Set<Module> findSet = new LinkedHashSet<>(loader.getLoadedModules().size());
-            findSet.addAll(exportModules.values());
-            findSet.addAll(upwardLibraries.values());
-            findSet.addAll(neededLibraries.values());
-            findSet.addAll(loader.getLoadedModules());
-            for (Module module : findSet) {
-                symbol = module.findSymbolByName(name, false);
-                if (symbol != null) {
-                    return symbol;
-                }
+        symbol = loader.symbolNamespace.findReexportSymbol(this, name);
+        if (symbol != null || !withDependencies) {
+            return symbol;
+        }
+
+        for (Module module : upwardLibraries.values()) {
+            symbol = module.findSymbolByName(name, false);
+            if (symbol != null) {
+                return symbol;
             }
-        } else {
-            for (Module module : exportModules.values()) {
-                symbol = module.findSymbolByName(name, false);
-                if (symbol != null) {
-                    return symbol;
-                }
+        }
+        for (Module module : neededLibraries.values()) {
+            symbol = module.findSymbolByName(name, false);
+            if (symbol != null) {
+                return symbol;
             }
         }
+        return loader.symbolNamespace.findFlatSymbol(name);
+    }
 
-        return null;
+    /**
+     * Names of the symbols defined by this image, without re-exports.
+     */
+    Collection<String> getSymbolNames() {
+        return symbolMap.keySet();
     }
 
     private CDObjectiveCProcessor objectiveCProcessor;
+    private SymbolTable symbolTable;
 
     @Override
     public Symbol findClosestSymbolByAddress(long addr, boolean fast) {
@@ -638,50 +641,14 @@ public class MachOModule extends Module implements com.github.unidbg.ios.MachO {
             return null;
         }
 
-        List<MachO.SymtabCommand.Nlist> symbols = symtabCommand.symbols();
-        MachO.SymtabCommand.Nlist bestSymbol = null;
-
-        // first walk all global symbols
-        for (long i = dysymtabCommand.iExtDefSym(); i < dysymtabCommand.iExtDefSym() + dysymtabCommand.nExtDefSym(); i++) {
-            MachO.SymtabCommand.Nlist nlist = symbols.get((int) i);
-            if ((nlist.type() & N_TYPE) == N_SECT) {
-                if ( bestSymbol == null ) {
-                    if ( nlist.value() <= targetAddress ) {
-                        bestSymbol = nlist;
-                    }
-                } else if ( (nlist.value() <= targetAddress) && (bestSymbol.value() < nlist.value()) ) {
-                    bestSymbol = nlist;
-                }
-            }
-        }
-
-        // next walk all local symbols
-        for (long i = dysymtabCommand.iLocalSym(); i < dysymtabCommand.iLocalSym() + dysymtabCommand.nLocalSym(); i++) {
-            MachO.SymtabCommand.Nlist nlist = symbols.get((int) i);
-            if ((nlist.type() & N_TYPE) == N_SECT && ((nlist.type() & N_STAB) == 0)) {
-                if ( bestSymbol == null ) {
-                    if ( nlist.value() <= targetAddress ) {
-                        bestSymbol = nlist;
-                    }
-                } else if ( (nlist.value() <= targetAddress) && (bestSymbol.value() < nlist.value()) ) {
-                    bestSymbol = nlist;
-                }
-            }
+        if (symbolTable == null) {
+            symbolTable = SymbolTable.getSymbolTable(this);
         }
-
         Symbol symbol = null;
-        if (bestSymbol != null) {
-            buffer.limit((int) (symtabCommand.strOff() + symtabCommand.strSize()));
-            buffer.position((int) symtabCommand.strOff());
-            ByteBuffer strBuffer = buffer.slice();
-            strBuffer.position((int) bestSymbol.un());
-            ByteBufferKaitaiStream io = new ByteBufferKaitaiStream(strBuffer);
-            String symbolName = new String(io.readBytesTerm(0, false, true, true), StandardCharsets.US_ASCII);
-            // strip off leading underscore
-            if (symbolName.startsWith("_")) {
-                symbolName = symbolName.substring(1);
-            }
-            symbol = new MachOSymbol(this, bestSymbol, symbolName);
+        int ordinal = symbolTable.findClosest(targetAddress);
+        if (ordinal != -1) {
+            MachO.SymtabCommand.Nlist bestSymbol = symtabCommand.symbols().get(symbolTable.getSymbolIndex(ordinal));
+            symbol = new MachOSymbol(this, bestSymbol, symbolTable.getName(ordinal, buffer, symtabCommand));
             // never return the mach_header symbol
             if ((symbol.getAddress() & ~1) == base) {
                 return null;
@@ -779,6 +746,10 @@ public class MachOModule extends Module implements com.github.unidbg.ios.MachO {
                 }
             }
             @Override
+            Collection<String> getSymbolNames() {
+                return symbols.keySet();
+            }
+            @Override
             public void registerSymbol(String symbolName, long address) {
             }
             @Override
@@ -868,10 +839,9 @@ public class MachOModule extends Module implements com.github.unidbg.ios.MachO {
         } else if (libraryOrdinal <= 0) {
             throw new IllegalStateException(String.format("bad mach-o binary, unknown special library ordinal (%d) too big for symbol %s in %s", libraryOrdinal, symbolName, getPath()));
         } else if (libraryOrdinal <= ordinalList.size()) {
-            String path = ordinalList.get(libraryOrdinal - 1);
-            targetImage = loader.modules.get(FilenameUtils.getName(path));
+            targetImage = loader.symbolNamespace.getImage(this, libraryOrdinal);
             if (targetImage == null) {
-                throw new IllegalStateException("targetImage is null: path=" + path + ", module=" + getPath() + ", symbolName=" + symbolName);
+                throw new IllegalStateException("targetImage is null: path=" + ordinalList.get(libraryOrdinal - 1) + ", module=" + getPath() + ", symbolName=" + symbolName);
             }
         } else {
             throw new IllegalStateException(String.format("bad mach-o binary, library ordinal (%d) too big (max %d) for symbol %s in %s", libraryOrdinal, ordinalList.size(), symbolName, getPath()));
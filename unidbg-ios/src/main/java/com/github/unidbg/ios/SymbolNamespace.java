@@ -0,0 +1,119 @@
+package com.github.unidbg.ios;
+
+import com.github.unidbg.Module;
+import com.github.unidbg.Symbol;
+import org.apache.commons.io.FilenameUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Symbol index of the loaded images, maintained by {@link MachOLoader} on module load.
+ * Two-level namespace: library ordinal to image, and image to the symbols it re-exports.
+ * Flat namespace: symbol name to the first loaded image defining it.
+ */
+class SymbolNamespace {
+
+    private final Map<String, MachOModule> modules;
+
+    /**
+     * name -> first image in load order defining the symbol in its own symbol table
+     */
+    private final Map<String, MachOModule> flatNamespace = new HashMap<>();
+
+    /**
+     * image -> name -> re-exported image defining the symbol, built on demand
+     */
+    private final Map<MachOModule, Map<String, MachOModule>> exportNamespaces = new HashMap<>();
+
+    /**
+     * image -> loaded images by library ordinal, built on demand
+     */
+    private final Map<MachOModule, MachOModule[]> ordinalImages = new HashMap<>();
+
+    SymbolNamespace(Map<String, MachOModule> modules) {
+        this.modules = modules;
+    }
+
+    final void add(MachOModule module) {
+        for (String name : module.getSymbolNames()) {
+            if (!flatNamespace.containsKey(name)) {
+                flatNamespace.put(name, module);
+            }
+        }
+        invalidate();
+    }
+
+    /**
+     * Re-exports or dependencies changed: drop the two-level namespace.
+     */
+    final void invalidate() {
+        exportNamespaces.clear();
+        ordinalImages.clear();
+    }
+
+    final void rebuild() {
+        flatNamespace.clear();
+        for (MachOModule module : modules.values()) {
+            add(module);
+        }
+    }
+
+    /**
+     * @param libraryOrdinal 1 based index of the dylib load commands
+     * @return <code>null</code> if the dylib was not loaded
+     */
+    final MachOModule getImage(MachOModule module, int libraryOrdinal) {
+        MachOModule[] images = ordinalImages.get(module);
+        if (images == null) {
+            images = new MachOModule[module.ordinalList.size()];
+            for (int i = 0; i < images.length; i++) {
+                images[i] = modules.get(FilenameUtils.getName(module.ordinalList.get(i)));
+            }
+            ordinalImages.put(module, images);
+        }
+        return images[libraryOrdinal - 1];
+    }
+
+    /**
+     * Symbol re-exported by the image, not looking at its own symbol table.
+     */
+    final Symbol findReexportSymbol(MachOModule image, String name) {
+        if (image.exportModules.isEmpty()) {
+            return null;
+        }
+        MachOModule owner = getExportNamespace(image).get(name);
+        return owner == null ? null : owner.findSymbolByName(name, false);
+    }
+
+    final Symbol findFlatSymbol(String name) {
+        MachOModule owner = flatNamespace.get(name);
+        return owner == null ? null : owner.findSymbolByName(name, false);
+    }
+
+    private Map<String, MachOModule> getExportNamespace(MachOModule image) {
+        Map<String, MachOModule> namespace = exportNamespaces.get(image);
+        if (namespace != null) {
+            return namespace;
+        }
+        namespace = new HashMap<>();
+        exportNamespaces.put(image, namespace); // guards against re-export cycles
+        for (Module module : image.exportModules.values()) {
+            MachOModule export = (MachOModule) module;
+            for (String name : export.getSymbolNames()) {
+                if (!namespace.containsKey(name)) {
+                    namespace.put(name, export);
+                }
+            }
+            if (!export.exportModules.isEmpty()) {
+                for (Map.Entry<String, MachOModule> entry : getExportNamespace(export).entrySet()) {
+                    if (!namespace.containsKey(entry.getKey())) {
+                        namespace.put(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+        }
+        return namespace;
+    }
+
+}
@@ -0,0 +1,118 @@
+package com.github.unidbg.ios;
+
+import com.github.unidbg.Utils;
+import io.kaitai.MachO;
+import io.kaitai.struct.ByteBufferKaitaiStream;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Defined symbols of an image sorted by address, names decoded on first use.
+ * Only depends on the file, so images with the same uuid share one table across emulators.
+ */
+class SymbolTable implements com.github.unidbg.ios.MachO {
+
+    private static final Map<String, SymbolTable> sharedTables = new HashMap<>();
+
+    static SymbolTable getSymbolTable(MachOModule module) {
+        String uuid = getUUID(module.machO);
+        if (uuid == null) {
+            return new SymbolTable(module.symtabCommand, module.dysymtabCommand);
+        }
+        String key = module.name + '@' + uuid;
+        synchronized (sharedTables) {
+            SymbolTable table = sharedTables.get(key);
+            if (table == null) {
+                table = new SymbolTable(module.symtabCommand, module.dysymtabCommand);
+                sharedTables.put(key, table);
+            }
+            return table;
+        }
+    }
+
+    private static String getUUID(MachO machO) {
+        for (MachO.LoadCommand command : machO.loadCommands()) {
+            if (command.type() == MachO.LoadCommandType.UUID) {
+                return Utils.toUUID(((MachO.UuidCommand) command.body()).uuid());
+            }
+        }
+        return null;
+    }
+
+    private final AddressIndex index;
+    private final int[] symbolIndices;
+    private final long[] strOffsets;
+    private final String[] names;
+
+    private SymbolTable(MachO.SymtabCommand symtabCommand, MachO.DysymtabCommand dysymtabCommand) {
+        List<MachO.SymtabCommand.Nlist> symbols = symtabCommand.symbols();
+        int count = (int) (dysymtabCommand.nExtDefSym() + dysymtabCommand.nLocalSym());
+        long[] values = new long[count];
+        int[] symbolIndices = new int[count];
+        int size = 0;
+
+        // global symbols first: they win over local symbols at the same address
+        for (long i = dysymtabCommand.iExtDefSym(); i < dysymtabCommand.iExtDefSym() + dysymtabCommand.nExtDefSym(); i++) {
+            MachO.SymtabCommand.Nlist nlist = symbols.get((int) i);
+            if ((nlist.type() & N_TYPE) == N_SECT) {
+                values[size] = nlist.value();
+                symbolIndices[size++] = (int) i;
+            }
+        }
+        for (long i = dysymtabCommand.iLocalSym(); i < dysymtabCommand.iLocalSym() + dysymtabCommand.nLocalSym(); i++) {
+            MachO.SymtabCommand.Nlist nlist = symbols.get((int) i);
+            if ((nlist.type() & N_TYPE) == N_SECT && ((nlist.type() & N_STAB) == 0)) {
+                values[size] = nlist.value();
+                symbolIndices[size++] = (int) i;
+            }
+        }
+
+        this.index = new AddressIndex(Arrays.copyOf(values, size));
+        this.symbolIndices = Arrays.copyOf(symbolIndices, size);
+        this.strOffsets = new long[size];
+        for (int i = 0; i < size; i++) {
+            strOffsets[i] = symbols.get(this.symbolIndices[i]).un();
+        }
+        this.names = new String[size];
+    }
+
+    /**
+     * @param value address relative to the image base
+     * @return ordinal of the closest symbol at or below <code>value</code>, -1 if none.
+     */
+    final int findClosest(long value) {
+        return index.findClosest(value);
+    }
+
+    final int getSymbolIndex(int ordinal) {
+        return symbolIndices[ordinal];
+    }
+
+    /**
+     * @return symbol name without the leading underscore
+     */
+    final String getName(int ordinal, ByteBuffer buffer, MachO.SymtabCommand symtabCommand) {
+        String name = names[ordinal];
+        if (name == null) {
+            ByteBuffer strBuffer = buffer.duplicate();
+            strBuffer.limit((int) (symtabCommand.strOff() + symtabCommand.strSize()));
+            strBuffer.position((int) symtabCommand.strOff());
+            strBuffer = strBuffer.slice();
+            strBuffer.position((int) strOffsets[ordinal]);
+            ByteBufferKaitaiStream io = new ByteBufferKaitaiStream(strBuffer);
+            name = new String(io.readBytesTerm(0, false, true, true), StandardCharsets.US_ASCII);
+            // strip off leading underscore
+            if (name.startsWith("_")) {
+                name = name.substring(1);
+            }
+            names[ordinal] = name;
+        }
+        return name;
+    }
+
+}
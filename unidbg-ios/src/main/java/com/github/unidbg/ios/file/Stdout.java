@@ -40,13 +40,18 @@ public class Stdout extends SimpleFileIO {
 
     private RandomAccessFile output;
 
+    private RandomAccessFile getOutput() throws IOException {
+        if (output == null) {
+            output = new RandomAccessFile(file, "rw");
+            output.getChannel().truncate(0);
+        }
+        return output;
+    }
+
     @Override
     public int write(byte[] data) {
         try {
-            if (output == null) {
-                output = new RandomAccessFile(file, "rw");
-                output.getChannel().truncate(0);
-            }
+            RandomAccessFile output = getOutput();
 
             if (debugStream != null) {
                 debugStream.write(data);
@@ -67,6 +72,7 @@ public class Stdout extends SimpleFileIO {
     @Override
     public int lseek(int offset, int whence) {
         try {
+            RandomAccessFile output = getOutput();
             switch (whence) {
                 case FileIO.SEEK_SET:
                     output.seek(offset);
@@ -85,7 +91,7 @@ public class Stdout extends SimpleFileIO {
     @Override
     public int ftruncate(int length) {
         try {
-            output.getChannel().truncate(length);
+            getOutput().getChannel().truncate(length);
             return 0;
         } catch (IOException e) {
             throw new IllegalStateException(e);
@@ -10,6 +10,7 @@ import com.github.unidbg.ios.struct.DispatchSourceType;
 import com.github.unidbg.memory.MemoryBlock;
 import com.github.unidbg.memory.SvcMemory;
 import com.github.unidbg.pointer.UnidbgPointer;
+import com.github.unidbg.unix.TimeSource;
 import com.sun.jna.Pointer;
 import keystone.Keystone;
 import keystone.KeystoneArchitecture;
@@ -39,8 +40,6 @@ public class SymbolResolver implements HookListener {
         this.emulator = emulator;
     }
 
-    private final long nanoTime = System.nanoTime();
-
     private static final int CLOCK_REALTIME = 0;
     private static final int CLOCK_MONOTONIC_RAW = 4;
     private static final int CLOCK_MONOTONIC = 6;
@@ -58,7 +57,8 @@ public class SymbolResolver implements HookListener {
                         RegisterContext context = emulator.getContext();
                         int clk_id = context.getIntArg(0);
                         Pointer tp = context.getPointerArg(1);
-                        long offset = clk_id == CLOCK_REALTIME ? System.currentTimeMillis() * 1000000L : System.nanoTime() - nanoTime;
+                        TimeSource timeSource = emulator.getSyscallHandler().getTimeSource();
+                        long offset = clk_id == CLOCK_REALTIME ? timeSource.currentTimeMillis() * 1000000L : timeSource.nanoTime();
                         long tv_sec = offset / 1000000000L;
                         long tv_nsec = offset % 1000000000L;
                         if (log.isDebugEnabled()) {
@@ -2,6 +2,7 @@ package com.github.unidbg.ios.objc;
 
 import com.github.unidbg.Emulator;
 import com.github.unidbg.Symbol;
+import com.github.unidbg.ios.AddressIndex;
 import com.github.unidbg.ios.ExportSymbol;
 import com.github.unidbg.ios.MachOModule;
 
@@ -23,65 +24,60 @@ public abstract class CDObjectiveCProcessor {
         this.emulator = emulator;
     }
 
-    public Symbol findObjcSymbol(Symbol bestSymbol, long targetAddress, MachOModule module) {
-        String className = null;
-        Objc2Method objc2Method = null;
-        boolean isClassMethod = false;
+    private AddressIndex methodIndex;
+    private Objc2Method[] methods;
+    private String[] methodClassNames;
+    private boolean[] classMethods;
+
+    private void addMethods(List<Objc2Method> methods, List<String> classNames, List<Boolean> classMethods, List<Objc2Method> list, String className, boolean isClassMethod) {
+        for (Objc2Method method : list) {
+            methods.add(method);
+            classNames.add(className);
+            classMethods.add(isClassMethod);
+        }
+    }
+
+    /**
+     * Methods sorted by imp, in the order of the class and category lists for equal imp.
+     */
+    private void buildMethodIndex() {
+        List<Objc2Method> methods = new ArrayList<>();
+        List<String> classNames = new ArrayList<>();
+        List<Boolean> classMethods = new ArrayList<>();
         for (Objc2Class clazz : classList) {
-            for (Objc2Method method : clazz.methods) {
-                if ( objc2Method == null ) {
-                    if ( method.imp <= targetAddress ) {
-                        className = clazz.name;
-                        objc2Method = method;
-                    }
-                } else if ( (method.imp <= targetAddress) && (objc2Method.imp < method.imp) ) {
-                    isClassMethod = false;
-                    className = clazz.name;
-                    objc2Method = method;
-                }
-            }
+            addMethods(methods, classNames, classMethods, clazz.methods, clazz.name, false);
             if (clazz.metaClass != null) {
-                for (Objc2Method method : clazz.metaClass.methods) {
-                    if ( objc2Method == null ) {
-                        if ( method.imp <= targetAddress ) {
-                            isClassMethod = true;
-                            className = clazz.name;
-                            objc2Method = method;
-                        }
-                    } else if ( (method.imp <= targetAddress) && (objc2Method.imp < method.imp) ) {
-                        isClassMethod = true;
-                        className = clazz.name;
-                        objc2Method = method;
-                    }
-                }
+                addMethods(methods, classNames, classMethods, clazz.metaClass.methods, clazz.name, true);
             }
         }
         for (Objc2Category category : categoryList) {
-            for (Objc2Method method : category.instanceMethodList) {
-                if ( objc2Method == null ) {
-                    if ( method.imp <= targetAddress ) {
-                        className = category.name;
-                        objc2Method = method;
-                    }
-                } else if ( (method.imp <= targetAddress) && (objc2Method.imp < method.imp) ) {
-                    isClassMethod = false;
-                    className = category.name;
-                    objc2Method = method;
-                }
-            }
-            for (Objc2Method method : category.classMethodList) {
-                if ( objc2Method == null ) {
-                    if ( method.imp <= targetAddress ) {
-                        isClassMethod = true;
-                        className = category.name;
-                        objc2Method = method;
-                    }
-                } else if ( (method.imp <= targetAddress) && (objc2Method.imp < method.imp) ) {
-                    isClassMethod = true;
-                    className = category.name;
-                    objc2Method = method;
-                }
-            }
+            addMethods(methods, classNames, classMethods, category.instanceMethodList, category.name, false);
+            addMethods(methods, classNames, classMethods, category.classMethodList, category.name, true);
+        }
+
+        long[] imps = new long[methods.size()];
+        this.classMethods = new boolean[imps.length];
+        for (int i = 0; i < imps.length; i++) {
+            imps[i] = methods.get(i).imp;
+            this.classMethods[i] = classMethods.get(i);
+        }
+        this.methods = methods.toArray(new Objc2Method[0]);
+        this.methodClassNames = classNames.toArray(new String[0]);
+        this.methodIndex = new AddressIndex(imps);
+    }
+
+    public Symbol findObjcSymbol(Symbol bestSymbol, long targetAddress, MachOModule module) {
+        if (methodIndex == null) {
+            buildMethodIndex();
+        }
+        String className = null;
+        Objc2Method objc2Method = null;
+        boolean isClassMethod = false;
+        int ordinal = methodIndex.findClosest(targetAddress);
+        if (ordinal != -1) {
+            className = methodClassNames[ordinal];
+            objc2Method = methods[ordinal];
+            isClassMethod = classMethods[ordinal];
         }
         if (bestSymbol != null &&
                 objc2Method != null &&
@@ -0,0 +1,54 @@
+package com.github.unidbg.ios;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+public class AddressIndexTest extends TestCase {
+
+    public void testFindClosest() {
+        AddressIndex index = new AddressIndex(new long[]{0x3000, 0x1000, 0x2000, 0x1000, 0x2000});
+        assertEquals(3, index.size());
+
+        assertEquals(-1, index.findClosest(0));
+        assertEquals(-1, index.findClosest(0xfff));
+        assertEquals("first added entry wins on equal addresses", 1, index.findClosest(0x1000));
+        assertEquals(1, index.findClosest(0x1fff));
+        assertEquals(2, index.findClosest(0x2000));
+        assertEquals(2, index.findClosest(0x2fff));
+        assertEquals(0, index.findClosest(0x3000));
+        assertEquals(0, index.findClosest(Long.MAX_VALUE));
+    }
+
+    public void testEmpty() {
+        AddressIndex index = new AddressIndex(new long[0]);
+        assertEquals(0, index.size());
+        assertEquals(-1, index.findClosest(0x1000));
+    }
+
+    public void testLinearScan() {
+        Random random = new Random(0x1234);
+        long[] addresses = new long[500];
+        for (int i = 0; i < addresses.length; i++) {
+            addresses[i] = 0x10000 + random.nextInt(0x400) * 8;
+        }
+        AddressIndex index = new AddressIndex(addresses);
+        for (long address = 0xfff0; address < 0x12010; address += 3) {
+            assertEquals("address=0x" + Long.toHexString(address), linearScan(addresses, address), index.findClosest(address));
+        }
+    }
+
+    /**
+     * Greatest address less than or equal to <code>address</code>, the first added on ties.
+     */
+    private static int linearScan(long[] addresses, long address) {
+        int found = -1;
+        for (int i = 0; i < addresses.length; i++) {
+            if (addresses[i] <= address && (found == -1 || addresses[i] > addresses[found])) {
+                found = i;
+            }
+        }
+        return found;
+    }
+
+}
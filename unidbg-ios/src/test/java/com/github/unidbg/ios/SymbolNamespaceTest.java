@@ -0,0 +1,135 @@
+package com.github.unidbg.ios;
+
+import com.github.unidbg.Module;
+import com.github.unidbg.Symbol;
+import com.github.unidbg.hook.HookListener;
+import com.github.unidbg.memory.MemRegion;
+import com.github.unidbg.virtualmodule.VirtualSymbol;
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SymbolNamespaceTest extends TestCase {
+
+    private final Map<String, MachOModule> modules = new LinkedHashMap<>();
+    private final SymbolNamespace namespace = new SymbolNamespace(modules);
+
+    private long nextBase = 0x10000;
+
+    /**
+     * Image defining <code>symbolNames</code>, loaded after the images created before.
+     */
+    private MachOModule load(final String name, List<String> ordinalList, final String... symbolNames) {
+        final long base = nextBase;
+        nextBase += 0x10000;
+        MachOModule module = new MachOModule(null, name, base, 0x10000, Collections.<String, Module>emptyMap(),
+                Collections.<MemRegion>emptyList(),
+                null, null, null,
+                Collections.<NeedLibrary>emptyList(),
+                Collections.<String, Module>emptyMap(),
+                new LinkedHashMap<String, Module>(),
+                "/usr/lib/" + name, null, null, null, null, null, 0L, false, null,
+                Collections.<HookListener>emptyList(), ordinalList, null, null, null, null) {
+            @Override
+            public Symbol findSymbolByName(String symbolName, boolean withDependencies) {
+                int index = Arrays.asList(symbolNames).indexOf(symbolName);
+                return index == -1 ? null : new VirtualSymbol(symbolName, this, base + index * 4);
+            }
+            @Override
+            Collection<String> getSymbolNames() {
+                return Arrays.asList(symbolNames);
+            }
+        };
+        modules.put(name, module);
+        namespace.add(module);
+        return module;
+    }
+
+    private MachOModule load(String name, String... symbolNames) {
+        return load(name, Collections.<String>emptyList(), symbolNames);
+    }
+
+    private static void reexport(MachOModule image, MachOModule export) {
+        image.exportModules.put(export.name, export);
+    }
+
+    public void testFlatNamespace() {
+        MachOModule first = load("libfirst.dylib", "_shared", "_first");
+        MachOModule second = load("libsecond.dylib", "_shared", "_second");
+
+        assertEquals("first loaded image wins", first.name, namespace.findFlatSymbol("_shared").getModuleName());
+        assertEquals(second.name, namespace.findFlatSymbol("_second").getModuleName());
+        assertNull(namespace.findFlatSymbol("_missing"));
+
+        modules.remove(first.name);
+        namespace.rebuild();
+        assertEquals(second.name, namespace.findFlatSymbol("_shared").getModuleName());
+        assertNull(namespace.findFlatSymbol("_first"));
+    }
+
+    public void testTwoLevelNamespace() {
+        MachOModule malloc = load("libsystem_malloc.dylib", "_malloc", "_free");
+        MachOModule c = load("libsystem_c.dylib", "_printf", "_malloc");
+        MachOModule kernel = load("libsystem_kernel.dylib", "_write");
+        MachOModule system = load("libSystem.B.dylib", "_system_version");
+        MachOModule app = load("libapp.dylib", "_printf");
+        reexport(system, malloc);
+        reexport(system, c);
+        reexport(c, kernel);
+        namespace.invalidate();
+
+        assertEquals("first re-export wins", malloc.name, namespace.findReexportSymbol(system, "_malloc").getModuleName());
+        assertEquals(c.name, namespace.findReexportSymbol(system, "_printf").getModuleName());
+        assertEquals("nested re-export", kernel.name, namespace.findReexportSymbol(system, "_write").getModuleName());
+        assertNull("own symbols are not re-exports", namespace.findReexportSymbol(system, "_system_version"));
+        assertNull(namespace.findReexportSymbol(app, "_printf"));
+
+        assertEquals("flat namespace ignores re-exports", c.name, namespace.findFlatSymbol("_printf").getModuleName());
+        assertNull(namespace.findFlatSymbol("_missing"));
+    }
+
+    public void testInvalidate() {
+        MachOModule image = load("libimage.dylib");
+        MachOModule first = load("libfirst.dylib", "_symbol");
+        MachOModule second = load("libsecond.dylib", "_symbol", "_other");
+        reexport(image, second);
+        namespace.invalidate();
+        assertEquals(second.name, namespace.findReexportSymbol(image, "_symbol").getModuleName());
+
+        image.exportModules.clear();
+        reexport(image, first);
+        assertEquals("cached until invalidated", second.name, namespace.findReexportSymbol(image, "_symbol").getModuleName());
+        namespace.invalidate();
+        assertEquals(first.name, namespace.findReexportSymbol(image, "_symbol").getModuleName());
+        assertNull(namespace.findReexportSymbol(image, "_other"));
+    }
+
+    public void testReexportCycle() {
+        MachOModule a = load("liba.dylib", "_a");
+        MachOModule b = load("libb.dylib", "_b");
+        reexport(a, b);
+        reexport(b, a);
+        namespace.invalidate();
+
+        assertEquals(b.name, namespace.findReexportSymbol(a, "_b").getModuleName());
+        assertEquals(a.name, namespace.findReexportSymbol(b, "_a").getModuleName());
+        assertNull(namespace.findReexportSymbol(a, "_missing"));
+    }
+
+    public void testLibraryOrdinal() {
+        MachOModule dependency = load("libdependency.dylib", "_symbol");
+        MachOModule image = load("libimage.dylib", Arrays.asList("/usr/lib/libdependency.dylib", "/usr/lib/libnotloaded.dylib"));
+
+        assertSame(dependency, namespace.getImage(image, 1));
+        assertNull(namespace.getImage(image, 2));
+
+        MachOModule loaded = load("libnotloaded.dylib");
+        assertSame("loading an image drops the ordinal cache", loaded, namespace.getImage(image, 2));
+    }
+
+}